@@ -0,0 +1,255 @@
+/*
+ * File: BackgroundChecker.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import bantam.semant.CompilationDatabase;
+import bantam.util.CancellationToken;
+import bantam.util.Error;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+
+import org.reactfx.Subscription;
+
+/**
+ * Checks the Bantam tabs of the IDE while the user types.
+ *
+ * Edits are coalesced: a check is only requested once the user stops typing
+ * for a moment, and requesting a new check cancels the one still running
+ * (the Scanner, Parser and TypeCheckerVisitor poll the CancellationToken).
+ * Checks run on the bounded EditorPool shared with the highlighters, ahead
+ * of the highlighting of background tabs, and the FX thread only takes
+ * snapshots of the text and publishes the results.  The tabs are checked
+ * incrementally by a CompilationDatabase, so a tab whose text has not
+ * changed since its last check is not parsed again, and only the members
+ * whose text changed are type checked again.  The diagnostics of all tabs
+ * are handed back to the FX thread in one batch.
+ *
+ * @author Baron Wang
+ */
+public class BackgroundChecker {
+
+    // how long the user must stop typing before a check is requested
+    private static final Duration EDIT_PAUSE = Duration.ofMillis(500);
+
+    private final TabPane tabPane;
+    // gives the path (or the name, for unsaved tabs) of the file in a tab
+    private final Function<Tab, String> fileNameOf;
+    // gives the document holding the text of a tab
+    private final Function<Tab, TabDocument> documentOf;
+    // receives, on the FX thread, the errors of every Bantam tab
+    private final Consumer<Map<Tab, List<Error>>> publisher;
+    // the edit subscription of each tab, so it can be removed with the tab
+    private final Map<Tab, Subscription> subscriptions = new HashMap<>();
+    // the parses and checks of the last check, reused for what is unchanged
+    private final CompilationDatabase database = new CompilationDatabase();
+    // token of the check in flight (only touched on the FX thread)
+    private CancellationToken inFlight;
+
+    /**
+     * creates a checker for the tabs (present and future) of the tabPane
+     *
+     * @param tabPane the TabPane whose Bantam tabs are to be checked
+     * @param fileNameOf returns the file name of the given tab
+     * @param documentOf returns the document of the given tab
+     * @param publisher called on the FX thread with the errors found in each
+     *                  Bantam tab (tabs without errors map to an empty list)
+     */
+    public BackgroundChecker(TabPane tabPane, Function<Tab, String> fileNameOf,
+                             Function<Tab, TabDocument> documentOf,
+                             Consumer<Map<Tab, List<Error>>> publisher) {
+        this.tabPane = tabPane;
+        this.fileNameOf = fileNameOf;
+        this.documentOf = documentOf;
+        this.publisher = publisher;
+
+        for (Tab tab : tabPane.getTabs()) {
+            watch(tab);
+        }
+        tabPane.getTabs().addListener((ListChangeListener<Tab>) change -> {
+            while (change.next()) {
+                for (Tab tab : change.getRemoved()) {
+                    unwatch(tab);
+                }
+                for (Tab tab : change.getAddedSubList()) {
+                    watch(tab);
+                }
+            }
+        });
+    }
+
+    /**
+     * starts requesting checks when the text of the tab has been edited
+     *
+     * @param tab the tab to watch
+     */
+    private void watch(Tab tab) {
+        TabDocument document = documentOf.apply(tab);
+        if (document == null || subscriptions.containsKey(tab)) {
+            return;
+        }
+        // the document's edits, whether or not the tab has a code area right now
+        subscriptions.put(tab, document.edits()
+                .successionEnds(EDIT_PAUSE)
+                .subscribe(ignore -> requestCheck()));
+    }
+
+    /**
+     * stops watching a tab that has been closed
+     *
+     * @param tab the closed tab
+     */
+    private void unwatch(Tab tab) {
+        Subscription subscription = subscriptions.remove(tab);
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+    }
+
+    /**
+     * cancels the check in flight (if any) and schedules a check of the
+     * current contents of all the Bantam tabs.  Must be called on the FX thread.
+     */
+    public void requestCheck() {
+        if (inFlight != null) {
+            inFlight.cancel();
+        }
+        // snapshot the text of the Bantam tabs, the selected tab first
+        Map<Tab, String> sources = new LinkedHashMap<>();
+        Tab selected = tabPane.getSelectionModel().getSelectedItem();
+        if (isBantamTab(selected)) {
+            sources.put(selected, documentOf.apply(selected).getText());
+        }
+        for (Tab tab : tabPane.getTabs()) {
+            if (tab != selected && isBantamTab(tab)) {
+                sources.put(tab, documentOf.apply(tab).getText());
+            }
+        }
+        if (sources.isEmpty()) {
+            return;
+        }
+        Map<Tab, String> fileNames = new HashMap<>();
+        for (Tab tab : sources.keySet()) {
+            fileNames.put(tab, fileNameOf.apply(tab));
+        }
+
+        CancellationToken token = new CancellationToken();
+        inFlight = token;
+        EditorPool.execute(true, () -> {
+            try {
+                Map<Tab, List<Error>> diagnostics = check(sources, fileNames, token);
+                Platform.runLater(() -> {
+                    // results of a check that was overtaken are dropped
+                    if (!token.isCancelled()) {
+                        publisher.accept(diagnostics);
+                    }
+                });
+            } catch (CancellationException e) {
+                // a newer check has been requested
+            } catch (RuntimeException e) {
+                // a bug in the checker: log it and tell the user, rather than
+                // leaving the errors of the last check up
+                System.err.println("The background check failed:");
+                e.printStackTrace();
+                Map<Tab, List<Error>> diagnostics = new LinkedHashMap<>();
+                for (Tab tab : sources.keySet()) {
+                    diagnostics.put(tab, new ArrayList<>());
+                }
+                Tab firstTab = sources.keySet().iterator().next();
+                diagnostics.get(firstTab).add(new Error(Error.Kind.SEMANT_ERROR,
+                        fileNames.get(firstTab), 0, "The checker failed: " + e));
+                Platform.runLater(() -> {
+                    if (!token.isCancelled()) {
+                        publisher.accept(diagnostics);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * parses every tab and, if they all parse, analyzes them together as one
+     * program, reusing what the database computed for unchanged text.  Runs
+     * on the worker thread.
+     *
+     * @param sources the text of each tab, selected tab first
+     * @param fileNames the file name of each tab
+     * @param token polled by the parser and semantic analyzer
+     * @return the errors found in each tab
+     */
+    private Map<Tab, List<Error>> check(Map<Tab, String> sources,
+                                        Map<Tab, String> fileNames,
+                                        CancellationToken token) {
+        Map<Tab, List<Error>> diagnostics = new LinkedHashMap<>();
+        Map<String, String> files = new LinkedHashMap<>();
+        for (Map.Entry<Tab, String> entry : sources.entrySet()) {
+            files.put(fileNames.get(entry.getKey()), entry.getValue());
+        }
+
+        List<Error> semanticErrors;
+        // a check that was overtaken may still be giving up
+        synchronized (database) {
+            database.setCancellationToken(token);
+            database.setSources(files);
+            for (Tab tab : sources.keySet()) {
+                diagnostics.put(tab, new ArrayList<>(
+                        database.getParseErrors(fileNames.get(tab))));
+            }
+            // semantic errors are meaningless until every file parses, so
+            // there are none until then
+            semanticErrors = database.getSemanticErrors();
+        }
+
+        // file each error under the tab it came from; errors that belong to
+        // no file (e.g. a missing Main class) go to the selected tab
+        Tab firstTab = sources.keySet().iterator().next();
+        for (Error error : semanticErrors) {
+            Tab owner = firstTab;
+            for (Map.Entry<Tab, String> entry : fileNames.entrySet()) {
+                if (entry.getValue().equals(error.getFilename())) {
+                    owner = entry.getKey();
+                }
+            }
+            diagnostics.get(owner).add(error);
+        }
+        return diagnostics;
+    }
+
+    /**
+     * returns whether the tab holds a Bantam file
+     *
+     * @param tab the tab (may be null)
+     */
+    private boolean isBantamTab(Tab tab) {
+        return tab != null && documentOf.apply(tab) != null
+                && fileNameOf.apply(tab).endsWith(".btm");
+    }
+
+    /**
+     * cancels the check in flight and removes all subscriptions
+     */
+    public void shutdown() {
+        if (inFlight != null) {
+            inFlight.cancel();
+        }
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.unsubscribe();
+        }
+        subscriptions.clear();
+    }
+}
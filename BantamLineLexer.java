@@ -0,0 +1,118 @@
+/*
+ * File: BantamLineLexer.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import bantam.lexer.Scanner;
+import bantam.lexer.Token;
+import bantam.util.ErrorHandler;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+/**
+ * Highlights Bantam code with the compiler's own Scanner.
+ *
+ * Each line is scanned once, with comments reported and each token carrying
+ * its offset, and the kind of every token is looked up in a table of style
+ * classes, so the highlighting is exactly what the compiler sees (cast,
+ * instanceof and var are keywords, && is fine but & is an error...).
+ * The only construct of Bantam that spans lines is the block comment, so the
+ * state of a line is just whether it ends inside one.
+ *
+ * @author Baron Wang
+ */
+public class BantamLineLexer implements LineLexer {
+
+    /** state of a line that ends inside a block comment */
+    private static final int IN_COMMENT = 1;
+
+    // style class of each kind of token (kinds not listed are not styled)
+    private static final Map<Token.Kind, String> STYLES = new EnumMap<>(Token.Kind.class);
+    // identifiers that are not reserved words but read like them
+    private static final Set<String> BUILTIN_NAMES =
+            Set.of("this", "super", "null", "int", "boolean", "void");
+
+    static {
+        for (Token.Kind kind : new Token.Kind[] {Token.Kind.BREAK, Token.Kind.CAST,
+                Token.Kind.CLASS, Token.Kind.VAR, Token.Kind.ELSE, Token.Kind.EXTENDS,
+                Token.Kind.FOR, Token.Kind.IF, Token.Kind.INSTANCEOF, Token.Kind.NEW,
+                Token.Kind.RETURN, Token.Kind.WHILE, Token.Kind.BOOLEAN}) {
+            STYLES.put(kind, "keyword");
+        }
+        STYLES.put(Token.Kind.LPAREN, "paren");
+        STYLES.put(Token.Kind.RPAREN, "paren");
+        STYLES.put(Token.Kind.LCURLY, "brace");
+        STYLES.put(Token.Kind.RCURLY, "brace");
+        STYLES.put(Token.Kind.SEMICOLON, "semicolon");
+        STYLES.put(Token.Kind.STRCONST, "string");
+        STYLES.put(Token.Kind.INTCONST, "integer");
+        STYLES.put(Token.Kind.COMMENT, "comment");
+        STYLES.put(Token.Kind.ERROR, "error");
+    }
+
+    @Override
+    public int highlight(String line, int state,
+                         StyleSpansBuilder<Collection<String>> spans) {
+        int pos = 0;
+        if (state == IN_COMMENT) {
+            int end = line.indexOf("*/");
+            if (end == -1) {
+                spans.add(Collections.singleton("comment"), line.length());
+                return IN_COMMENT;
+            }
+            pos = end + 2;
+            spans.add(Collections.singleton("comment"), pos);
+        }
+
+        Scanner scanner = new Scanner(new StringReader(line.substring(pos)),
+                new ErrorHandler());
+        scanner.setReportComments(true);
+        int base = pos;
+        try {
+            for (Token token = scanner.scan(); token.kind != Token.Kind.EOF;
+                 token = scanner.scan()) {
+                int start = base + token.offset;
+                if (start < pos) {
+                    continue; // never happens, but spans must not overlap
+                }
+                // a block comment that does not end on this line
+                if (token.kind == Token.Kind.ERROR && token.spelling.startsWith("/*")) {
+                    spans.add(Collections.emptyList(), start - pos);
+                    spans.add(Collections.singleton("comment"), line.length() - start);
+                    return IN_COMMENT;
+                }
+                int end = Math.min(start + token.spelling.length(), line.length());
+                spans.add(Collections.emptyList(), start - pos);
+                spans.add(styleOf(token), end - start);
+                pos = end;
+            }
+        } catch (IOException e) {
+            // a StringReader does not throw
+        }
+        spans.add(Collections.emptyList(), line.length() - pos);
+        return INITIAL_STATE;
+    }
+
+    /**
+     * returns the style classes of a token
+     *
+     * @param token the token
+     */
+    private static Collection<String> styleOf(Token token) {
+        if (token.kind == Token.Kind.IDENTIFIER && BUILTIN_NAMES.contains(token.spelling)) {
+            return Collections.singleton("keyword");
+        }
+        String style = STYLES.get(token.kind);
+        return style == null ? Collections.emptyList() : Collections.singleton(style);
+    }
+}
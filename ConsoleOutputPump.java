@@ -0,0 +1,155 @@
+/*
+ * File: ConsoleOutputPump.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import org.fxmisc.richtext.StyleClassedTextArea;
+
+/**
+ * Moves the output of a running program into the console.
+ *
+ * The thread running the program reads the program's output in large chunks and appends
+ * them to a pending buffer.  Once per frame (an AnimationTimer that only
+ * runs while there is something to show) the FX thread moves the whole
+ * buffer into the console in a single append.  The console keeps only the
+ * last maxLines lines, and the pending buffer keeps only its last
+ * maxLines * 1000 chars when the program writes faster than the console can
+ * show, so memory stays bounded however long the program runs.
+ *
+ * @author Baron Wang
+ */
+public class ConsoleOutputPump {
+
+    /** number of lines the console keeps by default */
+    public static final int DEFAULT_MAX_LINES = 5000;
+
+    // number of chars read from the program at a time
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // chars per console line the pending buffer may hold: it keeps at most
+    // the last maxLines * PENDING_CHARS_PER_LINE chars (lines are not cut)
+    private static final int PENDING_CHARS_PER_LINE = 1000;
+
+    private final StyleClassedTextArea console;
+    private final int maxLines;
+    // output read but not shown yet (guarded by synchronized (pending))
+    private final StringBuilder pending = new StringBuilder();
+    // true while the timer is running or about to be started
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AnimationTimer timer;
+
+    /**
+     * creates a pump that writes into the given console, keeping at most
+     * maxLines lines in it.  Must be called on the FX thread.
+     *
+     * @param console the console text area
+     * @param maxLines the number of lines kept in the console
+     */
+    public ConsoleOutputPump(StyleClassedTextArea console, int maxLines) {
+        this.console = console;
+        this.maxLines = maxLines;
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * copies everything read from the stream into the console until the end
+     * of the stream is reached.  Blocks, so it is called on the thread that
+     * waits for the program, never on the FX thread.
+     *
+     * @param in the output of the program
+     * @param charset the encoding of the output
+     * @return the number of chars read
+     * @throws IOException if the stream cannot be read
+     */
+    public int drain(InputStream in, Charset charset) throws IOException {
+        int total = 0;
+        try (Reader reader = new InputStreamReader(in, charset)) {
+            char[] buffer = new char[CHUNK_SIZE];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                total += n;
+                append(new String(buffer, 0, n));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * queues text to be shown in the console.  May be called from any thread.
+     *
+     * @param text the text to show
+     */
+    public void append(String text) {
+        synchronized (pending) {
+            pending.append(text);
+            // the program writes faster than the console shows: drop what
+            // the console would trim away anyway
+            int budget = maxLines * PENDING_CHARS_PER_LINE;
+            if (pending.length() > budget) {
+                pending.delete(0, pending.length() - budget);
+            }
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(timer::start);
+        }
+    }
+
+    /**
+     * empties the console and drops the output not shown yet, so that text
+     * queued before the call never shows up after it.  Must be called on
+     * the FX thread.
+     */
+    public void clear() {
+        synchronized (pending) {
+            pending.setLength(0);
+        }
+        console.clear();
+    }
+
+    /**
+     * moves the pending output into the console and trims the console to
+     * maxLines lines.  Runs on the FX thread, at most once per frame.
+     */
+    private void flush() {
+        String batch;
+        synchronized (pending) {
+            batch = pending.toString();
+            pending.setLength(0);
+        }
+        if (batch.isEmpty()) {
+            timer.stop();
+            flushScheduled.set(false);
+            // text may have been queued between the two statements above
+            synchronized (pending) {
+                if (pending.length() > 0 && flushScheduled.compareAndSet(false, true)) {
+                    timer.start();
+                }
+            }
+            return;
+        }
+
+        console.appendText(batch);
+        int excess = console.getParagraphs().size() - maxLines;
+        if (excess > 0) {
+            console.deleteText(0, console.getAbsolutePosition(excess, 0));
+        }
+        console.moveTo(console.getLength());
+        console.requestFollowCaret();
+    }
+}
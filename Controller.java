@@ -7,12 +7,15 @@
  */
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import bantam.semant.SemanticAnalyzer;
+import bantam.util.Error;
 import bantam.util.ErrorHandler;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
@@ -71,34 +74,76 @@ public class Controller {
 //    private ComboBox langBox;
 
     private FileMenuController fileController = new FileMenuController();
-    // List of saved tabs and their content
-    private HashMap<Tab, String> savedContents = new HashMap<>();
     // List of saved tabs and their saving path
     private HashMap<Tab, String> savedPaths = new HashMap<>();
     // Keep track of the id for new tabs created
     private int newTabID = 1;
     // Fields for managing compiler and console processes
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
     private ProcessBuilder processBuilder = new ProcessBuilder();
     private boolean cancel_compiler = false;
     private String outStreamCommand = "";
+    // checks the Bantam tabs while the user types
+    private BackgroundChecker backgroundChecker;
+    // streams the output of processes into the console
+    private ConsoleOutputPump consolePump;
+    // compiles and runs Java programs in the IDE's JVM
+    private JavaRunner javaRunner;
 
     /**
      * Initialize the first tab so that VirtualizedScrollPanes hold CodeArea in the tab
      */
     public void initializeFirstTab() {
         // disable check, run, and stop buttons
-        //runButton.setDisable(true);
+        runButton.setDisable(true);
         checkButton.setDisable(true);
         stopButton.setDisable(true);
 
+        consolePump = new ConsoleOutputPump(console, ConsoleOutputPump.DEFAULT_MAX_LINES);
+        javaRunner = new JavaRunner(consolePump);
+
         // default code area: java
-        JavaCodeArea javaCodeArea = new JavaCodeArea();
-        CodeArea codeArea = javaCodeArea.getCodeArea();
-        initialTab.setContent(new VirtualizedScrollPane<>(codeArea));
+        this.fileController.registerTab(initialTab);
 
         checkButton.disableProperty().bind(noTabs());
-        //runButton.disableProperty().bind(noTabs());
+        runButton.disableProperty().bind(noTabs());
+
+        backgroundChecker = new BackgroundChecker(tabPane,
+                this::fileNameOf,
+                this.fileController::getDocument,
+                this::showDiagnostics);
+    }
+
+    /**
+     * shows the results of a background check: tabs with errors get
+     * the "tab-with-errors" style and their errors are listed in their
+     * tooltip, after the path of the file.
+     * The console is left alone, since it may hold the output of a
+     * program that is still running.
+     *
+     * @param diagnostics the errors found in each Bantam tab
+     */
+    private void showDiagnostics(Map<Tab, List<Error>> diagnostics) {
+        for (Map.Entry<Tab, List<Error>> entry : diagnostics.entrySet()) {
+            Tab tab = entry.getKey();
+            List<Error> errors = entry.getValue();
+            // the tooltip of a saved tab starts with its path
+            String path = fileController.getSavedPaths().get(tab);
+            tab.getStyleClass().remove("tab-with-errors");
+            if (errors.isEmpty()) {
+                tab.setTooltip(path == null ? null : new Tooltip(path));
+                continue;
+            }
+            tab.getStyleClass().add("tab-with-errors");
+            StringBuilder report = new StringBuilder();
+            if (path != null) {
+                report.append(path).append("\n");
+            }
+            report.append("There were errors:");
+            for (Error error : errors) {
+                report.append("\n").append(error);
+            }
+            tab.setTooltip(new Tooltip(report.toString()));
+        }
     }
 
     /**
@@ -114,6 +159,21 @@ public class Controller {
         confirmIfUnsaved(event);
         if (cancel_compiler) return;
 
+        // the checker reads the files: start it once they are written
+        this.fileController.whenSavesDone(() -> {
+            try {
+                checkSavedFiles();
+            } catch (Exception e) {
+                DialogOptions.exceptionAlert(e);
+            }
+        });
+    }
+
+    /**
+     * helper method that runs the semantic analyzer on the saved files of
+     * all the tabs
+     */
+    private void checkSavedFiles() throws Exception {
         Thread thrd = null;
         // compile semantic analyzer
         thrd = runProcess("javac bantam/semant/SemanticAnalyzer.java");
@@ -184,43 +244,7 @@ public class Controller {
     */
     @FXML
     void handleCompileButton(ActionEvent event) {
-        cancel_compiler = false;
-        confirmIfUnsaved(event);
-
-        if (cancel_compiler) return;
-
-        if (!this.fileController.getSavedPaths().containsKey(getSelectedTab())){
-            // if no file corresponding to this tab exists in savedPaths hashmap,
-            // stop compiling and alert user
-            cancel_compiler = true;
-            Alert compileBeforeSaveAlert = new Alert(Alert.AlertType.ERROR);
-            compileBeforeSaveAlert.setHeaderText("Compilation Unsuccessful");
-            compileBeforeSaveAlert.setContentText("Target file does not exist. Please" +
-                    " check if this tab has been saved before trying again.");
-            compileBeforeSaveAlert.show();
-            return;
-        }
-
-
-        try {
-            File savedFile = new File(this.fileController.getSavedPaths().get(getSelectedTab()));
-
-            // t.join() blocks thread until process ends.
-            // Hangs GUI until current command/compile finishes
-            Thread t;
-            t = runProcess("cd " + savedFile.getPath().replace(savedFile.getName(),""));
-            t.join();
-
-            console.replaceText(
-                "cd " + savedFile.getPath().replace(savedFile.getName(),"") 
-                + System.lineSeparator());
-            System.out.println("**********");
-            t = runProcess("javac " + savedFile.getPath());
-            t.join();
-
-        } catch (Exception e) {
-            DialogOptions.exceptionAlert(e);
-        }
+        compileSelectedTab(event, false);
     }
 
     /**
@@ -232,9 +256,10 @@ public class Controller {
      */
     @FXML
     void handleStopButton(ActionEvent event){
-        executor.shutdownNow();
-        console.clear();
-        console.appendText("Process Interrupted");
+        javaRunner.stop();
+        // through the pump, so no pending output of the program lands after it
+        consolePump.clear();
+        consolePump.append("Process Interrupted");
         stopButton.setDisable(true);
     }
 
@@ -248,36 +273,99 @@ public class Controller {
      */
     @FXML
     void handleRunButton(ActionEvent event) {
-        if (getSelectedTab() == null) return;
-
-
-        if (!cancel_compiler) {
-            File savedFile = new File(this.fileController.getSavedPaths().get(getSelectedTab()));
-            try {
-                handleCompileButton(event);
-                // prepare classpath location
-                int endOfPath =
-                        savedFile.getPath().length() - savedFile.getName().length();
-
-                String pathWithoutFile = savedFile.getPath().substring(0, endOfPath);
+        if (getSelectedTab() == null || javaRunner.isRunning()) return;
+        if (fileNameOf(getSelectedTab()).endsWith(".btm")) {
+            runBantamTabs();
+            return;
+        }
+        compileSelectedTab(event, true);
+    }
 
-                String fileWithoutExtension =
-                        savedFile.getName().substring(0, savedFile.getName().length() - 5);
+    /**
+     * helper method that runs the Bantam program made of all the open
+     * Bantam tabs, translated to Java and compiled, from the text of the
+     * tabs (they need not be saved)
+     */
+    private void runBantamTabs() {
+        List<String> fileNames = new ArrayList<>();
+        List<String> sources = new ArrayList<>();
+        for (Tab tab : tabPane.getTabs()) {
+            if (fileNameOf(tab).endsWith(".btm")) {
+                fileNames.add(fileNameOf(tab));
+                sources.add(this.fileController.getDocument(tab).getText());
+            }
+        }
+        consolePump.clear();
+        sendConsoleInputToProgram();
+        stopButton.setDisable(false);
+        javaRunner.runBantam(fileNames, sources, () -> stopButton.setDisable(true));
+    }
 
-                console.appendText(
-                        "java " + "-cp " + pathWithoutFile + " "
-                                + fileWithoutExtension + "\n");
-                runProcess("java " + "-cp " + pathWithoutFile + " " + fileWithoutExtension);
+    /**
+     * helper method that returns the path of the file of a tab, or its
+     * name if it has never been saved
+     *
+     * @param tab the tab
+     */
+    private String fileNameOf(Tab tab) {
+        return this.fileController.getSavedPaths().getOrDefault(tab, tab.getText());
+    }
 
-            } catch (Exception e) {
-                Alert alertBox = new Alert(Alert.AlertType.ERROR);
-                alertBox.setHeaderText("Process Interrupted");
-                alertBox.setContentText(e.toString());
-                alertBox.show();
+    /**
+     * helper method that makes the lines typed into the console go to
+     * the running program
+     */
+    private void sendConsoleInputToProgram() {
+        console.setOnKeyTyped(new EventHandler<>(){
+            String result = "";
+            @Override
+            public void handle(KeyEvent event) {
+                if (event.getCharacter().equals("\r")) {
+                    javaRunner.sendInput(result);
+                    result = "";
+                } else {
+                    result += event.getCharacter();
+                }
             }
+        });
+    }
 
+    /**
+     * helper method that compiles the file of the selected tab in the
+     * IDE's JVM, from the text of the tab, and runs it if asked to.
+     * Lines typed into the console go to the running program.
+     *
+     * @param event ActionEvent related to JavaFX
+     * @param run true to run the program once compiled
+     */
+    private void compileSelectedTab(ActionEvent event, boolean run) {
+        cancel_compiler = false;
+        confirmIfUnsaved(event);
 
+        if (cancel_compiler) return;
+
+        Tab tab = getSelectedTab();
+        if (!this.fileController.getSavedPaths().containsKey(tab)){
+            // if no file corresponding to this tab exists in savedPaths hashmap,
+            // stop compiling and alert user
+            cancel_compiler = true;
+            Alert compileBeforeSaveAlert = new Alert(Alert.AlertType.ERROR);
+            compileBeforeSaveAlert.setHeaderText("Compilation Unsuccessful");
+            compileBeforeSaveAlert.setContentText("Target file does not exist. Please" +
+                    " check if this tab has been saved before trying again.");
+            compileBeforeSaveAlert.show();
+            return;
         }
+
+        File savedFile = new File(this.fileController.getSavedPaths().get(tab));
+        String source = this.fileController.getDocument(tab).getText();
+        consolePump.clear();
+        sendConsoleInputToProgram();
+        stopButton.setDisable(!run);
+        // the compiler reads the other files of the directory: start it
+        // once they are written
+        this.fileController.whenSavesDone(() -> javaRunner.compileAndRun(
+                savedFile.toPath(), source, run, () -> stopButton.setDisable(true)));
     }
 
     /**
@@ -544,32 +632,15 @@ public class Controller {
                             }
                         }
                     });
-                    while(process.isAlive()){
-                        // input stream
-                        Reader reader = new InputStreamReader(process.getInputStream());
-                        // buffer for efficiency
-                        Reader buffer = new BufferedReader(reader);
-                        int r;
-                        while ((r = buffer.read()) != -1) {
-                            compilerError = true;
-                            char ch = (char) r;
-                            String s = Character.toString(ch);
-                                Platform.runLater(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        console.appendText(s);
-                                    }
-                                });
-                        }
-                    }
+                    // read the output in chunks until the process closes it;
+                    // the pump batches it into the console once per frame
+                    int charsRead = consolePump.drain(process.getInputStream(),
+                            Charset.defaultCharset());
+                    process.waitFor();
+                    compilerError = charsRead > 0;
                     if(compilingCommand){
                         if(!compilerError){
-                            Platform.runLater(new Runnable() {
-                                @Override
-                                public void run() {
-                                console.appendText("Compilation Was Succesful!\n");
-                                }
-                            });
+                            consolePump.append("Compilation Was Succesful!\n");
                         }//compilerError
                     } //compilingCommand
                 } catch (Exception e) {
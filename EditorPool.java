@@ -0,0 +1,83 @@
+/*
+ * File: EditorPool.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The worker threads shared by all the tabs of the IDE for highlighting and
+ * background checking.
+ *
+ * There are at most two of them however many tabs are open (fewer on a
+ * machine with fewer cores), so that editors never compete with the FX
+ * thread for every core.  Work for the tab the user is looking at is taken
+ * from the queue before any work for background tabs; work of the same
+ * priority runs in the order it was submitted.
+ *
+ * @author Baron Wang
+ */
+public final class EditorPool {
+
+    private static final int THREADS =
+            Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+
+    // tie-breaker so that jobs of the same priority run first come, first served
+    private static final AtomicLong sequence = new AtomicLong();
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "editor-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private EditorPool() {
+    }
+
+    /**
+     * queues a job
+     *
+     * @param visible true if the job is for the selected tab; those jobs
+     *                run before the jobs of background tabs
+     * @param task the job
+     */
+    public static void execute(boolean visible, Runnable task) {
+        executor.execute(new Job(visible, sequence.getAndIncrement(), task));
+    }
+
+    /**
+     * a queued job, ordered by priority and then by submission
+     */
+    private static class Job implements Runnable, Comparable<Job> {
+        private final boolean visible;
+        private final long number;
+        private final Runnable task;
+
+        Job(boolean visible, long number, Runnable task) {
+            this.visible = visible;
+            this.number = number;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (visible != other.visible) {
+                return visible ? -1 : 1;
+            }
+            return Long.compare(number, other.number);
+        }
+    }
+}
@@ -1,8 +1,9 @@
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,22 +20,89 @@ import org.fxmisc.richtext.CodeArea;
 
 public class FileMenuController {
 
-    // List of saved tabs and their content
-    private HashMap<Tab, String> savedContents = new HashMap<>();
+    // max number of tabs whose code area is kept while they are not shown
+    private static final int MAX_VIEWS = 10;
+
+    // the text of each tab, telling whether it is saved
+    private HashMap<Tab, TabDocument> documents = new HashMap<>();
     // List of saved tabs and their saving path
     private HashMap<Tab, String> savedPaths = new HashMap<>();
+    // the tabs that have a code area, least recently shown first
+    private LinkedHashSet<Tab> tabsWithViews = new LinkedHashSet<>();
     // Keep track of the id for new tabs created
     private int newTabID = 1;
+    // opens and saves files in the background
+    private final FileTransfers transfers = new FileTransfers();
 
 
-    public HashMap<Tab, String> getSavedContents(){
-        return this.savedContents;
-    }
-
     public HashMap<Tab, String> getSavedPaths(){
         return this.savedPaths;
     }
 
+    /**
+     * returns the document of a tab
+     *
+     * @param tab the tab
+     * @return its document, or null if the tab is not known (e.g. closed)
+     */
+    public TabDocument getDocument(Tab tab){
+        return this.documents.get(tab);
+    }
+
+    /**
+     * gives a new tab an empty document.  The code area of the tab is only
+     * created when the tab is selected.
+     *
+     * @param tab the tab
+     */
+    public void registerTab(Tab tab) {
+        TabDocument document = new TabDocument(JavaCodeArea.lexerFor(tab.getText()));
+        this.documents.put(tab, document);
+        tab.selectedProperty().addListener((observable, wasSelected, isSelected) -> {
+            if (isSelected) {
+                this.showTab(tab);
+            }
+            document.setVisible(isSelected);
+        });
+        if (tab.isSelected()) {
+            this.showTab(tab);
+            document.setVisible(true);
+        }
+    }
+
+    /**
+     * makes sure the tab has a code area, and drops the code areas of the
+     * tabs that have not been shown for the longest time if there are more
+     * than MAX_VIEWS of them
+     *
+     * @param tab the tab being shown
+     */
+    private void showTab(Tab tab) {
+        TabDocument document = this.documents.get(tab);
+        if (document == null) {
+            return;
+        }
+        if (document.getView() == null) {
+            tab.setContent(new VirtualizedScrollPane<>(
+                    document.materialize().getCodeArea()));
+        }
+        this.tabsWithViews.remove(tab);
+        this.tabsWithViews.add(tab);
+
+        Iterator<Tab> leastRecent = this.tabsWithViews.iterator();
+        while (this.tabsWithViews.size() > MAX_VIEWS + 1 && leastRecent.hasNext()) {
+            Tab old = leastRecent.next();
+            TabDocument oldDocument = this.documents.get(old);
+            // a tab still being read from its file keeps its code area
+            if (old.isSelected() || !oldDocument.getView().getCodeArea().isEditable()) {
+                continue;
+            }
+            oldDocument.evict();
+            old.setContent(null);
+            leastRecent.remove();
+        }
+    }
+
 
     public void handleOpen(ActionEvent event, TabPane tabPane) {
         // create a new file chooser
@@ -66,23 +134,37 @@ public class FileMenuController {
             Tooltip t = new Tooltip(selectedFile.getPath());
             this.getSelectedTab(tabPane).setTooltip(t);
             this.newTabID--; // no need to increment
-            try {
-                // reads the file content to a String
-                String content = new String(Files.readAllBytes(
-                        Paths.get(selectedFile.getPath())));
-                this.getSelectedTextBox(tabPane).replaceText(content);
-                // update savedContents field
-                this.savedContents.put(getSelectedTab(tabPane), content);
-                this.savedPaths.put(getSelectedTab(tabPane), selectedFile.getPath());
-
-                //getSelectedTextBox().setFile(File(selectedFile.getPath()));
-
-            } catch (Exception e) {
-                DialogOptions.exceptionAlert(e);
-            }
+            // highlight the file as the language of its extension
+            this.documents.get(getSelectedTab(tabPane))
+                    .setLexer(JavaCodeArea.lexerFor(selectedFile.getName()));
+            // read the file in the background, filling the code area as it
+            // goes; the tab is bound to the file once all of it is read
+            Tab tab = getSelectedTab(tabPane);
+            this.transfers.open(selectedFile.toPath(), tab, getSelectedTextBox(tabPane),
+                    this.documents.get(tab),
+                    () -> {
+                        if (this.documents.containsKey(tab)) {
+                            this.savedPaths.put(tab, selectedFile.getPath());
+                        }
+                    },
+                    e -> {
+                        // the tab holds only part of the file
+                        this.removeTab(tab, tabPane);
+                        DialogOptions.exceptionAlert(e);
+                    });
         }
     }
 
+    /**
+     * runs an action once the files being saved in the background are
+     * written, e.g. to compile them, without blocking the FX thread
+     *
+     * @param action what to run, on the FX thread
+     */
+    public void whenSavesDone(Runnable action) {
+        this.transfers.whenSavesDone(action);
+    }
+
     /**
      * helper function to get the currently selected tab in tabPane
      *
@@ -112,14 +194,7 @@ public class FileMenuController {
      * @return boolean whether the text in the selected tab is saved.
      */
     public boolean selectedTabIsSaved(TabPane tabPane) {
-        // if tab name has been changed and current text matches with
-        // the saved text in record
-        if (this.savedContents.containsKey(getSelectedTab(tabPane)) &&
-                getSelectedTextBox(tabPane).getText().equals(
-                        this.savedContents.get(getSelectedTab(tabPane)))) {
-            return true;
-        }
-        return false;
+        return tabIsSaved(getSelectedTab(tabPane));
     }
 
     /**
@@ -128,15 +203,10 @@ public class FileMenuController {
      * @return boolean whether the text in the tab is saved.
      */
     public boolean tabIsSaved(Tab tab) {
-        // if tab name has been changed and current text matches with
-        // the saved text in record
-        if (!this.savedContents.containsKey(tab) ||
-                !((CodeArea)(( (VirtualizedScrollPane) tab.getContent()).getContent()))
-                        .getText().equals(
-                        this.savedContents.get(tab))) {
-            return false;
-        }
-        return true;
+        // the tab has been saved and has not been edited since
+        // (or has been edited back to the saved text)
+        TabDocument document = this.documents.get(tab);
+        return document != null && document.isSaved();
     }
 
 
@@ -176,12 +246,25 @@ public class FileMenuController {
             }
         }
         // remove tab from tabPane if text is saved or user chooses NO
-        this.savedContents.remove(getSelectedTab(tabPane));
-        this.savedPaths.remove(getSelectedTab(tabPane));
-        tabPane.getTabs().remove(getSelectedTab(tabPane));
+        this.removeTab(getSelectedTab(tabPane), tabPane);
         return Optional.empty();
     }
 
+    /**
+     * helper method that removes a tab and forgets its document and file
+     *
+     * @param tab the tab
+     */
+    private void removeTab(Tab tab, TabPane tabPane) {
+        TabDocument closedDocument = this.documents.remove(tab);
+        if (closedDocument != null) {
+            closedDocument.dispose();
+        }
+        this.savedPaths.remove(tab);
+        this.tabsWithViews.remove(tab);
+        tabPane.getTabs().remove(tab);
+    }
+
 
     public void handleNew(ActionEvent event, TabPane tabPane) {
         // create a new tab
@@ -195,10 +278,8 @@ public class FileMenuController {
             }
         });
 
-        // create a code area
-        JavaCodeArea javaCodeArea = new JavaCodeArea();
-        CodeArea codeArea = javaCodeArea.getCodeArea();
-        newTab.setContent(new VirtualizedScrollPane<>(codeArea));
+        // its code area is created once it is selected
+        this.registerTab(newTab);
         // add new tab to the tabPane
         tabPane.getTabs().add(newTab);
         // make the newly created tab the topmost
@@ -223,20 +304,17 @@ public class FileMenuController {
      *              and its source.
      */
     public void handleSave(ActionEvent event, TabPane tabPane) {
+        // the file is still being opened: there is nothing new to save
+        if (!getSelectedTextBox(tabPane).isEditable()) {
+            return;
+        }
         // if the text has been saved before
-        if (this.savedContents.containsKey(getSelectedTab(tabPane))) {
-            // create a File object for the corresponding text file
-            File savedFile = new File(this.savedPaths.get(getSelectedTab(tabPane)));
-            try {
-                // write the new content to the text file
-                FileWriter fw = new FileWriter(savedFile);
-                fw.write(getSelectedTextBox(tabPane).getText());
-                fw.close();
-                // update savedContents field
-                this.savedContents.put(getSelectedTab(tabPane), getSelectedTextBox(tabPane).getText());
-            } catch (Exception e) {
-                DialogOptions.exceptionAlert(e);
-            }
+        if (this.savedPaths.containsKey(getSelectedTab(tabPane))) {
+            // write the new content to the text file in the background
+            this.transfers.save(getSelectedTextBox(tabPane).getText(),
+                    Paths.get(this.savedPaths.get(getSelectedTab(tabPane))),
+                    getSelectedTab(tabPane), this.documents.get(getSelectedTab(tabPane)),
+                    DialogOptions::exceptionAlert);
         }
         // if text in selected tab was not loaded from a file nor ever saved to a file
         else {
@@ -285,14 +363,16 @@ public class FileMenuController {
         // if user did not choose CANCEL
         if (fileToSave != null) {
             try {
-                // save file
-                FileWriter fw = new FileWriter(fileToSave);
-                fw.write(this.getSelectedTextBox(tabPane).getText());
-                fw.close();
-                // update savedContents field and tab text
-                this.savedContents.put(getSelectedTab(tabPane), getSelectedTextBox(tabPane).getText());
+                // save file in the background
+                this.transfers.save(this.getSelectedTextBox(tabPane).getText(),
+                        fileToSave.toPath(), getSelectedTab(tabPane),
+                        this.documents.get(getSelectedTab(tabPane)),
+                        DialogOptions::exceptionAlert);
+                // update the saved path and tab text
                 this.savedPaths.put(getSelectedTab(tabPane), fileToSave.getPath());
                 this.getSelectedTab(tabPane).setText(fileToSave.getName());
+                this.documents.get(getSelectedTab(tabPane))
+                        .setLexer(JavaCodeArea.lexerFor(fileToSave.getName()));
                 Tooltip t = new Tooltip(fileToSave.getPath());
                 this.getSelectedTab(tabPane).setTooltip(t);
             } catch (Exception e) {
@@ -321,7 +401,7 @@ public class FileMenuController {
                 return;
             }
         }
-        // exit if all tabs are closed
-        System.exit(0);
+        // exit if all tabs are closed, once their files are written
+        this.transfers.whenSavesDone(() -> System.exit(0));
     }
 }
@@ -0,0 +1,244 @@
+/*
+ * File: FileTransfers.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.Tab;
+import org.fxmisc.richtext.CodeArea;
+
+/**
+ * Opens and saves files on a background thread, so that big files do not
+ * freeze the UI.
+ *
+ * A file is read in chunks that are appended to the code area one at a
+ * time, at most a couple of chunks being on their way to the FX thread, so
+ * the whole file is never held in memory twice.  A file is saved by writing
+ * a temporary file next to it and renaming it over the file, so a failed
+ * save never leaves a half-written file behind.  The tab shows the progress
+ * of both.
+ *
+ * @author Baron Wang
+ */
+public class FileTransfers {
+
+    // number of chars read or written at a time
+    private static final int CHUNK_SIZE = 1 << 20;
+    // number of chunks read but not yet in the code area
+    private static final int CHUNKS_IN_FLIGHT = 2;
+
+    // one thread for saves, so that saves of the same file happen in order;
+    // loads have their own, as they wait for the FX thread, which may be
+    // waiting for the saves
+    private final ExecutorService saver = newThread("file-save");
+    private final ExecutorService loader = newThread("file-open");
+    // the last save submitted; it completes after all the others
+    private CompletableFuture<Void> lastSave = CompletableFuture.completedFuture(null);
+
+    /**
+     * reads a file into an (empty) code area in the background.  The code
+     * area is read-only while the file is being read.  Must be called on the
+     * FX thread, and onLoaded and onFailed are run on the FX thread.
+     *
+     * @param path the file to read
+     * @param tab the tab showing the code area, which shows the progress
+     * @param codeArea the code area receiving the text
+     * @param document the document of the tab, marked saved once loaded
+     * @param onLoaded called once the whole file is in the code area
+     * @param onFailed called if the file cannot be read; the code area then
+     *                 holds only the part read before the failure
+     */
+    public void open(Path path, Tab tab, CodeArea codeArea, TabDocument document,
+                     Runnable onLoaded, Consumer<Exception> onFailed) {
+        ProgressIndicator progress = showProgress(tab);
+        codeArea.setEditable(false);
+        Semaphore inFlight = new Semaphore(CHUNKS_IN_FLIGHT);
+
+        loader.execute(() -> {
+            Charset charset = Charset.defaultCharset();
+            try (FileChannel channel = FileChannel.open(path);
+                 Reader reader = Channels.newReader(channel, charset.newDecoder()
+                         .onMalformedInput(CodingErrorAction.REPLACE)
+                         .onUnmappableCharacter(CodingErrorAction.REPLACE), -1)) {
+                long size = channel.size();
+                char[] buffer = new char[CHUNK_SIZE];
+                // the code area turns \r\n and \r into \n; do the same, so
+                // that the length and hash match the text in the code area
+                boolean afterCR = false;
+                int length = 0;
+                long hash = 0;
+                int n;
+                while ((n = reader.read(buffer)) != -1) {
+                    StringBuilder chunk = new StringBuilder(n);
+                    for (int i = 0; i < n; i++) {
+                        char c = buffer[i];
+                        if (c == '\n' && afterCR) {
+                            afterCR = false;
+                            continue;
+                        }
+                        afterCR = c == '\r';
+                        chunk.append(afterCR ? '\n' : c);
+                    }
+                    String text = chunk.toString();
+                    length += text.length();
+                    hash = TabDocument.hash(hash, text);
+                    double done = size == 0 ? 1 : (double) channel.position() / size;
+
+                    inFlight.acquire();
+                    Platform.runLater(() -> {
+                        codeArea.appendText(text);
+                        progress.setProgress(done);
+                        inFlight.release();
+                    });
+                }
+                int textLength = length;
+                long textHash = hash;
+                Platform.runLater(() -> {
+                    tab.setGraphic(null);
+                    codeArea.setEditable(true);
+                    // reading the file is not an edit that can be undone
+                    codeArea.getUndoManager().forgetHistory();
+                    codeArea.moveTo(0);
+                    document.markSaved(textLength, textHash);
+                    onLoaded.run();
+                });
+            } catch (IOException | InterruptedException e) {
+                Platform.runLater(() -> {
+                    tab.setGraphic(null);
+                    codeArea.setEditable(true);
+                    onFailed.accept(e);
+                });
+            }
+        });
+    }
+
+    /**
+     * saves the text to a file in the background: writes it to a temporary
+     * file in the same directory and renames that over the file.  The tab is
+     * marked saved right away, and unmarked if the save fails.  Must be
+     * called on the FX thread, and onFailed is run on the FX thread.
+     *
+     * @param text the text to save
+     * @param path the file to save to
+     * @param tab the tab being saved, which shows the progress
+     * @param document the document of the tab
+     * @param onFailed called if the file cannot be written
+     */
+    public void save(String text, Path path, Tab tab, TabDocument document,
+                     Consumer<Exception> onFailed) {
+        ProgressIndicator progress = showProgress(tab);
+        TabDocument.SavedState saving = document.markSaving();
+
+        lastSave = CompletableFuture.runAsync(() -> {
+            Path temp = null;
+            try {
+                Path directory = path.toAbsolutePath().getParent();
+                temp = Files.createTempFile(directory, "." + path.getFileName(), ".tmp");
+                // the temporary file replaces the file: give it its permissions
+                if (Files.exists(path)) {
+                    try {
+                        Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(path));
+                    } catch (UnsupportedOperationException e) {
+                        // not a POSIX file system
+                    }
+                }
+                try (Writer writer = Files.newBufferedWriter(temp, Charset.defaultCharset())) {
+                    for (int start = 0; start < text.length(); start += CHUNK_SIZE) {
+                        int end = Math.min(text.length(), start + CHUNK_SIZE);
+                        writer.write(text, start, end - start);
+                        double done = (double) end / text.length();
+                        Platform.runLater(() -> progress.setProgress(done));
+                    }
+                }
+                try {
+                    Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                long hash = TabDocument.hash(0, text);
+                Platform.runLater(() -> {
+                    tab.setGraphic(null);
+                    document.savedHash(saving, hash);
+                });
+            } catch (IOException e) {
+                if (temp != null) {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException ignored) {
+                        // nothing more can be done
+                    }
+                }
+                Platform.runLater(() -> {
+                    tab.setGraphic(null);
+                    document.saveFailed(saving);
+                    onFailed.accept(e);
+                });
+            }
+        }, saver);
+    }
+
+    /**
+     * runs an action once all the saves submitted so far are on disk (or
+     * failed), without blocking: at once if there are none, else on the FX
+     * thread when the last one is done.  Used before exiting and before
+     * compiling the saved files.  Must be called on the FX thread.
+     *
+     * @param action what to run
+     */
+    public void whenSavesDone(Runnable action) {
+        if (lastSave.isDone()) {
+            action.run();
+            return;
+        }
+        // failures are reported by the save itself
+        lastSave.whenComplete((result, e) -> Platform.runLater(action));
+    }
+
+    /**
+     * creates a single daemon thread executor
+     *
+     * @param name the name of the thread
+     */
+    private static ExecutorService newThread(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * shows a progress indicator in the tab
+     *
+     * @param tab the tab
+     * @return the indicator
+     */
+    private static ProgressIndicator showProgress(Tab tab) {
+        ProgressIndicator progress = new ProgressIndicator(0);
+        progress.setPrefSize(14, 14);
+        tab.setGraphic(progress);
+        return progress;
+    }
+}
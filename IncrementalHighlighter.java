@@ -0,0 +1,270 @@
+/*
+ * File: IncrementalHighlighter.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import javafx.application.Platform;
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+import org.reactfx.Subscription;
+
+/**
+ * Keeps the highlighting of a CodeArea up to date, one paragraph at a time.
+ *
+ * The state of the LineLexer at the end of every paragraph is cached.  After
+ * an edit only the paragraphs the edit touched are lexed again; the paragraph
+ * after a re-lexed one is lexed too only if the state at its start changed
+ * (e.g. a block comment was opened or closed), and so on.  The styles of a
+ * re-lexed paragraph are set on that paragraph alone, so the cost of an edit
+ * depends on the edit, not on the size of the document.
+ *
+ * The lexing is done in slices on the shared EditorPool: the FX thread
+ * copies the text of the next dirty paragraphs, a worker lexes them, and the
+ * FX thread sets the resulting styles unless the text has changed meanwhile.
+ * Only one slice per code area is in flight at a time.  The slices of a code
+ * area that is not visible are smaller and queued behind those of the
+ * visible one.
+ *
+ * @author Baron Wang
+ */
+public class IncrementalHighlighter {
+
+    // max number of paragraphs lexed per slice when the code area is visible
+    private static final int SLICE_SIZE = 2000;
+    // ... and when it is not
+    private static final int BACKGROUND_SLICE_SIZE = 200;
+
+    private final CodeArea codeArea;
+    private final LineLexer lexer;
+    // lexer state at the end of each paragraph (valid unless the paragraph is dirty)
+    private final List<Integer> endStates = new ArrayList<>();
+    // paragraphs to be lexed again, in document order
+    private final NavigableSet<Integer> dirty = new TreeSet<>();
+    // incremented on every edit, so results of lexing old text can be dropped
+    private int version = 0;
+    // true while a slice is queued or running
+    private boolean sliceInFlight = false;
+    private boolean visible = true;
+    private Subscription subscription;
+
+    /**
+     * starts highlighting the code area
+     *
+     * @param codeArea the code area to highlight
+     * @param lexer the lexer of the language of the code area
+     */
+    public IncrementalHighlighter(CodeArea codeArea, LineLexer lexer) {
+        this.codeArea = codeArea;
+        this.lexer = lexer;
+        for (int i = 0; i < codeArea.getParagraphs().size(); i++) {
+            endStates.add(LineLexer.INITIAL_STATE);
+            dirty.add(i);
+        }
+        subscription = codeArea.plainTextChanges().subscribe(this::textChanged);
+        scheduleSlice();
+    }
+
+    /**
+     * tells the highlighter whether its code area is the one the user sees
+     *
+     * @param visible true if the code area is in the selected tab
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * updates the cached states for an edit and marks the edited paragraphs dirty.
+     * Called on the FX thread once the change is in the document.
+     *
+     * @param change the edit
+     */
+    private void textChanged(PlainTextChange change) {
+        version++;
+        int first = codeArea.offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+        int removedLines = countLines(change.getRemoved());
+        int insertedLines = countLines(change.getInserted());
+
+        // paragraphs first+1..first+removedLines were joined into first
+        endStates.subList(first + 1, first + 1 + removedLines).clear();
+        for (int i = 0; i < insertedLines; i++) {
+            endStates.add(first + 1, LineLexer.INITIAL_STATE);
+        }
+        // shift the dirty paragraphs below the edit
+        if (removedLines != insertedLines) {
+            NavigableSet<Integer> below = dirty.tailSet(first, false);
+            List<Integer> shifted = new ArrayList<>();
+            for (int par : below) {
+                if (par > first + removedLines) {
+                    shifted.add(par - removedLines + insertedLines);
+                }
+            }
+            below.clear();
+            dirty.addAll(shifted);
+        }
+        for (int par = first; par <= first + insertedLines; par++) {
+            dirty.add(par);
+        }
+        scheduleSlice();
+    }
+
+    /**
+     * sends the next dirty paragraphs (and those following them, up to the
+     * size of a slice) to a worker to be lexed
+     */
+    private void scheduleSlice() {
+        if (sliceInFlight || dirty.isEmpty() || subscription == null) {
+            return;
+        }
+        int paragraphs = codeArea.getParagraphs().size();
+        int first = dirty.first();
+        if (first >= paragraphs) {
+            dirty.clear();
+            return;
+        }
+        int end = Math.min(paragraphs,
+                first + (visible ? SLICE_SIZE : BACKGROUND_SLICE_SIZE));
+
+        // copy what the worker needs; the code area may only be read here
+        String[] texts = new String[end - first];
+        int[] cachedStates = new int[end - first];
+        boolean[] isDirty = new boolean[end - first];
+        for (int par = first; par < end; par++) {
+            texts[par - first] = codeArea.getText(par);
+            cachedStates[par - first] = endStates.get(par);
+            isDirty[par - first] = dirty.contains(par);
+        }
+        int startState = first == 0 ? LineLexer.INITIAL_STATE : endStates.get(first - 1);
+        int sliceVersion = version;
+
+        sliceInFlight = true;
+        EditorPool.execute(visible, () -> {
+            Slice slice = lexSlice(first, texts, cachedStates, isDirty, startState);
+            Platform.runLater(() -> applySlice(slice, sliceVersion));
+        });
+    }
+
+    /**
+     * lexes the paragraphs of a slice that are dirty or start in a state
+     * different from the one cached.  Runs on a worker thread.
+     *
+     * @param first the index of the first paragraph of the slice
+     * @param texts the text of the paragraphs of the slice
+     * @param cachedStates the cached end state of the paragraphs
+     * @param isDirty whether each paragraph is dirty
+     * @param startState the state at the start of the first paragraph
+     * @return the new styles and end states
+     */
+    private Slice lexSlice(int first, String[] texts, int[] cachedStates,
+                           boolean[] isDirty, int startState) {
+        Slice slice = new Slice(first, texts.length);
+        int state = startState;
+        boolean stateChanged = false;
+        for (int i = 0; i < texts.length; i++) {
+            if (!isDirty[i] && !stateChanged) {
+                // nothing changed up to the end of this paragraph
+                state = cachedStates[i];
+                continue;
+            }
+            StyleSpansBuilder<Collection<String>> spans = new StyleSpansBuilder<>();
+            try {
+                state = lexer.highlight(texts[i], state, spans);
+                slice.spans[i] = spans.create();
+            } catch (RuntimeException e) {
+                // leave the paragraph as it is rather than stall highlighting
+                state = cachedStates[i];
+            }
+            slice.endStates[i] = state;
+            stateChanged = state != cachedStates[i];
+        }
+        // the paragraph after the slice starts in a different state
+        slice.nextIsDirty = stateChanged;
+        return slice;
+    }
+
+    /**
+     * sets the styles computed by a worker, unless the text has changed since
+     * they were computed, and schedules the next slice.  Runs on the FX thread.
+     *
+     * @param slice the result of the worker
+     * @param sliceVersion the version of the text the worker lexed
+     */
+    private void applySlice(Slice slice, int sliceVersion) {
+        sliceInFlight = false;
+        if (subscription == null) {
+            return;
+        }
+        if (sliceVersion == version) {
+            for (int i = 0; i < slice.spans.length; i++) {
+                int par = slice.first + i;
+                if (slice.spans[i] != null) {
+                    codeArea.setStyleSpans(par, 0, slice.spans[i]);
+                    endStates.set(par, slice.endStates[i]);
+                }
+                dirty.remove(par);
+            }
+            int next = slice.first + slice.spans.length;
+            if (slice.nextIsDirty && next < codeArea.getParagraphs().size()) {
+                dirty.add(next);
+            }
+        }
+        // otherwise the dirty set already accounts for the edits made since
+        scheduleSlice();
+    }
+
+    /**
+     * returns the number of line terminators in the text
+     *
+     * @param text the text
+     */
+    private static int countLines(String text) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * stops highlighting the code area
+     */
+    public void dispose() {
+        if (subscription != null) {
+            subscription.unsubscribe();
+            subscription = null;
+        }
+        dirty.clear();
+    }
+
+    /**
+     * the result of lexing a slice: for each paragraph of the slice, its new
+     * styles and end state, or null styles if it did not need lexing
+     */
+    private static class Slice {
+        private final int first;
+        private final StyleSpans<Collection<String>>[] spans;
+        private final int[] endStates;
+        private boolean nextIsDirty;
+
+        @SuppressWarnings("unchecked")
+        Slice(int first, int length) {
+            this.first = first;
+            this.spans = new StyleSpans[length];
+            this.endStates = new int[length];
+        }
+    }
+}
@@ -6,21 +6,10 @@
  * Date: March 18
  */
 
-import java.time.Duration;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javafx.concurrent.Task;
 import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.LineNumberFactory;
-import org.fxmisc.richtext.model.StyleSpans;
-import org.fxmisc.richtext.model.StyleSpansBuilder;
-import org.reactfx.Subscription;
 import java.io.File;
 
 
@@ -47,13 +36,15 @@ public class JavaCodeArea {
     private static final String BRACKET_PATTERN = "\\[|\\]";
     private static final String SEMICOLON_PATTERN = "\\;";
     private static final String STRING_PATTERN = "\"([^\"\\\\]|\\\\.)*\"";
-    private static final String COMMENT_PATTERN = "//[^\n]*"
-            + "|" + "/\\*(.|\\R)*?\\*/";
+    private static final String COMMENT_PATTERN = "//[^\n]*";
+    // block comments may span lines, so the lexer follows them from their start
+    private static final String OPEN_PATTERN = "/\\*";
     // added: integer constant pattern
     private static final String INTEGER_PATTERN = "(?<![\\w\\.])[+-]?\\d+(?![\\w\\.])";
 
     private static final Pattern PATTERN = Pattern.compile(
-            "(?<KEYWORD>" + KEYWORD_PATTERN + ")"
+            "(?<OPEN>" + OPEN_PATTERN + ")"
+                    + "|(?<KEYWORD>" + KEYWORD_PATTERN + ")"
                     + "|(?<PAREN>" + PAREN_PATTERN + ")"
                     + "|(?<BRACE>" + BRACE_PATTERN + ")"
                     + "|(?<BRACKET>" + BRACKET_PATTERN + ")"
@@ -63,6 +54,11 @@ public class JavaCodeArea {
                     + "|(?<INTEGER>" + INTEGER_PATTERN + ")"
     );
 
+    private static final LineLexer LEXER = new RegexLineLexer(PATTERN,
+            new String[] {"KEYWORD", "PAREN", "BRACE", "BRACKET", "SEMICOLON",
+                    "STRING", "COMMENT", "INTEGER"},
+            "comment", new String[][] {{"/*", "*/"}});
+
     public void setFile(File file){
         this.file = file;
     }
@@ -93,77 +89,67 @@ public class JavaCodeArea {
 
 
     private CodeArea codeArea;
-    private ExecutorService executor;
+    private IncrementalHighlighter highlighter;
+    private boolean visible = true;
 
     public JavaCodeArea() {
-        executor = Executors.newSingleThreadExecutor();
+        this(LEXER);
+    }
+
+    /**
+     * creates a code area highlighted by the given lexer
+     *
+     * @param lexer the lexer of the language of the code area
+     */
+    public JavaCodeArea(LineLexer lexer) {
         codeArea = new CodeArea();
         codeArea.setParagraphGraphicFactory(LineNumberFactory.get(codeArea));
-        Subscription cleanupWhenDone = codeArea.multiPlainChanges()
-                .successionEnds(Duration.ofMillis(500))
-                .retainLatestUntilLater(executor)
-                .supplyTask(this::computeHighlightingAsync)
-                .awaitLatest(codeArea.multiPlainChanges())
-                .filterMap(t -> {
-                    if(t.isSuccess()) {
-                        return Optional.of(t.get());
-                    } else {
-                        t.getFailure().printStackTrace();
-                        return Optional.empty();
-                    }
-                })
-                .subscribe(this::applyHighlighting);
-
-        // call when no longer need it: `cleanupWhenFinished.unsubscribe();`
-
-        codeArea.replaceText(0, 0, "");
-
+        // only the paragraphs touched by an edit are highlighted again
+        highlighter = new IncrementalHighlighter(codeArea, lexer);
     }
 
-    public CodeArea getCodeArea() {return this.codeArea;}
-
-    public void setCodeArea(CodeArea codeArea) {this.codeArea = codeArea;}
-
+    /**
+     * switches the code area to the lexer of another language
+     * and highlights the whole text again
+     *
+     * @param lexer the new lexer
+     */
+    public void setLexer(LineLexer lexer) {
+        highlighter.dispose();
+        highlighter = new IncrementalHighlighter(codeArea, lexer);
+        highlighter.setVisible(visible);
+    }
 
-    private Task<StyleSpans<Collection<String>>> computeHighlightingAsync() {
-        String text = codeArea.getText();
-        Task<StyleSpans<Collection<String>>> task = 
-            new Task<StyleSpans<Collection<String>>>() {
-            @Override
-            protected StyleSpans<Collection<String>> call() throws Exception {
-                return computeHighlighting(text);
-            }
-        };
-        executor.execute(task);
-        return task;
+    /**
+     * tells the code area whether it is in the selected tab, so that its
+     * highlighting gets priority over that of the background tabs
+     *
+     * @param visible true if the code area is in the selected tab
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+        highlighter.setVisible(visible);
     }
 
-    private void applyHighlighting(StyleSpans<Collection<String>> highlighting) {
-        codeArea.setStyleSpans(0, highlighting);
+    /**
+     * stops highlighting; called when the tab of the code area is closed
+     */
+    public void dispose() {
+        highlighter.dispose();
     }
 
-    private static StyleSpans<Collection<String>> computeHighlighting(String text) {
-        Matcher matcher = PATTERN.matcher(text);
-        int lastKwEnd = 0;
-        StyleSpansBuilder<Collection<String>> spansBuilder
-                = new StyleSpansBuilder<>();
-        while(matcher.find()) {
-            String styleClass =
-                            matcher.group("KEYWORD") != null ? "keyword" :
-                            matcher.group("PAREN") != null ? "paren" :
-                            matcher.group("BRACE") != null ? "brace" :
-                            matcher.group("BRACKET") != null ? "bracket" :
-                            matcher.group("SEMICOLON") != null ? "semicolon" :
-                            matcher.group("STRING") != null ? "string" :
-                            matcher.group("COMMENT") != null ? "comment" :
-                            matcher.group("INTEGER") != null ? "integer" :
-                            null; /* never happens */ assert styleClass != null;
-            spansBuilder.add(Collections.emptyList(), matcher.start() - lastKwEnd);
-            spansBuilder.add(Collections.singleton(styleClass),
-                                 matcher.end() - matcher.start());
-            lastKwEnd = matcher.end();
-        }
-        spansBuilder.add(Collections.emptyList(), text.length() - lastKwEnd);
-        return spansBuilder.create();
+    /**
+     * returns the lexer to highlight the given file with: Bantam files
+     * are highlighted by the Bantam Scanner, anything else as Java
+     * (untitled tabs included)
+     *
+     * @param fileName the name of the file
+     */
+    public static LineLexer lexerFor(String fileName) {
+        return fileName.endsWith(".btm") ? new BantamLineLexer() : LEXER;
     }
+
+    public CodeArea getCodeArea() {return this.codeArea;}
+
+    public void setCodeArea(CodeArea codeArea) {this.codeArea = codeArea;}
 }
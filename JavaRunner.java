@@ -0,0 +1,782 @@
+/*
+ * File: JavaRunner.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import bantam.ast.ASTNode;
+import bantam.ast.ClassList;
+import bantam.ast.Program;
+import bantam.codegen.jvm.JvmBackend;
+import bantam.codegen.jvm.runtime.BantamRuntime;
+import bantam.interp.BantamRuntimeException;
+import bantam.interp.ClosureEngine;
+import bantam.interp.Interpreter;
+import bantam.opt.ConstantFolder;
+import bantam.opt.ReachabilityAnalyzer;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.translate.JavaTranslator;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+import javafx.application.Platform;
+
+/**
+ * Compiles and runs Java programs inside the IDE's own JVM, and runs Bantam
+ * Java programs there too, translated to Java source and compiled the same
+ * way.
+ *
+ * The text of the tab is compiled with the javax.tools compiler, which is
+ * kept warm between runs, and the class files are kept in memory rather
+ * than written next to the source.  A Java program then runs in a child JVM
+ * from a temporary copy of its class files, so that calling System.exit
+ * only ends the program; its output goes to the console, what is typed into
+ * the console goes to its input, and stopping it destroys the process.
+ *
+ * A Bantam program cannot call System.exit (Sys.exit() throws the exit
+ * exception of its runtime), so it runs in the IDE's JVM, in a thread group
+ * of its own.  System.in, System.out and System.err are replaced once by
+ * streams that send the threads of that group to the console and everyone
+ * else to the original streams, and stopping the program interrupts all of
+ * them.
+ *
+ * @author Baron Wang
+ */
+public class JavaRunner {
+
+    // stack size of the thread running a Bantam program
+    private static final long BANTAM_STACK_SIZE = 64L << 20;
+
+    private final ConsoleOutputPump console;
+    // compiles on one thread so that the compiler and its file manager are reused
+    private final ExecutorService compiler = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "java-compile");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the compiler of the JDK, and its file manager; created on first use
+    private JavaCompiler javac;
+    private StandardJavaFileManager standardFileManager;
+    // the threads of the running Bantam program, or null if none is running
+    private volatile ThreadGroup program;
+    // the process of the running Java program, or null if none is running
+    private volatile Process process;
+    // what the user types into the console, for the running program
+    private final ConsoleInputStream input = new ConsoleInputStream();
+
+    /**
+     * creates a runner showing compiler messages and program output in the
+     * given console
+     *
+     * @param console the console
+     */
+    public JavaRunner(ConsoleOutputPump console) {
+        this.console = console;
+        ProgramStreams.install(this);
+    }
+
+    /**
+     * compiles the source of a file, and runs it if asked to and if it
+     * compiled, in the background.
+     *
+     * @param file the file the source is from; its directory is searched for
+     *             the other classes of the program
+     * @param source the text of the file
+     * @param run true to run the class of the file once compiled
+     * @param onDone called on the FX thread when the compilation failed, or
+     *               succeeded and there is nothing to run, or the program ended
+     */
+    public void compileAndRun(Path file, String source, boolean run, Runnable onDone) {
+        compiler.execute(() -> {
+            Map<String, byte[]> classes = compile(file, source);
+            if (classes == null || !run) {
+                Platform.runLater(onDone);
+                return;
+            }
+            String fileName = file.getFileName().toString();
+            String mainClass = fileName.substring(0, fileName.length() - ".java".length());
+            start(file.toAbsolutePath().getParent(), classes, mainClass, onDone);
+        });
+    }
+
+    /**
+     * passes a line typed into the console to the running program
+     *
+     * @param line the line, without its line terminator
+     */
+    public void sendInput(String line) {
+        if (isRunning()) {
+            input.add((line + "\n").getBytes(Charset.defaultCharset()));
+        }
+    }
+
+    /**
+     * destroys the process of the running Java program, or interrupts every
+     * thread of the running Bantam program.  A Bantam program that ignores
+     * interruption keeps running until it ends by itself.
+     */
+    public void stop() {
+        Process running = process;
+        if (running != null) {
+            running.destroy();
+        }
+        ThreadGroup group = program;
+        if (group != null) {
+            group.interrupt();
+        }
+    }
+
+    /**
+     * @return true while a program is running
+     */
+    public boolean isRunning() {
+        return program != null || process != null;
+    }
+
+    /**
+     * compiles the source, writing the compiler messages to the console.
+     * Runs on the compiler thread.
+     *
+     * @param file the file of the source
+     * @param source the text of the file
+     * @return the class files by binary class name, or null if the source
+     *         did not compile
+     */
+    private Map<String, byte[]> compile(Path file, String source) {
+        if (!loadCompiler()) {
+            console.append("No Java compiler: the IDE must run on a JDK, not a JRE\n");
+            return null;
+        }
+        String directory = file.toAbsolutePath().getParent().toString();
+        MemoryFileManager fileManager = new MemoryFileManager(standardFileManager);
+        StringWriter messages = new StringWriter();
+        List<String> options = Arrays.asList("-sourcepath", directory,
+                "-classpath", directory, "-proc:none");
+        boolean compiled = javac.getTask(messages, fileManager, null, options, null,
+                List.of(new SourceObject(file, source))).call();
+
+        console.append(messages.toString());
+        if (!compiled) {
+            return null;
+        }
+        console.append("Compilation Was Succesful!\n");
+        return fileManager.classes;
+    }
+
+    /**
+     * creates the compiler and its file manager on first use
+     *
+     * @return false if the IDE runs on a JRE, which has no compiler
+     */
+    private boolean loadCompiler() {
+        if (javac == null) {
+            javac = ToolProvider.getSystemJavaCompiler();
+            if (javac == null) {
+                return false;
+            }
+            standardFileManager = javac.getStandardFileManager(null, null, Charset.defaultCharset());
+        }
+        return true;
+    }
+
+    /**
+     * translates a checked Bantam Java program to Java and compiles the
+     * translation.  The Java source of a class is named after the Bantam
+     * file of the class and has its line numbers, so the messages of the
+     * compiler point into the Bantam program.  Runs on the compiler thread.
+     *
+     * @param root the class hierarchy of the program
+     * @return the class files by binary class name, or null if the program
+     *         cannot be translated or there is no compiler
+     */
+    private Map<String, byte[]> compileTranslation(ClassTreeNode root) {
+        Map<String, String> translation;
+        try {
+            translation = new JavaTranslator(root).translate();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        if (!loadCompiler()) {
+            return null;
+        }
+        List<JavaFileObject> units = new ArrayList<>();
+        for (Map.Entry<String, String> entry : translation.entrySet()) {
+            String file = root.getClassMap().get(entry.getKey()).getASTNode().getFilename();
+            units.add(new TranslationObject(Paths.get(file), entry.getValue()));
+        }
+        MemoryFileManager fileManager = new MemoryFileManager(standardFileManager);
+        StringWriter messages = new StringWriter();
+        // the file manager keeps the class path of the last Java compile
+        List<String> options = Arrays.asList("-classpath",
+                System.getProperty("java.class.path"), "-proc:none");
+        boolean compiled = javac.getTask(messages, fileManager, null, options, null,
+                units).call();
+        if (!compiled) {
+            console.append("The Java translation did not compile:\n" + messages);
+            return null;
+        }
+        return fileManager.classes;
+    }
+
+    /**
+     * starts the program in a child JVM.  Runs on the compiler thread.
+     *
+     * @param directory the directory of the program, for the classes and
+     *                  resources that were not compiled
+     * @param classes the compiled classes
+     * @param mainClass the name of the class with the main method
+     * @param onDone called on the FX thread once the process has ended and
+     *               all of its output is in the console
+     */
+    private void start(Path directory, Map<String, byte[]> classes, String mainClass,
+                       Runnable onDone) {
+        Path classDirectory = null;
+        Process started;
+        try {
+            classDirectory = writeClasses(classes);
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            started = new ProcessBuilder(java, "-cp",
+                    classDirectory + File.pathSeparator + directory, mainClass)
+                    .directory(directory.toFile())
+                    .start();
+        } catch (IOException e) {
+            console.append("Could not run " + mainClass + ": " + e + "\n");
+            deleteClasses(classDirectory);
+            Platform.runLater(onDone);
+            return;
+        }
+        input.clear();
+        process = started;
+
+        Thread out = copyToConsole(started.getInputStream(), "program-out");
+        Thread err = copyToConsole(started.getErrorStream(), "program-err");
+        Thread in = daemon(() -> {
+            byte[] buffer = new byte[8192];
+            try (OutputStream stdin = started.getOutputStream()) {
+                int n;
+                while ((n = input.read(buffer, 0, buffer.length)) != -1) {
+                    stdin.write(buffer, 0, n);
+                    stdin.flush();
+                }
+            } catch (IOException e) {
+                // the program ended, or closed its input
+            }
+        }, "program-in");
+        Path copied = classDirectory;
+        daemon(() -> {
+            try {
+                int status = started.waitFor();
+                out.join();
+                err.join();
+                if (status != 0) {
+                    console.append("Exited with status " + status + "\n");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                in.interrupt();
+                deleteClasses(copied);
+                process = null;
+                Platform.runLater(onDone);
+            }
+        }, "program-wait");
+    }
+
+    /**
+     * writes the class files of a program to a new temporary directory
+     *
+     * @param classes the class files by binary class name
+     * @return the directory
+     * @throws IOException if a file cannot be written
+     */
+    private static Path writeClasses(Map<String, byte[]> classes) throws IOException {
+        Path directory = Files.createTempDirectory("javarunner");
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            Path file = directory.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, entry.getValue());
+        }
+        return directory;
+    }
+
+    /**
+     * deletes a directory written by writeClasses(), as far as possible
+     *
+     * @param directory the directory, or null
+     */
+    private static void deleteClasses(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            // left in the temporary directory
+        }
+    }
+
+    /**
+     * starts a thread sending what a stream of the program's process writes
+     * to the console, decoded
+     *
+     * @param stream the output or error stream of the process
+     * @param name the name of the thread
+     * @return the thread, which ends at the end of the stream
+     */
+    private Thread copyToConsole(InputStream stream, String name) {
+        return daemon(() -> {
+            char[] buffer = new char[8192];
+            try (Reader reader = new InputStreamReader(stream, Charset.defaultCharset())) {
+                int n;
+                while ((n = reader.read(buffer)) != -1) {
+                    console.append(new String(buffer, 0, n));
+                }
+            } catch (IOException e) {
+                // the process was destroyed
+            }
+        }, name);
+    }
+
+    /**
+     * starts a daemon thread
+     *
+     * @param body what the thread runs
+     * @param name the name of the thread
+     * @return the started thread
+     */
+    private static Thread daemon(Runnable body, String name) {
+        Thread thread = new Thread(body, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * runs the main thread of a program in a thread group of its own, whose
+     * threads use the console as System.in, System.out and System.err.  The
+     * program runs until every thread of the group has ended, not just the
+     * main thread.
+     *
+     * @param body the main thread of the program
+     * @param stackSize the stack size of the main thread, or 0 for the default
+     * @param onDone called on the FX thread once every thread of the group
+     *               has ended
+     */
+    private void startProgram(Runnable body, long stackSize, Runnable onDone) {
+        ThreadGroup group = new ThreadGroup("program");
+        input.clear();
+        program = group;
+
+        Thread main = new Thread(group, () -> {
+            try {
+                body.run();
+            } finally {
+                awaitOtherThreads();
+                program = null;
+                Platform.runLater(onDone);
+            }
+        }, "main", stackSize);
+        main.start();
+    }
+
+    /**
+     * waits on the main thread of a program until it is the last live thread
+     * of the program's group, so that the other threads keep the console and
+     * can still be stopped.  Interrupting the main thread (as stop() does)
+     * does not end the wait.
+     */
+    private static void awaitOtherThreads() {
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        // activeCount() counts the main thread too
+        while (group.activeCount() > 1) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                // stop() interrupted the whole group: wait for the others
+            }
+        }
+    }
+
+    /**
+     * checks a Bantam Java program and, if it has no errors, translates it
+     * to Java, compiles it and runs it, in the background.  The few
+     * programs that cannot be written in Java, or all of them when there
+     * is no compiler, run as JVM classes generated by the JvmBackend (or
+     * with the closure engine or the interpreter).  Errors are listed in
+     * the console.
+     *
+     * @param fileNames the names of the files of the program
+     * @param sources the text of each file
+     * @param onDone called on the FX thread when the check failed or the
+     *               program ended
+     */
+    public void runBantam(List<String> fileNames, List<String> sources, Runnable onDone) {
+        compiler.execute(() -> {
+            ErrorHandler errorHandler = new ErrorHandler();
+            ClassTreeNode root;
+            try {
+                Parser parser = new Parser(errorHandler);
+                ClassList classes = new ClassList(0);
+                for (int i = 0; i < fileNames.size(); i++) {
+                    Program program = parser.parse(new StringReader(sources.get(i)),
+                            fileNames.get(i));
+                    for (ASTNode klass : program.getClassList()) {
+                        classes.addElement(klass);
+                    }
+                }
+                SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+                // keep the analysis on the compiler thread
+                analyzer.setExecutor(Runnable::run);
+                root = analyzer.analyze(new Program(0, classes));
+                new ConstantFolder().fold(root);
+                new ReachabilityAnalyzer().strip(root);
+            } catch (CompilationException | IOException e) {
+                StringBuilder report = new StringBuilder("There were errors:\n");
+                for (Error error : errorHandler.getErrorList()) {
+                    report.append("\t").append(error).append("\n");
+                }
+                console.append(report.toString());
+                Platform.runLater(onDone);
+                return;
+            }
+
+            Map<String, byte[]> translation = compileTranslation(root);
+            // Bantam recursion runs on the Java stack: give it room
+            startProgram(() -> {
+                try {
+                    int status;
+                    if (translation != null) {
+                        status = runTranslation(translation);
+                    } else {
+                        try {
+                            status = new JvmBackend(root, System.in, System.out,
+                                    System.err).run();
+                        } catch (UnsupportedOperationException e) {
+                            status = runInterpreted(root);
+                        }
+                    }
+                    System.out.println("\nExited with status " + status);
+                } catch (BantamRuntimeException e) {
+                    System.err.println("\nRuntime error: " + e.getMessage());
+                } catch (CancellationException e) {
+                    System.out.println("\nStopped");
+                }
+            }, BANTAM_STACK_SIZE, onDone);
+        });
+    }
+
+    /**
+     * runs the compiled Java translation of a Bantam Java program
+     *
+     * @param classes the class files of the translation
+     * @return the exit status of the program
+     */
+    private static int runTranslation(Map<String, byte[]> classes) {
+        try (MemoryClassLoader loader = new MemoryClassLoader(classes,
+                BantamRuntime.class.getClassLoader())) {
+            Class<?> mainClass = loader.loadClass(BantamRuntime.PACKAGE + ".Main");
+            BantamRuntime.setStreams(System.in, System.out, System.err);
+            return BantamRuntime.run(mainClass);
+        } catch (ClassNotFoundException | IOException e) {
+            throw new IllegalStateException("the translation has no Main class", e);
+        }
+    }
+
+    /**
+     * runs a Bantam Java program with the closure engine, which starts at
+     * once, or the interpreter if the closure engine cannot run it
+     *
+     * @param root the class hierarchy of the checked program
+     * @return the exit status of the program
+     */
+    private static int runInterpreted(ClassTreeNode root) {
+        try {
+            return new ClosureEngine(root, System.in, System.out, System.err).run();
+        } catch (UnsupportedOperationException e) {
+            return new Interpreter(root, System.in, System.out, System.err).run();
+        }
+    }
+
+    /**
+     * a source file whose text is the text of the tab rather than what is on disk
+     */
+    private static class SourceObject extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceObject(Path file, String source) {
+            super(file.toUri(), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * the Java translation of a Bantam class, named after its Bantam file
+     * rather than after the class, so the messages of the compiler and the
+     * stack traces of the program name the Bantam file
+     */
+    private static class TranslationObject extends SourceObject {
+        TranslationObject(Path bantamFile, String source) {
+            super(bantamFile, source);
+        }
+
+        @Override
+        public boolean isNameCompatible(String simpleName, Kind kind) {
+            return kind == Kind.SOURCE;
+        }
+    }
+
+    /**
+     * a file manager that keeps the class files the compiler writes in memory
+     */
+    private static class MemoryFileManager
+            extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location,
+                                                   String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new SimpleJavaFileObject(
+                    URI.create("mem:///" + className.replace('.', '/') + kind.extension),
+                    kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * loads the classes of the Java translation of a Bantam program, which
+     * see the Bantam runtime through the parent class loader
+     */
+    private static class MemoryClassLoader extends URLClassLoader {
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+            super(new URL[0], parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                return super.findClass(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * the lines typed into the console, read by the program as System.in.
+     * A program waiting for input is stopped by interrupting it.
+     */
+    private static class ConsoleInputStream extends InputStream {
+        private final BlockingQueue<byte[]> lines = new LinkedBlockingQueue<>();
+        // the line being read, and how much of it has been read
+        private byte[] line = new byte[0];
+        private int position = 0;
+
+        void add(byte[] bytes) {
+            lines.add(bytes);
+        }
+
+        synchronized void clear() {
+            lines.clear();
+            line = new byte[0];
+            position = 0;
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position == line.length) {
+                try {
+                    line = lines.take();
+                    position = 0;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("stopped while waiting for input");
+                }
+            }
+            int n = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public synchronized int available() {
+            return line.length - position;
+        }
+    }
+
+    /**
+     * the System streams, routed to the console for the threads of the
+     * running program
+     */
+    private static final class ProgramStreams {
+        private static JavaRunner runner;
+
+        private ProgramStreams() {
+        }
+
+        /**
+         * replaces the System streams, once
+         *
+         * @param newRunner the runner whose program is routed to its console
+         */
+        static synchronized void install(JavaRunner newRunner) {
+            if (runner != null) {
+                runner = newRunner;
+                return;
+            }
+            runner = newRunner;
+            PrintStream out = System.out;
+            PrintStream err = System.err;
+            InputStream in = System.in;
+            Charset charset = Charset.defaultCharset();
+            System.setOut(new PrintStream(new RoutedOutputStream(out), true, charset));
+            System.setErr(new PrintStream(new RoutedOutputStream(err), true, charset));
+            System.setIn(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    return inProgram() ? runner.input.read() : in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    return inProgram() ? runner.input.read(buffer, offset, length)
+                            : in.read(buffer, offset, length);
+                }
+
+                @Override
+                public int available() throws IOException {
+                    return inProgram() ? runner.input.available() : in.available();
+                }
+            });
+        }
+
+        /**
+         * @return true if the current thread belongs to the running program
+         */
+        static boolean inProgram() {
+            ThreadGroup program = runner.program;
+            ThreadGroup group = Thread.currentThread().getThreadGroup();
+            return program != null && group != null && program.parentOf(group);
+        }
+    }
+
+    /**
+     * sends the bytes written by the program to the console, decoded, and
+     * the bytes written by anyone else to the original stream
+     */
+    private static class RoutedOutputStream extends OutputStream {
+        private final OutputStream original;
+        // keeps the start of a char split between two writes
+        private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer leftover = ByteBuffer.allocate(0);
+
+        RoutedOutputStream(OutputStream original) {
+            this.original = original;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            if (!ProgramStreams.inProgram()) {
+                original.write(bytes, offset, length);
+                return;
+            }
+            ByteBuffer in = ByteBuffer.allocate(leftover.remaining() + length);
+            in.put(leftover).put(bytes, offset, length).flip();
+            CharBuffer out = CharBuffer.allocate(in.remaining());
+            decoder.decode(in, out, false);
+            leftover = in;
+            ProgramStreams.runner.console.append(out.flip().toString());
+        }
+
+        @Override
+        public void flush() throws IOException {
+            original.flush();
+        }
+    }
+}
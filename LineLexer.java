@@ -0,0 +1,38 @@
+/*
+ * File: LineLexer.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.util.Collection;
+
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+/**
+ * Highlights a document one line (paragraph) at a time.
+ *
+ * The only thing a line needs to know about the lines before it is the state
+ * the lexer was in at the end of the previous line (e.g. inside a block
+ * comment), so the IncrementalHighlighter can cache that state per paragraph
+ * and re-lex just the lines an edit touched.
+ *
+ * @author Baron Wang
+ */
+public interface LineLexer {
+
+    /** the state at the start of a document */
+    int INITIAL_STATE = 0;
+
+    /**
+     * adds the style spans of one line to the builder.  The spans must cover
+     * the whole line (and nothing more).
+     *
+     * @param line the text of the line, without the line terminator
+     * @param state the state at the end of the previous line
+     * @param spans the builder receiving the spans of the line
+     * @return the state at the end of this line
+     */
+    int highlight(String line, int state, StyleSpansBuilder<Collection<String>> spans);
+}
@@ -0,0 +1,134 @@
+/*
+ * File: RegexLineLexer.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+/**
+ * A LineLexer built from the keyword regex of a code area.
+ *
+ * The pattern only matches tokens that fit on one line.  Tokens that can span
+ * lines (block comments, Python triple-quoted strings) are "regions": the
+ * pattern has an OPEN group matching the opening delimiter of any region,
+ * and the lexer then looks for the closing delimiter, on the following lines
+ * if need be.  The state of a line is 0 outside any region, and 1 + the index
+ * of the region the line ends in otherwise.
+ *
+ * @author Baron Wang
+ */
+public class RegexLineLexer implements LineLexer {
+
+    /** name of the group matching the opening delimiter of a region */
+    public static final String OPEN_GROUP = "OPEN";
+
+    private final Pattern pattern;
+    // names of the groups of the pattern; the style class is the lower case name
+    private final String[] groups;
+    // style class of the text inside regions
+    private final String regionStyle;
+    // {opening delimiter, closing delimiter} of each region
+    private final String[][] regions;
+
+    /**
+     * creates a line lexer
+     *
+     * @param pattern the single-line tokens, one named group per style, plus
+     *                an OPEN group matching the opening delimiter of each region
+     * @param groups the names of the style groups of the pattern
+     * @param regionStyle the style class of the regions
+     * @param regions {opening delimiter, closing delimiter} of each region
+     */
+    public RegexLineLexer(Pattern pattern, String[] groups, String regionStyle,
+                          String[][] regions) {
+        this.pattern = pattern;
+        this.groups = groups;
+        this.regionStyle = regionStyle;
+        this.regions = regions;
+    }
+
+    @Override
+    public int highlight(String line, int state,
+                         StyleSpansBuilder<Collection<String>> spans) {
+        Matcher matcher = pattern.matcher(line);
+        int pos = 0;
+        while (pos < line.length()) {
+            if (state != INITIAL_STATE) {
+                // inside a region: it extends to its closing delimiter
+                String closer = regions[state - 1][1];
+                int end = line.indexOf(closer, pos);
+                if (end == -1) {
+                    spans.add(Collections.singleton(regionStyle), line.length() - pos);
+                    return state;
+                }
+                end += closer.length();
+                spans.add(Collections.singleton(regionStyle), end - pos);
+                pos = end;
+                state = INITIAL_STATE;
+                continue;
+            }
+            if (!matcher.find(pos)) {
+                break;
+            }
+            spans.add(Collections.emptyList(), matcher.start() - pos);
+            if (matcher.group(OPEN_GROUP) != null) {
+                // a region starts; its opening delimiter is part of it
+                state = regionOpenedBy(matcher.group(OPEN_GROUP));
+                String opener = regions[state - 1][0];
+                int end = line.indexOf(regions[state - 1][1],
+                        matcher.start() + opener.length());
+                if (end == -1) {
+                    spans.add(Collections.singleton(regionStyle),
+                            line.length() - matcher.start());
+                    return state;
+                }
+                end += regions[state - 1][1].length();
+                spans.add(Collections.singleton(regionStyle), end - matcher.start());
+                pos = end;
+                state = INITIAL_STATE;
+                continue;
+            }
+            spans.add(Collections.singleton(styleOf(matcher)),
+                    matcher.end() - matcher.start());
+            pos = matcher.end();
+        }
+        spans.add(Collections.emptyList(), line.length() - pos);
+        return state;
+    }
+
+    /**
+     * returns the state of the region whose opening delimiter was matched
+     *
+     * @param opener the text of the OPEN group
+     */
+    private int regionOpenedBy(String opener) {
+        for (int i = 0; i < regions.length; i++) {
+            if (regions[i][0].equals(opener)) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("No region opens with " + opener);
+    }
+
+    /**
+     * returns the style class of the group that matched
+     *
+     * @param matcher a matcher that has just found a (non-OPEN) token
+     */
+    private String styleOf(Matcher matcher) {
+        for (String group : groups) {
+            if (matcher.group(group) != null) {
+                return group.toLowerCase();
+            }
+        }
+        throw new IllegalStateException("No style group matched"); // never happens
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * File: TabDocument.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.Paragraph;
+import org.reactfx.EventSource;
+import org.reactfx.EventStream;
+import org.reactfx.Subscription;
+
+/**
+ * The text of a tab, and whether it differs from what was last saved.
+ *
+ * The heavy part of a tab, its code area with line numbers and highlighting,
+ * is only created when the tab is first shown, and can be dropped again
+ * (evicted) when the tab has not been looked at for a while.  Until then, or
+ * from then on, the document just keeps the text as a String.
+ *
+ * Whether the text is saved is known without keeping a copy of the saved
+ * text.
+ * Every edit increments a version number, and saving records the version,
+ * length and a 64-bit hash of the text saved.  A tab whose version is the
+ * saved one is saved; a tab whose length differs from the saved one is not.
+ * Only when an edit was followed by edits undoing it (same length, different
+ * version) is the hash of the current text computed, once per version.
+ * Saves run in the background: a tab is marked saved as soon as its save
+ * starts, the hash of the saved text is supplied by the saving thread, and
+ * the mark is taken back if the save fails.
+ *
+ * @author Baron Wang
+ */
+public class TabDocument {
+
+    // the code area of the tab, or null if the tab has not been shown or was evicted
+    private JavaCodeArea view;
+    // the text of the tab while there is no view
+    private String text = "";
+    // the lexer of the language of the tab
+    private LineLexer lexer;
+    // whether the view is in the selected tab
+    private boolean visible = false;
+    // the edit subscription of the view
+    private Subscription subscription;
+    // fires on every edit, whichever view the edit is made in
+    private final EventSource<Long> edits = new EventSource<>();
+    // incremented on every edit
+    private long version = 0;
+    // the text last saved
+    private SavedState saved = new SavedState(-1, 0);
+    // the last version whose hash was compared with the saved hash, and the result
+    private long comparedVersion = -1;
+    private boolean comparedEqual;
+
+    /**
+     * creates an empty document without a view
+     *
+     * @param lexer the lexer of the language of the tab
+     */
+    public TabDocument(LineLexer lexer) {
+        this.lexer = lexer;
+    }
+
+    /**
+     * returns the code area of the tab, creating it if need be
+     *
+     * @return the code area
+     */
+    public JavaCodeArea materialize() {
+        if (view == null) {
+            view = new JavaCodeArea(lexer);
+            CodeArea codeArea = view.getCodeArea();
+            codeArea.replaceText(text);
+            codeArea.getUndoManager().forgetHistory();
+            codeArea.moveTo(0);
+            view.setVisible(visible);
+            text = null;
+            subscription = codeArea.plainTextChanges().subscribe(change -> {
+                version++;
+                edits.push(version);
+            });
+        }
+        return view;
+    }
+
+    /**
+     * drops the code area of the tab, keeping its text.  The undo history
+     * of the tab goes with it.
+     */
+    public void evict() {
+        if (view != null) {
+            text = view.getCodeArea().getText();
+            subscription.unsubscribe();
+            view.dispose();
+            view = null;
+        }
+    }
+
+    /**
+     * @return the code area of the tab, or null if it has none right now
+     */
+    public JavaCodeArea getView() {
+        return view;
+    }
+
+    /**
+     * @return the text of the tab
+     */
+    public String getText() {
+        return view == null ? text : view.getCodeArea().getText();
+    }
+
+    /**
+     * @return the length of the text of the tab
+     */
+    public int getLength() {
+        return view == null ? text.length() : view.getCodeArea().getLength();
+    }
+
+    /**
+     * @return the edits of the tab, as their version numbers
+     */
+    public EventStream<Long> edits() {
+        return edits;
+    }
+
+    /**
+     * switches the tab to the lexer of another language
+     *
+     * @param lexer the new lexer
+     */
+    public void setLexer(LineLexer lexer) {
+        this.lexer = lexer;
+        if (view != null) {
+            view.setLexer(lexer);
+        }
+    }
+
+    /**
+     * tells the document whether its tab is the selected one
+     *
+     * @param visible true if the tab is selected
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+        if (view != null) {
+            view.setVisible(visible);
+        }
+    }
+
+    /**
+     * @return the number of edits made to the text so far
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if the text has ever been saved (or was opened from a file)
+     */
+    public boolean hasBeenSaved() {
+        return saved.version != -1;
+    }
+
+    /**
+     * records that the current text of the code area has been saved
+     *
+     * @param text the text that was saved, which is the current text
+     */
+    public void markSaved(String text) {
+        markSaved(text.length(), hash(0, text));
+    }
+
+    /**
+     * records that the current text of the code area has been saved
+     *
+     * @param length the length of the current text
+     * @param hash the hash of the current text, see hash(long, CharSequence)
+     */
+    public void markSaved(int length, long hash) {
+        saved = new SavedState(version, length);
+        saved.hash = hash;
+        saved.hashKnown = true;
+    }
+
+    /**
+     * marks the current text as saved while it is being saved.  The hash of
+     * the text is not known until savedHash() is called.
+     *
+     * @return the handle of this save, for savedHash() and saveFailed()
+     */
+    public SavedState markSaving() {
+        SavedState saving = new SavedState(version, getLength());
+        saving.previous = saved;
+        saved = saving;
+        return saving;
+    }
+
+    /**
+     * supplies the hash of a text being saved
+     *
+     * @param saving the handle returned by markSaving() for this save
+     * @param hash the hash of the saved text
+     */
+    public void savedHash(SavedState saving, long hash) {
+        saving.hash = hash;
+        saving.hashKnown = true;
+        saving.previous = null;
+    }
+
+    /**
+     * takes back the mark of a save that failed, unless the text has been
+     * saved again since
+     *
+     * @param saving the handle returned by markSaving() for this save
+     */
+    public void saveFailed(SavedState saving) {
+        if (saved == saving) {
+            saved = saving.previous;
+        }
+    }
+
+    /**
+     * returns whether the text is the same as the text last saved
+     *
+     * @return false if the text has never been saved or has changed since
+     */
+    public boolean isSaved() {
+        if (!hasBeenSaved()) {
+            return false;
+        }
+        if (version == saved.version) {
+            return true;
+        }
+        if (getLength() != saved.length || !saved.hashKnown) {
+            return false;
+        }
+        // edited and back to the saved length: compare hashes
+        if (comparedVersion != version) {
+            comparedVersion = version;
+            comparedEqual = (view == null ? hash(0, text) : hashOfCodeArea()) == saved.hash;
+        }
+        return comparedEqual;
+    }
+
+    /**
+     * hashes the text of the code area paragraph by paragraph,
+     * without building the whole text
+     */
+    private long hashOfCodeArea() {
+        long h = 0;
+        boolean first = true;
+        for (Paragraph<?, String, ?> paragraph : view.getCodeArea().getParagraphs()) {
+            if (!first) {
+                h = 31 * h + '\n';
+            }
+            first = false;
+            String text = paragraph.getText();
+            for (int i = 0; i < text.length(); i++) {
+                h = 31 * h + text.charAt(i);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * hashes a text the same way hashOfCodeArea() does.  A text read in
+     * chunks is hashed by passing the hash of the previous chunks along.
+     *
+     * @param h the hash of the text before this chunk (0 at the start)
+     * @param text the chunk
+     * @return the hash of the text up to the end of this chunk
+     */
+    public static long hash(long h, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * drops the code area and the text; called when the tab is closed
+     */
+    public void dispose() {
+        if (view != null) {
+            subscription.unsubscribe();
+            view.dispose();
+            view = null;
+        }
+        text = "";
+    }
+
+    /**
+     * the version, length and hash of a saved text
+     */
+    public static final class SavedState {
+        private final long version;
+        private final int length;
+        private long hash;
+        private boolean hashKnown;
+        // the state this one replaced, while its save is running
+        private SavedState previous;
+
+        private SavedState(long version, int length) {
+            this.version = version;
+            this.length = length;
+        }
+    }
+}
@@ -257,6 +257,19 @@ public abstract class ASTNode {
      */
     protected int lineNum;
 
+    /**
+     * The offset in the source of the first character of this node, or -1
+     * if it was not recorded.  The parser records the spans of the classes
+     * and members.
+     */
+    protected int startOffset = -1;
+
+    /**
+     * The offset in the source just past the last character of this node, or
+     * -1 if it was not recorded
+     */
+    protected int endOffset = -1;
+
     /**
      * ASTNode constructor
      *
@@ -275,6 +288,45 @@ public abstract class ASTNode {
         return lineNum;
     }
 
+    /**
+     * Set the line number corresponding to this AST node, e.g. when an
+     * incremental parse reuses the node after lines were inserted above it
+     *
+     * @param lineNum the line number
+     */
+    public void setLineNum(int lineNum) {
+        this.lineNum = lineNum;
+    }
+
+    /**
+     * Get the offset in the source of the first character of this node
+     *
+     * @return the offset, or -1 if it was not recorded
+     */
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    /**
+     * Get the offset in the source just past the last character of this node
+     *
+     * @return the offset, or -1 if it was not recorded
+     */
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Set the span of the source text of this node
+     *
+     * @param startOffset the offset of its first character
+     * @param endOffset   the offset just past its last character
+     */
+    public void setSpan(int startOffset, int endOffset) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
     /**
      * Visitor method
      *
@@ -55,6 +55,18 @@ public class AssignExpr extends Expr {
      */
     protected Expr expr;
 
+    /**
+     * The slot of the variable, set by the interpreter's slot resolver:
+     * an index into the frame for a local variable (0 holds 'this'), an
+     * index into the object's fields for a field, or -1 for 'null'
+     */
+    protected int slot = -1;
+
+    /**
+     * Boolean indicating whether the slot is a field slot
+     */
+    protected boolean fieldSlot = false;
+
     /**
      * AssignExpr constructor
      *
@@ -97,6 +109,45 @@ public class AssignExpr extends Expr {
         return expr;
     }
 
+    /**
+     * Set the expression
+     *
+     * @param expr the righthand expression
+     */
+    public void setExpr(Expr expr) {
+        this.expr = expr;
+    }
+
+    /**
+     * Get the slot of the variable
+     * (an index into the frame, or into the fields if isFieldSlot())
+     *
+     * @return slot
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Is the slot an index into the fields of 'this' rather than the frame?
+     *
+     * @return boolean indicating whether the variable is a field
+     */
+    public boolean isFieldSlot() {
+        return fieldSlot;
+    }
+
+    /**
+     * Set the slot of the variable
+     *
+     * @param slot      the index into the frame or into the fields
+     * @param fieldSlot boolean indicating whether the variable is a field
+     */
+    public void setSlot(int slot, boolean fieldSlot) {
+        this.slot = slot;
+        this.fieldSlot = fieldSlot;
+    }
+
     /**
      * Visitor method
      *
@@ -75,6 +75,15 @@ public abstract class BinaryExpr extends Expr {
         return leftExpr;
     }
 
+    /**
+     * Set the lefthand expression
+     *
+     * @param leftExpr the lefthand expression
+     */
+    public void setLeftExpr(Expr leftExpr) {
+        this.leftExpr = leftExpr;
+    }
+
     /**
      * Get the righthand expression
      *
@@ -84,6 +93,15 @@ public abstract class BinaryExpr extends Expr {
         return rightExpr;
     }
 
+    /**
+     * Set the righthand expression
+     *
+     * @param rightExpr the righthand expression
+     */
+    public void setRightExpr(Expr rightExpr) {
+        this.rightExpr = rightExpr;
+    }
+
     /**
      * Get the operation name (e.g., "+")
      * (must be defined by each subclass)
@@ -84,6 +84,15 @@ public class CastExpr extends Expr {
         return expr;
     }
 
+    /**
+     * Set the expression
+     *
+     * @param expr the expression being cast
+     */
+    public void setExpr(Expr expr) {
+        this.expr = expr;
+    }
+
     /**
      * Is this an upcast?
      *
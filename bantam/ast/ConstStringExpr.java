@@ -39,6 +39,12 @@ import bantam.visitor.Visitor;
  * @see ConstExpr
  */
 public class ConstStringExpr extends ConstExpr {
+    /**
+     * The string the constant stands for (without the quotes, and with
+     * the escape sequences replaced by the characters they stand for)
+     */
+    private String stringConstant;
+
     /**
      * ConstStringExpr constructor
      *
@@ -47,6 +53,47 @@ public class ConstStringExpr extends ConstExpr {
      */
     public ConstStringExpr(int lineNum, String constant) {
         super(lineNum, constant);
+        stringConstant = unescape(constant);
+    }
+
+    /**
+     * Get the string the constant stands for
+     *
+     * @return the string, without quotes and with escape sequences replaced
+     */
+    public String getStringConstant() {
+        return stringConstant;
+    }
+
+    /**
+     * removes the quotes around a string constant (if any) and replaces its
+     * escape sequences (\n, \t, \f, \" and \\)
+     *
+     * @param constant the string constant as it appears in the source
+     * @return the string it stands for
+     */
+    private static String unescape(String constant) {
+        int start = 0;
+        int end = constant.length();
+        if (end >= 2 && constant.charAt(0) == '"' && constant.charAt(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        StringBuilder result = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = constant.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                c = constant.charAt(++i);
+                switch (c) {
+                    case 'n': c = '\n'; break;
+                    case 't': c = '\t'; break;
+                    case 'f': c = '\f'; break;
+                    default: break; // \" and \\ stand for the char itself
+                }
+            }
+            result.append(c);
+        }
+        return result.toString();
     }
 
     /**
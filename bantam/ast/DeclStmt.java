@@ -54,6 +54,11 @@ public class DeclStmt extends Stmt {
      */
     protected Expr init;
 
+    /**
+     * The frame slot of the variable, set by the interpreter's slot resolver
+     */
+    protected int slot = -1;
+
     /**
      * DeclStmt constructor
      *
@@ -96,6 +101,33 @@ public class DeclStmt extends Stmt {
         return init;
     }
 
+    /**
+     * Set the initialization expression
+     *
+     * @param init the initialization expression
+     */
+    public void setInit(Expr init) {
+        this.init = init;
+    }
+
+    /**
+     * Get the frame slot of the variable
+     *
+     * @return slot
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Set the frame slot of the variable
+     *
+     * @param slot the index into the frame
+     */
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     /**
      * Visitor method
      *
@@ -53,6 +53,12 @@ public class DispatchExpr extends Expr {
      */
     protected ExprList actualList;
 
+    /**
+     * The index of the method in the method table of the static type of
+     * the reference expression, set by the interpreter's slot resolver
+     */
+    protected int methodIndex = -1;
+
     /**
      * DispatchExpr constructor
      *
@@ -78,6 +84,15 @@ public class DispatchExpr extends Expr {
         return refExpr;
     }
 
+    /**
+     * Set the reference expression
+     *
+     * @param refExpr the reference expression (may be null)
+     */
+    public void setRefExpr(Expr refExpr) {
+        this.refExpr = refExpr;
+    }
+
     /**
      * Get the method name
      *
@@ -96,6 +111,24 @@ public class DispatchExpr extends Expr {
         return actualList;
     }
 
+    /**
+     * Get the index of the method in the method table
+     *
+     * @return method index
+     */
+    public int getMethodIndex() {
+        return methodIndex;
+    }
+
+    /**
+     * Set the index of the method in the method table
+     *
+     * @param methodIndex the index
+     */
+    public void setMethodIndex(int methodIndex) {
+        this.methodIndex = methodIndex;
+    }
+
     /**
      * Visitor method
      *
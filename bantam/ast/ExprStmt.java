@@ -63,6 +63,15 @@ public class ExprStmt extends Stmt {
         return expr;
     }
 
+    /**
+     * Set the expression
+     *
+     * @param expr the expression
+     */
+    public void setExpr(Expr expr) {
+        this.expr = expr;
+    }
+
     /**
      * Visitor method
      *
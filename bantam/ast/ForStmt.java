@@ -88,6 +88,15 @@ public class ForStmt extends Stmt {
         return initExpr;
     }
 
+    /**
+     * Set the initialization expression
+     *
+     * @param initExpr the initialization expression (may be null)
+     */
+    public void setInitExpr(Expr initExpr) {
+        this.initExpr = initExpr;
+    }
+
     /**
      * Get the predicate expression
      * If null, then no predicate expression
@@ -98,6 +107,15 @@ public class ForStmt extends Stmt {
         return predExpr;
     }
 
+    /**
+     * Set the predicate expression
+     *
+     * @param predExpr the predicate expression (may be null)
+     */
+    public void setPredExpr(Expr predExpr) {
+        this.predExpr = predExpr;
+    }
+
     /**
      * Get the update expression
      * If null, then no update expression
@@ -108,6 +126,15 @@ public class ForStmt extends Stmt {
         return updateExpr;
     }
 
+    /**
+     * Set the update expression
+     *
+     * @param updateExpr the update expression (may be null)
+     */
+    public void setUpdateExpr(Expr updateExpr) {
+        this.updateExpr = updateExpr;
+    }
+
     /**
      * Get the body statement
      *
@@ -117,6 +144,15 @@ public class ForStmt extends Stmt {
         return bodyStmt;
     }
 
+    /**
+     * Set the body statement
+     *
+     * @param bodyStmt the body statement
+     */
+    public void setBodyStmt(Stmt bodyStmt) {
+        this.bodyStmt = bodyStmt;
+    }
+
     /**
      * Visitor method
      *
@@ -78,6 +78,15 @@ public class IfStmt extends Stmt {
         return predExpr;
     }
 
+    /**
+     * Set the predicate expression
+     *
+     * @param predExpr the predicate expression
+     */
+    public void setPredExpr(Expr predExpr) {
+        this.predExpr = predExpr;
+    }
+
     /**
      * Get the then statement
      *
@@ -87,6 +96,15 @@ public class IfStmt extends Stmt {
         return thenStmt;
     }
 
+    /**
+     * Set the then statement
+     *
+     * @param thenStmt the Stmt forming the then part of the if statement.
+     */
+    public void setThenStmt(Stmt thenStmt) {
+        this.thenStmt = thenStmt;
+    }
+
     /**
      * Set the else statement
      *
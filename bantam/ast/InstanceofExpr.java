@@ -76,6 +76,15 @@ public class InstanceofExpr extends Expr {
         return expr;
     }
 
+    /**
+     * Set the expression
+     *
+     * @param expr the expression being tested
+     */
+    public void setExpr(Expr expr) {
+        this.expr = expr;
+    }
+
     /**
      * Get the righthand type
      *
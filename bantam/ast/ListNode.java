@@ -101,6 +101,29 @@ public abstract class ListNode extends ASTNode
         return listElements.get(index);
     }
 
+    /**
+     * replace the index-th element
+     *
+     * @param index the index of the element
+     * @param node  the new element
+     * @throws java.lang.ArrayIndexOutOfBoundsException if the index is
+     *         too large or too small
+     */
+    public void set(int index, ASTNode node) {
+        listElements.set(index, node);
+    }
+
+    /**
+     * remove the index-th element; the elements after it move down
+     *
+     * @param index the index of the element
+     * @throws java.lang.ArrayIndexOutOfBoundsException if the index is
+     *         too large or too small
+     */
+    public void remove(int index) {
+        listElements.remove(index);
+    }
+
     /**
      * Visitor method
      *
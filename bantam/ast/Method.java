@@ -58,6 +58,12 @@ public class Method extends Member {
      */
     protected StmtList stmtList;
 
+    /**
+     * The number of frame slots the method needs ('this', the formals and
+     * the local variables), set by the interpreter's slot resolver
+     */
+    protected int frameSize = 0;
+
     /**
      * Method constructor
      *
@@ -112,6 +118,24 @@ public class Method extends Member {
         return stmtList;
     }
 
+    /**
+     * Get the number of frame slots the method needs
+     *
+     * @return frame size
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * Set the number of frame slots the method needs
+     *
+     * @param frameSize the number of slots
+     */
+    public void setFrameSize(int frameSize) {
+        this.frameSize = frameSize;
+    }
+
     /**
      * Visitor method
      *
@@ -63,6 +63,15 @@ public class ReturnStmt extends Stmt {
         return expr;
     }
 
+    /**
+     * Set the expression
+     *
+     * @param expr the return expression (may be null)
+     */
+    public void setExpr(Expr expr) {
+        this.expr = expr;
+    }
+
     /**
      * Visitor method
      *
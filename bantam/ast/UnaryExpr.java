@@ -67,6 +67,15 @@ public abstract class UnaryExpr extends Expr {
         return expr;
     }
 
+    /**
+     * Set the expression
+     *
+     * @param expr the operand expression
+     */
+    public void setExpr(Expr expr) {
+        this.expr = expr;
+    }
+
     /**
      * Get the operation name (e.g., "!")
      * (must be defined by each subclass)
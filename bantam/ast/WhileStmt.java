@@ -70,6 +70,15 @@ public class WhileStmt extends Stmt {
         return predExpr;
     }
 
+    /**
+     * Set the predicate expression
+     *
+     * @param predExpr the predicate expression
+     */
+    public void setPredExpr(Expr predExpr) {
+        this.predExpr = predExpr;
+    }
+
     /**
      * Get the body statement
      *
@@ -79,6 +88,15 @@ public class WhileStmt extends Stmt {
         return bodyStmt;
     }
 
+    /**
+     * Set the body statement
+     *
+     * @param bodyStmt the body statement
+     */
+    public void setBodyStmt(Stmt bodyStmt) {
+        this.bodyStmt = bodyStmt;
+    }
+
     /**
      * Visitor method
      *
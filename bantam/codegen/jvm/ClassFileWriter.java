@@ -0,0 +1,287 @@
+/*
+ * File: ClassFileWriter.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.codegen.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a JVM class file: the constant pool, the fields, the methods with
+ * their Code attributes and a SourceFile attribute.  Only what the
+ * JvmBackend generates is supported: public classes with public instance
+ * fields and public instance methods.
+ * <p/>
+ * The class files have version 49 (Java 5), the last one the JVM verifies
+ * by type inference: later versions need a StackMapTable attribute giving
+ * the types of the stack and locals at every branch target, which would
+ * mean computing the common superclass of the types merging there.
+ */
+final class ClassFileWriter
+{
+    /** the access flags used */
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_SUPER = 0x0020;
+
+    /** the major version of the class files */
+    private static final int VERSION = 49;
+
+    /** the tags of the constant pool entries used */
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    /** the constant pool entries after the unused entry 0, and their number plus 1 */
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private int poolCount = 1;
+
+    /** the index of each constant pool entry, by a key made of its tag and contents */
+    private final Map<String, Integer> poolIndices = new HashMap<>();
+
+    /** the fields and the methods written so far, and their numbers */
+    private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+    private int numFields;
+    private int numMethods;
+
+    /** the constant pool indices of the class, its superclass and its source file */
+    private final int thisClass;
+    private final int superClass;
+    private final int sourceFile;
+
+    /**
+     * starts a class file
+     * @param name the internal name of the class (with slashes)
+     * @param superName the internal name of its superclass
+     * @param sourceFile the name of the source file, without directories
+     */
+    ClassFileWriter(String name, String superName, String sourceFile) {
+        this.thisClass = classRef(name);
+        this.superClass = classRef(superName);
+        this.sourceFile = utf8(sourceFile);
+        utf8("SourceFile");
+    }
+
+    /**
+     * returns the constant pool index of an entry, adding the entry if needed
+     * @param key the tag and the contents of the entry
+     * @param entry the bytes of the entry
+     * @return its index
+     */
+    private int entry(String key, byte[] entry) {
+        Integer index = poolIndices.get(key);
+        if (index == null) {
+            if (poolCount == 0xFFFF) {
+                throw new UnsupportedOperationException("too many constants in a class");
+            }
+            index = poolCount++;
+            pool.writeBytes(entry);
+            poolIndices.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of a CONSTANT_Utf8 entry
+     */
+    int utf8(String value) {
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        entry.write(CONSTANT_UTF8);
+        byte[] bytes = modifiedUtf8(value);
+        u2(entry, bytes.length);
+        entry.writeBytes(bytes);
+        return entry("Utf8 " + value, entry.toByteArray());
+    }
+
+    /**
+     * @return the index of a CONSTANT_Integer entry
+     */
+    int integer(int value) {
+        return entry("Integer " + value, new byte[]{CONSTANT_INTEGER,
+                (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value});
+    }
+
+    /**
+     * @return the index of a CONSTANT_String entry
+     */
+    int string(String value) {
+        return entry("String " + value, reference(CONSTANT_STRING, utf8(value)));
+    }
+
+    /**
+     * @param internalName the internal name of a class
+     * @return the index of its CONSTANT_Class entry
+     */
+    int classRef(String internalName) {
+        return entry("Class " + internalName, reference(CONSTANT_CLASS, utf8(internalName)));
+    }
+
+    /**
+     * @return the index of a CONSTANT_Fieldref entry
+     */
+    int fieldRef(String owner, String name, String descriptor) {
+        return member(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    /**
+     * @return the index of a CONSTANT_Methodref entry
+     */
+    int methodRef(String owner, String name, String descriptor) {
+        return member(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    /**
+     * returns the index of a field or method reference entry
+     * @param tag CONSTANT_FIELDREF or CONSTANT_METHODREF
+     * @param owner the internal name of the class of the member
+     * @param name the name of the member
+     * @param descriptor its descriptor
+     * @return the index of the entry
+     */
+    private int member(int tag, String owner, String name, String descriptor) {
+        int nameAndType = entry("NameAndType " + name + " " + descriptor,
+                reference(CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor)));
+        return entry(tag + " " + owner + "." + name + " " + descriptor,
+                reference(tag, classRef(owner), nameAndType));
+    }
+
+    /**
+     * @return the bytes of an entry made of a tag and indices of other entries
+     */
+    private static byte[] reference(int tag, int... indices) {
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        entry.write(tag);
+        for (int index : indices) {
+            u2(entry, index);
+        }
+        return entry.toByteArray();
+    }
+
+    /**
+     * adds a public field
+     * @param name the name of the field
+     * @param descriptor its descriptor
+     */
+    void addField(String name, String descriptor) {
+        u2(fields, ACC_PUBLIC);
+        u2(fields, utf8(name));
+        u2(fields, utf8(descriptor));
+        u2(fields, 0);
+        numFields++;
+    }
+
+    /**
+     * adds a public method
+     * @param name the name of the method
+     * @param descriptor its descriptor
+     * @param code its code
+     */
+    void addMethod(String name, String descriptor, CodeBuilder code) {
+        u2(methods, ACC_PUBLIC);
+        u2(methods, utf8(name));
+        u2(methods, utf8(descriptor));
+        u2(methods, 1);
+        byte[] bytes = code.getCode();
+        byte[] lines = code.getLineNumbers();
+        int lineTableLength = lines.length == 0 ? 0 : 8 + lines.length;
+        u2(methods, utf8("Code"));
+        u4(methods, 12 + bytes.length + lineTableLength);
+        u2(methods, code.getMaxStack());
+        u2(methods, code.getMaxLocals());
+        u4(methods, bytes.length);
+        methods.writeBytes(bytes);
+        u2(methods, 0); // no exception handlers
+        if (lines.length == 0) {
+            u2(methods, 0);
+        }
+        else {
+            u2(methods, 1);
+            u2(methods, utf8("LineNumberTable"));
+            u4(methods, 2 + lines.length);
+            u2(methods, lines.length / 4);
+            methods.writeBytes(lines);
+        }
+        numMethods++;
+    }
+
+    /**
+     * @return the class file
+     */
+    byte[] toByteArray() {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        u4(file, 0xCAFEBABE);
+        u2(file, 0);
+        u2(file, VERSION);
+        u2(file, poolCount);
+        file.writeBytes(pool.toByteArray());
+        u2(file, ACC_PUBLIC | ACC_SUPER);
+        u2(file, thisClass);
+        u2(file, superClass);
+        u2(file, 0); // no interfaces
+        u2(file, numFields);
+        file.writeBytes(fields.toByteArray());
+        u2(file, numMethods);
+        file.writeBytes(methods.toByteArray());
+        u2(file, 1);
+        u2(file, utf8("SourceFile"));
+        u4(file, 2);
+        u2(file, sourceFile);
+        return file.toByteArray();
+    }
+
+    /**
+     * encodes a string the way class files do: like UTF-8, except that the
+     * character 0 takes two bytes and characters outside the Basic
+     * Multilingual Plane take two three-byte surrogates
+     * @param value the string
+     * @return its bytes
+     */
+    private static byte[] modifiedUtf8(String value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 1 && c < 0x80) {
+                bytes.write(c);
+            }
+            else if (c < 0x800) {
+                bytes.write(0xC0 | c >> 6);
+                bytes.write(0x80 | c & 0x3F);
+            }
+            else {
+                bytes.write(0xE0 | c >> 12);
+                bytes.write(0x80 | c >> 6 & 0x3F);
+                bytes.write(0x80 | c & 0x3F);
+            }
+        }
+        if (bytes.size() > 0xFFFF) {
+            throw new UnsupportedOperationException("a string constant is too long");
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * writes an unsigned 16-bit value
+     */
+    static void u2(ByteArrayOutputStream out, int value) {
+        out.write(value >> 8);
+        out.write(value);
+    }
+
+    /**
+     * writes a 32-bit value
+     */
+    static void u4(ByteArrayOutputStream out, int value) {
+        u2(out, value >>> 16);
+        u2(out, value);
+    }
+}
@@ -0,0 +1,1025 @@
+/*
+ * File: ClassGenerator.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.codegen.jvm;
+
+import bantam.ast.*;
+import bantam.codegen.jvm.CodeBuilder.Label;
+import bantam.codegen.jvm.runtime.BantamRuntime;
+import bantam.util.ClassTreeNode;
+import bantam.visitor.Visitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Hashtable;
+import java.util.List;
+
+import static bantam.codegen.jvm.CodeBuilder.*;
+
+/**
+ * This visitor translates a type-checked class, whose names have been
+ * resolved by the SlotResolver, to a JVM class file.
+ * <p/>
+ * A Bantam class becomes a public JVM class in the package
+ * BantamRuntime.PACKAGE, with a public field for each field, a public
+ * method for each method (see BantamRuntime.methodName() for its name) and
+ * a constructor running the field initializers after the constructor of
+ * the superclass.  int and boolean are the JVM int and boolean, String is
+ * java.lang.String and the other built-in classes are the classes of
+ * bantam.codegen.jvm.runtime.  A local variable gets the JVM local of its
+ * SlotResolver slot.  Conditions of ifs and loops are compiled to
+ * conditional jumps rather than to booleans.
+ * <p/>
+ * A visit of an expression leaves its value, if any, on the operand stack.
+ */
+class ClassGenerator extends Visitor
+{
+    /** the internal name of the runtime support class */
+    private static final String RUNTIME = "bantam/codegen/jvm/runtime/BantamRuntime";
+
+    /** the classes of the program, by name */
+    private final Hashtable<String, ClassTreeNode> classMap;
+
+    /** the class being generated and its class file */
+    private ClassTreeNode currentClass;
+    private ClassFileWriter classFile;
+
+    /** the fields of the class being generated that have an initializer */
+    private final List<Field> initializedFields = new ArrayList<>();
+
+    /** the code of the method being generated, and its return type */
+    private CodeBuilder code;
+    private String returnType;
+
+    /** true while visiting the expression of an expression statement */
+    private boolean discard;
+
+    /** where the break statements of the enclosing loops go, innermost first */
+    private final Deque<Label> breakTargets = new ArrayDeque<>();
+
+    /**
+     * creates a generator for the classes of a program
+     * @param classMap the classes of the program, by name
+     */
+    ClassGenerator(Hashtable<String, ClassTreeNode> classMap) {
+        this.classMap = classMap;
+    }
+
+    /**
+     * returns the internal name of the JVM class of a Bantam class
+     * @param type the name of the Bantam class
+     * @return the internal name of the JVM class
+     */
+    static String internalName(String type) {
+        switch (type) {
+            case "Object":
+                return "java/lang/Object";
+            case "String":
+                return "java/lang/String";
+            case "TextIO":
+            case "Sys":
+                return "bantam/codegen/jvm/runtime/" + type;
+            default:
+                return BantamRuntime.PACKAGE.replace('.', '/') + "/" + type;
+        }
+    }
+
+    /**
+     * returns the internal name of the JVM class of a Bantam class when it
+     * is extended: the superclass of the classes extending Object is
+     * BantamBase
+     * @param type the name of the Bantam class
+     * @return the internal name of the JVM class
+     */
+    private static String superName(String type) {
+        return type.equals("Object") ? "bantam/codegen/jvm/runtime/BantamBase"
+                : internalName(type);
+    }
+
+    /**
+     * @return the JVM descriptor of a Bantam type
+     */
+    static String descriptor(String type) {
+        switch (type) {
+            case "int":
+                return "I";
+            case "boolean":
+                return "Z";
+            case "void":
+                return "V";
+            default:
+                return "L" + internalName(type) + ";";
+        }
+    }
+
+    /**
+     * @return the JVM descriptor of a Bantam method
+     */
+    private static String descriptor(Method method) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (ASTNode formal : method.getFormalList()) {
+            descriptor.append(descriptor(((Formal) formal).getType()));
+        }
+        return descriptor.append(')').append(descriptor(method.getReturnType())).toString();
+    }
+
+    /**
+     * @return whether values of a type are ints or booleans
+     */
+    private static boolean isPrimitive(String type) {
+        return type.equals("int") || type.equals("boolean");
+    }
+
+    /**
+     * finds the declaration of a method in a class or its superclasses
+     * @param start the class
+     * @param name the name of the method
+     * @param owner where the declaration is stored: owner[0] is set to the
+     *              class declaring the method
+     * @return the declaration, or null
+     */
+    private static Method findMethod(ClassTreeNode start, String name, ClassTreeNode[] owner) {
+        for (ClassTreeNode node = start; node != null; node = node.getParent()) {
+            for (ASTNode member : node.getASTNode().getMemberList()) {
+                if (member instanceof Method && ((Method) member).getName().equals(name)) {
+                    owner[0] = node;
+                    return (Method) member;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * returns the declared type of a field of a class or its superclasses
+     * @param start the class
+     * @param name the name of the field
+     * @return its type
+     */
+    private static String fieldType(ClassTreeNode start, String name) {
+        for (ClassTreeNode node = start; node != null; node = node.getParent()) {
+            for (ASTNode member : node.getASTNode().getMemberList()) {
+                if (member instanceof Field && ((Field) member).getName().equals(name)) {
+                    return ((Field) member).getType();
+                }
+            }
+        }
+        throw new IllegalStateException("no field " + name + " in " + start.getName());
+    }
+
+    /**
+     * generates the class file of a class
+     * @param node the class
+     * @return the class file
+     * @throws UnsupportedOperationException if the class cannot run on the
+     * JVM: an overriding method whose formals or result have other types
+     * than those of the method it overrides, which the semantic analyzer
+     * does not reject, or a method too large for the JVM
+     */
+    byte[] generate(ClassTreeNode node) {
+        Class_ ast = node.getASTNode();
+        String file = ast.getFilename();
+        currentClass = node;
+        classFile = new ClassFileWriter(internalName(node.getName()),
+                superName(node.getParent().getName()),
+                file.substring(file.lastIndexOf('/') + 1));
+        initializedFields.clear();
+        ast.getMemberList().accept(this);
+        generateConstructor();
+        return classFile.toByteArray();
+    }
+
+    /**
+     * generates the constructor of the class: it calls the constructor of
+     * the superclass and then runs the field initializers
+     */
+    private void generateConstructor() {
+        code = new CodeBuilder(classFile, 1);
+        code.line(currentClass.getASTNode().getLineNum());
+        code.local(ALOAD, 0);
+        code.invoke(INVOKESPECIAL, superName(currentClass.getParent().getName()),
+                "<init>", "()V");
+        for (Field field : initializedFields) {
+            code.line(field.getLineNum());
+            code.local(ALOAD, 0);
+            compile(field.getInit());
+            code.field(PUTFIELD, internalName(currentClass.getName()), field.getName(),
+                    descriptor(field.getType()));
+        }
+        code.op(RETURN);
+        classFile.addMethod("<init>", "()V", code);
+    }
+
+    /**
+     * Visit a field node
+     *
+     * @param node the field node
+     * @return result of the visit
+     */
+    public Object visit(Field node) {
+        classFile.addField(node.getName(), descriptor(node.getType()));
+        if (node.getInit() != null) {
+            initializedFields.add(node);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a method node
+     *
+     * @param node the method node
+     * @return result of the visit
+     */
+    public Object visit(Method node) {
+        ClassTreeNode[] owner = new ClassTreeNode[1];
+        Method overridden = findMethod(currentClass.getParent(), node.getName(), owner);
+        if (overridden != null && !descriptor(overridden).equals(descriptor(node))) {
+            throw new UnsupportedOperationException(currentClass.getName() + "."
+                    + node.getName() + " overrides " + owner[0].getName() + "."
+                    + node.getName() + " with other types");
+        }
+        returnType = node.getReturnType();
+        code = new CodeBuilder(classFile,
+                Math.max(node.getFrameSize(), node.getFormalList().getSize() + 1));
+        code.line(node.getLineNum());
+        code.invoke(INVOKESTATIC, RUNTIME, "poll", "()V");
+        node.getStmtList().accept(this);
+        if (code.isReachable()) {
+            if (returnType.equals("void")) {
+                code.op(RETURN);
+            }
+            else if (isPrimitive(returnType)) {
+                code.intConstant(0);
+                code.op(IRETURN);
+            }
+            else {
+                code.op(ACONST_NULL);
+                code.op(ARETURN);
+            }
+        }
+        classFile.addMethod(BantamRuntime.methodName(node.getName()), descriptor(node), code);
+        return null;
+    }
+
+    /**
+     * generates the code of an expression, which leaves its value on the stack
+     *
+     * @param expr the expression
+     */
+    private void compile(Expr expr) {
+        int outerLine = code.getLine();
+        boolean outerDiscard = discard;
+        discard = false;
+        code.line(expr.getLineNum());
+        expr.accept(this);
+        code.line(outerLine);
+        discard = outerDiscard;
+    }
+
+    /**
+     * generates a condition as a jump taken if it has the given value
+     *
+     * @param cond the condition
+     * @param jumpIf the value of the condition for which the jump is taken
+     * @param label where the jump goes
+     */
+    private void branch(Expr cond, boolean jumpIf, Label label) {
+        int outerLine = code.getLine();
+        code.line(cond.getLineNum());
+        BinaryExpr comparison = cond instanceof BinaryExpr ? (BinaryExpr) cond : null;
+        if (cond instanceof BinaryLogicAndExpr || cond instanceof BinaryLogicOrExpr) {
+            // "a && b" is true if both are; "a || b" is false if both are
+            boolean both = cond instanceof BinaryLogicAndExpr;
+            if (jumpIf == both) {
+                Label skip = new Label();
+                branch(comparison.getLeftExpr(), !both, skip);
+                branch(comparison.getRightExpr(), both, label);
+                code.place(skip);
+            }
+            else {
+                branch(comparison.getLeftExpr(), jumpIf, label);
+                branch(comparison.getRightExpr(), jumpIf, label);
+            }
+        }
+        else if (cond instanceof UnaryNotExpr) {
+            branch(((UnaryNotExpr) cond).getExpr(), !jumpIf, label);
+        }
+        else if (cond instanceof ConstBooleanExpr) {
+            if (((ConstBooleanExpr) cond).getConstant().equals("true") == jumpIf) {
+                code.jump(GOTO, label);
+            }
+        }
+        else if (cond instanceof BinaryCompExpr) {
+            Expr right = comparison.getRightExpr();
+            int opcode;
+            compile(comparison.getLeftExpr());
+            if (!isPrimitive(comparison.getLeftExpr().getExprType())) {
+                if (isNull(right)) {
+                    opcode = IFNULL + compareIndex(comparison);
+                }
+                else {
+                    compile(right);
+                    opcode = IF_ACMPEQ + compareIndex(comparison);
+                }
+            }
+            else if (right instanceof ConstIntExpr && ((ConstIntExpr) right).getIntConstant() == 0) {
+                opcode = IFEQ + compareIndex(comparison);
+            }
+            else {
+                compile(right);
+                opcode = IF_ICMPEQ + compareIndex(comparison);
+            }
+            code.jump(jumpIf ? opcode : negate(opcode), label);
+        }
+        else {
+            compile(cond);
+            code.jump(jumpIf ? IFEQ + 1 : IFEQ, label);
+        }
+        code.line(outerLine);
+    }
+
+    /**
+     * returns the index of a comparison in the families of conditional
+     * jumps: ==, !=, &lt;, &gt;=, &gt; and &lt;=
+     *
+     * @param node the comparison
+     */
+    private static int compareIndex(BinaryExpr node) {
+        if (node instanceof BinaryCompEqExpr) {
+            return 0;
+        }
+        if (node instanceof BinaryCompNeExpr) {
+            return 1;
+        }
+        if (node instanceof BinaryCompLtExpr) {
+            return 2;
+        }
+        if (node instanceof BinaryCompGeqExpr) {
+            return 3;
+        }
+        return node instanceof BinaryCompGtExpr ? 4 : 5;
+    }
+
+    /**
+     * @return whether an expression is the constant null
+     */
+    private static boolean isNull(Expr expr) {
+        return expr instanceof VarExpr && ((VarExpr) expr).getRef() == null
+                && ((VarExpr) expr).getName().equals("null");
+    }
+
+    /**
+     * @return whether an expression is super (rather than a field of super)
+     */
+    private static boolean isSuper(Expr expr) {
+        return expr instanceof VarExpr && ((VarExpr) expr).getRef() == null
+                && ((VarExpr) expr).getName().equals("super");
+    }
+
+    /**
+     * returns the class of a field accessed through this, super or neither
+     *
+     * @param refName "super" or something else
+     * @return the class the field is looked up from
+     */
+    private ClassTreeNode fieldClass(String refName) {
+        return "super".equals(refName) ? currentClass.getParent() : currentClass;
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        code.line(node.getLineNum());
+        compile(node.getInit());
+        code.local(isPrimitive(node.getType()) ? ISTORE : ASTORE, node.getSlot());
+        return null;
+    }
+
+    /**
+     * Visit an expression statement node: the value of the expression is
+     * dropped, or not computed at all for assignments and increments
+     *
+     * @param node the expression statement node
+     * @return result of the visit
+     */
+    public Object visit(ExprStmt node) {
+        Expr expr = node.getExpr();
+        code.line(node.getLineNum());
+        if (expr instanceof AssignExpr || expr instanceof UnaryIncrExpr
+                || expr instanceof UnaryDecrExpr) {
+            discard = true;
+            expr.accept(this);
+            discard = false;
+        }
+        else {
+            compile(expr);
+            if (!"void".equals(expr.getExprType())) {
+                code.op(POP);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return result of the visit
+     */
+    public Object visit(IfStmt node) {
+        code.line(node.getLineNum());
+        Label elseLabel = new Label();
+        branch(node.getPredExpr(), false, elseLabel);
+        node.getThenStmt().accept(this);
+        if (node.getElseStmt() == null) {
+            code.place(elseLabel);
+        }
+        else {
+            Label end = new Label();
+            if (code.isReachable()) {
+                code.jump(GOTO, end);
+            }
+            code.place(elseLabel);
+            node.getElseStmt().accept(this);
+            code.place(end);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a while statement node: the condition is tested at the bottom,
+     * after the check for a stop request
+     *
+     * @param node the while statement node
+     * @return result of the visit
+     */
+    public Object visit(WhileStmt node) {
+        code.line(node.getLineNum());
+        Label body = new Label();
+        Label test = new Label();
+        Label end = new Label();
+        code.jump(GOTO, test);
+        code.place(body);
+        breakTargets.push(end);
+        node.getBodyStmt().accept(this);
+        breakTargets.pop();
+        code.place(test);
+        code.line(node.getPredExpr().getLineNum());
+        code.invoke(INVOKESTATIC, RUNTIME, "poll", "()V");
+        branch(node.getPredExpr(), true, body);
+        code.place(end);
+        return null;
+    }
+
+    /**
+     * Visit a for statement node: the condition is tested at the bottom,
+     * after the update and the check for a stop request
+     *
+     * @param node the for statement node
+     * @return result of the visit
+     */
+    public Object visit(ForStmt node) {
+        code.line(node.getLineNum());
+        if (node.getInitExpr() != null) {
+            statement(node.getInitExpr());
+        }
+        Label body = new Label();
+        Label test = new Label();
+        Label end = new Label();
+        code.jump(GOTO, test);
+        code.place(body);
+        breakTargets.push(end);
+        node.getBodyStmt().accept(this);
+        breakTargets.pop();
+        if (node.getUpdateExpr() != null) {
+            statement(node.getUpdateExpr());
+        }
+        code.place(test);
+        code.line(node.getLineNum());
+        code.invoke(INVOKESTATIC, RUNTIME, "poll", "()V");
+        if (node.getPredExpr() == null) {
+            code.jump(GOTO, body);
+        }
+        else {
+            branch(node.getPredExpr(), true, body);
+        }
+        code.place(end);
+        return null;
+    }
+
+    /**
+     * generates an expression whose value is not used, like the
+     * initialization and the update of a for loop
+     *
+     * @param expr the expression
+     */
+    private void statement(Expr expr) {
+        new ExprStmt(expr.getLineNum(), expr).accept(this);
+    }
+
+    /**
+     * Visit a break statement node
+     *
+     * @param node the break statement node
+     * @return result of the visit
+     */
+    public Object visit(BreakStmt node) {
+        code.line(node.getLineNum());
+        code.jump(GOTO, breakTargets.peek());
+        return null;
+    }
+
+    /**
+     * Visit a return statement node
+     *
+     * @param node the return statement node
+     * @return result of the visit
+     */
+    public Object visit(ReturnStmt node) {
+        code.line(node.getLineNum());
+        if (node.getExpr() == null) {
+            code.op(RETURN);
+        }
+        else {
+            compile(node.getExpr());
+            code.op(isPrimitive(returnType) ? IRETURN : ARETURN);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a dispatch expression node.  A method of a user class, TextIO
+     * or Sys is called with INVOKEVIRTUAL, or INVOKESPECIAL through super;
+     * the methods of String and Object map to those of java.lang.String and
+     * java.lang.Object, or to BantamRuntime when their Bantam meaning is
+     * another one.
+     *
+     * @param node the dispatch expression node
+     * @return result of the visit
+     */
+    public Object visit(DispatchExpr node) {
+        Expr ref = node.getRefExpr();
+        String name = node.getMethodName();
+        boolean special = ref != null && isSuper(ref);
+        ClassTreeNode staticClass;
+        if (ref == null || special) {
+            code.local(ALOAD, 0);
+            staticClass = special ? currentClass.getParent() : currentClass;
+        }
+        else {
+            compile(ref);
+            staticClass = classMap.get(ref.getExprType());
+        }
+        for (ASTNode actual : node.getActualList()) {
+            compile((Expr) actual);
+        }
+
+        ClassTreeNode[] owner = new ClassTreeNode[1];
+        Method method = findMethod(staticClass, name, owner);
+        String descriptor = descriptor(method);
+        String ownerName = owner[0].getName();
+        if (ownerName.equals("String")) {
+            if (name.equals("substring") || name.equals("concat")) {
+                code.invoke(INVOKESTATIC, RUNTIME, name,
+                        "(Ljava/lang/String;" + descriptor.substring(1));
+            }
+            else {
+                code.invoke(INVOKEVIRTUAL, "java/lang/String", name, descriptor);
+            }
+        }
+        else if (ownerName.equals("Object") && name.equals("clone") && !special) {
+            code.invoke(INVOKESTATIC, RUNTIME, "clone",
+                    "(Ljava/lang/Object;)Ljava/lang/Object;");
+        }
+        else if (ownerName.equals("Object") && !special) {
+            code.invoke(INVOKEVIRTUAL, "java/lang/Object", name, descriptor);
+        }
+        else {
+            code.invoke(special ? INVOKESPECIAL : INVOKEVIRTUAL,
+                    special ? superName(staticClass.getName()) : internalName(staticClass.getName()),
+                    BantamRuntime.methodName(name), descriptor);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return result of the visit
+     */
+    public Object visit(NewExpr node) {
+        if (node.getType().equals("String")) {
+            code.stringConstant("");
+            return null;
+        }
+        String type = superName(node.getType());
+        code.type(NEW, type);
+        code.op(DUP);
+        code.invoke(INVOKESPECIAL, type, "<init>", "()V");
+        return null;
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return result of the visit
+     */
+    public Object visit(InstanceofExpr node) {
+        compile(node.getExpr());
+        code.type(INSTANCEOF, internalName(node.getType()));
+        return null;
+    }
+
+    /**
+     * Visit a cast expression node: a downcast is checked by BantamRuntime,
+     * for its error message, and then by a CHECKCAST, for the verifier
+     *
+     * @param node the cast expression node
+     * @return result of the visit
+     */
+    public Object visit(CastExpr node) {
+        compile(node.getExpr());
+        if (!node.getUpCast()) {
+            String type = internalName(node.getType());
+            code.classConstant(type);
+            code.invoke(INVOKESTATIC, RUNTIME, "cast",
+                    "(Ljava/lang/Object;Ljava/lang/Class;)Ljava/lang/Object;");
+            code.type(CHECKCAST, type);
+        }
+        return null;
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(AssignExpr node) {
+        boolean used = !discard;
+        if (node.isFieldSlot()) {
+            ClassTreeNode fieldClass = fieldClass(node.getRefName());
+            code.local(ALOAD, 0);
+            compile(node.getExpr());
+            if (used) {
+                code.op(DUP_X1);
+            }
+            code.field(PUTFIELD, internalName(fieldClass.getName()), node.getName(),
+                    descriptor(fieldType(fieldClass, node.getName())));
+        }
+        else {
+            compile(node.getExpr());
+            if (used) {
+                code.op(DUP);
+            }
+            code.local(isPrimitive(node.getExpr().getExprType()) ? ISTORE : ASTORE,
+                    node.getSlot());
+        }
+        return null;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return result of the visit
+     */
+    public Object visit(VarExpr node) {
+        if (node.isFieldSlot()) {
+            String refName = node.getRef() == null ? null : ((VarExpr) node.getRef()).getName();
+            ClassTreeNode fieldClass = fieldClass(refName);
+            code.local(ALOAD, 0);
+            code.field(GETFIELD, internalName(fieldClass.getName()), node.getName(),
+                    descriptor(fieldType(fieldClass, node.getName())));
+        }
+        else if (node.getSlot() == -1) {
+            code.op(ACONST_NULL);
+        }
+        else {
+            code.local(isPrimitive(node.getExprType()) ? ILOAD : ALOAD, node.getSlot());
+        }
+        return null;
+    }
+
+    /**
+     * generates an int operation with two operands
+     *
+     * @param node the binary expression
+     * @param opcode the opcode
+     */
+    private void binary(BinaryExpr node, int opcode) {
+        compile(node.getLeftExpr());
+        compile(node.getRightExpr());
+        code.op(opcode);
+    }
+
+    /**
+     * generates / or %: a division by a constant other than 0 is a plain
+     * IDIV or IREM, the others call BantamRuntime for the error message
+     *
+     * @param node the binary expression
+     * @param opcode IDIV or IREM
+     */
+    private void division(BinaryExpr node, int opcode) {
+        Expr right = node.getRightExpr();
+        if (right instanceof ConstIntExpr && ((ConstIntExpr) right).getIntConstant() != 0) {
+            binary(node, opcode);
+        }
+        else {
+            compile(node.getLeftExpr());
+            compile(right);
+            code.invoke(INVOKESTATIC, RUNTIME, opcode == IDIV ? "divide" : "modulus", "(II)I");
+        }
+    }
+
+    /**
+     * generates a comparison or a logical operation whose value is used as
+     * a boolean
+     *
+     * @param node the comparison or logical operation
+     */
+    private void condition(Expr node) {
+        Label isFalse = new Label();
+        Label end = new Label();
+        branch(node, false, isFalse);
+        code.intConstant(1);
+        code.jump(GOTO, end);
+        code.place(isFalse);
+        code.intConstant(0);
+        code.place(end);
+    }
+
+    /**
+     * Visit a binary comparison equals expression node
+     *
+     * @param node the binary comparison equals expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompEqExpr node) {
+        condition(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison not equals expression node
+     *
+     * @param node the binary comparison not equals expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompNeExpr node) {
+        condition(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison less than expression node
+     *
+     * @param node the binary comparison less than expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompLtExpr node) {
+        condition(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison less than or equal to expression node
+     *
+     * @param node the binary comparison less than or equal to expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompLeqExpr node) {
+        condition(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison greater than expression node
+     *
+     * @param node the binary comparison greater than expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompGtExpr node) {
+        condition(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison greater than or equal to expression node
+     *
+     * @param node the binary comparison greater than or equal to expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompGeqExpr node) {
+        condition(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        binary(node, IADD);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        binary(node, ISUB);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        binary(node, IMUL);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic divide expression node
+     *
+     * @param node the binary arithmetic divide expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithDivideExpr node) {
+        division(node, IDIV);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic modulus expression node
+     *
+     * @param node the binary arithmetic modulus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithModulusExpr node) {
+        division(node, IREM);
+        return null;
+    }
+
+    /**
+     * Visit a binary logical AND expression node
+     *
+     * @param node the binary logical AND expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryLogicAndExpr node) {
+        condition(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary logical OR expression node
+     *
+     * @param node the binary logical OR expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryLogicOrExpr node) {
+        condition(node);
+        return null;
+    }
+
+    /**
+     * Visit a unary negation expression node
+     *
+     * @param node the unary negation expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryNegExpr node) {
+        compile(node.getExpr());
+        code.op(INEG);
+        return null;
+    }
+
+    /**
+     * Visit a unary NOT expression node
+     *
+     * @param node the unary NOT expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryNotExpr node) {
+        compile(node.getExpr());
+        code.intConstant(1);
+        code.op(IXOR);
+        return null;
+    }
+
+    /**
+     * generates ++ or --
+     *
+     * @param node the increment or decrement
+     * @param delta 1 or -1
+     */
+    private void increment(UnaryExpr node, int delta) {
+        VarExpr variable = (VarExpr) node.getExpr();
+        boolean postfix = node instanceof UnaryIncrExpr ?
+                ((UnaryIncrExpr) node).isPostfix() : ((UnaryDecrExpr) node).isPostfix();
+        boolean used = !discard;
+        if (variable.isFieldSlot()) {
+            String refName = variable.getRef() == null ? null
+                    : ((VarExpr) variable.getRef()).getName();
+            String owner = internalName(fieldClass(refName).getName());
+            code.local(ALOAD, 0);
+            code.op(DUP);
+            code.field(GETFIELD, owner, variable.getName(), "I");
+            if (used && postfix) {
+                code.op(DUP_X1);
+            }
+            code.intConstant(delta);
+            code.op(IADD);
+            if (used && !postfix) {
+                code.op(DUP_X1);
+            }
+            code.field(PUTFIELD, owner, variable.getName(), "I");
+        }
+        else {
+            if (used && postfix) {
+                code.local(ILOAD, variable.getSlot());
+            }
+            code.iinc(variable.getSlot(), delta);
+            if (used && !postfix) {
+                code.local(ILOAD, variable.getSlot());
+            }
+        }
+    }
+
+    /**
+     * Visit a unary increment expression node
+     *
+     * @param node the unary increment expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryIncrExpr node) {
+        increment(node, 1);
+        return null;
+    }
+
+    /**
+     * Visit a unary decrement expression node
+     *
+     * @param node the unary decrement expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryDecrExpr node) {
+        increment(node, -1);
+        return null;
+    }
+
+    /**
+     * Visit a int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstIntExpr node) {
+        code.intConstant(node.getIntConstant());
+        return null;
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstBooleanExpr node) {
+        code.intConstant(node.getConstant().equals("true") ? 1 : 0);
+        return null;
+    }
+
+    /**
+     * Visit a string constant expression node
+     *
+     * @param node the string constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstStringExpr node) {
+        code.stringConstant(node.getStringConstant());
+        return null;
+    }
+}
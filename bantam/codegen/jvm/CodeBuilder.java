@@ -0,0 +1,423 @@
+/*
+ * File: CodeBuilder.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.codegen.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assembles the code of a JVM method: appends instructions, resolves the
+ * jumps to labels, computes the maximum depth of the operand stack and
+ * builds the line number table.  Only the instructions the JvmBackend
+ * generates are supported.
+ * <p/>
+ * The depth of the stack is tracked as the code is appended: a label gets
+ * the depth of the jumps to it, and the code after an unconditional jump
+ * or a return is unreachable until a label that is jumped to is placed.
+ */
+final class CodeBuilder
+{
+    static final int ACONST_NULL = 1;
+    static final int ICONST_0 = 3;
+    static final int BIPUSH = 16;
+    static final int SIPUSH = 17;
+    static final int LDC = 18;
+    static final int LDC_W = 19;
+    static final int ILOAD = 21;
+    static final int ALOAD = 25;
+    static final int ISTORE = 54;
+    static final int ASTORE = 58;
+    static final int POP = 87;
+    static final int DUP = 89;
+    static final int DUP_X1 = 90;
+    static final int IADD = 96;
+    static final int ISUB = 100;
+    static final int IMUL = 104;
+    static final int IDIV = 108;
+    static final int IREM = 112;
+    static final int INEG = 116;
+    static final int IXOR = 130;
+    static final int IINC = 132;
+    /** IFEQ, IFNE, IFLT, IFGE, IFGT and IFLE compare an int with 0 and
+     * IF_ICMPEQ to IF_ICMPLE two ints, in the same order; IF_ACMPEQ and
+     * IF_ACMPNE compare references, IFNULL and IFNONNULL a reference with
+     * null (see negate()) */
+    static final int IFEQ = 153;
+    static final int IF_ICMPEQ = 159;
+    static final int IF_ACMPEQ = 165;
+    static final int GOTO = 167;
+    static final int IRETURN = 172;
+    static final int ARETURN = 176;
+    static final int RETURN = 177;
+    static final int GETFIELD = 180;
+    static final int PUTFIELD = 181;
+    static final int INVOKEVIRTUAL = 182;
+    static final int INVOKESPECIAL = 183;
+    static final int INVOKESTATIC = 184;
+    static final int NEW = 187;
+    static final int CHECKCAST = 192;
+    static final int INSTANCEOF = 193;
+    static final int WIDE = 196;
+    static final int IFNULL = 198;
+
+    /**
+     * A place in the code that jumps are assembled to before it is known
+     */
+    static class Label {
+        /** the offset of the instruction, or -1 until the label is placed */
+        private int target = -1;
+        /** the depth of the stack there, or -1 if no jump to it is known yet */
+        private int depth = -1;
+        /** the offsets of the jumps whose target must be patched */
+        private final List<Integer> uses = new ArrayList<>();
+    }
+
+    /** the class file the constants go to */
+    private final ClassFileWriter classFile;
+
+    /** the code so far */
+    private byte[] code = new byte[256];
+    private int size;
+
+    /** the depth of the stack after the code so far, and its maximum */
+    private int depth;
+    private int maxStack;
+
+    /** whether the end of the code so far can be reached */
+    private boolean reachable = true;
+
+    /** the number of local variable slots */
+    private final int maxLocals;
+
+    /** the line number table so far, and the line of the next instruction */
+    private final ByteArrayOutputStream lineNumbers = new ByteArrayOutputStream();
+    private int lastLine = -1;
+    private int line = -1;
+
+    /**
+     * starts the code of a method
+     * @param classFile the class file of the method
+     * @param maxLocals the number of local variable slots, 'this' included
+     */
+    CodeBuilder(ClassFileWriter classFile, int maxLocals) {
+        this.classFile = classFile;
+        this.maxLocals = maxLocals;
+    }
+
+    /**
+     * @return the code
+     */
+    byte[] getCode() {
+        if (size > 0xFFFF) {
+            throw new UnsupportedOperationException("a method is too large for the JVM");
+        }
+        return Arrays.copyOf(code, size);
+    }
+
+    /**
+     * @return the entries of the line number table
+     */
+    byte[] getLineNumbers() {
+        return lineNumbers.toByteArray();
+    }
+
+    int getMaxStack() {
+        return maxStack;
+    }
+
+    int getMaxLocals() {
+        return maxLocals;
+    }
+
+    /**
+     * @return whether the end of the code so far can be reached
+     */
+    boolean isReachable() {
+        return reachable;
+    }
+
+    /**
+     * sets the source line of the next instructions
+     * @param line the line, or -1 to keep the current one
+     */
+    void line(int line) {
+        if (line > 0) {
+            this.line = line;
+        }
+    }
+
+    /**
+     * @return the source line of the next instructions
+     */
+    int getLine() {
+        return line;
+    }
+
+    /**
+     * appends the first byte of an instruction
+     * @param opcode the opcode
+     * @param stackChange the change of the depth of the stack it makes
+     */
+    private void start(int opcode, int stackChange) {
+        if (line != lastLine && line > 0) {
+            ClassFileWriter.u2(lineNumbers, size);
+            ClassFileWriter.u2(lineNumbers, line);
+            lastLine = line;
+        }
+        reachable = true;
+        depth += stackChange;
+        maxStack = Math.max(maxStack, depth);
+        put(opcode);
+    }
+
+    private void put(int value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, 2 * size);
+        }
+        code[size++] = (byte) value;
+    }
+
+    private void put2(int value) {
+        put(value >> 8);
+        put(value);
+    }
+
+    /**
+     * appends an instruction without operands
+     * @param opcode the opcode
+     */
+    void op(int opcode) {
+        switch (opcode) {
+            case ACONST_NULL: case DUP: case DUP_X1:
+                start(opcode, 1);
+                break;
+            case POP: case IADD: case ISUB: case IMUL: case IDIV: case IREM: case IXOR:
+                start(opcode, -1);
+                break;
+            case INEG:
+                start(opcode, 0);
+                break;
+            case IRETURN: case ARETURN: case RETURN:
+                start(opcode, 0);
+                depth = 0;
+                reachable = false;
+                break;
+            default:
+                throw new IllegalArgumentException("opcode " + opcode + " has operands");
+        }
+    }
+
+    /**
+     * appends the shortest instruction pushing an int constant
+     * @param value the constant
+     */
+    void intConstant(int value) {
+        if (value >= -1 && value <= 5) {
+            start(ICONST_0 + value, 1);
+        }
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            start(BIPUSH, 1);
+            put(value);
+        }
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            start(SIPUSH, 1);
+            put2(value);
+        }
+        else {
+            constant(classFile.integer(value));
+        }
+    }
+
+    /**
+     * appends an instruction pushing a String constant
+     */
+    void stringConstant(String value) {
+        constant(classFile.string(value));
+    }
+
+    /**
+     * appends an instruction pushing the Class object of a class
+     * @param internalName the internal name of the class
+     */
+    void classConstant(String internalName) {
+        constant(classFile.classRef(internalName));
+    }
+
+    private void constant(int index) {
+        if (index < 256) {
+            start(LDC, 1);
+            put(index);
+        }
+        else {
+            start(LDC_W, 1);
+            put2(index);
+        }
+    }
+
+    /**
+     * appends an instruction loading or storing a local variable
+     * @param opcode ILOAD, ALOAD, ISTORE or ASTORE
+     * @param slot the slot of the variable
+     */
+    void local(int opcode, int slot) {
+        int stackChange = opcode == ILOAD || opcode == ALOAD ? 1 : -1;
+        if (slot > 255) {
+            start(WIDE, stackChange);
+            put(opcode);
+            put2(slot);
+        }
+        else if (slot <= 3) {
+            // ILOAD_0 is 26, ALOAD_0 42, ISTORE_0 59 and ASTORE_0 75
+            int first = opcode == ILOAD ? 26 : opcode == ALOAD ? 42 : opcode == ISTORE ? 59 : 75;
+            start(first + slot, stackChange);
+        }
+        else {
+            start(opcode, stackChange);
+            put(slot);
+        }
+    }
+
+    /**
+     * appends an instruction adding a constant to an int local variable
+     * @param slot the slot of the variable
+     * @param delta the constant, between -128 and 127
+     */
+    void iinc(int slot, int delta) {
+        if (slot > 255) {
+            start(WIDE, 0);
+            put(IINC);
+            put2(slot);
+            put2(delta);
+        }
+        else {
+            start(IINC, 0);
+            put(slot);
+            put(delta);
+        }
+    }
+
+    /**
+     * appends a GETFIELD or PUTFIELD instruction
+     * @param opcode GETFIELD or PUTFIELD
+     * @param owner the internal name of the class of the field
+     * @param name the name of the field
+     * @param descriptor its descriptor
+     */
+    void field(int opcode, String owner, String name, String descriptor) {
+        start(opcode, opcode == GETFIELD ? 0 : -2);
+        put2(classFile.fieldRef(owner, name, descriptor));
+    }
+
+    /**
+     * appends an INVOKEVIRTUAL, INVOKESPECIAL or INVOKESTATIC instruction
+     * @param opcode the opcode
+     * @param owner the internal name of the class of the method
+     * @param name the name of the method
+     * @param descriptor its descriptor
+     */
+    void invoke(int opcode, String owner, String name, String descriptor) {
+        int stackChange = -numArguments(descriptor) - (opcode == INVOKESTATIC ? 0 : 1)
+                + (descriptor.endsWith(")V") ? 0 : 1);
+        start(opcode, stackChange);
+        put2(classFile.methodRef(owner, name, descriptor));
+    }
+
+    /**
+     * returns the number of arguments of a method descriptor, none of
+     * which may be a long or a double
+     * @param descriptor the descriptor
+     */
+    private static int numArguments(String descriptor) {
+        int count = 0;
+        for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * returns the conditional jump taken when the given one is not
+     * @param opcode a conditional jump
+     * @return the opposite jump
+     */
+    static int negate(int opcode) {
+        int first = opcode >= IFNULL ? IFNULL : opcode >= IF_ACMPEQ ? IF_ACMPEQ
+                : opcode >= IF_ICMPEQ ? IF_ICMPEQ : IFEQ;
+        // == and !=, < and >=, > and <= are neighbours
+        return first + ((opcode - first) ^ 1);
+    }
+
+    /**
+     * appends a NEW, CHECKCAST or INSTANCEOF instruction
+     * @param opcode the opcode
+     * @param internalName the internal name of the class
+     */
+    void type(int opcode, String internalName) {
+        start(opcode, opcode == NEW ? 1 : 0);
+        put2(classFile.classRef(internalName));
+    }
+
+    /**
+     * appends a jump to a label
+     * @param opcode GOTO or a conditional jump
+     * @param label the label
+     */
+    void jump(int opcode, Label label) {
+        int offset = size;
+        if (opcode == GOTO) {
+            start(opcode, 0);
+        }
+        else {
+            start(opcode, opcode >= IFEQ && opcode < IF_ICMPEQ || opcode >= IFNULL ? -1 : -2);
+        }
+        label.depth = depth;
+        if (label.target >= 0) {
+            put2(label.target - offset);
+        }
+        else {
+            label.uses.add(offset);
+            put2(0);
+        }
+        if (opcode == GOTO) {
+            reachable = false;
+        }
+    }
+
+    /**
+     * places a label at the end of the code, patching the jumps to it
+     * @param label the label
+     */
+    void place(Label label) {
+        label.target = size;
+        for (int use : label.uses) {
+            int offset = size - use;
+            if (offset > Short.MAX_VALUE) {
+                throw new UnsupportedOperationException("a method is too large for the JVM");
+            }
+            code[use + 1] = (byte) (offset >> 8);
+            code[use + 2] = (byte) offset;
+        }
+        if (!reachable && label.depth >= 0) {
+            depth = label.depth;
+            reachable = true;
+        }
+        else if (!reachable) {
+            // only backward jumps, appended later, can get here
+            depth = 0;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * File: JvmBackend.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.codegen.jvm;
+
+import bantam.ast.ASTNode;
+import bantam.ast.ClassList;
+import bantam.ast.Program;
+import bantam.codegen.jvm.runtime.BantamRuntime;
+import bantam.interp.BantamRuntimeException;
+import bantam.interp.ClassLayout;
+import bantam.interp.Interpreter;
+import bantam.opt.ConstantFolder;
+import bantam.opt.ReachabilityAnalyzer;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Runs a Bantam Java program as JVM bytecode, so that the program is
+ * compiled to machine code by the JIT compiler of the JVM running it.
+ * Each class of the program is translated to a class file by a
+ * ClassGenerator; the class files are defined by a class loader of their
+ * own, which makes them unreachable (and lets the JVM unload them) once
+ * the program is done, and keeps the classes of different runs apart.
+ * The methods of the built-in classes are in bantam.codegen.jvm.runtime.
+ * <p/>
+ * The classes are not hidden classes (Lookup.defineHiddenClass()): a
+ * hidden class cannot be named by another class, so a class of the
+ * program could neither extend nor call another one.
+ * <p/>
+ * The class files can also be written to a jar with the runtime classes,
+ * which runs the program with "java -jar".
+ */
+public class JvmBackend
+{
+    /** the classes of the runtime that the generated classes use */
+    private static final Class<?>[] RUNTIME_CLASSES = {
+            BantamRuntime.class, bantam.codegen.jvm.runtime.BantamBase.class,
+            bantam.codegen.jvm.runtime.TextIO.class, bantam.codegen.jvm.runtime.Sys.class,
+            BantamRuntimeException.class
+    };
+
+    /** the class file of each class of the program, by binary name */
+    private final Map<String, byte[]> classFiles = new LinkedHashMap<>();
+
+    /** the streams of the program */
+    private final InputStream stdin;
+    private final PrintStream stdout;
+    private final PrintStream stderr;
+
+    /**
+     * A class loader defining the classes of one program
+     */
+    private static class ProgramClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classFiles;
+
+        ProgramClassLoader(Map<String, byte[]> classFiles) {
+            super(BantamRuntime.class.getClassLoader());
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classFiles.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * translates a program to JVM classes
+     *
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     * @param in what TextIO reads after readStdin()
+     * @param out what TextIO writes after writeStdout()
+     * @param err what TextIO writes after writeStderr()
+     * @throws UnsupportedOperationException if the program cannot run on
+     * the JVM (see ClassGenerator.generate())
+     */
+    public JvmBackend(ClassTreeNode root, InputStream in, PrintStream out, PrintStream err) {
+        this.stdin = in;
+        this.stdout = out;
+        this.stderr = err;
+        ClassLayout.buildAll(root);
+        ClassGenerator generator = new ClassGenerator(root.getClassMap());
+        for (ClassTreeNode node : root.getClassMap().values()) {
+            if (!node.isBuiltIn()) {
+                classFiles.put(BantamRuntime.PACKAGE + "." + node.getName(),
+                        generator.generate(node));
+            }
+        }
+    }
+
+    /**
+     * runs the program: creates a Main object and calls its main() method
+     *
+     * @return the exit status: the argument of Sys.exit(), or 0
+     * @throws BantamRuntimeException if the program fails
+     * @throws CancellationException if the thread is interrupted
+     * @throws UnsupportedOperationException if the JVM rejects a generated
+     * class, before the program starts
+     */
+    public int run() {
+        ClassLoader loader = new ProgramClassLoader(classFiles);
+        Class<?> mainClass = null;
+        for (String name : classFiles.keySet()) {
+            try {
+                // initializing a class verifies it
+                Class<?> loaded = Class.forName(name, true, loader);
+                if (name.equals(BantamRuntime.PACKAGE + ".Main")) {
+                    mainClass = loaded;
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new UnsupportedOperationException("the JVM rejects " + name + ": " + e, e);
+            }
+        }
+        BantamRuntime.setStreams(stdin, stdout, stderr);
+        return BantamRuntime.run(mainClass);
+    }
+
+    /**
+     * writes the program to a jar running it with "java -jar"
+     *
+     * @param jar the jar
+     * @throws IOException if the jar cannot be written
+     */
+    public void writeJar(Path jar) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS,
+                BantamRuntime.class.getName());
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+                out.putNextEntry(new JarEntry(entry.getKey().replace('.', '/') + ".class"));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+            for (Class<?> runtimeClass : RUNTIME_CLASSES) {
+                String file = runtimeClass.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new JarEntry(file));
+                copyClassFile(runtimeClass, file, out);
+                out.closeEntry();
+                for (Class<?> nested : runtimeClass.getDeclaredClasses()) {
+                    String nestedFile = nested.getName().replace('.', '/') + ".class";
+                    out.putNextEntry(new JarEntry(nestedFile));
+                    copyClassFile(nested, nestedFile, out);
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * copies the class file a class was loaded from
+     *
+     * @param loaded the class
+     * @param file the path of its class file in the class path
+     * @param out where it is copied
+     * @throws IOException if the class file cannot be read
+     */
+    private static void copyClassFile(Class<?> loaded, String file, OutputStream out)
+            throws IOException {
+        try (InputStream in = loaded.getClassLoader().getResourceAsStream(file)) {
+            if (in == null) {
+                throw new IOException("cannot find the class file of " + loaded.getName());
+            }
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * runs a Bantam Java program on the JVM.  You need to provide command
+     * line arguments each of which is the pathname of a Bantam Java file;
+     * with "-jar file.jar" first, the program is written to the jar instead.
+     * Programs that cannot run on the JVM are run by the Interpreter.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        String jar = args.length > 1 && args[0].equals("-jar") ? args[1] : null;
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+
+        try {
+            for (int i = jar == null ? 0 : 2; i < args.length; i++) {
+                for (ASTNode klass : parser.parse(args[i]).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            new ConstantFolder().fold(root);
+            new ReachabilityAnalyzer().strip(root);
+            JvmBackend backend;
+            try {
+                backend = new JvmBackend(root, System.in, System.out, System.err);
+                if (jar != null) {
+                    backend.writeJar(Paths.get(jar));
+                    return;
+                }
+                System.exit(backend.run());
+            } catch (UnsupportedOperationException ex) {
+                System.err.println("Cannot run on the JVM: " + ex.getMessage());
+                System.exit(new Interpreter(root, System.in, System.out, System.err).run());
+            }
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        } catch (BantamRuntimeException ex) {
+            System.err.println("Runtime error: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * File: BantamBase.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.codegen.jvm.runtime;
+
+/**
+ * The JVM class of the Bantam class Object: the superclass of every class
+ * the JvmBackend generates whose Bantam superclass is Object.  It gives
+ * clone() and toString() their Bantam meaning; equals() is the identity
+ * of java.lang.Object already.  Objects of the Bantam class Object itself
+ * are instances of this class.
+ */
+public class BantamBase implements Cloneable
+{
+    /**
+     * @return a shallow copy of this object
+     */
+    @Override
+    public Object clone() {
+        try {
+            return super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return the name of the Bantam class of this object
+     */
+    @Override
+    public String toString() {
+        return BantamRuntime.className(this);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * File: BantamRuntime.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.codegen.jvm.runtime;
+
+import bantam.interp.BantamRuntimeException;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The support code of the classes generated by the JvmBackend and of the
+ * Java source written by the JavaTranslator: the standard streams of the
+ * program, the String and Object methods that are not plain calls of a
+ * java.lang method, the checks with a Bantam error message, and the code
+ * that runs the main() method of a program and turns the exceptions it
+ * throws into BantamRuntimeExceptions.  It is also the main class of the
+ * jars written by the JvmBackend.
+ * <p/>
+ * Bantam errors found by the JVM rather than by this class (calling a
+ * method on null, a stack overflow) get their line from the stack trace:
+ * the generated classes have line number tables, and the translated
+ * sources keep every statement on its Bantam line.
+ */
+public final class BantamRuntime
+{
+    private BantamRuntime() {
+    }
+
+    /** the package of the generated classes */
+    public static final String PACKAGE = "bantam.program";
+
+    /** the streams of the running program */
+    static BufferedReader stdin;
+    static PrintStream stdout;
+    static PrintStream stderr;
+
+    /**
+     * Thrown by Sys.exit() to end the program
+     */
+    static class Exit extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        Exit(int status) {
+            super(null, null, false, false);
+            this.status = status;
+        }
+    }
+
+    /**
+     * runs a program from the jar it was written to by the JvmBackend
+     * @param args not used
+     * @throws ClassNotFoundException if the jar has no Main class
+     */
+    public static void main(String[] args) throws ClassNotFoundException {
+        launch(Class.forName(PACKAGE + ".Main"));
+    }
+
+    /**
+     * runs a program with the standard streams of the JVM and then exits
+     * the JVM with the status of the program; the static main() method of
+     * a translated Main class calls it
+     * @param mainClass the class of Main
+     */
+    public static void launch(Class<?> mainClass) {
+        setStreams(System.in, System.out, System.err);
+        int status;
+        try {
+            status = run(mainClass);
+        } catch (BantamRuntimeException e) {
+            System.err.println("Runtime error: " + e.getMessage());
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    /**
+     * sets the streams of the next program run
+     * @param in what TextIO reads after readStdin()
+     * @param out what TextIO writes after writeStdout()
+     * @param err what TextIO writes after writeStderr()
+     */
+    public static void setStreams(InputStream in, PrintStream out, PrintStream err) {
+        stdin = new BufferedReader(new InputStreamReader(in));
+        stdout = out;
+        stderr = err;
+    }
+
+    /**
+     * runs a program: creates a Main object and calls its main() method
+     * @param mainClass the generated class of Main
+     * @return the exit status: the argument of Sys.exit(), or 0
+     * @throws BantamRuntimeException if the program fails
+     * @throws CancellationException if the thread is interrupted
+     */
+    public static int run(Class<?> mainClass) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Object main = lookup.findConstructor(mainClass,
+                    MethodType.methodType(void.class)).invoke();
+            lookup.findVirtual(mainClass, methodName("main"),
+                    MethodType.methodType(void.class)).invoke(main);
+            return 0;
+        } catch (Exit e) {
+            return e.status;
+        } catch (StackOverflowError e) {
+            throw new BantamRuntimeException(-1, "stack overflow (recursion too deep)");
+        } catch (BantamRuntimeException e) {
+            throw e.getLineNum() > 0 ? e : new BantamRuntimeException(lineOf(e), e.getMessage());
+        } catch (NullPointerException e) {
+            throw new BantamRuntimeException(lineOf(e),
+                    "null pointer: a method was called on null");
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        } finally {
+            stdout.flush();
+            stderr.flush();
+        }
+    }
+
+    /**
+     * returns the Bantam line where an exception was thrown
+     * @param e the exception
+     * @return the line of the innermost generated method on its stack, or
+     * -1 if there is none
+     */
+    private static int lineOf(Throwable e) {
+        for (StackTraceElement element : e.getStackTrace()) {
+            if (element.getClassName().startsWith(PACKAGE + ".")
+                    && element.getLineNumber() > 0) {
+                return element.getLineNumber();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * returns the name of the JVM method of a Bantam method.  A method
+     * named like one of the other methods of java.lang.Object gets a '$'
+     * appended, so that it cannot clash with (or try to override a final)
+     * method of java.lang.Object; the methods of Object (clone(), equals()
+     * and toString()) keep their names, so that they override those of
+     * java.lang.Object.
+     * @param name the name of the Bantam method
+     * @return the name of the JVM method
+     */
+    public static String methodName(String name) {
+        switch (name) {
+            case "finalize":
+            case "getClass":
+            case "hashCode":
+            case "notify":
+            case "notifyAll":
+            case "wait":
+                return name + "$";
+            default:
+                return name;
+        }
+    }
+
+    /**
+     * @return the name of the Bantam class of a value (not null)
+     */
+    static String className(Object value) {
+        return className(value.getClass());
+    }
+
+    /**
+     * @return the name of the Bantam class of a JVM class
+     */
+    private static String className(Class<?> type) {
+        if (type == BantamBase.class || type == Object.class) {
+            return "Object";
+        }
+        return type.getSimpleName();
+    }
+
+    /**
+     * stops the program if the thread running it has been interrupted;
+     * called on entry to every method and on every iteration of a loop
+     */
+    public static void poll() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Program stopped");
+        }
+    }
+
+    /**
+     * evaluates an expression statement whose expression Java does not
+     * allow as a statement, such as "x + 1;"
+     * @param value the value of the expression, which is dropped
+     */
+    public static void discard(Object value) {
+    }
+
+    /**
+     * Object.clone() of a value whose static type is Object
+     */
+    public static Object clone(Object value) {
+        return value instanceof String ? value : ((BantamBase) value).clone();
+    }
+
+    /**
+     * String.substring()
+     */
+    public static String substring(String string, int begin, int end) {
+        if (begin < 0 || end > string.length() || begin > end) {
+            throw new BantamRuntimeException(-1, "substring(" + begin + ", " + end
+                    + ") of a String of length " + string.length());
+        }
+        return string.substring(begin, end);
+    }
+
+    /**
+     * String.concat()
+     */
+    public static String concat(String string, String other) {
+        if (other == null) {
+            throw new BantamRuntimeException(-1, "concat(null)");
+        }
+        return string.concat(other);
+    }
+
+    /**
+     * the / operator
+     */
+    public static int divide(int left, int right) {
+        if (right == 0) {
+            throw new BantamRuntimeException(-1, "division by zero");
+        }
+        return left / right;
+    }
+
+    /**
+     * the % operator
+     */
+    public static int modulus(int left, int right) {
+        if (right == 0) {
+            throw new BantamRuntimeException(-1, "modulus by zero");
+        }
+        return left % right;
+    }
+
+    /**
+     * checks a downcast
+     * @param value the value cast
+     * @param type the JVM class of the type it is cast to
+     * @return the value
+     */
+    public static Object cast(Object value, Class<?> type) {
+        if (value != null && !type.isInstance(value)) {
+            throw new BantamRuntimeException(-1, "an object of class " + className(value)
+                    + " cannot be cast to " + className(type));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * File: Sys.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.codegen.jvm.runtime;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The JVM class of the Bantam class Sys
+ */
+public final class Sys extends BantamBase
+{
+    public void exit(int status) {
+        throw new BantamRuntime.Exit(status);
+    }
+
+    public int time() {
+        return (int) (System.currentTimeMillis() / 1000);
+    }
+
+    public int random() {
+        return ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+    }
+}
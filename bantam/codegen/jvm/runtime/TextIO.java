@@ -0,0 +1,128 @@
+/*
+ * File: TextIO.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.codegen.jvm.runtime;
+
+import bantam.interp.BantamRuntimeException;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * The JVM class of the Bantam class TextIO.  Its methods have the names
+ * the JvmBackend gives Bantam methods (see BantamRuntime.methodName()) and
+ * behave like those of the interpreters (see bantam.interp.Builtins).
+ */
+public final class TextIO extends BantamBase
+{
+    /** the fields the semantic analyzer declares for TextIO */
+    public int readFD;
+    public int writeFD = 1;
+
+    /** the file being read, or null for standard input */
+    private BufferedReader reader;
+
+    /** the file being written, or null for standard output or error */
+    private PrintStream writer;
+
+    /** true if writing to standard error rather than standard output */
+    private boolean toStderr;
+
+    public void readStdin() {
+        closeReader();
+    }
+
+    public void readFile(String file) {
+        closeReader();
+        try {
+            reader = new BufferedReader(new FileReader(file));
+        } catch (IOException e) {
+            throw new BantamRuntimeException(-1, "cannot read file " + file + ": "
+                    + e.getMessage());
+        }
+    }
+
+    public void writeStdout() {
+        closeWriter();
+        toStderr = false;
+    }
+
+    public void writeStderr() {
+        closeWriter();
+        toStderr = true;
+    }
+
+    public void writeFile(String file) {
+        closeWriter();
+        try {
+            writer = new PrintStream(new FileOutputStream(file), true);
+        } catch (IOException e) {
+            throw new BantamRuntimeException(-1, "cannot write file " + file + ": "
+                    + e.getMessage());
+        }
+    }
+
+    public String getString() {
+        try {
+            return (reader == null ? BantamRuntime.stdin : reader).readLine();
+        } catch (IOException e) {
+            throw new BantamRuntimeException(-1, "cannot read: " + e.getMessage());
+        }
+    }
+
+    public int getInt() {
+        String line = getString();
+        try {
+            return Integer.parseInt(line == null ? "" : line.trim());
+        } catch (NumberFormatException e) {
+            throw new BantamRuntimeException(-1, "getInt() read \"" + line
+                    + "\", which is not an int");
+        }
+    }
+
+    public TextIO putString(String string) {
+        writer().print(string);
+        return this;
+    }
+
+    public TextIO putInt(int n) {
+        writer().print(n);
+        return this;
+    }
+
+    /**
+     * @return the stream this TextIO writes to
+     */
+    private PrintStream writer() {
+        if (writer != null) {
+            return writer;
+        }
+        return toStderr ? BantamRuntime.stderr : BantamRuntime.stdout;
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // the file was only read
+            }
+            reader = null;
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
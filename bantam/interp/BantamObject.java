@@ -0,0 +1,84 @@
+/*
+ * File: BantamObject.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+/**
+ * An object of a Bantam Java class while the program runs.  Its fields are
+ * kept in an array indexed by the slots of its ClassLayout.  Bantam Strings
+ * are Java Strings, ints are Integers and booleans are Booleans, so only
+ * objects of the other classes are BantamObjects.
+ * <p/>
+ * Objects created by the ClosureEngine keep their int and boolean fields
+ * unboxed in a separate int array (booleans as 0 or 1),
+ * and only the reference fields in the Object array; see
+ * ClassLayout.getBankIndex().
+ */
+public class BantamObject
+{
+    /** the class of the object */
+    final ClassLayout layout;
+
+    /** the values of the fields, indexed by field slot, or only the
+     * reference fields for an object of the ClosureEngine */
+    final Object[] fields;
+
+    /** the int and boolean fields of an object of the ClosureEngine, or null */
+    final int[] ints;
+
+    /** state kept by the built-in classes (the streams of a TextIO) */
+    Object nativeState;
+
+    /**
+     * creates an object whose fields have their default values
+     * (0, false or null); the field initializers have not run yet
+     * @param layout the class of the object
+     */
+    BantamObject(ClassLayout layout) {
+        this.layout = layout;
+        this.fields = layout.newFields();
+        this.ints = null;
+    }
+
+    /**
+     * creates an object of the ClosureEngine whose fields are 0, false
+     * or null; the field initializers have not run yet
+     * @param layout the class of the object
+     * @param numInts the number of int and boolean fields
+     * @param numRefs the number of reference fields
+     */
+    BantamObject(ClassLayout layout, int numInts, int numRefs) {
+        this.layout = layout;
+        this.fields = new Object[numRefs];
+        this.ints = new int[numInts];
+    }
+
+    /**
+     * copies the fields (but not the objects they refer to) of an object
+     * @param original the object copied
+     */
+    private BantamObject(BantamObject original) {
+        this.layout = original.layout;
+        this.fields = original.fields.clone();
+        this.ints = original.ints == null ? null : original.ints.clone();
+    }
+
+    /**
+     * @return a shallow copy of this object (Object.clone())
+     */
+    BantamObject copy() {
+        return new BantamObject(this);
+    }
+
+    /**
+     * @return the class of the object
+     */
+    public ClassLayout getLayout() {
+        return layout;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * File: BantamRuntimeException.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+/**
+ * An error in a running Bantam Java program, such as a dispatch on null,
+ * a division by zero or an illegal cast.  The interpreter stops the program
+ * with this exception.
+ */
+public class BantamRuntimeException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    /** the line of the error, or -1 if not known (yet) */
+    private final int lineNum;
+
+    /** the message without the line */
+    private final String detail;
+
+    /**
+     * creates an exception for an error at the given line
+     * @param lineNum the line of the Bantam source where the error happened,
+     *                or -1 if the caller does not know it
+     * @param detail what went wrong
+     */
+    public BantamRuntimeException(int lineNum, String detail) {
+        super((lineNum > 0 ? "line " + lineNum + ": " : "") + detail);
+        this.lineNum = lineNum;
+        this.detail = detail;
+    }
+
+    /**
+     * @return the line of the error, or -1 if not known
+     */
+    public int getLineNum() {
+        return lineNum;
+    }
+
+    /**
+     * returns this exception if its line is known, or the same error at
+     * the given line otherwise
+     * @param lineNum the line of the node being interpreted
+     * @return an exception with a line
+     */
+    BantamRuntimeException atLine(int lineNum) {
+        return this.lineNum > 0 ? this : new BantamRuntimeException(lineNum, detail);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * File: Benchmark.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import bantam.codegen.jvm.JvmBackend;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.ErrorHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Compares the Interpreter, the ClosureEngine and the JvmBackend on the programs of a benchmark suite (the files of
+ * test/benchmarks): each program is run several times with each engine in
+ * the same JVM, so that the times do not include starting the JVM, and the
+ * best time of each engine is printed with the speedups over the
+ * Interpreter.  The output of the programs is discarded, but the engines
+ * must produce the same output.  A JvmBackend run includes generating and
+ * loading the classes, and the JIT compilation of the fresh classes; a
+ * ClosureEngine run includes compiling the methods to closures.
+ */
+public class Benchmark
+{
+    /** the number of runs of each program with each engine */
+    private static final int RUNS = 5;
+
+    /**
+     * An engine running an analyzed program
+     */
+    private interface Engine {
+        /**
+         * runs the program
+         * @param root the class hierarchy of the program
+         * @param out where the program writes
+         */
+        void run(ClassTreeNode root, PrintStream out);
+    }
+
+    /**
+     * runs each program with every engine and prints the times.  You need
+     * to provide command line arguments each of which is the pathname of a
+     * Bantam Java program in a single file.
+     * @param args the pathnames of the programs
+     */
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%-20s %12s %12s %12s %8s %8s%n", "program",
+                "interpreter", "closures", "jvm", "clos x", "jvm x");
+        for (String file : args) {
+            ClassTreeNode root = new SemanticAnalyzer(new ErrorHandler())
+                    .analyze(new Parser(new ErrorHandler()).parse(file));
+            ByteArrayOutputStream interpreterOutput = new ByteArrayOutputStream();
+            ByteArrayOutputStream closureOutput = new ByteArrayOutputStream();
+            ByteArrayOutputStream jvmOutput = new ByteArrayOutputStream();
+            long interpreterTime = best(root, interpreterOutput, (program, out) ->
+                    new Interpreter(program, empty(), out, out).run());
+            long closureTime = best(root, closureOutput, (program, out) ->
+                    new ClosureEngine(program, empty(), out, out).run());
+            long jvmTime = best(root, jvmOutput, (program, out) ->
+                    new JvmBackend(program, empty(), out, out).run());
+            if (!interpreterOutput.toString().equals(closureOutput.toString())
+                    || !interpreterOutput.toString().equals(jvmOutput.toString())) {
+                System.out.println(file + ": the outputs differ");
+            }
+            System.out.printf("%-20s %10d ms %10d ms %10d ms %7.1fx %7.1fx%n",
+                    file.substring(file.lastIndexOf('/') + 1), interpreterTime, closureTime,
+                    jvmTime, (double) interpreterTime / Math.max(1, closureTime),
+                    (double) interpreterTime / Math.max(1, jvmTime));
+        }
+    }
+
+    /**
+     * runs a program RUNS times and returns the best time
+     * @param root the class hierarchy of the program
+     * @param output where the output of the last run goes
+     * @param engine the engine running the program
+     * @return the best time in milliseconds
+     */
+    private static long best(ClassTreeNode root, ByteArrayOutputStream output, Engine engine) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            output.reset();
+            long start = System.nanoTime();
+            engine.run(root, new PrintStream(output));
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+        return best;
+    }
+
+    /**
+     * @return an empty standard input
+     */
+    private static ByteArrayInputStream empty() {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * File: BuiltinContext.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import java.io.BufferedReader;
+import java.io.PrintStream;
+
+/**
+ * What the built-in methods need from the engine running the program
+ * (the Interpreter or the ClosureEngine).
+ */
+interface BuiltinContext
+{
+    /**
+     * @return the standard input of the program
+     */
+    BufferedReader stdin();
+
+    /**
+     * @return the standard output of the program
+     */
+    PrintStream stdout();
+
+    /**
+     * @return the standard error of the program
+     */
+    PrintStream stderr();
+
+    /**
+     * returns the class of a value that methods are called on
+     *
+     * @param value a String or BantamObject
+     * @param lineNum the line of the dispatch, for the error message
+     * @return its layout
+     */
+    ClassLayout layoutOf(Object value, int lineNum);
+}
@@ -0,0 +1,217 @@
+/*
+ * File: Builtins.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The Java implementations of the methods of the built-in classes Object,
+ * String, TextIO and Sys, whose declarations are added to the class map by
+ * SemanticAnalyzer.addBuiltins().  Every implementation gets the receiver in
+ * slot 0 of the frame and the arguments after it.
+ */
+final class Builtins
+{
+    private Builtins() {
+    }
+
+    /**
+     * The streams a TextIO object reads from and writes to
+     */
+    private static class TextIOState {
+        /** the file being read, or null for standard input */
+        BufferedReader reader;
+        /** the file being written, or null for standard output or error */
+        PrintStream writer;
+        /** true if writing to standard error rather than standard output */
+        boolean toStderr;
+    }
+
+    /**
+     * returns the implementation of a built-in method
+     * @param className the built-in class
+     * @param methodName the method
+     * @return its implementation
+     */
+    static MethodInfo.Builtin lookup(String className, String methodName) {
+        switch (className + "." + methodName) {
+            case "Object.clone":
+                return (interp, frame) -> frame[0] instanceof BantamObject ?
+                        ((BantamObject) frame[0]).copy() : frame[0];
+            case "Object.equals":
+                return (interp, frame) -> frame[0] == frame[1];
+            case "Object.toString":
+                return (interp, frame) -> interp.layoutOf(frame[0], -1).getName();
+
+            case "String.length":
+                return (interp, frame) -> ((String) frame[0]).length();
+            case "String.equals":
+                return (interp, frame) -> frame[0].equals(frame[1]);
+            case "String.toString":
+                return (interp, frame) -> frame[0];
+            case "String.substring":
+                return (interp, frame) -> {
+                    String string = (String) frame[0];
+                    int begin = (Integer) frame[1];
+                    int end = (Integer) frame[2];
+                    if (begin < 0 || end > string.length() || begin > end) {
+                        throw new BantamRuntimeException(-1, "substring(" + begin
+                                + ", " + end + ") of a String of length "
+                                + string.length());
+                    }
+                    return string.substring(begin, end);
+                };
+            case "String.concat":
+                return (interp, frame) -> {
+                    if (frame[1] == null) {
+                        throw new BantamRuntimeException(-1, "concat(null)");
+                    }
+                    return ((String) frame[0]).concat((String) frame[1]);
+                };
+
+            case "TextIO.readStdin":
+                return (interp, frame) -> {
+                    closeReader(state(frame[0]));
+                    state(frame[0]).reader = null;
+                    return null;
+                };
+            case "TextIO.readFile":
+                return (interp, frame) -> {
+                    TextIOState state = state(frame[0]);
+                    closeReader(state);
+                    try {
+                        state.reader = new BufferedReader(new FileReader((String) frame[1]));
+                    } catch (IOException e) {
+                        throw new BantamRuntimeException(-1, "cannot read file "
+                                + frame[1] + ": " + e.getMessage());
+                    }
+                    return null;
+                };
+            case "TextIO.writeStdout":
+                return (interp, frame) -> {
+                    TextIOState state = state(frame[0]);
+                    closeWriter(state);
+                    state.toStderr = false;
+                    return null;
+                };
+            case "TextIO.writeStderr":
+                return (interp, frame) -> {
+                    TextIOState state = state(frame[0]);
+                    closeWriter(state);
+                    state.toStderr = true;
+                    return null;
+                };
+            case "TextIO.writeFile":
+                return (interp, frame) -> {
+                    TextIOState state = state(frame[0]);
+                    closeWriter(state);
+                    try {
+                        state.writer = new PrintStream(
+                                new FileOutputStream((String) frame[1]), true);
+                    } catch (IOException e) {
+                        throw new BantamRuntimeException(-1, "cannot write file "
+                                + frame[1] + ": " + e.getMessage());
+                    }
+                    return null;
+                };
+            case "TextIO.getString":
+                return (interp, frame) -> readLine(interp, state(frame[0]));
+            case "TextIO.getInt":
+                return (interp, frame) -> {
+                    String line = readLine(interp, state(frame[0]));
+                    try {
+                        return Integer.parseInt(line == null ? "" : line.trim());
+                    } catch (NumberFormatException e) {
+                        throw new BantamRuntimeException(-1, "getInt() read \""
+                                + line + "\", which is not an int");
+                    }
+                };
+            case "TextIO.putString":
+                return (interp, frame) -> {
+                    writerOf(interp, state(frame[0])).print((String) frame[1]);
+                    return frame[0];
+                };
+            case "TextIO.putInt":
+                return (interp, frame) -> {
+                    writerOf(interp, state(frame[0])).print((int) (Integer) frame[1]);
+                    return frame[0];
+                };
+
+            case "Sys.exit":
+                return (interp, frame) -> {
+                    throw new Interpreter.Exit((Integer) frame[1]);
+                };
+            case "Sys.time":
+                return (interp, frame) -> (int) (System.currentTimeMillis() / 1000);
+            case "Sys.random":
+                return (interp, frame) -> ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+
+            default:
+                throw new IllegalArgumentException("no built-in method "
+                        + className + "." + methodName);
+        }
+    }
+
+    /**
+     * returns the streams of a TextIO object, creating them on first use
+     * @param textIO the TextIO object
+     */
+    private static TextIOState state(Object textIO) {
+        BantamObject object = (BantamObject) textIO;
+        if (object.nativeState == null) {
+            object.nativeState = new TextIOState();
+        }
+        return (TextIOState) object.nativeState;
+    }
+
+    /**
+     * reads a line from the input of a TextIO
+     * @return the line without its terminator, or null at the end of the input
+     */
+    private static String readLine(BuiltinContext interp, TextIOState state) {
+        try {
+            return (state.reader == null ? interp.stdin() : state.reader).readLine();
+        } catch (IOException e) {
+            throw new BantamRuntimeException(-1, "cannot read: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the stream a TextIO writes to
+     */
+    private static PrintStream writerOf(BuiltinContext interp, TextIOState state) {
+        if (state.writer != null) {
+            return state.writer;
+        }
+        return state.toStderr ? interp.stderr() : interp.stdout();
+    }
+
+    private static void closeReader(TextIOState state) {
+        if (state.reader != null) {
+            try {
+                state.reader.close();
+            } catch (IOException e) {
+                // the file was only read
+            }
+            state.reader = null;
+        }
+    }
+
+    private static void closeWriter(TextIOState state) {
+        if (state.writer != null) {
+            state.writer.close();
+            state.writer = null;
+        }
+    }
+}
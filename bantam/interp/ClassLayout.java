@@ -0,0 +1,356 @@
+/*
+ * File: ClassLayout.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import bantam.ast.ASTNode;
+import bantam.ast.Field;
+import bantam.ast.Formal;
+import bantam.ast.Method;
+import bantam.util.ClassTreeNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The run-time layout of a Bantam Java class: the slot of each field in the
+ * field array of its objects and the index of each method in its method
+ * table.  A class starts with the slots and the method table of its parent,
+ * so a field slot or method index computed for a class is valid for all its
+ * subclasses; an overriding method replaces the entry of the method it
+ * overrides.
+ * <p/>
+ * For the ClosureEngine, which keeps int and boolean fields unboxed, each
+ * field slot also has an index into either the int array or the reference
+ * array of an object; these indices are inherited the same way.
+ */
+public class ClassLayout
+{
+    /** the bank of the int and boolean values, and of the references */
+    static final int INT = 0;
+    static final int REF = 1;
+
+    /** the bank of the result of a void method */
+    static final int VOID = -1;
+
+    /** the name of the class */
+    private final String name;
+
+    /** the layout of the parent class, or null for Object */
+    private final ClassLayout parent;
+
+    /** slot of each field visible in the class (its own and the inherited ones) */
+    private final Map<String, Integer> fieldSlots;
+
+    /** default value of each field slot (0, false or null) */
+    private final Object[] defaults;
+
+    /** the fields declared in this class, and their slots */
+    private final List<Field> ownFields = new ArrayList<>();
+    private final List<Integer> ownFieldSlots = new ArrayList<>();
+
+    /** index of each method in the method table */
+    private final Map<String, Integer> methodIndices;
+
+    /** the method table */
+    private final MethodInfo[] methods;
+
+    /** number of classes between this one and Object */
+    private final int depth;
+
+    /** for each field slot, its index in the int or in the reference fields */
+    private final int[] bankIndices;
+
+    /** the number of int (and boolean) fields and of reference fields */
+    private final int numIntFields;
+    private final int numRefFields;
+
+    /** the method table of the ClosureEngine, filled in by the engine */
+    ClosureMethod[] closureMethods;
+
+    /** the field initializers of the ClosureEngine (of this class and its
+     * superclasses), or null if there are none */
+    ClosureMethod closureInitializer;
+
+    /**
+     * creates the layout of a class
+     * @param treeNode the class
+     * @param parent the layout of its parent, or null for Object
+     */
+    ClassLayout(ClassTreeNode treeNode, ClassLayout parent) {
+        this.name = treeNode.getName();
+        this.parent = parent;
+        this.depth = parent == null ? 0 : parent.depth + 1;
+
+        fieldSlots = parent == null ? new HashMap<>() : new HashMap<>(parent.fieldSlots);
+        List<Object> defaultList = new ArrayList<>();
+        if (parent != null) {
+            defaultList.addAll(Arrays.asList(parent.defaults));
+        }
+        methodIndices = parent == null ? new HashMap<>() : new HashMap<>(parent.methodIndices);
+        List<MethodInfo> methodList = new ArrayList<>();
+        if (parent != null) {
+            methodList.addAll(Arrays.asList(parent.methods));
+        }
+
+        for (ASTNode member : treeNode.getASTNode().getMemberList()) {
+            if (member instanceof Field) {
+                Field field = (Field) member;
+                int slot = defaultList.size();
+                fieldSlots.put(field.getName(), slot);
+                defaultList.add(defaultValue(field.getType()));
+                ownFields.add(field);
+                ownFieldSlots.add(slot);
+            }
+            else {
+                Method method = (Method) member;
+                MethodInfo info = new MethodInfo(this, method, treeNode.isBuiltIn() ?
+                        Builtins.lookup(name, method.getName()) : null);
+                Integer index = methodIndices.get(method.getName());
+                if (index == null) {
+                    methodIndices.put(method.getName(), methodList.size());
+                    methodList.add(info);
+                }
+                else {
+                    methodList.set(index, info);
+                }
+            }
+        }
+        defaults = defaultList.toArray();
+        methods = methodList.toArray(new MethodInfo[0]);
+
+        // parents come first in the slots, so they get the same bank indices
+        bankIndices = new int[defaults.length];
+        int ints = 0;
+        int refs = 0;
+        for (int slot = 0; slot < defaults.length; slot++) {
+            bankIndices[slot] = defaults[slot] == null ? refs++ : ints++;
+        }
+        numIntFields = ints;
+        numRefFields = refs;
+    }
+
+    /**
+     * creates the layouts of all the classes of a program and resolves the
+     * names in the classes of the program with a SlotResolver
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     * @return the layouts of all the classes, by name
+     */
+    public static Map<String, ClassLayout> buildAll(ClassTreeNode root) {
+        Map<String, ClassLayout> layouts = new HashMap<>();
+        build(root, null, layouts);
+        SlotResolver resolver = new SlotResolver(layouts);
+        for (ClassTreeNode treeNode : root.getClassMap().values()) {
+            if (!treeNode.isBuiltIn()) {
+                resolver.resolve(treeNode.getASTNode(), layouts.get(treeNode.getName()));
+            }
+        }
+        return layouts;
+    }
+
+    /**
+     * creates the layouts of a class and its subclasses, parents first
+     * @param treeNode the class
+     * @param parent the layout of its parent, or null for Object
+     * @param layouts where the layouts are put
+     */
+    private static void build(ClassTreeNode treeNode, ClassLayout parent,
+                              Map<String, ClassLayout> layouts) {
+        ClassLayout layout = new ClassLayout(treeNode, parent);
+        layouts.put(treeNode.getName(), layout);
+        for (Iterator<ClassTreeNode> it = treeNode.getChildrenList(); it.hasNext(); ) {
+            build(it.next(), layout, layouts);
+        }
+    }
+
+    /**
+     * returns the value a variable of the given type has before it is assigned
+     * @param type the type of the variable
+     * @return 0 for int, false for boolean and null for objects
+     */
+    static Object defaultValue(String type) {
+        if (type.equals("int")) {
+            return 0;
+        }
+        if (type.equals("boolean")) {
+            return false;
+        }
+        return null;
+    }
+
+    /**
+     * returns the bank of the values of a type
+     *
+     * @param type the name of the type
+     * @return INT for int and boolean, VOID for void and REF otherwise
+     */
+    static int bankOf(String type) {
+        if (type.equals("int") || type.equals("boolean")) {
+            return INT;
+        }
+        return type.equals("void") ? VOID : REF;
+    }
+
+    /**
+     * checks that a method takes and returns its values in the same banks
+     * as the method it overrides
+     *
+     * @param layout the class
+     * @param index the index of the method in the method table
+     * @throws UnsupportedOperationException if it does not: an overriding
+     * method whose formals or result are in another bank (int or reference)
+     * than those of the method it overrides, which the semantic analyzer
+     * does not reject
+     */
+    static void checkOverride(ClassLayout layout, int index) {
+        ClassLayout parent = layout.getParent();
+        if (parent == null || index >= parent.getNumMethods()) {
+            return;
+        }
+        Method method = layout.getMethod(index).getNode();
+        Method overridden = parent.getMethod(index).getNode();
+        boolean same = bankOf(method.getReturnType()) == bankOf(overridden.getReturnType())
+                && method.getFormalList().getSize() == overridden.getFormalList().getSize();
+        for (int i = 0; same && i < method.getFormalList().getSize(); i++) {
+            same = bankOf(((Formal) method.getFormalList().get(i)).getType())
+                    == bankOf(((Formal) overridden.getFormalList().get(i)).getType());
+        }
+        if (!same) {
+            throw new UnsupportedOperationException(layout.getName() + "." + method.getName()
+                    + " overrides " + parent.getName() + "." + overridden.getName()
+                    + " with other types");
+        }
+    }
+
+    /**
+     * @return the name of the class
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the layout of the parent class, or null for Object
+     */
+    public ClassLayout getParent() {
+        return parent;
+    }
+
+    /**
+     * returns the slot of a field visible in this class
+     * @param fieldName the name of the field
+     * @return its slot, or -1 if the class has no such field
+     */
+    public int getFieldSlot(String fieldName) {
+        Integer slot = fieldSlots.get(fieldName);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return the number of field slots of the objects of this class
+     */
+    public int getNumFields() {
+        return defaults.length;
+    }
+
+    /**
+     * @return a field array holding the default value of every field
+     */
+    Object[] newFields() {
+        return defaults.clone();
+    }
+
+    /**
+     * @return the fields declared in this class (not the inherited ones)
+     */
+    List<Field> getOwnFields() {
+        return ownFields;
+    }
+
+    /**
+     * @param i the index of one of the fields declared in this class
+     * @return its slot
+     */
+    int getOwnFieldSlot(int i) {
+        return ownFieldSlots.get(i);
+    }
+
+    /**
+     * @param slot a field slot
+     * @return whether the field holds an int or a boolean
+     */
+    boolean isIntField(int slot) {
+        return defaults[slot] != null;
+    }
+
+    /**
+     * @param slot a field slot
+     * @return the index of the field in the int fields or in the reference
+     * fields of an object, depending on isIntField()
+     */
+    int getBankIndex(int slot) {
+        return bankIndices[slot];
+    }
+
+    /**
+     * @return the number of int and boolean fields of an object of this class
+     */
+    int getNumIntFields() {
+        return numIntFields;
+    }
+
+    /**
+     * @return the number of reference fields of an object of this class
+     */
+    int getNumRefFields() {
+        return numRefFields;
+    }
+
+    /**
+     * @return the number of entries of the method table
+     */
+    int getNumMethods() {
+        return methods.length;
+    }
+
+    /**
+     * returns the index of a method of this class in its method table
+     * @param methodName the name of the method
+     * @return its index, or -1 if the class has no such method
+     */
+    public int getMethodIndex(String methodName) {
+        Integer index = methodIndices.get(methodName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index an index in the method table
+     * @return the method at that index
+     */
+    public MethodInfo getMethod(int index) {
+        return methods[index];
+    }
+
+    /**
+     * returns whether this class is the given class or one of its subclasses
+     * @param other the other class
+     * @return true if an object of this class is an instance of the other
+     */
+    public boolean isSubclassOf(ClassLayout other) {
+        ClassLayout layout = this;
+        while (layout.depth > other.depth) {
+            layout = layout.parent;
+        }
+        return layout == other;
+    }
+}
@@ -0,0 +1,1069 @@
+/*
+ * File: ClosureCompiler.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import bantam.ast.*;
+import bantam.visitor.Visitor;
+
+import java.util.Arrays;
+
+import static bantam.interp.ClassLayout.INT;
+import static bantam.interp.ClassLayout.VOID;
+
+/**
+ * This visitor compiles the body of a method of a type-checked program,
+ * whose names have been resolved by the SlotResolver, to a tree of Java
+ * closures for the ClosureEngine.  Everything the Interpreter finds out
+ * when it visits a node is found out once, here: the slot of a variable,
+ * the bank index of a field, the layout of a new or a cast, the method
+ * table index of a dispatch (or its target, for super), and the type of
+ * every value.  Running a closure then makes no visit and no lookup, and
+ * the static types already specialize every operator to unboxed ints; the
+ * receiver class of a dispatch is the only type left to learn at run time,
+ * which the DispatchNode of the call does.
+ * <p/>
+ * A frame is an int[] and an Object[] indexed by SlotResolver slot: ints
+ * and booleans (0 or 1) live in the int array, everything else in the
+ * reference array, 'this' in slot 0.  An expression compiles to an
+ * IntCode, a BoolCode or a RefCode depending on its static type, so ints
+ * and booleans are never boxed; a statement compiles to an Action, which
+ * returns NORMAL, BREAK or RETURN like the statements of the Interpreter.
+ * A few common shapes (an operand that is a constant or a local) get
+ * closures of their own.
+ * <p/>
+ * A visit of an expression returns its closure; a void dispatch returns
+ * a RefCode whose value is null.
+ */
+public class ClosureCompiler extends Visitor
+{
+    /** returned by an Action that completed normally */
+    static final int NORMAL = 0;
+
+    /** returned by an Action that executed a break statement */
+    static final int BREAK = 1;
+
+    /** returned by an Action that executed a return statement */
+    static final int RETURN = 2;
+
+    /** the comparison operators, for compare() */
+    private static final int LT = 0;
+    private static final int LE = 1;
+    private static final int GT = 2;
+    private static final int GE = 3;
+    private static final int EQ = 4;
+    private static final int NE = 5;
+
+    /**
+     * A compiled statement
+     */
+    interface Action {
+        /**
+         * runs the statement
+         * @param ints the int slots of the frame
+         * @param refs the reference slots of the frame
+         * @return NORMAL, BREAK or RETURN
+         */
+        int run(int[] ints, Object[] refs);
+    }
+
+    /**
+     * A compiled expression of type int
+     */
+    interface IntCode {
+        int eval(int[] ints, Object[] refs);
+    }
+
+    /**
+     * A compiled expression of type boolean
+     */
+    interface BoolCode {
+        boolean eval(int[] ints, Object[] refs);
+    }
+
+    /**
+     * A compiled expression of a class type, or a void dispatch
+     */
+    interface RefCode {
+        Object eval(int[] ints, Object[] refs);
+    }
+
+    /**
+     * Copies the value of an argument into the frame of the method called
+     */
+    interface ArgStore {
+        void store(int[] ints, Object[] refs, int[] calleeInts, Object[] calleeRefs);
+    }
+
+    /** the engine the closures run in */
+    private final ClosureEngine engine;
+
+    /** the class declaring the method being compiled */
+    private ClassLayout currentLayout;
+
+    /**
+     * creates a compiler for the closures of an engine
+     *
+     * @param engine the engine
+     */
+    ClosureCompiler(ClosureEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * compiles the body of a method, or the field initializers of a class
+     *
+     * @param method the method; its body is set to the result
+     * @return the body
+     */
+    Action compile(ClosureMethod method) {
+        currentLayout = method.owner;
+        method.body = method.info == null ? compileInitializer(method.owner)
+                : (Action) method.info.getNode().getStmtList().accept(this);
+        return method.body;
+    }
+
+    /**
+     * compiles the field initializers of a class into an Action that first
+     * runs the initializers of the superclass
+     *
+     * @param layout the class
+     * @return the initializers
+     */
+    private Action compileInitializer(ClassLayout layout) {
+        int numFields = layout.getOwnFields().size();
+        Action[] actions = new Action[numFields + 1];
+        int count = 0;
+        ClosureMethod parentInitializer = layout.getParent().closureInitializer;
+        if (parentInitializer != null) {
+            ClosureEngine engine = this.engine;
+            actions[count++] = (ints, refs) -> {
+                engine.execute(parentInitializer, ints, refs);
+                return NORMAL;
+            };
+        }
+        for (int i = 0; i < numFields; i++) {
+            Expr init = layout.getOwnFields().get(i).getInit();
+            if (init != null) {
+                actions[count++] = discard(storeField(layout.getOwnFieldSlot(i), init));
+            }
+        }
+        return sequence(actions, count);
+    }
+
+    /**
+     * @param expr an expression of type int
+     * @return its closure
+     */
+    private IntCode intCode(Expr expr) {
+        return (IntCode) expr.accept(this);
+    }
+
+    /**
+     * @param expr an expression of type boolean
+     * @return its closure
+     */
+    private BoolCode boolCode(Expr expr) {
+        return (BoolCode) expr.accept(this);
+    }
+
+    /**
+     * @param expr an expression of a class type
+     * @return its closure
+     */
+    private RefCode refCode(Expr expr) {
+        return (RefCode) expr.accept(this);
+    }
+
+    /**
+     * @param type the name of a type
+     * @return whether values of the type are booleans
+     */
+    private static boolean isBoolean(String type) {
+        return type.equals("boolean");
+    }
+
+    /**
+     * compiles an expression whose value is not used
+     *
+     * @param expr the expression
+     * @return the Action evaluating it
+     */
+    private Action effect(Expr expr) {
+        if (expr instanceof DispatchExpr) {
+            return dispatch((DispatchExpr) expr);
+        }
+        return discard(expr.accept(this));
+    }
+
+    /**
+     * turns the closure of an expression into an Action evaluating it
+     *
+     * @param code an IntCode, BoolCode or RefCode
+     * @return the Action
+     */
+    private static Action discard(Object code) {
+        if (code instanceof IntCode) {
+            IntCode value = (IntCode) code;
+            return (ints, refs) -> {
+                value.eval(ints, refs);
+                return NORMAL;
+            };
+        }
+        if (code instanceof BoolCode) {
+            BoolCode value = (BoolCode) code;
+            return (ints, refs) -> {
+                value.eval(ints, refs);
+                return NORMAL;
+            };
+        }
+        RefCode value = (RefCode) code;
+        return (ints, refs) -> {
+            value.eval(ints, refs);
+            return NORMAL;
+        };
+    }
+
+    /**
+     * returns the Action running some Actions in order until one of them
+     * breaks or returns
+     *
+     * @param actions the Actions
+     * @param count how many of them are used
+     * @return the sequence
+     */
+    private static Action sequence(Action[] actions, int count) {
+        switch (count) {
+            case 0:
+                return (ints, refs) -> NORMAL;
+            case 1:
+                return actions[0];
+            case 2: {
+                Action first = actions[0];
+                Action second = actions[1];
+                return (ints, refs) -> {
+                    int signal = first.run(ints, refs);
+                    return signal != NORMAL ? signal : second.run(ints, refs);
+                };
+            }
+            default: {
+                Action[] all = Arrays.copyOf(actions, count);
+                return (ints, refs) -> {
+                    for (Action action : all) {
+                        int signal = action.run(ints, refs);
+                        if (signal != NORMAL) {
+                            return signal;
+                        }
+                    }
+                    return NORMAL;
+                };
+            }
+        }
+    }
+
+    /**
+     * Visit a list node of statements
+     *
+     * @param node the statement list node
+     * @return the Action running the statements
+     */
+    public Object visit(StmtList node) {
+        Action[] actions = new Action[node.getSize()];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = (Action) node.get(i).accept(this);
+        }
+        return sequence(actions, actions.length);
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return the Action storing the initial value
+     */
+    public Object visit(DeclStmt node) {
+        return discard(storeLocal(node.getSlot(), node.getInit()));
+    }
+
+    /**
+     * Visit an expression statement node
+     *
+     * @param node the expression statement node
+     * @return the Action evaluating the expression
+     */
+    public Object visit(ExprStmt node) {
+        return effect(node.getExpr());
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return the Action running the branch taken
+     */
+    public Object visit(IfStmt node) {
+        BoolCode pred = boolCode(node.getPredExpr());
+        Action thenAction = (Action) node.getThenStmt().accept(this);
+        if (node.getElseStmt() == null) {
+            return (Action) (ints, refs) ->
+                    pred.eval(ints, refs) ? thenAction.run(ints, refs) : NORMAL;
+        }
+        Action elseAction = (Action) node.getElseStmt().accept(this);
+        return (Action) (ints, refs) -> pred.eval(ints, refs) ?
+                thenAction.run(ints, refs) : elseAction.run(ints, refs);
+    }
+
+    /**
+     * Visit a while statement node
+     *
+     * @param node the while statement node
+     * @return the Action running the loop
+     */
+    public Object visit(WhileStmt node) {
+        return loop(boolCode(node.getPredExpr()),
+                (Action) node.getBodyStmt().accept(this), null);
+    }
+
+    /**
+     * Visit a for statement node
+     *
+     * @param node the for statement node
+     * @return the Action running the loop
+     */
+    public Object visit(ForStmt node) {
+        Action init = node.getInitExpr() == null ? null : effect(node.getInitExpr());
+        BoolCode pred = node.getPredExpr() == null ?
+                (ints, refs) -> true : boolCode(node.getPredExpr());
+        Action update = node.getUpdateExpr() == null ? null : effect(node.getUpdateExpr());
+        Action loop = loop(pred, (Action) node.getBodyStmt().accept(this), update);
+        if (init == null) {
+            return loop;
+        }
+        return sequence(new Action[]{init, loop}, 2);
+    }
+
+    /**
+     * returns the Action of a loop, which polls the engine for interrupts
+     * on every iteration
+     *
+     * @param pred the condition
+     * @param body the body
+     * @param update what runs after the body, or null
+     * @return the Action
+     */
+    private Action loop(BoolCode pred, Action body, Action update) {
+        ClosureEngine engine = this.engine;
+        if (update == null) {
+            return (ints, refs) -> {
+                while (pred.eval(ints, refs)) {
+                    int signal = body.run(ints, refs);
+                    if (signal != NORMAL) {
+                        return signal == BREAK ? NORMAL : signal;
+                    }
+                    engine.poll();
+                }
+                return NORMAL;
+            };
+        }
+        return (ints, refs) -> {
+            while (pred.eval(ints, refs)) {
+                int signal = body.run(ints, refs);
+                if (signal != NORMAL) {
+                    return signal == BREAK ? NORMAL : signal;
+                }
+                update.run(ints, refs);
+                engine.poll();
+            }
+            return NORMAL;
+        };
+    }
+
+    /**
+     * Visit a break statement node
+     *
+     * @param node the break statement node
+     * @return the Action returning BREAK
+     */
+    public Object visit(BreakStmt node) {
+        return (Action) (ints, refs) -> BREAK;
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return the Action running its statements
+     */
+    public Object visit(BlockStmt node) {
+        return node.getStmtList().accept(this);
+    }
+
+    /**
+     * Visit a return statement node: the value goes to the intResult or
+     * the refResult of the engine
+     *
+     * @param node the return statement node
+     * @return the Action returning RETURN
+     */
+    public Object visit(ReturnStmt node) {
+        Expr expr = node.getExpr();
+        ClosureEngine engine = this.engine;
+        if (expr == null) {
+            return (Action) (ints, refs) -> RETURN;
+        }
+        Object code = expr.accept(this);
+        if (code instanceof IntCode) {
+            IntCode value = (IntCode) code;
+            return (Action) (ints, refs) -> {
+                engine.intResult = value.eval(ints, refs);
+                return RETURN;
+            };
+        }
+        if (code instanceof BoolCode) {
+            BoolCode value = (BoolCode) code;
+            return (Action) (ints, refs) -> {
+                engine.intResult = value.eval(ints, refs) ? 1 : 0;
+                return RETURN;
+            };
+        }
+        RefCode value = (RefCode) code;
+        return (Action) (ints, refs) -> {
+            engine.refResult = value.eval(ints, refs);
+            return RETURN;
+        };
+    }
+
+    /**
+     * Visit a dispatch expression node
+     *
+     * @param node the dispatch expression node
+     * @return the closure of the call, whose value is the result the
+     * method left in the engine
+     */
+    public Object visit(DispatchExpr node) {
+        Action call = dispatch(node);
+        ClosureEngine engine = this.engine;
+        String type = node.getExprType();
+        if (ClassLayout.bankOf(type) == INT) {
+            if (isBoolean(type)) {
+                return (BoolCode) (ints, refs) -> {
+                    call.run(ints, refs);
+                    return engine.intResult != 0;
+                };
+            }
+            return (IntCode) (ints, refs) -> {
+                call.run(ints, refs);
+                return engine.intResult;
+            };
+        }
+        if (ClassLayout.bankOf(type) == VOID) {
+            return (RefCode) (ints, refs) -> {
+                call.run(ints, refs);
+                return null;
+            };
+        }
+        return (RefCode) (ints, refs) -> {
+            call.run(ints, refs);
+            return engine.refResult;
+        };
+    }
+
+    /**
+     * compiles a dispatch to an Action that finds the method, evaluates the
+     * arguments into its frame and calls it.  A dispatch on super calls the
+     * method it was bound to here; any other dispatch is a DispatchNode,
+     * which caches the methods of the receiver classes it sees.
+     *
+     * @param node the dispatch expression
+     * @return the Action
+     */
+    private Action dispatch(DispatchExpr node) {
+        ExprList actuals = node.getActualList();
+        ArgStore[] stores = new ArgStore[actuals.getSize()];
+        RefCode[] boxed = new RefCode[actuals.getSize()];
+        for (int i = 0; i < stores.length; i++) {
+            compileArgument((Expr) actuals.get(i), i + 1, stores, boxed);
+        }
+        ClosureEngine engine = this.engine;
+        int index = node.getMethodIndex();
+        int line = node.getLineNum();
+        Expr ref = node.getRefExpr();
+        if (ref != null && SlotResolver.isSuper(ref)) {
+            ClosureMethod method = currentLayout.getParent().closureMethods[index];
+            return (ints, refs) -> {
+                engine.call(method, refs[0], stores, boxed, ints, refs, line);
+                return NORMAL;
+            };
+        }
+        return new DispatchNode(engine, ref == null ? null : refCode(ref), index,
+                stores, boxed, line);
+    }
+
+    /**
+     * compiles an argument of a dispatch both to the store into the frame
+     * of a method of the program and to the boxed value a built-in method
+     * takes
+     *
+     * @param actual the argument
+     * @param slot the slot of the formal in the frame of the method
+     * @param stores where the store goes
+     * @param boxed where the boxed value goes
+     */
+    private void compileArgument(Expr actual, int slot, ArgStore[] stores, RefCode[] boxed) {
+        Object code = actual.accept(this);
+        if (code instanceof IntCode) {
+            IntCode value = (IntCode) code;
+            stores[slot - 1] = (ints, refs, calleeInts, calleeRefs) ->
+                    calleeInts[slot] = value.eval(ints, refs);
+            boxed[slot - 1] = value::eval;
+        }
+        else if (code instanceof BoolCode) {
+            BoolCode value = (BoolCode) code;
+            stores[slot - 1] = (ints, refs, calleeInts, calleeRefs) ->
+                    calleeInts[slot] = value.eval(ints, refs) ? 1 : 0;
+            boxed[slot - 1] = value::eval;
+        }
+        else {
+            RefCode value = (RefCode) code;
+            stores[slot - 1] = (ints, refs, calleeInts, calleeRefs) ->
+                    calleeRefs[slot] = value.eval(ints, refs);
+            boxed[slot - 1] = value;
+        }
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return the closure creating the object
+     */
+    public Object visit(NewExpr node) {
+        ClosureEngine engine = this.engine;
+        ClassLayout layout = engine.layouts.get(node.getType());
+        return (RefCode) (ints, refs) -> engine.newObject(layout);
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return the closure of the test
+     */
+    public Object visit(InstanceofExpr node) {
+        RefCode value = refCode(node.getExpr());
+        if (node.getUpCheck()) {
+            return (BoolCode) (ints, refs) -> value.eval(ints, refs) != null;
+        }
+        ClosureEngine engine = this.engine;
+        ClassLayout type = engine.layouts.get(node.getType());
+        int line = node.getLineNum();
+        return (BoolCode) (ints, refs) -> {
+            Object object = value.eval(ints, refs);
+            return object != null && engine.layoutOf(object, line).isSubclassOf(type);
+        };
+    }
+
+    /**
+     * Visit a cast expression node
+     *
+     * @param node the cast expression node
+     * @return the closure of the cast
+     */
+    public Object visit(CastExpr node) {
+        RefCode value = refCode(node.getExpr());
+        if (node.getUpCast()) {
+            return value;
+        }
+        ClosureEngine engine = this.engine;
+        ClassLayout type = engine.layouts.get(node.getType());
+        int line = node.getLineNum();
+        return (RefCode) (ints, refs) -> {
+            Object object = value.eval(ints, refs);
+            if (object != null) {
+                ClassLayout layout = engine.layoutOf(object, line);
+                if (!layout.isSubclassOf(type)) {
+                    throw new BantamRuntimeException(line, "an object of class "
+                            + layout.getName() + " cannot be cast to " + type.getName());
+                }
+            }
+            return object;
+        };
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return the closure of the assignment, whose value is the value assigned
+     */
+    public Object visit(AssignExpr node) {
+        if (node.isFieldSlot()) {
+            return storeField(node.getSlot(), node.getExpr());
+        }
+        return storeLocal(node.getSlot(), node.getExpr());
+    }
+
+    /**
+     * compiles the store of a value in a local variable
+     *
+     * @param slot the slot of the variable
+     * @param expr the value
+     * @return the closure of the store, whose value is the value stored
+     */
+    private Object storeLocal(int slot, Expr expr) {
+        Object code = expr.accept(this);
+        if (code instanceof IntCode) {
+            IntCode value = (IntCode) code;
+            return (IntCode) (ints, refs) -> ints[slot] = value.eval(ints, refs);
+        }
+        if (code instanceof BoolCode) {
+            BoolCode value = (BoolCode) code;
+            return (BoolCode) (ints, refs) -> {
+                boolean result = value.eval(ints, refs);
+                ints[slot] = result ? 1 : 0;
+                return result;
+            };
+        }
+        RefCode value = (RefCode) code;
+        return (RefCode) (ints, refs) -> refs[slot] = value.eval(ints, refs);
+    }
+
+    /**
+     * compiles the store of a value in a field of 'this'
+     *
+     * @param slot the slot of the field
+     * @param expr the value
+     * @return the closure of the store, whose value is the value stored
+     */
+    private Object storeField(int slot, Expr expr) {
+        int bankIndex = currentLayout.getBankIndex(slot);
+        Object code = expr.accept(this);
+        if (code instanceof IntCode) {
+            IntCode value = (IntCode) code;
+            return (IntCode) (ints, refs) ->
+                    ((BantamObject) refs[0]).ints[bankIndex] = value.eval(ints, refs);
+        }
+        if (code instanceof BoolCode) {
+            BoolCode value = (BoolCode) code;
+            return (BoolCode) (ints, refs) -> {
+                boolean result = value.eval(ints, refs);
+                ((BantamObject) refs[0]).ints[bankIndex] = result ? 1 : 0;
+                return result;
+            };
+        }
+        RefCode value = (RefCode) code;
+        return (RefCode) (ints, refs) ->
+                ((BantamObject) refs[0]).fields[bankIndex] = value.eval(ints, refs);
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return the closure reading the variable
+     */
+    public Object visit(VarExpr node) {
+        int slot = node.getSlot();
+        String type = node.getExprType();
+        if (node.isFieldSlot()) {
+            int bankIndex = currentLayout.getBankIndex(slot);
+            if (!currentLayout.isIntField(slot)) {
+                return (RefCode) (ints, refs) -> ((BantamObject) refs[0]).fields[bankIndex];
+            }
+            if (isBoolean(type)) {
+                return (BoolCode) (ints, refs) -> ((BantamObject) refs[0]).ints[bankIndex] != 0;
+            }
+            return (IntCode) (ints, refs) -> ((BantamObject) refs[0]).ints[bankIndex];
+        }
+        if (slot == -1) {
+            return (RefCode) (ints, refs) -> null;
+        }
+        if (ClassLayout.bankOf(type) != INT) {
+            return (RefCode) (ints, refs) -> refs[slot];
+        }
+        if (isBoolean(type)) {
+            return (BoolCode) (ints, refs) -> ints[slot] != 0;
+        }
+        return (IntCode) (ints, refs) -> ints[slot];
+    }
+
+    /**
+     * returns the value of an int constant: a literal, or the negation of one
+     *
+     * @param expr an expression
+     * @return its value, or null if it is not a constant
+     */
+    private static Integer constantValue(Expr expr) {
+        if (expr instanceof ConstIntExpr) {
+            return ((ConstIntExpr) expr).getIntConstant();
+        }
+        if (expr instanceof UnaryNegExpr && ((UnaryNegExpr) expr).getExpr() instanceof ConstIntExpr) {
+            return -((ConstIntExpr) ((UnaryNegExpr) expr).getExpr()).getIntConstant();
+        }
+        return null;
+    }
+
+    /**
+     * compiles a comparison of two ints; a constant right operand is
+     * bound into the closure
+     *
+     * @param node the comparison
+     * @param op LT, LE, GT, GE, EQ or NE
+     * @return the closure
+     */
+    private BoolCode compare(BinaryExpr node, int op) {
+        IntCode left = intCode(node.getLeftExpr());
+        Integer constant = constantValue(node.getRightExpr());
+        if (constant != null) {
+            int k = constant;
+            switch (op) {
+                case LT: return (ints, refs) -> left.eval(ints, refs) < k;
+                case LE: return (ints, refs) -> left.eval(ints, refs) <= k;
+                case GT: return (ints, refs) -> left.eval(ints, refs) > k;
+                case GE: return (ints, refs) -> left.eval(ints, refs) >= k;
+                case EQ: return (ints, refs) -> left.eval(ints, refs) == k;
+                default: return (ints, refs) -> left.eval(ints, refs) != k;
+            }
+        }
+        IntCode right = intCode(node.getRightExpr());
+        switch (op) {
+            case LT: return (ints, refs) -> left.eval(ints, refs) < right.eval(ints, refs);
+            case LE: return (ints, refs) -> left.eval(ints, refs) <= right.eval(ints, refs);
+            case GT: return (ints, refs) -> left.eval(ints, refs) > right.eval(ints, refs);
+            case GE: return (ints, refs) -> left.eval(ints, refs) >= right.eval(ints, refs);
+            case EQ: return (ints, refs) -> left.eval(ints, refs) == right.eval(ints, refs);
+            default: return (ints, refs) -> left.eval(ints, refs) != right.eval(ints, refs);
+        }
+    }
+
+    /**
+     * compiles == or != on two values of the same bank: ints and booleans
+     * are compared by value, references by identity
+     *
+     * @param node the comparison
+     * @param op EQ or NE
+     * @return the closure
+     */
+    private BoolCode equality(BinaryExpr node, int op) {
+        String type = node.getLeftExpr().getExprType();
+        if (ClassLayout.bankOf(type) == INT && !isBoolean(type)) {
+            return compare(node, op);
+        }
+        if (isBoolean(type)) {
+            BoolCode left = boolCode(node.getLeftExpr());
+            BoolCode right = boolCode(node.getRightExpr());
+            return op == EQ ? (ints, refs) -> left.eval(ints, refs) == right.eval(ints, refs)
+                    : (ints, refs) -> left.eval(ints, refs) != right.eval(ints, refs);
+        }
+        RefCode left = refCode(node.getLeftExpr());
+        RefCode right = refCode(node.getRightExpr());
+        return op == EQ ? (ints, refs) -> left.eval(ints, refs) == right.eval(ints, refs)
+                : (ints, refs) -> left.eval(ints, refs) != right.eval(ints, refs);
+    }
+
+    /**
+     * Visit a binary comparison equals expression node
+     *
+     * @param node the binary comparison equals expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryCompEqExpr node) {
+        return equality(node, EQ);
+    }
+
+    /**
+     * Visit a binary comparison not equals expression node
+     *
+     * @param node the binary comparison not equals expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryCompNeExpr node) {
+        return equality(node, NE);
+    }
+
+    /**
+     * Visit a binary comparison less than expression node
+     *
+     * @param node the binary comparison less than expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryCompLtExpr node) {
+        return compare(node, LT);
+    }
+
+    /**
+     * Visit a binary comparison less than or equal to expression node
+     *
+     * @param node the binary comparison less than or equal to expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryCompLeqExpr node) {
+        return compare(node, LE);
+    }
+
+    /**
+     * Visit a binary comparison greater than expression node
+     *
+     * @param node the binary comparison greater than expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryCompGtExpr node) {
+        return compare(node, GT);
+    }
+
+    /**
+     * Visit a binary comparison greater than or equal to expression node
+     *
+     * @param node the binary comparison greater than or equal to expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryCompGeqExpr node) {
+        return compare(node, GE);
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        IntCode left = intCode(node.getLeftExpr());
+        Integer constant = constantValue(node.getRightExpr());
+        if (constant != null) {
+            int k = constant;
+            return (IntCode) (ints, refs) -> left.eval(ints, refs) + k;
+        }
+        IntCode right = intCode(node.getRightExpr());
+        return (IntCode) (ints, refs) -> left.eval(ints, refs) + right.eval(ints, refs);
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        IntCode left = intCode(node.getLeftExpr());
+        Integer constant = constantValue(node.getRightExpr());
+        if (constant != null) {
+            int k = constant;
+            return (IntCode) (ints, refs) -> left.eval(ints, refs) - k;
+        }
+        IntCode right = intCode(node.getRightExpr());
+        return (IntCode) (ints, refs) -> left.eval(ints, refs) - right.eval(ints, refs);
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        IntCode left = intCode(node.getLeftExpr());
+        Integer constant = constantValue(node.getRightExpr());
+        if (constant != null) {
+            int k = constant;
+            return (IntCode) (ints, refs) -> left.eval(ints, refs) * k;
+        }
+        IntCode right = intCode(node.getRightExpr());
+        return (IntCode) (ints, refs) -> left.eval(ints, refs) * right.eval(ints, refs);
+    }
+
+    /**
+     * Visit a binary arithmetic divide expression node: a nonzero
+     * constant divisor needs no check
+     *
+     * @param node the binary arithmetic divide expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryArithDivideExpr node) {
+        IntCode left = intCode(node.getLeftExpr());
+        Integer constant = constantValue(node.getRightExpr());
+        if (constant != null && constant != 0) {
+            int k = constant;
+            return (IntCode) (ints, refs) -> left.eval(ints, refs) / k;
+        }
+        IntCode right = intCode(node.getRightExpr());
+        int line = node.getLineNum();
+        return (IntCode) (ints, refs) -> {
+            int dividend = left.eval(ints, refs);
+            int divisor = right.eval(ints, refs);
+            if (divisor == 0) {
+                throw new BantamRuntimeException(line, "division by zero");
+            }
+            return dividend / divisor;
+        };
+    }
+
+    /**
+     * Visit a binary arithmetic modulus expression node: a nonzero
+     * constant divisor needs no check
+     *
+     * @param node the binary arithmetic modulus expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryArithModulusExpr node) {
+        IntCode left = intCode(node.getLeftExpr());
+        Integer constant = constantValue(node.getRightExpr());
+        if (constant != null && constant != 0) {
+            int k = constant;
+            return (IntCode) (ints, refs) -> left.eval(ints, refs) % k;
+        }
+        IntCode right = intCode(node.getRightExpr());
+        int line = node.getLineNum();
+        return (IntCode) (ints, refs) -> {
+            int dividend = left.eval(ints, refs);
+            int divisor = right.eval(ints, refs);
+            if (divisor == 0) {
+                throw new BantamRuntimeException(line, "modulus by zero");
+            }
+            return dividend % divisor;
+        };
+    }
+
+    /**
+     * Visit a binary logical AND expression node
+     *
+     * @param node the binary logical AND expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryLogicAndExpr node) {
+        BoolCode left = boolCode(node.getLeftExpr());
+        BoolCode right = boolCode(node.getRightExpr());
+        return (BoolCode) (ints, refs) -> left.eval(ints, refs) && right.eval(ints, refs);
+    }
+
+    /**
+     * Visit a binary logical OR expression node
+     *
+     * @param node the binary logical OR expression node
+     * @return the closure of the expression
+     */
+    public Object visit(BinaryLogicOrExpr node) {
+        BoolCode left = boolCode(node.getLeftExpr());
+        BoolCode right = boolCode(node.getRightExpr());
+        return (BoolCode) (ints, refs) -> left.eval(ints, refs) || right.eval(ints, refs);
+    }
+
+    /**
+     * Visit a unary negation expression node
+     *
+     * @param node the unary negation expression node
+     * @return the closure of the expression
+     */
+    public Object visit(UnaryNegExpr node) {
+        Integer constant = constantValue(node);
+        if (constant != null) {
+            int k = constant;
+            return (IntCode) (ints, refs) -> k;
+        }
+        IntCode value = intCode(node.getExpr());
+        return (IntCode) (ints, refs) -> -value.eval(ints, refs);
+    }
+
+    /**
+     * Visit a unary NOT expression node
+     *
+     * @param node the unary NOT expression node
+     * @return the closure of the expression
+     */
+    public Object visit(UnaryNotExpr node) {
+        BoolCode value = boolCode(node.getExpr());
+        return (BoolCode) (ints, refs) -> !value.eval(ints, refs);
+    }
+
+    /**
+     * Visit a unary increment expression node
+     *
+     * @param node the unary increment expression node
+     * @return the closure of the expression
+     */
+    public Object visit(UnaryIncrExpr node) {
+        return increment((VarExpr) node.getExpr(), 1, node.isPostfix());
+    }
+
+    /**
+     * Visit a unary decrement expression node
+     *
+     * @param node the unary decrement expression node
+     * @return the closure of the expression
+     */
+    public Object visit(UnaryDecrExpr node) {
+        return increment((VarExpr) node.getExpr(), -1, node.isPostfix());
+    }
+
+    /**
+     * compiles ++ or -- on an int variable
+     *
+     * @param variable the variable
+     * @param delta 1 or -1
+     * @param postfix whether the value is the old value of the variable
+     * @return the closure
+     */
+    private IntCode increment(VarExpr variable, int delta, boolean postfix) {
+        int slot = variable.getSlot();
+        if (variable.isFieldSlot()) {
+            int bankIndex = currentLayout.getBankIndex(slot);
+            if (postfix) {
+                return (ints, refs) -> {
+                    int[] fields = ((BantamObject) refs[0]).ints;
+                    int old = fields[bankIndex];
+                    fields[bankIndex] = old + delta;
+                    return old;
+                };
+            }
+            return (ints, refs) -> ((BantamObject) refs[0]).ints[bankIndex] += delta;
+        }
+        if (postfix) {
+            return (ints, refs) -> {
+                int old = ints[slot];
+                ints[slot] = old + delta;
+                return old;
+            };
+        }
+        return (ints, refs) -> ints[slot] += delta;
+    }
+
+    /**
+     * Visit a int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return the closure of the expression
+     */
+    public Object visit(ConstIntExpr node) {
+        int value = node.getIntConstant();
+        return (IntCode) (ints, refs) -> value;
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return the closure of the expression
+     */
+    public Object visit(ConstBooleanExpr node) {
+        if (node.getConstant().equals("true")) {
+            return (BoolCode) (ints, refs) -> true;
+        }
+        return (BoolCode) (ints, refs) -> false;
+    }
+
+    /**
+     * Visit a string constant expression node
+     *
+     * @param node the string constant expression node
+     * @return the closure of the expression
+     */
+    public Object visit(ConstStringExpr node) {
+        String value = node.getStringConstant();
+        return (RefCode) (ints, refs) -> value;
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * File: ClosureEngine.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import bantam.ast.ASTNode;
+import bantam.ast.ClassList;
+import bantam.ast.Method;
+import bantam.ast.Program;
+import bantam.opt.ConstantFolder;
+import bantam.opt.ReachabilityAnalyzer;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The <tt>ClosureEngine</tt> runs a Bantam Java program that has passed
+ * semantic analysis with the closures the ClosureCompiler turns its
+ * methods into.  A method is compiled the first time it is called, in
+ * one visit of its body, so a short program starts running at once, and
+ * its closures then run without visiting a node or looking a name up.
+ * <p/>
+ * Objects keep their int and boolean fields unboxed.
+ * Each Bantam call is a Java call of execute() with a new frame (an int[]
+ * and an Object[] of the size of the frame of the method); the result
+ * comes back in intResult or refResult.
+ */
+public class ClosureEngine implements BuiltinContext
+{
+    /** how many calls and loop iterations run between two interrupt checks */
+    private static final int POLL_INTERVAL = 1 << 12;
+
+    /** the layouts of all the classes, by name */
+    final Map<String, ClassLayout> layouts;
+
+    /** the layout of String, the class of the Java Strings of the program */
+    private final ClassLayout stringLayout;
+
+    /** the streams of TextIO objects reading stdin or writing stdout/stderr */
+    private final BufferedReader stdin;
+    private final PrintStream stdout;
+    private final PrintStream stderr;
+
+    /** compiles the methods when they are first called */
+    private final ClosureCompiler compiler = new ClosureCompiler(this);
+
+    /** the result of the last method that returned an int or a reference */
+    int intResult;
+    Object refResult;
+
+    /** calls and loop iterations left until the next interrupt check */
+    private int pollCountdown = POLL_INTERVAL;
+
+    /**
+     * prepares a program for running; no method is compiled yet
+     *
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     * @param in what TextIO reads after readStdin()
+     * @param out what TextIO writes after writeStdout()
+     * @param err what TextIO writes after writeStderr()
+     * @throws UnsupportedOperationException if a method overrides another
+     * with formals or a result in another bank (see
+     * ClassLayout.checkOverride()); the Interpreter can still run the
+     * program
+     */
+    public ClosureEngine(ClassTreeNode root, InputStream in, PrintStream out, PrintStream err) {
+        this.stdin = new BufferedReader(new InputStreamReader(in));
+        this.stdout = out;
+        this.stderr = err;
+        this.layouts = ClassLayout.buildAll(root);
+        stringLayout = layouts.get("String");
+        buildMethodTables();
+    }
+
+    /**
+     * fills in ClassLayout.closureMethods and closureInitializer with
+     * methods whose bodies are not compiled yet
+     */
+    private void buildMethodTables() {
+        Map<MethodInfo, ClosureMethod> methods = new IdentityHashMap<>();
+        for (ClassLayout layout : layouts.values()) {
+            layout.closureMethods = new ClosureMethod[layout.getNumMethods()];
+            for (int i = 0; i < layout.getNumMethods(); i++) {
+                MethodInfo info = layout.getMethod(i);
+                Method node = info.getNode();
+                layout.closureMethods[i] = methods.computeIfAbsent(info, key ->
+                        new ClosureMethod(key.getName(), key.getOwner(), key, Math.max(
+                                node.getFrameSize(), node.getFormalList().getSize() + 1)));
+                ClassLayout.checkOverride(layout, i);
+            }
+        }
+        for (ClassLayout layout : layouts.values()) {
+            buildInitializer(layout);
+        }
+    }
+
+    /**
+     * sets the closureInitializer of a class, after those of its superclasses
+     *
+     * @param layout the class
+     * @return the initializer of the class, or null if it has no field
+     * initializers
+     */
+    private ClosureMethod buildInitializer(ClassLayout layout) {
+        if (layout.closureInitializer != null || layout.getParent() == null) {
+            return layout.closureInitializer;
+        }
+        ClosureMethod parentInitializer = buildInitializer(layout.getParent());
+        layout.closureInitializer = parentInitializer;
+        for (int i = 0; i < layout.getOwnFields().size(); i++) {
+            if (layout.getOwnFields().get(i).getInit() != null) {
+                layout.closureInitializer = new ClosureMethod("<init>", layout, null,
+                        SlotResolver.FIELD_INIT_FRAME_SIZE);
+                break;
+            }
+        }
+        return layout.closureInitializer;
+    }
+
+    /**
+     * runs the program: creates a Main object and calls its main() method
+     *
+     * @return the exit status: the argument of Sys.exit(), or 0
+     * @throws BantamRuntimeException if the program fails
+     * @throws CancellationException if the thread is interrupted
+     */
+    public int run() {
+        ClassLayout main = layouts.get("Main");
+        try {
+            ClosureMethod method = main.closureMethods[main.getMethodIndex("main")];
+            Object[] refs = new Object[method.frameSize];
+            refs[0] = newObject(main);
+            execute(method, new int[method.frameSize], refs);
+            return 0;
+        } catch (Interpreter.Exit e) {
+            return e.status;
+        } catch (StackOverflowError e) {
+            throw new BantamRuntimeException(-1, "stack overflow (recursion too deep)");
+        } finally {
+            stdout.flush();
+            stderr.flush();
+        }
+    }
+
+    /**
+     * @return the standard input of the program
+     */
+    public BufferedReader stdin() {
+        return stdin;
+    }
+
+    /**
+     * @return the standard output of the program
+     */
+    public PrintStream stdout() {
+        return stdout;
+    }
+
+    /**
+     * @return the standard error of the program
+     */
+    public PrintStream stderr() {
+        return stderr;
+    }
+
+    /**
+     * returns the class of a value that methods are called on
+     *
+     * @param value a String or BantamObject
+     * @param lineNum the line of the dispatch, for the error message
+     * @return its layout
+     */
+    public ClassLayout layoutOf(Object value, int lineNum) {
+        if (value instanceof BantamObject) {
+            return ((BantamObject) value).layout;
+        }
+        if (value instanceof String) {
+            return stringLayout;
+        }
+        throw new BantamRuntimeException(lineNum, "null pointer: a method was called on null");
+    }
+
+    /**
+     * creates a new object and runs its field initializers
+     *
+     * @param layout the class of the object
+     * @return the object
+     */
+    Object newObject(ClassLayout layout) {
+        if (layout == stringLayout) {
+            return "";
+        }
+        BantamObject object = new BantamObject(layout,
+                layout.getNumIntFields(), layout.getNumRefFields());
+        ClosureMethod initializer = layout.closureInitializer;
+        if (initializer != null) {
+            Object[] refs = new Object[initializer.frameSize];
+            refs[0] = object;
+            execute(initializer, new int[initializer.frameSize], refs);
+        }
+        return object;
+    }
+
+    /**
+     * stops the program if the thread running it has been interrupted;
+     * checks every POLL_INTERVAL calls and loop iterations
+     */
+    void poll() {
+        if (--pollCountdown < 0) {
+            pollCountdown = POLL_INTERVAL;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Program stopped");
+            }
+        }
+    }
+
+    /**
+     * runs the body of a method of the program, compiling it first if it
+     * has never run
+     *
+     * @param method the method
+     * @param ints the int slots of its frame, holding the int and boolean formals
+     * @param refs the reference slots of its frame, holding 'this' and the
+     *             other formals
+     */
+    void execute(ClosureMethod method, int[] ints, Object[] refs) {
+        poll();
+        ClosureCompiler.Action body = method.body;
+        if (body == null) {
+            body = compiler.compile(method);
+        }
+        body.run(ints, refs);
+    }
+
+    /**
+     * calls a method from a dispatch; the result is left in intResult or
+     * refResult
+     *
+     * @param method the method called
+     * @param receiver the object the method is called on
+     * @param stores the stores of the arguments into the frame of the method
+     * @param boxed the arguments as a built-in method takes them
+     * @param ints the int slots of the frame of the caller
+     * @param refs the reference slots of the frame of the caller
+     * @param lineNum the line of the dispatch, for error messages
+     */
+    void call(ClosureMethod method, Object receiver, ClosureCompiler.ArgStore[] stores,
+              ClosureCompiler.RefCode[] boxed, int[] ints, Object[] refs, int lineNum) {
+        if (method.builtin != null) {
+            callBuiltin(method, receiver, boxed, ints, refs, lineNum);
+            return;
+        }
+        int[] calleeInts = new int[method.frameSize];
+        Object[] calleeRefs = new Object[method.frameSize];
+        calleeRefs[0] = receiver;
+        for (ClosureCompiler.ArgStore store : stores) {
+            store.store(ints, refs, calleeInts, calleeRefs);
+        }
+        execute(method, calleeInts, calleeRefs);
+    }
+
+    /**
+     * calls a built-in method, boxing the arguments into the frame the
+     * implementations in Builtins expect
+     *
+     * @param method the method called
+     * @param receiver the object the method is called on
+     * @param boxed the arguments
+     * @param ints the int slots of the frame of the caller
+     * @param refs the reference slots of the frame of the caller
+     * @param lineNum the line of the dispatch, for error messages
+     */
+    private void callBuiltin(ClosureMethod method, Object receiver, ClosureCompiler.RefCode[] boxed,
+                             int[] ints, Object[] refs, int lineNum) {
+        Object[] frame = new Object[boxed.length + 1];
+        frame[0] = receiver;
+        for (int i = 0; i < boxed.length; i++) {
+            frame[i + 1] = boxed[i].eval(ints, refs);
+        }
+        Object value;
+        try {
+            value = method.builtin.call(this, frame);
+        } catch (BantamRuntimeException e) {
+            throw e.atLine(lineNum);
+        }
+        if (value instanceof Integer) {
+            intResult = (Integer) value;
+        }
+        else if (value instanceof Boolean) {
+            intResult = (Boolean) value ? 1 : 0;
+        }
+        else {
+            refResult = value;
+        }
+    }
+
+    /**
+     * runs a Bantam Java program with the closure engine.  You need to
+     * provide command line arguments each of which is the pathname of a
+     * Bantam Java file.  Programs the engine cannot run are run by the
+     * Interpreter.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+
+        try {
+            for (String inFile : args) {
+                for (ASTNode klass : parser.parse(inFile).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            new ConstantFolder().fold(root);
+            new ReachabilityAnalyzer().strip(root);
+            ClosureEngine engine;
+            try {
+                engine = new ClosureEngine(root, System.in, System.out, System.err);
+            } catch (UnsupportedOperationException ex) {
+                System.exit(new Interpreter(root, System.in, System.out, System.err).run());
+                return;
+            }
+            System.exit(engine.run());
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        } catch (BantamRuntimeException ex) {
+            System.err.println("Runtime error: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * File: ClosureMethod.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+/**
+ * A method compiled to closures for the ClosureEngine (see
+ * ClosureCompiler), the field initializers of a class, or a built-in
+ * method, which has no body.  The body is compiled the first time the
+ * method is called and never changes afterwards.
+ */
+final class ClosureMethod
+{
+    /** the name of the method */
+    final String name;
+
+    /** the class declaring the method */
+    final ClassLayout owner;
+
+    /** the method table entry of the method, or null for field initializers */
+    final MethodInfo info;
+
+    /** the implementation of a built-in method, or null */
+    final MethodInfo.Builtin builtin;
+
+    /** the number of slots of the int array and of the reference array of a frame */
+    final int frameSize;
+
+    /** the compiled body, or null until the method is first called */
+    ClosureCompiler.Action body;
+
+    /**
+     * creates a method whose body is not compiled yet
+     * @param name the name of the method
+     * @param owner the class declaring the method
+     * @param info the method table entry, or null for field initializers
+     * @param frameSize the number of slots of a frame
+     */
+    ClosureMethod(String name, ClassLayout owner, MethodInfo info, int frameSize) {
+        this.name = name;
+        this.owner = owner;
+        this.info = info;
+        this.builtin = info == null ? null : info.getBuiltin();
+        this.frameSize = frameSize;
+    }
+
+    /**
+     * @return the class and the name of the method
+     */
+    @Override
+    public String toString() {
+        return owner.getName() + "." + name;
+    }
+}
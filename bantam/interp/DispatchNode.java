@@ -0,0 +1,151 @@
+/*
+ * File: DispatchNode.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import java.util.Arrays;
+
+/**
+ * The closure of a virtual dispatch of the ClosureEngine, which rewrites
+ * its method lookup after seeing the classes of the receivers: it starts
+ * uninitialized, caches the first receiver class and its method
+ * (monomorphic), adds the next ones up to MAX_CLASSES (polymorphic) and
+ * then falls back to the method table (megamorphic).  A receiver of a
+ * class the lookup has not seen misses every guard, so the lookup is
+ * replaced by the next one before the call; the cached methods never go
+ * stale, as method tables do not change while a program runs.
+ */
+final class DispatchNode implements ClosureCompiler.Action
+{
+    /** the most receiver classes a call site caches */
+    static final int MAX_CLASSES = 4;
+
+    /**
+     * Finds the method called for a receiver class
+     */
+    private interface Lookup {
+        ClosureMethod find(ClassLayout layout);
+    }
+
+    /** the engine running the call */
+    private final ClosureEngine engine;
+
+    /** the receiver, or null for a dispatch on 'this' */
+    private final ClosureCompiler.RefCode receiverCode;
+
+    /** the index of the method in the method table of the static type */
+    private final int index;
+
+    /** the arguments, stored into a frame or boxed for a built-in method */
+    private final ClosureCompiler.ArgStore[] stores;
+    private final ClosureCompiler.RefCode[] boxed;
+
+    /** the line of the dispatch, for error messages */
+    private final int lineNum;
+
+    /** the receiver classes seen so far, and their methods */
+    private ClassLayout[] seenClasses = new ClassLayout[0];
+    private ClosureMethod[] seenMethods = new ClosureMethod[0];
+
+    /** the current specialization of the lookup */
+    private Lookup lookup = this::specialize;
+
+    /**
+     * creates an uninitialized dispatch
+     *
+     * @param engine the engine running the call
+     * @param receiverCode the receiver, or null for a dispatch on 'this'
+     * @param index the index of the method in the method table
+     * @param stores the stores of the arguments into the frame of the method
+     * @param boxed the arguments as a built-in method takes them
+     * @param lineNum the line of the dispatch
+     */
+    DispatchNode(ClosureEngine engine, ClosureCompiler.RefCode receiverCode, int index,
+                 ClosureCompiler.ArgStore[] stores, ClosureCompiler.RefCode[] boxed,
+                 int lineNum) {
+        this.engine = engine;
+        this.receiverCode = receiverCode;
+        this.index = index;
+        this.stores = stores;
+        this.boxed = boxed;
+        this.lineNum = lineNum;
+    }
+
+    /**
+     * evaluates the receiver, finds the method and calls it
+     *
+     * @param ints the int slots of the frame
+     * @param refs the reference slots of the frame
+     * @return NORMAL
+     */
+    public int run(int[] ints, Object[] refs) {
+        Object receiver = receiverCode == null ? refs[0] : receiverCode.eval(ints, refs);
+        ClassLayout layout = receiver instanceof BantamObject ?
+                ((BantamObject) receiver).layout : engine.layoutOf(receiver, lineNum);
+        engine.call(lookup.find(layout), receiver, stores, boxed, ints, refs, lineNum);
+        return ClosureCompiler.NORMAL;
+    }
+
+    /**
+     * called when the current lookup has not seen a receiver class: finds
+     * its method in the method table and replaces the lookup by one that
+     * also handles this class
+     *
+     * @param layout the class of the receiver
+     * @return the method called
+     */
+    private ClosureMethod specialize(ClassLayout layout) {
+        ClosureMethod method = layout.closureMethods[index];
+        int seen = seenClasses.length;
+        if (seen == MAX_CLASSES) {
+            seenClasses = null;
+            seenMethods = null;
+            lookup = megamorphic(index);
+            return method;
+        }
+        seenClasses = Arrays.copyOf(seenClasses, seen + 1);
+        seenMethods = Arrays.copyOf(seenMethods, seen + 1);
+        seenClasses[seen] = layout;
+        seenMethods[seen] = method;
+        lookup = seen == 0 ? monomorphic(layout, method) : polymorphic(seenClasses, seenMethods);
+        return method;
+    }
+
+    /**
+     * @param cachedClass the only receiver class seen
+     * @param cachedMethod its method
+     * @return the lookup guarding on that class
+     */
+    private Lookup monomorphic(ClassLayout cachedClass, ClosureMethod cachedMethod) {
+        return layout -> layout == cachedClass ? cachedMethod : specialize(layout);
+    }
+
+    /**
+     * @param classes the receiver classes seen
+     * @param methods their methods
+     * @return the lookup guarding on each of the classes in turn
+     */
+    private Lookup polymorphic(ClassLayout[] classes, ClosureMethod[] methods) {
+        return layout -> {
+            for (int i = 0; i < classes.length; i++) {
+                if (classes[i] == layout) {
+                    return methods[i];
+                }
+            }
+            return specialize(layout);
+        };
+    }
+
+    /**
+     * @param index the index of the method
+     * @return the lookup reading the method table of every receiver
+     */
+    private static Lookup megamorphic(int index) {
+        return layout -> layout.closureMethods[index];
+    }
+}
@@ -0,0 +1,787 @@
+/*
+ * File: Interpreter.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import bantam.ast.*;
+import bantam.opt.ConstantFolder;
+import bantam.opt.ReachabilityAnalyzer;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+import bantam.visitor.Visitor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The <tt>Interpreter</tt> runs a Bantam Java program that has passed
+ * semantic analysis, by walking its AST.
+ * <p/>
+ * Before the program starts, every class gets a ClassLayout (field slots
+ * and method table) and the SlotResolver annotates the AST with the slots
+ * of all the variables and the method table index of all the dispatches,
+ * so running the program never looks a name up.  The variables of a
+ * method call live in an Object[] frame, 'this' in slot 0.
+ * <p/>
+ * Statements return null when they complete normally, and BREAK or RETURN
+ * when a break or return statement was executed; loops and statement lists
+ * stop on those, so break and return cost no exceptions.  Only errors
+ * (BantamRuntimeException) and Sys.exit() unwind the Java stack.
+ */
+public class Interpreter extends Visitor implements BuiltinContext
+{
+    /** returned by a statement that executed a break statement */
+    private static final Object BREAK = new Object();
+
+    /** returned by a statement that executed a return statement */
+    private static final Object RETURN = new Object();
+
+    /** the layouts of all the classes, by name */
+    private final Map<String, ClassLayout> layouts;
+
+    /** the layout of String, the class of the Java Strings of the program */
+    private final ClassLayout stringLayout;
+
+    /** the streams of TextIO objects reading stdin or writing stdout/stderr */
+    private final BufferedReader stdin;
+    private final PrintStream stdout;
+    private final PrintStream stderr;
+
+    /** the frame of the method being run: 'this', the formals and the locals */
+    private Object[] frame;
+
+    /** the method being run */
+    private MethodInfo currentMethod;
+
+    /** the value of the last return statement executed */
+    private Object returnValue;
+
+    /**
+     * Thrown by Sys.exit() to end the program
+     */
+    static class Exit extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        Exit(int status) {
+            super(null, null, false, false);
+            this.status = status;
+        }
+    }
+
+    /**
+     * prepares a program for running
+     *
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     * @param in what TextIO reads after readStdin()
+     * @param out what TextIO writes after writeStdout()
+     * @param err what TextIO writes after writeStderr()
+     */
+    public Interpreter(ClassTreeNode root, InputStream in, PrintStream out, PrintStream err) {
+        this.stdin = new BufferedReader(new InputStreamReader(in));
+        this.stdout = out;
+        this.stderr = err;
+        this.layouts = ClassLayout.buildAll(root);
+        stringLayout = layouts.get("String");
+    }
+
+    /**
+     * runs the program: creates a Main object and calls its main() method
+     *
+     * @return the exit status: the argument of Sys.exit(), or 0
+     * @throws BantamRuntimeException if the program fails
+     * @throws CancellationException if the thread is interrupted
+     */
+    public int run() {
+        ClassLayout main = layouts.get("Main");
+        try {
+            Object mainObject = newObject(main);
+            MethodInfo method = main.getMethod(main.getMethodIndex("main"));
+            Object[] mainFrame = new Object[Math.max(1, method.getNode().getFrameSize())];
+            mainFrame[0] = mainObject;
+            invoke(method, mainFrame, -1);
+            return 0;
+        } catch (Exit e) {
+            return e.status;
+        } catch (StackOverflowError e) {
+            throw new BantamRuntimeException(-1, "stack overflow (recursion too deep)");
+        } finally {
+            stdout.flush();
+            stderr.flush();
+        }
+    }
+
+    /**
+     * @return the standard input of the program
+     */
+    public BufferedReader stdin() {
+        return stdin;
+    }
+
+    /**
+     * @return the standard output of the program
+     */
+    public PrintStream stdout() {
+        return stdout;
+    }
+
+    /**
+     * @return the standard error of the program
+     */
+    public PrintStream stderr() {
+        return stderr;
+    }
+
+    /**
+     * returns the class of a value that methods are called on
+     *
+     * @param value a String or BantamObject
+     * @param lineNum the line of the dispatch, for the error message
+     * @return its layout
+     */
+    public ClassLayout layoutOf(Object value, int lineNum) {
+        if (value instanceof BantamObject) {
+            return ((BantamObject) value).layout;
+        }
+        if (value instanceof String) {
+            return stringLayout;
+        }
+        throw new BantamRuntimeException(lineNum, value == null ?
+                "null pointer: a method was called on null" :
+                "a method was called on the primitive value " + value);
+    }
+
+    /**
+     * creates a new object and runs its field initializers
+     *
+     * @param layout the class of the object
+     * @return the object
+     */
+    private Object newObject(ClassLayout layout) {
+        if (layout == stringLayout) {
+            return "";
+        }
+        BantamObject object = new BantamObject(layout);
+        initializeFields(layout, object);
+        return object;
+    }
+
+    /**
+     * runs the field initializers of a class for a new object, those of
+     * its superclasses first
+     *
+     * @param layout the class
+     * @param object the new object
+     */
+    private void initializeFields(ClassLayout layout, BantamObject object) {
+        if (layout.getParent() != null) {
+            initializeFields(layout.getParent(), object);
+        }
+        for (int i = 0; i < layout.getOwnFields().size(); i++) {
+            Expr init = layout.getOwnFields().get(i).getInit();
+            if (init != null) {
+                Object[] callerFrame = frame;
+                frame = new Object[SlotResolver.FIELD_INIT_FRAME_SIZE];
+                frame[0] = object;
+                object.fields[layout.getOwnFieldSlot(i)] = init.accept(this);
+                frame = callerFrame;
+            }
+        }
+    }
+
+    /**
+     * runs a method
+     *
+     * @param method the method
+     * @param calleeFrame its frame, holding the receiver and the arguments
+     * @param lineNum the line of the call, for error messages
+     * @return the value returned, or null for void methods
+     */
+    private Object invoke(MethodInfo method, Object[] calleeFrame, int lineNum) {
+        MethodInfo.Builtin builtin = method.getBuiltin();
+        if (builtin != null) {
+            try {
+                return builtin.call(this, calleeFrame);
+            } catch (BantamRuntimeException e) {
+                throw e.atLine(lineNum);
+            }
+        }
+        checkInterrupted();
+        Object[] callerFrame = frame;
+        MethodInfo callerMethod = currentMethod;
+        frame = calleeFrame;
+        currentMethod = method;
+        method.getNode().getStmtList().accept(this);
+        Object result = returnValue;
+        returnValue = null;
+        frame = callerFrame;
+        currentMethod = callerMethod;
+        return result;
+    }
+
+    /**
+     * stops the program if the thread running it has been interrupted;
+     * called on every method call and loop iteration
+     */
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Program stopped");
+        }
+    }
+
+    /**
+     * Visit a list node of statements
+     *
+     * @param node the statement list node
+     * @return BREAK or RETURN if a statement executed one, or null
+     */
+    public Object visit(StmtList node) {
+        for (int i = 0, n = node.getSize(); i < n; i++) {
+            Object result = node.get(i).accept(this);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return null
+     */
+    public Object visit(DeclStmt node) {
+        frame[node.getSlot()] = node.getInit().accept(this);
+        return null;
+    }
+
+    /**
+     * Visit an expression statement node
+     *
+     * @param node the expression statement node
+     * @return null
+     */
+    public Object visit(ExprStmt node) {
+        node.getExpr().accept(this);
+        return null;
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return what the branch taken returned
+     */
+    public Object visit(IfStmt node) {
+        if ((Boolean) node.getPredExpr().accept(this)) {
+            return node.getThenStmt().accept(this);
+        }
+        return node.getElseStmt() == null ? null : node.getElseStmt().accept(this);
+    }
+
+    /**
+     * Visit a while statement node
+     *
+     * @param node the while statement node
+     * @return RETURN if the body executed a return statement, or null
+     */
+    public Object visit(WhileStmt node) {
+        while ((Boolean) node.getPredExpr().accept(this)) {
+            Object result = node.getBodyStmt().accept(this);
+            if (result == BREAK) {
+                break;
+            }
+            if (result == RETURN) {
+                return RETURN;
+            }
+            checkInterrupted();
+        }
+        return null;
+    }
+
+    /**
+     * Visit a for statement node
+     *
+     * @param node the for statement node
+     * @return RETURN if the body executed a return statement, or null
+     */
+    public Object visit(ForStmt node) {
+        if (node.getInitExpr() != null) {
+            node.getInitExpr().accept(this);
+        }
+        while (node.getPredExpr() == null || (Boolean) node.getPredExpr().accept(this)) {
+            Object result = node.getBodyStmt().accept(this);
+            if (result == BREAK) {
+                break;
+            }
+            if (result == RETURN) {
+                return RETURN;
+            }
+            if (node.getUpdateExpr() != null) {
+                node.getUpdateExpr().accept(this);
+            }
+            checkInterrupted();
+        }
+        return null;
+    }
+
+    /**
+     * Visit a break statement node
+     *
+     * @param node the break statement node
+     * @return BREAK
+     */
+    public Object visit(BreakStmt node) {
+        return BREAK;
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return what its statement list returned
+     */
+    public Object visit(BlockStmt node) {
+        return node.getStmtList().accept(this);
+    }
+
+    /**
+     * Visit a return statement node
+     *
+     * @param node the return statement node
+     * @return RETURN
+     */
+    public Object visit(ReturnStmt node) {
+        returnValue = node.getExpr() == null ? null : node.getExpr().accept(this);
+        return RETURN;
+    }
+
+    /**
+     * Visit a dispatch expression node
+     *
+     * @param node the dispatch expression node
+     * @return the value returned by the method
+     */
+    public Object visit(DispatchExpr node) {
+        Expr ref = node.getRefExpr();
+        Object receiver;
+        MethodInfo method;
+        if (ref == null) {
+            receiver = frame[0];
+            method = ((BantamObject) receiver).layout.getMethod(node.getMethodIndex());
+        }
+        else if (SlotResolver.isSuper(ref)) {
+            receiver = frame[0];
+            method = currentMethod.getOwner().getParent().getMethod(node.getMethodIndex());
+        }
+        else {
+            receiver = ref.accept(this);
+            method = layoutOf(receiver, node.getLineNum()).getMethod(node.getMethodIndex());
+        }
+
+        ExprList actuals = node.getActualList();
+        int numActuals = actuals.getSize();
+        Object[] calleeFrame = new Object[Math.max(numActuals + 1,
+                method.getNode().getFrameSize())];
+        calleeFrame[0] = receiver;
+        for (int i = 0; i < numActuals; i++) {
+            calleeFrame[i + 1] = actuals.get(i).accept(this);
+        }
+        return invoke(method, calleeFrame, node.getLineNum());
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return the new object
+     */
+    public Object visit(NewExpr node) {
+        return newObject(layouts.get(node.getType()));
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return whether the value is an instance of the type
+     */
+    public Object visit(InstanceofExpr node) {
+        Object value = node.getExpr().accept(this);
+        if (value == null) {
+            return false;
+        }
+        return node.getUpCheck() || layoutOf(value, node.getLineNum())
+                .isSubclassOf(layouts.get(node.getType()));
+    }
+
+    /**
+     * Visit a cast expression node
+     *
+     * @param node the cast expression node
+     * @return the value, if it is an instance of the type
+     */
+    public Object visit(CastExpr node) {
+        Object value = node.getExpr().accept(this);
+        if (value == null || node.getUpCast()) {
+            return value;
+        }
+        ClassLayout layout = layoutOf(value, node.getLineNum());
+        if (!layout.isSubclassOf(layouts.get(node.getType()))) {
+            throw new BantamRuntimeException(node.getLineNum(), "an object of class "
+                    + layout.getName() + " cannot be cast to " + node.getType());
+        }
+        return value;
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return the value assigned
+     */
+    public Object visit(AssignExpr node) {
+        Object value = node.getExpr().accept(this);
+        if (node.isFieldSlot()) {
+            ((BantamObject) frame[0]).fields[node.getSlot()] = value;
+        }
+        else {
+            frame[node.getSlot()] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return the value of the variable
+     */
+    public Object visit(VarExpr node) {
+        int slot = node.getSlot();
+        if (node.isFieldSlot()) {
+            return ((BantamObject) frame[0]).fields[slot];
+        }
+        return slot == -1 ? null : frame[slot];
+    }
+
+    /**
+     * stores a value in the variable of a variable expression
+     *
+     * @param node the variable expression
+     * @param value the new value
+     */
+    private void store(VarExpr node, Object value) {
+        if (node.isFieldSlot()) {
+            ((BantamObject) frame[0]).fields[node.getSlot()] = value;
+        }
+        else {
+            frame[node.getSlot()] = value;
+        }
+    }
+
+    /**
+     * evaluates the left operand of an int operator
+     *
+     * @param node the binary expression
+     * @return the value of the operand
+     */
+    private int left(BinaryExpr node) {
+        return (Integer) node.getLeftExpr().accept(this);
+    }
+
+    /**
+     * evaluates the right operand of an int operator
+     *
+     * @param node the binary expression
+     * @return the value of the operand
+     */
+    private int right(BinaryExpr node) {
+        return (Integer) node.getRightExpr().accept(this);
+    }
+
+    /**
+     * returns whether two values are equal in the sense of ==:
+     * the same int or boolean, or the same object
+     *
+     * @param left the left value
+     * @param right the right value
+     * @return true if they are equal
+     */
+    private static boolean same(Object left, Object right) {
+        if (left instanceof Integer || left instanceof Boolean) {
+            return left.equals(right);
+        }
+        return left == right;
+    }
+
+    /**
+     * Visit a binary comparison equals expression node
+     *
+     * @param node the binary comparison equals expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryCompEqExpr node) {
+        return same(node.getLeftExpr().accept(this), node.getRightExpr().accept(this));
+    }
+
+    /**
+     * Visit a binary comparison not equals expression node
+     *
+     * @param node the binary comparison not equals expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryCompNeExpr node) {
+        return !same(node.getLeftExpr().accept(this), node.getRightExpr().accept(this));
+    }
+
+    /**
+     * Visit a binary comparison less than expression node
+     *
+     * @param node the binary comparison less than expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryCompLtExpr node) {
+        return left(node) < right(node);
+    }
+
+    /**
+     * Visit a binary comparison less than or equal to expression node
+     *
+     * @param node the binary comparison less than or equal to expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryCompLeqExpr node) {
+        return left(node) <= right(node);
+    }
+
+    /**
+     * Visit a binary comparison greater than expression node
+     *
+     * @param node the binary comparison greater than expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryCompGtExpr node) {
+        return left(node) > right(node);
+    }
+
+    /**
+     * Visit a binary comparison greater than or equal to expression node
+     *
+     * @param node the binary comparison greater than or equal to expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryCompGeqExpr node) {
+        return left(node) >= right(node);
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        return left(node) + right(node);
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        return left(node) - right(node);
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        return left(node) * right(node);
+    }
+
+    /**
+     * Visit a binary arithmetic divide expression node
+     *
+     * @param node the binary arithmetic divide expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryArithDivideExpr node) {
+        int left = left(node);
+        int right = right(node);
+        if (right == 0) {
+            throw new BantamRuntimeException(node.getLineNum(), "division by zero");
+        }
+        return left / right;
+    }
+
+    /**
+     * Visit a binary arithmetic modulus expression node
+     *
+     * @param node the binary arithmetic modulus expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryArithModulusExpr node) {
+        int left = left(node);
+        int right = right(node);
+        if (right == 0) {
+            throw new BantamRuntimeException(node.getLineNum(), "modulus by zero");
+        }
+        return left % right;
+    }
+
+    /**
+     * Visit a binary logical AND expression node
+     *
+     * @param node the binary logical AND expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryLogicAndExpr node) {
+        return (Boolean) node.getLeftExpr().accept(this)
+                && (Boolean) node.getRightExpr().accept(this);
+    }
+
+    /**
+     * Visit a binary logical OR expression node
+     *
+     * @param node the binary logical OR expression node
+     * @return the value of the expression
+     */
+    public Object visit(BinaryLogicOrExpr node) {
+        return (Boolean) node.getLeftExpr().accept(this)
+                || (Boolean) node.getRightExpr().accept(this);
+    }
+
+    /**
+     * Visit a unary negation expression node
+     *
+     * @param node the unary negation expression node
+     * @return the value of the expression
+     */
+    public Object visit(UnaryNegExpr node) {
+        return -(Integer) node.getExpr().accept(this);
+    }
+
+    /**
+     * Visit a unary NOT expression node
+     *
+     * @param node the unary NOT expression node
+     * @return the value of the expression
+     */
+    public Object visit(UnaryNotExpr node) {
+        return !(Boolean) node.getExpr().accept(this);
+    }
+
+    /**
+     * Visit a unary increment expression node
+     *
+     * @param node the unary increment expression node
+     * @return the value of the expression
+     */
+    public Object visit(UnaryIncrExpr node) {
+        VarExpr variable = (VarExpr) node.getExpr();
+        int old = (Integer) variable.accept(this);
+        store(variable, old + 1);
+        return node.isPostfix() ? old : old + 1;
+    }
+
+    /**
+     * Visit a unary decrement expression node
+     *
+     * @param node the unary decrement expression node
+     * @return the value of the expression
+     */
+    public Object visit(UnaryDecrExpr node) {
+        VarExpr variable = (VarExpr) node.getExpr();
+        int old = (Integer) variable.accept(this);
+        store(variable, old - 1);
+        return node.isPostfix() ? old : old - 1;
+    }
+
+    /**
+     * Visit a int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return the value of the expression
+     */
+    public Object visit(ConstIntExpr node) {
+        return node.getIntConstant();
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return the value of the expression
+     */
+    public Object visit(ConstBooleanExpr node) {
+        return node.getConstant().equals("true");
+    }
+
+    /**
+     * Visit a string constant expression node
+     *
+     * @param node the string constant expression node
+     * @return the value of the expression
+     */
+    public Object visit(ConstStringExpr node) {
+        return node.getStringConstant();
+    }
+
+    /**
+     * runs a Bantam Java program.  You need to provide command line
+     * arguments each of which is the pathname of a Bantam Java file.  The
+     * files are parsed and analyzed together, and if there are no errors
+     * the program is run with System.in, System.out and System.err.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+
+        try {
+            for (String inFile : args) {
+                for (ASTNode klass : parser.parse(inFile).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            new ConstantFolder().fold(root);
+            new ReachabilityAnalyzer().strip(root);
+            int status = new Interpreter(root, System.in, System.out, System.err).run();
+            System.exit(status);
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        } catch (BantamRuntimeException ex) {
+            System.err.println("Runtime error: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * File: IrEngine.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import bantam.ast.ASTNode;
+import bantam.ast.ClassList;
+import bantam.ast.Program;
+import bantam.ir.Block;
+import bantam.ir.Constant;
+import bantam.ir.Instr;
+import bantam.ir.IrBuilder;
+import bantam.ir.IrMethod;
+import bantam.ir.IrProgram;
+import bantam.ir.Operand;
+import bantam.ir.Opcode;
+import bantam.ir.Temp;
+import bantam.opt.ConstantFolder;
+import bantam.opt.ReachabilityAnalyzer;
+import bantam.opt.Optimizer;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The <tt>IrEngine</tt> runs a Bantam Java program lowered to the IR of
+ * bantam.ir, one instruction at a time, and counts the instructions it
+ * runs.  It is the reference for the IR: a program must behave the same
+ * when the IrEngine runs its IR, before and after any pass, as when the
+ * Interpreter runs its AST, and the count shows how much work a pass
+ * saves.
+ * <p/>
+ * Values are those of the Interpreter: boxed ints and booleans, Java
+ * Strings and BantamObjects with boxed fields.  The temps of a call live
+ * in an Object[] indexed by their numbers.
+ * <p/>
+ * PHIs are run but not counted: they only say which value a temp names
+ * after each edge into a block, and a code generator taking the IR out of
+ * SSA form gives a PHI and its operands the same register where their
+ * lifetimes allow, as they do around the loops the optimizer produces.
+ */
+public class IrEngine implements BuiltinContext
+{
+    /** how many calls and jumps run between two interrupt checks */
+    private static final int POLL_INTERVAL = 1 << 12;
+
+    /** the program */
+    private final IrProgram program;
+
+    /** the layouts of all the classes, by name */
+    private final Map<String, ClassLayout> layouts;
+
+    /** the layout of String, the class of the Java Strings of the program */
+    private final ClassLayout stringLayout;
+
+    /** the streams of TextIO objects reading stdin or writing stdout/stderr */
+    private final BufferedReader stdin;
+    private final PrintStream stdout;
+    private final PrintStream stderr;
+
+    /** the number of instructions run so far */
+    private long instructionCount;
+
+    /** calls and jumps left until the next interrupt check */
+    private int pollCountdown = POLL_INTERVAL;
+
+    /**
+     * prepares a program for running
+     *
+     * @param program the program in IR, built by the IrBuilder from the
+     *                class hierarchy returned by SemanticAnalyzer.analyze()
+     * @param in what TextIO reads after readStdin()
+     * @param out what TextIO writes after writeStdout()
+     * @param err what TextIO writes after writeStderr()
+     */
+    public IrEngine(IrProgram program, InputStream in, PrintStream out, PrintStream err) {
+        this.program = program;
+        this.stdin = new BufferedReader(new InputStreamReader(in));
+        this.stdout = out;
+        this.stderr = err;
+        this.layouts = ClassLayout.buildAll(program.getRoot());
+        stringLayout = layouts.get("String");
+    }
+
+    /**
+     * runs the program: creates a Main object and calls its main() method
+     *
+     * @return the exit status: the argument of Sys.exit(), or 0
+     * @throws BantamRuntimeException if the program fails
+     * @throws CancellationException if the thread is interrupted
+     */
+    public int run() {
+        try {
+            Object main = newObject(layouts.get("Main"));
+            execute(program.lookupMethod("Main", "main"), new Object[]{main});
+            return 0;
+        } catch (Interpreter.Exit e) {
+            return e.status;
+        } catch (StackOverflowError e) {
+            throw new BantamRuntimeException(-1, "stack overflow (recursion too deep)");
+        } finally {
+            stdout.flush();
+            stderr.flush();
+        }
+    }
+
+    /**
+     * @return the number of instructions run so far, PHIs excepted
+     */
+    public long getInstructionCount() {
+        return instructionCount;
+    }
+
+    /**
+     * @return the standard input of the program
+     */
+    public BufferedReader stdin() {
+        return stdin;
+    }
+
+    /**
+     * @return the standard output of the program
+     */
+    public PrintStream stdout() {
+        return stdout;
+    }
+
+    /**
+     * @return the standard error of the program
+     */
+    public PrintStream stderr() {
+        return stderr;
+    }
+
+    /**
+     * returns the class of a value that methods are called on
+     *
+     * @param value a String or BantamObject
+     * @param lineNum the line of the dispatch, for the error message
+     * @return its layout
+     */
+    public ClassLayout layoutOf(Object value, int lineNum) {
+        if (value instanceof BantamObject) {
+            return ((BantamObject) value).layout;
+        }
+        if (value instanceof String) {
+            return stringLayout;
+        }
+        throw new BantamRuntimeException(lineNum, "null pointer: a method was called on null");
+    }
+
+    /**
+     * creates a new object and runs the field initializers of its class,
+     * those of its superclasses first
+     *
+     * @param layout the class of the object
+     * @return the object
+     */
+    private Object newObject(ClassLayout layout) {
+        if (layout == stringLayout) {
+            return "";
+        }
+        BantamObject object = new BantamObject(layout);
+        initializeFields(layout, object);
+        return object;
+    }
+
+    /**
+     * runs the field initializers of a class and its superclasses
+     *
+     * @param layout the class
+     * @param object the new object
+     */
+    private void initializeFields(ClassLayout layout, BantamObject object) {
+        if (layout.getParent() != null) {
+            initializeFields(layout.getParent(), object);
+        }
+        IrMethod initializer = program.getMethod(layout.getName(), IrMethod.INITIALIZER);
+        if (initializer != null) {
+            execute(initializer, new Object[]{object});
+        }
+    }
+
+    /**
+     * stops the program if the thread running it has been interrupted;
+     * checks every POLL_INTERVAL calls and jumps
+     */
+    private void poll() {
+        if (--pollCountdown < 0) {
+            pollCountdown = POLL_INTERVAL;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Program stopped");
+            }
+        }
+    }
+
+    /**
+     * @param temps the temps of the running method
+     * @param operand an operand
+     * @return its value
+     */
+    private static Object read(Object[] temps, Operand operand) {
+        return operand instanceof Temp ?
+                temps[((Temp) operand).getId()] : ((Constant) operand).getValue();
+    }
+
+    /**
+     * @param temps the temps of the running method
+     * @param instr an instruction
+     * @param index the index of an int operand
+     * @return its value
+     */
+    private static int intOperand(Object[] temps, Instr instr, int index) {
+        return (Integer) read(temps, instr.getOperand(index));
+    }
+
+    /**
+     * returns whether two values are equal in the sense of ==:
+     * the same int or boolean, or the same object
+     *
+     * @param left the left value
+     * @param right the right value
+     * @return true if they are equal
+     */
+    private static boolean same(Object left, Object right) {
+        if (left instanceof Integer || left instanceof Boolean) {
+            return left.equals(right);
+        }
+        return left == right;
+    }
+
+    /**
+     * runs a method
+     *
+     * @param method the method
+     * @param arguments the receiver and the arguments
+     * @return the value returned, or null for void methods
+     */
+    private Object execute(IrMethod method, Object[] arguments) {
+        poll();
+        Object[] temps = new Object[method.getNumTemps()];
+        temps[method.getThis().getId()] = arguments[0];
+        List<Temp> formals = method.getFormals();
+        for (int i = 0; i < formals.size(); i++) {
+            temps[formals.get(i).getId()] = arguments[i + 1];
+        }
+        Block previous = null;
+        Block block = method.getEntry();
+        Object[] values = null;
+        while (true) {
+            List<Instr> instrs = block.getInstrs();
+            // the PHIs read their operands before any of them is assigned
+            int numPhis = 0;
+            while (instrs.get(numPhis).getOpcode() == Opcode.PHI) {
+                numPhis++;
+            }
+            if (numPhis == 1) {
+                Instr phi = instrs.get(0);
+                temps[phi.getDest().getId()] = read(temps, phi.getIncoming(previous));
+            }
+            else if (numPhis > 1) {
+                if (values == null || values.length < numPhis) {
+                    values = new Object[numPhis];
+                }
+                for (int i = 0; i < numPhis; i++) {
+                    values[i] = read(temps, instrs.get(i).getIncoming(previous));
+                }
+                for (int i = 0; i < numPhis; i++) {
+                    temps[instrs.get(i).getDest().getId()] = values[i];
+                }
+            }
+            Block next = null;
+            for (int i = numPhis; next == null; i++) {
+                Instr instr = instrs.get(i);
+                instructionCount++;
+                Object result = null;
+                switch (instr.getOpcode()) {
+                    case MOVE:
+                        result = read(temps, instr.getOperand(0));
+                        break;
+                    case ADD:
+                        result = intOperand(temps, instr, 0) + intOperand(temps, instr, 1);
+                        break;
+                    case SUB:
+                        result = intOperand(temps, instr, 0) - intOperand(temps, instr, 1);
+                        break;
+                    case MUL:
+                        result = intOperand(temps, instr, 0) * intOperand(temps, instr, 1);
+                        break;
+                    case DIV:
+                    case MOD:
+                        int divisor = intOperand(temps, instr, 1);
+                        if (divisor == 0) {
+                            throw new BantamRuntimeException(instr.getLineNum(),
+                                    instr.getOpcode() == Opcode.DIV ?
+                                            "division by zero" : "modulus by zero");
+                        }
+                        int dividend = intOperand(temps, instr, 0);
+                        result = instr.getOpcode() == Opcode.DIV ?
+                                dividend / divisor : dividend % divisor;
+                        break;
+                    case NEG:
+                        result = -intOperand(temps, instr, 0);
+                        break;
+                    case NOT:
+                        result = !(Boolean) read(temps, instr.getOperand(0));
+                        break;
+                    case LT:
+                        result = intOperand(temps, instr, 0) < intOperand(temps, instr, 1);
+                        break;
+                    case LE:
+                        result = intOperand(temps, instr, 0) <= intOperand(temps, instr, 1);
+                        break;
+                    case GT:
+                        result = intOperand(temps, instr, 0) > intOperand(temps, instr, 1);
+                        break;
+                    case GE:
+                        result = intOperand(temps, instr, 0) >= intOperand(temps, instr, 1);
+                        break;
+                    case EQ:
+                    case NE:
+                        result = same(read(temps, instr.getOperand(0)),
+                                read(temps, instr.getOperand(1))) == (instr.getOpcode() == Opcode.EQ);
+                        break;
+                    case GETFIELD:
+                        result = ((BantamObject) read(temps, instr.getOperand(0))).fields[
+                                layouts.get(instr.getClassName()).getFieldSlot(instr.getMember())];
+                        break;
+                    case PUTFIELD:
+                        ((BantamObject) read(temps, instr.getOperand(0))).fields[
+                                layouts.get(instr.getClassName()).getFieldSlot(instr.getMember())]
+                                = read(temps, instr.getOperand(1));
+                        break;
+                    case NEW:
+                        result = newObject(layouts.get(instr.getClassName()));
+                        break;
+                    case INSTANCEOF:
+                        Object value = read(temps, instr.getOperand(0));
+                        result = value != null && layoutOf(value, instr.getLineNum())
+                                .isSubclassOf(layouts.get(instr.getClassName()));
+                        break;
+                    case CAST:
+                        result = cast(read(temps, instr.getOperand(0)), instr);
+                        break;
+                    case CALL:
+                    case SUPERCALL:
+                    case DIRECTCALL:
+                        result = call(temps, instr);
+                        break;
+                    case NULLCHECK:
+                        if (read(temps, instr.getOperand(0)) == null) {
+                            layoutOf(null, instr.getLineNum());
+                        }
+                        break;
+                    case JUMP:
+                        next = instr.getTargets().get(0);
+                        break;
+                    case BRANCH:
+                        next = instr.getTargets().get(
+                                (Boolean) read(temps, instr.getOperand(0)) ? 0 : 1);
+                        break;
+                    case RETURN:
+                        return instr.getNumOperands() == 0 ? null : read(temps, instr.getOperand(0));
+                    default:
+                        throw new IllegalStateException("unexpected instruction " + instr);
+                }
+                if (instr.getDest() != null) {
+                    temps[instr.getDest().getId()] = result;
+                }
+            }
+            poll();
+            previous = block;
+            block = next;
+        }
+    }
+
+    /**
+     * checks a cast
+     *
+     * @param value the value cast
+     * @param instr the CAST
+     * @return the value, if it is null or an instance of the type
+     */
+    private Object cast(Object value, Instr instr) {
+        if (value == null) {
+            return null;
+        }
+        ClassLayout layout = layoutOf(value, instr.getLineNum());
+        if (!layout.isSubclassOf(layouts.get(instr.getClassName()))) {
+            throw new BantamRuntimeException(instr.getLineNum(), "an object of class "
+                    + layout.getName() + " cannot be cast to " + instr.getClassName());
+        }
+        return value;
+    }
+
+    /**
+     * runs a CALL, looking the method up in the class of the receiver, or
+     * a SUPERCALL or DIRECTCALL of the method of the class it names
+     *
+     * @param temps the temps of the caller
+     * @param instr the call
+     * @return the value returned, or null for void methods
+     */
+    private Object call(Object[] temps, Instr instr) {
+        Object[] arguments = new Object[instr.getNumOperands()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = read(temps, instr.getOperand(i));
+        }
+        ClassLayout layout;
+        switch (instr.getOpcode()) {
+            case SUPERCALL:
+                layout = layouts.get(instr.getClassName());
+                break;
+            case DIRECTCALL:
+                layoutOf(arguments[0], instr.getLineNum());
+                layout = layouts.get(instr.getClassName());
+                break;
+            default:
+                layout = layoutOf(arguments[0], instr.getLineNum());
+        }
+        IrMethod method = program.lookupMethod(layout.getName(), instr.getMember());
+        if (method != null) {
+            return execute(method, arguments);
+        }
+        MethodInfo builtin = layout.getMethod(layout.getMethodIndex(instr.getMember()));
+        try {
+            return builtin.getBuiltin().call(this, arguments);
+        } catch (BantamRuntimeException e) {
+            throw e.atLine(instr.getLineNum());
+        }
+    }
+
+    /**
+     * runs a Bantam Java program lowered to the IR.  You need to provide
+     * command line arguments each of which is the pathname of a Bantam
+     * Java file, with "-O" first to run the IR after the Optimizer.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+        boolean optimize = args.length > 0 && args[0].equals("-O");
+
+        try {
+            for (String inFile : optimize ? Arrays.copyOfRange(args, 1, args.length) : args) {
+                for (ASTNode klass : parser.parse(inFile).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            new ConstantFolder().fold(root);
+            new ReachabilityAnalyzer().strip(root);
+            IrProgram program = new IrBuilder().build(root);
+            if (optimize) {
+                new Optimizer().optimize(program);
+            }
+            System.exit(new IrEngine(program, System.in, System.out, System.err).run());
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        } catch (BantamRuntimeException ex) {
+            System.err.println("Runtime error: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * File: MethodInfo.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import bantam.ast.Method;
+
+/**
+ * An entry of the method table of a class: either a method of the Bantam
+ * program or a built-in method implemented in Java.
+ */
+public class MethodInfo
+{
+    /**
+     * The Java implementation of a built-in method
+     */
+    interface Builtin {
+        /**
+         * runs the method
+         * @param context the engine running the program
+         * @param frame the receiver in slot 0 and the arguments after it
+         * @return the result, or null for void methods
+         */
+        Object call(BuiltinContext context, Object[] frame);
+    }
+
+    /** the name of the method */
+    private final String name;
+
+    /** the class declaring the method */
+    private final ClassLayout owner;
+
+    /** the declaration of the method */
+    private final Method node;
+
+    /** the implementation of a built-in method, or null */
+    private final Builtin builtin;
+
+    /**
+     * creates the entry of a method
+     * @param owner the class declaring the method
+     * @param node the declaration of the method
+     * @param builtin the implementation of a built-in method, or null
+     */
+    MethodInfo(ClassLayout owner, Method node, Builtin builtin) {
+        this.name = node.getName();
+        this.owner = owner;
+        this.node = node;
+        this.builtin = builtin;
+    }
+
+    /**
+     * @return the name of the method
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the class declaring the method
+     */
+    public ClassLayout getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the declaration of the method
+     */
+    public Method getNode() {
+        return node;
+    }
+
+    /**
+     * @return the implementation of a built-in method, or null for a
+     * method of the program
+     */
+    Builtin getBuiltin() {
+        return builtin;
+    }
+}
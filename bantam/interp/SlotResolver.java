@@ -0,0 +1,354 @@
+/*
+ * File: SlotResolver.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.interp;
+
+import bantam.ast.*;
+import bantam.visitor.Visitor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This visitor resolves every name of a type-checked class once, before the
+ * program runs, so that the interpreter never looks a name up:
+ * local variables get an index into the frame of their method (slot 0 holds
+ * 'this', the formals follow it, and locals of sibling blocks share slots),
+ * fields get an index into the field array of 'this', and dispatches get the
+ * index of their method in the method table of the static type of their
+ * reference expression.  Each method gets the size of its frame.
+ */
+public class SlotResolver extends Visitor
+{
+    /** size of the frame a field initializer is evaluated in (it only holds 'this') */
+    static final int FIELD_INIT_FRAME_SIZE = 1;
+
+    /** the layouts of all the classes, by name */
+    private final Map<String, ClassLayout> layouts;
+
+    /** the layout of the class being resolved */
+    private ClassLayout currentLayout;
+
+    /** the local variables in scope, innermost scope first */
+    private final Deque<Map<String, Integer>> scopes = new ArrayDeque<>();
+
+    /** the next free frame slot, and the number of slots used so far */
+    private int nextSlot;
+    private int frameSize;
+
+    /**
+     * creates a resolver for the classes with the given layouts
+     * @param layouts the layouts of all the classes, by name
+     */
+    public SlotResolver(Map<String, ClassLayout> layouts) {
+        this.layouts = layouts;
+    }
+
+    /**
+     * resolves the names in the fields and methods of a class
+     * @param node the class
+     * @param layout its layout
+     */
+    public void resolve(Class_ node, ClassLayout layout) {
+        currentLayout = layout;
+        node.getMemberList().accept(this);
+    }
+
+    /**
+     * Visit a field node: its initializer is evaluated with only 'this'
+     * in the frame
+     *
+     * @param node the field node
+     * @return result of the visit
+     */
+    public Object visit(Field node) {
+        if (node.getInit() != null) {
+            scopes.clear();
+            scopes.push(new HashMap<>());
+            nextSlot = frameSize = FIELD_INIT_FRAME_SIZE;
+            node.getInit().accept(this);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a method node
+     *
+     * @param node the method node
+     * @return result of the visit
+     */
+    public Object visit(Method node) {
+        scopes.clear();
+        scopes.push(new HashMap<>());
+        nextSlot = 1; // slot 0 is 'this'
+        for (ASTNode formal : node.getFormalList()) {
+            declare(((Formal) formal).getName());
+        }
+        frameSize = nextSlot;
+        node.getStmtList().accept(this);
+        node.setFrameSize(frameSize);
+        return null;
+    }
+
+    /**
+     * gives a local variable the next free slot in the current scope
+     * @param name the name of the variable
+     * @return its slot
+     */
+    private int declare(String name) {
+        int slot = nextSlot++;
+        frameSize = Math.max(frameSize, nextSlot);
+        scopes.peek().put(name, slot);
+        return slot;
+    }
+
+    /**
+     * opens a scope; its locals are freed by the matching exitScope()
+     * @return the first free slot, to be passed to exitScope()
+     */
+    private int enterScope() {
+        scopes.push(new HashMap<>());
+        return nextSlot;
+    }
+
+    /**
+     * closes a scope, freeing the slots of its locals
+     * @param firstSlot what enterScope() returned
+     */
+    private void exitScope(int firstSlot) {
+        scopes.pop();
+        nextSlot = firstSlot;
+    }
+
+    /**
+     * returns the slot of a local variable in scope
+     * @param name the name of the variable
+     * @return its slot, or -1 if there is no such local
+     */
+    private int lookupLocal(String name) {
+        for (Map<String, Integer> scope : scopes) {
+            Integer slot = scope.get(name);
+            if (slot != null) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * returns the layout whose fields a reference ('this', 'super' or none)
+     * refers to
+     * @param node the node, for error messages
+     * @param refName the name of the reference, or null
+     */
+    private ClassLayout fieldOwner(ASTNode node, String refName) {
+        if (refName == null || refName.equals("this")) {
+            return currentLayout;
+        }
+        if (refName.equals("super") && currentLayout.getParent() != null) {
+            return currentLayout.getParent();
+        }
+        throw new BantamRuntimeException(node.getLineNum(),
+                "fields can only be accessed through this or super, not " + refName);
+    }
+
+    /**
+     * returns the slot of a field
+     * @param node the node, for error messages
+     * @param owner the class whose fields are searched
+     * @param name the name of the field
+     */
+    private int fieldSlot(ASTNode node, ClassLayout owner, String name) {
+        int slot = owner.getFieldSlot(name);
+        if (slot == -1) {
+            throw new BantamRuntimeException(node.getLineNum(),
+                    "unknown variable " + name + " in class " + owner.getName());
+        }
+        return slot;
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        // the initializer cannot see the variable it initializes
+        node.getInit().accept(this);
+        node.setSlot(declare(node.getName()));
+        return null;
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return result of the visit
+     */
+    public Object visit(IfStmt node) {
+        node.getPredExpr().accept(this);
+        int firstSlot = enterScope();
+        node.getThenStmt().accept(this);
+        exitScope(firstSlot);
+        if (node.getElseStmt() != null) {
+            firstSlot = enterScope();
+            node.getElseStmt().accept(this);
+            exitScope(firstSlot);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a while statement node
+     *
+     * @param node the while statement node
+     * @return result of the visit
+     */
+    public Object visit(WhileStmt node) {
+        node.getPredExpr().accept(this);
+        int firstSlot = enterScope();
+        node.getBodyStmt().accept(this);
+        exitScope(firstSlot);
+        return null;
+    }
+
+    /**
+     * Visit a for statement node
+     *
+     * @param node the for statement node
+     * @return result of the visit
+     */
+    public Object visit(ForStmt node) {
+        if (node.getInitExpr() != null) {
+            node.getInitExpr().accept(this);
+        }
+        if (node.getPredExpr() != null) {
+            node.getPredExpr().accept(this);
+        }
+        if (node.getUpdateExpr() != null) {
+            node.getUpdateExpr().accept(this);
+        }
+        int firstSlot = enterScope();
+        node.getBodyStmt().accept(this);
+        exitScope(firstSlot);
+        return null;
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return result of the visit
+     */
+    public Object visit(BlockStmt node) {
+        int firstSlot = enterScope();
+        node.getStmtList().accept(this);
+        exitScope(firstSlot);
+        return null;
+    }
+
+    /**
+     * Visit a dispatch expression node
+     *
+     * @param node the dispatch expression node
+     * @return result of the visit
+     */
+    public Object visit(DispatchExpr node) {
+        Expr ref = node.getRefExpr();
+        ClassLayout layout;
+        if (ref == null) {
+            layout = currentLayout;
+        }
+        else if (isSuper(ref)) {
+            layout = fieldOwner(node, "super");
+        }
+        else {
+            ref.accept(this);
+            layout = layouts.get(ref.getExprType());
+            if (layout == null) {
+                throw new BantamRuntimeException(node.getLineNum(), "cannot call "
+                        + node.getMethodName() + " on a value of type " + ref.getExprType());
+            }
+        }
+        int index = layout.getMethodIndex(node.getMethodName());
+        if (index == -1) {
+            throw new BantamRuntimeException(node.getLineNum(), "unknown method "
+                    + node.getMethodName() + " in class " + layout.getName());
+        }
+        node.setMethodIndex(index);
+        node.getActualList().accept(this);
+        return null;
+    }
+
+    /**
+     * returns whether an expression is the bare name 'super'
+     * @param expr the expression
+     */
+    static boolean isSuper(Expr expr) {
+        return expr instanceof VarExpr && ((VarExpr) expr).getRef() == null
+                && ((VarExpr) expr).getName().equals("super");
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(AssignExpr node) {
+        node.getExpr().accept(this);
+        int local = node.getRefName() == null ? lookupLocal(node.getName()) : -1;
+        if (local != -1) {
+            node.setSlot(local, false);
+        }
+        else {
+            ClassLayout owner = fieldOwner(node, node.getRefName());
+            node.setSlot(fieldSlot(node, owner, node.getName()), true);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return result of the visit
+     */
+    public Object visit(VarExpr node) {
+        String name = node.getName();
+        if (node.getRef() != null) {
+            String refName = node.getRef() instanceof VarExpr ?
+                    ((VarExpr) node.getRef()).getName() : null;
+            if (refName == null) {
+                throw new BantamRuntimeException(node.getLineNum(),
+                        "fields can only be accessed through this or super");
+            }
+            ClassLayout owner = fieldOwner(node, refName);
+            node.setSlot(fieldSlot(node, owner, name), true);
+        }
+        else if (name.equals("null")) {
+            node.setSlot(-1, false);
+        }
+        else if (name.equals("this") || name.equals("super")) {
+            node.setSlot(0, false);
+        }
+        else {
+            int local = lookupLocal(name);
+            if (local != -1) {
+                node.setSlot(local, false);
+            }
+            else {
+                node.setSlot(fieldSlot(node, currentLayout, name), true);
+            }
+        }
+        return null;
+    }
+}
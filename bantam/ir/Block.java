@@ -0,0 +1,167 @@
+/*
+ * File: Block.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A basic block of an IrMethod: a list of instructions that runs from the
+ * first one to the last one, which is a terminator (JUMP, BRANCH or RETURN)
+ * once the block is complete.  The PHIs of a block in SSA form come first.
+ * The successors of a block are the targets of its terminator; its
+ * predecessors are recorded by IrMethod.computePredecessors().
+ */
+public final class Block
+{
+    /** the number of the block in its method */
+    private final int id;
+
+    /** the instructions */
+    private final List<Instr> instrs = new ArrayList<>();
+
+    /** the blocks whose terminators jump to this one */
+    private final List<Block> predecessors = new ArrayList<>();
+
+    /**
+     * creates an empty block; see IrMethod.newBlock()
+     * @param id the number of the block in its method
+     */
+    Block(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the number of the block in its method
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the instructions, which cannot be changed through the list
+     */
+    public List<Instr> getInstrs() {
+        return Collections.unmodifiableList(instrs);
+    }
+
+    /**
+     * appends an instruction
+     * @param instr the instruction
+     */
+    public void add(Instr instr) {
+        instrs.add(instr);
+        instr.setBlock(this);
+    }
+
+    /**
+     * inserts an instruction
+     * @param index where it goes
+     * @param instr the instruction
+     */
+    public void add(int index, Instr instr) {
+        instrs.add(index, instr);
+        instr.setBlock(this);
+    }
+
+    /**
+     * replaces an instruction
+     * @param index the index of the instruction
+     * @param instr the new instruction
+     */
+    public void set(int index, Instr instr) {
+        instrs.get(index).setBlock(null);
+        instrs.set(index, instr);
+        instr.setBlock(this);
+    }
+
+    /**
+     * removes an instruction
+     * @param instr the instruction, which must be in the block
+     */
+    public void remove(Instr instr) {
+        for (int i = 0; i < instrs.size(); i++) {
+            if (instrs.get(i) == instr) {
+                instrs.remove(i);
+                instr.setBlock(null);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the last instruction if it is a terminator, or null
+     */
+    public Instr getTerminator() {
+        if (instrs.isEmpty()) {
+            return null;
+        }
+        Instr last = instrs.get(instrs.size() - 1);
+        return last.getOpcode().isTerminator() ? last : null;
+    }
+
+    /**
+     * @return the PHIs at the start of the block
+     */
+    public List<Instr> getPhis() {
+        int count = 0;
+        while (count < instrs.size() && instrs.get(count).getOpcode() == Opcode.PHI) {
+            count++;
+        }
+        return Collections.unmodifiableList(instrs.subList(0, count));
+    }
+
+    /**
+     * @return the distinct blocks the terminator goes to
+     */
+    public List<Block> getSuccessors() {
+        Instr terminator = getTerminator();
+        List<Block> successors = new ArrayList<>();
+        if (terminator != null) {
+            for (Block target : terminator.getTargets()) {
+                if (!successors.contains(target)) {
+                    successors.add(target);
+                }
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * @return the blocks jumping to this one, as of the last
+     * IrMethod.computePredecessors()
+     */
+    public List<Block> getPredecessors() {
+        return Collections.unmodifiableList(predecessors);
+    }
+
+    /**
+     * records a predecessor
+     * @param predecessor the block
+     */
+    void addPredecessor(Block predecessor) {
+        predecessors.add(predecessor);
+    }
+
+    /**
+     * forgets the predecessors
+     */
+    void clearPredecessors() {
+        predecessors.clear();
+    }
+
+    /**
+     * @return the block as listings show it
+     */
+    @Override
+    public String toString() {
+        return "B" + id;
+    }
+}
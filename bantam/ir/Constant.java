@@ -0,0 +1,131 @@
+/*
+ * File: Constant.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.Objects;
+
+/**
+ * A constant operand: an int, a boolean, a String or null.  Constants with
+ * the same value are equal.
+ */
+public final class Constant implements Operand
+{
+    /** the constants true, false and null */
+    public static final Constant TRUE = new Constant("boolean", true);
+    public static final Constant FALSE = new Constant("boolean", false);
+    public static final Constant NULL = new Constant("null", null);
+
+    /** the Bantam type of the value */
+    private final String type;
+
+    /** the value: an Integer, a Boolean, a String or null */
+    private final Object value;
+
+    /**
+     * creates a constant
+     * @param type the Bantam type of the value
+     * @param value the value
+     */
+    private Constant(String type, Object value) {
+        this.type = type;
+        this.value = value;
+    }
+
+    /**
+     * @param value an int
+     * @return the constant
+     */
+    public static Constant ofInt(int value) {
+        return new Constant("int", value);
+    }
+
+    /**
+     * @param value a boolean
+     * @return the constant
+     */
+    public static Constant ofBoolean(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * @param value a String
+     * @return the constant
+     */
+    public static Constant ofString(String value) {
+        return new Constant("String", value);
+    }
+
+    /**
+     * @return the Bantam type of the value
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the value: an Integer, a Boolean, a String or null
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return the value of an int constant
+     */
+    public int getInt() {
+        return (Integer) value;
+    }
+
+    /**
+     * @return the value of a boolean constant
+     */
+    public boolean getBoolean() {
+        return (Boolean) value;
+    }
+
+    /**
+     * @param other another object
+     * @return whether it is a constant of the same type and value
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Constant && type.equals(((Constant) other).type)
+                && Objects.equals(value, ((Constant) other).value);
+    }
+
+    /**
+     * @return a hash code consistent with equals()
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, value);
+    }
+
+    /**
+     * @return the constant as it is written in Bantam Java
+     */
+    @Override
+    public String toString() {
+        if (value instanceof String) {
+            StringBuilder text = new StringBuilder("\"");
+            for (char c : ((String) value).toCharArray()) {
+                switch (c) {
+                    case '\n': text.append("\\n"); break;
+                    case '\t': text.append("\\t"); break;
+                    case '\f': text.append("\\f"); break;
+                    case '"': text.append("\\\""); break;
+                    case '\\': text.append("\\\\"); break;
+                    default: text.append(c);
+                }
+            }
+            return text.append('"').toString();
+        }
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * File: Dataflow.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A dataflow analysis of the reachable blocks of a method whose facts are
+ * sets of numbers, such as the ids of temps, kept as dense bitsets in
+ * long[]s.  A subclass gives the effect of each block as a gen and a kill
+ * set, so that the set after a block is gen | (before &amp; ~kill) in the
+ * direction of the analysis, and the value at the boundary (the entry of a
+ * forward analysis, the blocks without successors of a backward one).  The
+ * sets flowing into a block are merged by union or by intersection, and a
+ * subclass can add to the merged set of a block, for facts that hold on
+ * its edges only, like the operands of PHIs.
+ * <p/>
+ * The solver visits the blocks whose inputs changed in reverse postorder
+ * for a forward analysis and in postorder for a backward one, in sweeps
+ * over the order until no set changes, so that an acyclic CFG takes one
+ * sweep and every back edge usually one more.  The results describe the
+ * CFG as it was when they were computed; getIn() and getOut() give the
+ * sets at the start and the end of a block whatever the direction.
+ * TempDataflow numbers the temps of a method for the analyses of temps.
+ */
+public abstract class Dataflow
+{
+    /** the method analyzed */
+    protected final IrMethod method;
+
+    /** whether facts flow from the entry along the edges */
+    private final boolean forward;
+
+    /** whether the sets flowing into a block are intersected, not united */
+    private final boolean intersect;
+
+    /** the number of longs of a set */
+    private int words;
+
+    /** the reachable blocks in the order they are visited */
+    private final List<Block> order;
+
+    /** the position of each block in the order by id, -1 if unreachable */
+    private final int[] position;
+
+    /** the positions of the blocks flowing into and out of each block */
+    private final int[][] sources;
+    private final int[][] targets;
+
+    /** the sets at the start and the end of each block, by position */
+    private long[][] in;
+    private long[][] out;
+
+    /** the number of blocks visited by the solver */
+    private int visits;
+
+    /**
+     * prepares an analysis of a method
+     *
+     * @param method the method
+     * @param forward whether facts flow from the entry along the edges
+     * @param intersect whether the sets flowing into a block are
+     *                  intersected, which makes the analysis a must analysis
+     */
+    protected Dataflow(IrMethod method, boolean forward, boolean intersect) {
+        this.method = method;
+        this.forward = forward;
+        this.intersect = intersect;
+        List<Block> rpo = method.reversePostorder();
+        int size = rpo.size();
+        order = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            order.add(rpo.get(forward ? i : size - 1 - i));
+        }
+        position = new int[method.getNumBlockIds()];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < size; i++) {
+            position[order.get(i).getId()] = i;
+        }
+
+        int[] numPredecessors = new int[size];
+        int[][] successors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            List<Block> blocks = order.get(i).getSuccessors();
+            successors[i] = new int[blocks.size()];
+            for (int j = 0; j < blocks.size(); j++) {
+                successors[i][j] = position[blocks.get(j).getId()];
+                numPredecessors[successors[i][j]]++;
+            }
+        }
+        int[][] predecessors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            predecessors[i] = new int[numPredecessors[i]];
+            numPredecessors[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int successor : successors[i]) {
+                predecessors[successor][numPredecessors[successor]++] = i;
+            }
+        }
+        sources = forward ? predecessors : successors;
+        targets = forward ? successors : predecessors;
+    }
+
+    /**
+     * gives the effect of a block: the elements it adds and removes, in the
+     * direction of the analysis
+     *
+     * @param block the block
+     * @param gen the set of the elements it adds, empty, to fill in
+     * @param kill the set of the elements it removes, empty, to fill in
+     */
+    protected abstract void initialize(Block block, long[] gen, long[] kill);
+
+    /**
+     * gives the set at the boundary: flowing into the entry of a forward
+     * analysis or out of the blocks without successors of a backward one.
+     * It is empty unless a subclass fills it in.
+     *
+     * @param value the set, empty, to fill in
+     */
+    protected void boundary(long[] value) {
+    }
+
+    /**
+     * adds to the merged set flowing into a block the facts that only hold
+     * on its edges.  Nothing is added unless a subclass does.
+     *
+     * @param block the block
+     * @param value the merged set, to update
+     */
+    protected void join(Block block, long[] value) {
+    }
+
+    /**
+     * computes the sets of all the reachable blocks; a subclass calls it
+     * once, when it is ready to initialize the blocks
+     *
+     * @param numBits the number of elements the sets can hold
+     */
+    protected final void solve(int numBits) {
+        int size = order.size();
+        words = (numBits + 63) >>> 6;
+        in = new long[size][words];
+        out = new long[size][words];
+        long[][] gen = new long[size][words];
+        long[][] kill = new long[size][words];
+        long[] boundary = new long[words];
+        boundary(boundary);
+        for (int i = 0; i < size; i++) {
+            initialize(order.get(i), gen[i], kill[i]);
+            long[] output = forward ? out[i] : in[i];
+            if (intersect) {
+                Arrays.fill(output, -1L);
+            }
+        }
+
+        long[] pending = new long[(size + 63) >>> 6];
+        for (int i = 0; i < size; i++) {
+            add(pending, i);
+        }
+        long[] merged = new long[words];
+        boolean more = size > 0;
+        while (more) {
+            more = false;
+            for (int i = next(pending, 0); i >= 0; i = next(pending, i + 1)) {
+                pending[i >>> 6] &= ~(1L << i);
+                visits++;
+                merge(i, merged, boundary);
+                join(order.get(i), merged);
+                long[] input = forward ? in[i] : out[i];
+                long[] output = forward ? out[i] : in[i];
+                System.arraycopy(merged, 0, input, 0, words);
+                boolean changed = false;
+                for (int w = 0; w < words; w++) {
+                    long value = gen[i][w] | (merged[w] & ~kill[i][w]);
+                    if (value != output[w]) {
+                        output[w] = value;
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    for (int target : targets[i]) {
+                        add(pending, target);
+                        more |= target <= i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * merges the sets flowing into a block
+     */
+    private void merge(int index, long[] merged, long[] boundary) {
+        int[] blocks = sources[index];
+        if (blocks.length == 0 || forward && index == 0) {
+            System.arraycopy(boundary, 0, merged, 0, words);
+            return;
+        }
+        long[] first = forward ? out[blocks[0]] : in[blocks[0]];
+        System.arraycopy(first, 0, merged, 0, words);
+        for (int j = 1; j < blocks.length; j++) {
+            long[] other = forward ? out[blocks[j]] : in[blocks[j]];
+            for (int w = 0; w < words; w++) {
+                merged[w] = intersect ? merged[w] & other[w] : merged[w] | other[w];
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first element of a set at or after an
+     * index, or -1 if there is none
+     */
+    private static int next(long[] set, int from) {
+        int word = from >>> 6;
+        if (word >= set.length) {
+            return -1;
+        }
+        long bits = set[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == set.length) {
+                return -1;
+            }
+            bits = set[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * adds an element to a set
+     *
+     * @param set the set
+     * @param element the element
+     */
+    protected static void add(long[] set, int element) {
+        set[element >>> 6] |= 1L << element;
+    }
+
+    /**
+     * @param set a set
+     * @param element an element
+     * @return whether the set holds the element
+     */
+    public static boolean contains(long[] set, int element) {
+        return (set[element >>> 6] & (1L << element)) != 0;
+    }
+
+    /**
+     * @param block a block of the method
+     * @return whether the analysis computed sets for it, which it does for
+     * the reachable blocks
+     */
+    public boolean isAnalyzed(Block block) {
+        return block.getId() < position.length && position[block.getId()] >= 0;
+    }
+
+    /**
+     * @param block a reachable block of the method
+     * @return the set at the start of the block, which must not be changed
+     */
+    public long[] getIn(Block block) {
+        return in[position[block.getId()]];
+    }
+
+    /**
+     * @param block a reachable block of the method
+     * @return the set at the end of the block, which must not be changed
+     */
+    public long[] getOut(Block block) {
+        return out[position[block.getId()]];
+    }
+
+    /**
+     * @return the number of blocks the solver visited, at least the number
+     * of reachable blocks
+     */
+    public int getVisits() {
+        return visits;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * File: DefiniteAssignment.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The temps definitely assigned at the start and the end of the reachable
+ * blocks of a method: a temp is definitely assigned at a point if every
+ * path from the entry to it assigns it, 'this' and the formals being
+ * assigned on entry.  An operand of a PHI must be definitely assigned at
+ * the end of the predecessor it comes from.  Like in every TempDataflow,
+ * only the temps used before they are assigned in some block are in the
+ * sets; the others are assigned in the block of each of their uses.
+ */
+public final class DefiniteAssignment extends TempDataflow
+{
+    /**
+     * computes the temps definitely assigned in a method
+     *
+     * @param method the method
+     */
+    public DefiniteAssignment(IrMethod method) {
+        super(method, true, true);
+        solve();
+    }
+
+    /**
+     * the assignments of a block; nothing is ever unassigned
+     */
+    protected void initialize(Block block, long[] gen, long[] kill) {
+        for (Instr instr : block.getInstrs()) {
+            if (instr.getDest() != null) {
+                add(gen, instr.getDest());
+            }
+        }
+    }
+
+    /**
+     * 'this' and the formals
+     */
+    protected void boundary(long[] value) {
+        add(value, method.getThis());
+        for (Temp formal : method.getFormals()) {
+            add(value, formal);
+        }
+    }
+
+    /**
+     * @param block a reachable block of the method
+     * @param temp a temp of the method
+     * @return whether the temp is definitely assigned at the start of the
+     * block (always false if it is not global)
+     */
+    public boolean isAssignedIn(Block block, Temp temp) {
+        return isIn(block, temp);
+    }
+
+    /**
+     * @param block a reachable block of the method
+     * @param temp a temp of the method
+     * @return whether the temp is definitely assigned at the end of the
+     * block (always false if it is not global)
+     */
+    public boolean isAssignedOut(Block block, Temp temp) {
+        return isOut(block, temp);
+    }
+
+    /**
+     * finds the instructions of the reachable blocks using a temp that may
+     * not be assigned yet
+     *
+     * @return the instructions, in the order of the blocks of the method
+     */
+    public List<Instr> findUnassignedUses() {
+        List<Instr> uses = new ArrayList<>();
+        for (Block block : method.getBlocks()) {
+            if (!isAnalyzed(block)) {
+                continue;
+            }
+            long[] assigned = Arrays.copyOf(getIn(block), getIn(block).length);
+            for (Instr instr : block.getInstrs()) {
+                boolean phi = instr.getOpcode() == Opcode.PHI;
+                for (int i = 0; i < instr.getNumOperands(); i++) {
+                    Operand operand = instr.getOperand(i);
+                    if (!(operand instanceof Temp) || !isGlobal((Temp) operand)) {
+                        continue;
+                    }
+                    Block source = phi ? instr.getSources().get(i) : null;
+                    if (phi && !isAnalyzed(source)) {
+                        continue;
+                    }
+                    long[] set = phi ? getOut(source) : assigned;
+                    if (!contains(set, (Temp) operand)) {
+                        uses.add(instr);
+                        break;
+                    }
+                }
+                if (instr.getDest() != null) {
+                    add(assigned, instr.getDest());
+                }
+            }
+        }
+        return uses;
+    }
+}
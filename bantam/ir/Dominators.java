@@ -0,0 +1,230 @@
+/*
+ * File: Dominators.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The dominator tree and the dominance frontiers of the reachable blocks of
+ * a method, computed with the iterative algorithm of Cooper, Harvey and
+ * Kennedy ("A Simple, Fast Dominance Algorithm") over the reverse
+ * postorder.  Block a dominates block b if every path from the entry to b
+ * goes through a; the dominance frontier of a holds the blocks b that a
+ * does not strictly dominate but where a dominates a predecessor of b.
+ * The results describe the CFG as it was when they were computed, with up
+ * to date predecessors.
+ */
+public final class Dominators
+{
+    /** the reachable blocks in reverse postorder */
+    private final List<Block> order;
+
+    /** the index of each reachable block in the reverse postorder */
+    private final Map<Block, Integer> index = new HashMap<>();
+
+    /** the immediate dominator of each block by index; the entry's is itself */
+    private final int[] idom;
+
+    /** the children of each block in the dominator tree, by index */
+    private final List<List<Block>> children = new ArrayList<>();
+
+    /** the dominance frontier of each block, by index */
+    private final List<Set<Block>> frontiers = new ArrayList<>();
+
+    /** the preorder and postorder numbers of each block in the dominator tree */
+    private final int[] pre;
+    private final int[] post;
+
+    /**
+     * computes the dominators of a method
+     *
+     * @param method the method, whose predecessors must be up to date
+     */
+    public Dominators(IrMethod method) {
+        order = method.reversePostorder();
+        int size = order.size();
+        for (int i = 0; i < size; i++) {
+            index.put(order.get(i), i);
+            children.add(new ArrayList<>());
+            frontiers.add(new LinkedHashSet<>());
+        }
+        idom = new int[size];
+        computeIdoms();
+        for (int i = 1; i < size; i++) {
+            children.get(idom[i]).add(order.get(i));
+        }
+        pre = new int[size];
+        post = new int[size];
+        number();
+        computeFrontiers();
+    }
+
+    /**
+     * finds the immediate dominators, iterating until they do not change
+     */
+    private void computeIdoms() {
+        Arrays.fill(idom, -1);
+        idom[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < order.size(); i++) {
+                int newIdom = -1;
+                for (Block predecessor : order.get(i).getPredecessors()) {
+                    Integer p = index.get(predecessor);
+                    if (p == null || idom[p] == -1) {
+                        continue;
+                    }
+                    newIdom = newIdom == -1 ? p : intersect(p, newIdom);
+                }
+                if (idom[i] != newIdom) {
+                    idom[i] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the nearest common dominator of two blocks, by index
+     */
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (a > b) {
+                a = idom[a];
+            }
+            while (b > a) {
+                b = idom[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * numbers the blocks in preorder and postorder of the dominator tree,
+     * without recursion since the tree can be deep
+     */
+    private void number() {
+        int[] nextChild = new int[order.size()];
+        int[] stack = new int[order.size()];
+        int top = 0;
+        int preCount = 0;
+        int postCount = 0;
+        stack[0] = 0;
+        pre[0] = preCount++;
+        while (top >= 0) {
+            int block = stack[top];
+            List<Block> kids = children.get(block);
+            if (nextChild[block] < kids.size()) {
+                int child = index.get(kids.get(nextChild[block]++));
+                pre[child] = preCount++;
+                stack[++top] = child;
+            }
+            else {
+                post[block] = postCount++;
+                top--;
+            }
+        }
+    }
+
+    /**
+     * computes the dominance frontiers by walking up from the predecessors
+     * of each join point
+     */
+    private void computeFrontiers() {
+        for (int i = 0; i < order.size(); i++) {
+            Block block = order.get(i);
+            if (block.getPredecessors().size() < 2) {
+                continue;
+            }
+            for (Block predecessor : block.getPredecessors()) {
+                Integer runner = index.get(predecessor);
+                if (runner == null) {
+                    continue;
+                }
+                while (runner != idom[i]) {
+                    frontiers.get(runner).add(block);
+                    runner = idom[runner];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the reachable blocks in reverse postorder
+     */
+    public List<Block> getOrder() {
+        return Collections.unmodifiableList(order);
+    }
+
+    /**
+     * @param block a block
+     * @return whether it is reachable from the entry
+     */
+    public boolean isReachable(Block block) {
+        return index.containsKey(block);
+    }
+
+    /**
+     * @param block a reachable block
+     * @return its immediate dominator, or null for the entry
+     */
+    public Block getIdom(Block block) {
+        int i = index.get(block);
+        return i == 0 ? null : order.get(idom[i]);
+    }
+
+    /**
+     * @param block a reachable block
+     * @return the blocks it immediately dominates
+     */
+    public List<Block> getChildren(Block block) {
+        return Collections.unmodifiableList(children.get(index.get(block)));
+    }
+
+    /**
+     * @param block a reachable block
+     * @return its dominance frontier
+     */
+    public Set<Block> getFrontier(Block block) {
+        return Collections.unmodifiableSet(frontiers.get(index.get(block)));
+    }
+
+    /**
+     * @param a a reachable block
+     * @param b a reachable block
+     * @return whether a dominates b, which holds if they are the same
+     */
+    public boolean dominates(Block a, Block b) {
+        int i = index.get(a);
+        int j = index.get(b);
+        return pre[i] <= pre[j] && post[j] <= post[i];
+    }
+
+    /**
+     * @return the reachable blocks in preorder of the dominator tree, so
+     * that every block comes after its dominators
+     */
+    public List<Block> preorder() {
+        Block[] blocks = new Block[order.size()];
+        for (int i = 0; i < order.size(); i++) {
+            blocks[pre[i]] = order.get(i);
+        }
+        List<Block> result = new ArrayList<>();
+        Collections.addAll(result, blocks);
+        return result;
+    }
+}
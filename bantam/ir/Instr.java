@@ -0,0 +1,391 @@
+/*
+ * File: Instr.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A three-address instruction of the IR: an Opcode, the temp it defines
+ * (if any), its operands and, depending on the opcode, a class name and a
+ * field or method name (GETFIELD, PUTFIELD, NEW, INSTANCEOF, CAST, CALL,
+ * SUPERCALL and DIRECTCALL), the blocks it jumps to (JUMP and BRANCH) or the predecessor
+ * each operand comes from (PHI).  An instruction belongs to at most one
+ * block at a time.
+ */
+public final class Instr
+{
+    /** the operation */
+    private final Opcode opcode;
+
+    /** the temp defined, or null */
+    private Temp dest;
+
+    /** the operands; a call has the receiver first and then the arguments */
+    private final List<Operand> operands;
+
+    /** the class of the field, object, type or method, or null */
+    private final String className;
+
+    /** the name of the field or method, or null */
+    private final String member;
+
+    /** the blocks a JUMP or BRANCH goes to, or null */
+    private final Block[] targets;
+
+    /** the predecessor each operand of a PHI comes from, or null */
+    private final List<Block> sources;
+
+    /** the source line the instruction comes from */
+    private final int lineNum;
+
+    /** the block holding the instruction, or null */
+    private Block block;
+
+    /**
+     * creates an instruction without a class name or targets
+     *
+     * @param opcode the operation
+     * @param dest the temp defined, or null
+     * @param lineNum the source line
+     * @param operands the operands
+     */
+    public Instr(Opcode opcode, Temp dest, int lineNum, Operand... operands) {
+        this(opcode, dest, null, null, lineNum, operands);
+    }
+
+    /**
+     * creates an instruction naming a class and possibly a field or method
+     *
+     * @param opcode the operation
+     * @param dest the temp defined, or null
+     * @param className the class of the field, object, type or method
+     * @param member the name of the field or method, or null
+     * @param lineNum the source line
+     * @param operands the operands
+     */
+    public Instr(Opcode opcode, Temp dest, String className, String member, int lineNum,
+                 Operand... operands) {
+        this(opcode, dest, className, member, null, lineNum, operands);
+    }
+
+    /**
+     * creates an instruction
+     */
+    private Instr(Opcode opcode, Temp dest, String className, String member, Block[] targets,
+                  int lineNum, Operand... operands) {
+        this.opcode = opcode;
+        this.dest = dest;
+        this.operands = new ArrayList<>(Arrays.asList(operands));
+        this.className = className;
+        this.member = member;
+        this.targets = targets;
+        this.sources = opcode == Opcode.PHI ? new ArrayList<>() : null;
+        this.lineNum = lineNum;
+    }
+
+    /**
+     * @param target the block jumped to
+     * @param lineNum the source line
+     * @return a JUMP
+     */
+    public static Instr jump(Block target, int lineNum) {
+        return new Instr(Opcode.JUMP, null, null, null, new Block[]{target}, lineNum);
+    }
+
+    /**
+     * @param condition a boolean
+     * @param ifTrue the block jumped to if it is true
+     * @param ifFalse the block jumped to if it is false
+     * @param lineNum the source line
+     * @return a BRANCH
+     */
+    public static Instr branch(Operand condition, Block ifTrue, Block ifFalse, int lineNum) {
+        return new Instr(Opcode.BRANCH, null, null, null, new Block[]{ifTrue, ifFalse},
+                lineNum, condition);
+    }
+
+    /**
+     * @param dest the temp defined
+     * @param lineNum the source line
+     * @return a PHI without operands; see addIncoming()
+     */
+    public static Instr phi(Temp dest, int lineNum) {
+        return new Instr(Opcode.PHI, dest, lineNum);
+    }
+
+    /**
+     * @return the operation
+     */
+    public Opcode getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * @return the temp defined, or null
+     */
+    public Temp getDest() {
+        return dest;
+    }
+
+    /**
+     * Set the temp defined
+     *
+     * @param dest the temp, or null
+     */
+    public void setDest(Temp dest) {
+        this.dest = dest;
+    }
+
+    /**
+     * @return the operands, which cannot be changed through the list
+     */
+    public List<Operand> getOperands() {
+        return Collections.unmodifiableList(operands);
+    }
+
+    /**
+     * @param index the index of an operand
+     * @return the operand
+     */
+    public Operand getOperand(int index) {
+        return operands.get(index);
+    }
+
+    /**
+     * Set an operand
+     *
+     * @param index the index of the operand
+     * @param operand the new operand
+     */
+    public void setOperand(int index, Operand operand) {
+        operands.set(index, operand);
+    }
+
+    /**
+     * @return the number of operands
+     */
+    public int getNumOperands() {
+        return operands.size();
+    }
+
+    /**
+     * @return the class of the field, object, type or method, or null
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return the name of the field or method, or null
+     */
+    public String getMember() {
+        return member;
+    }
+
+    /**
+     * @return the blocks a JUMP or BRANCH goes to, or an empty list
+     */
+    public List<Block> getTargets() {
+        return targets == null ? Collections.emptyList() : Arrays.asList(targets);
+    }
+
+    /**
+     * Set a block a JUMP or BRANCH goes to
+     *
+     * @param index 0, or 1 for the false target of a BRANCH
+     * @param target the block
+     */
+    public void setTarget(int index, Block target) {
+        targets[index] = target;
+    }
+
+    /**
+     * @return the predecessor each operand of a PHI comes from
+     */
+    public List<Block> getSources() {
+        return Collections.unmodifiableList(sources);
+    }
+
+    /**
+     * adds an operand to a PHI
+     *
+     * @param source the predecessor it comes from
+     * @param operand the operand
+     */
+    public void addIncoming(Block source, Operand operand) {
+        sources.add(source);
+        operands.add(operand);
+    }
+
+    /**
+     * returns the operand of a PHI coming from a predecessor
+     *
+     * @param source the predecessor
+     * @return the operand, or null if there is none
+     */
+    public Operand getIncoming(Block source) {
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i) == source) {
+                return operands.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * removes the operand of a PHI coming from a predecessor, if any
+     *
+     * @param source the predecessor
+     */
+    public void removeIncoming(Block source) {
+        int index = sources.indexOf(source);
+        if (index != -1) {
+            sources.remove(index);
+            operands.remove(index);
+        }
+    }
+
+    /**
+     * replaces the predecessor an operand of a PHI comes from
+     *
+     * @param oldSource the predecessor
+     * @param newSource the block control now comes from instead
+     */
+    public void replaceSource(Block oldSource, Block newSource) {
+        int index = sources.indexOf(oldSource);
+        if (index != -1) {
+            sources.set(index, newSource);
+        }
+    }
+
+    /**
+     * @return the source line the instruction comes from
+     */
+    public int getLineNum() {
+        return lineNum;
+    }
+
+    /**
+     * @return the block holding the instruction, or null
+     */
+    public Block getBlock() {
+        return block;
+    }
+
+    /**
+     * Set the block holding the instruction
+     *
+     * @param block the block, or null
+     */
+    void setBlock(Block block) {
+        this.block = block;
+    }
+
+    /**
+     * @return whether running the instruction can stop the program with an
+     * error: a division by a divisor that is not a nonzero constant, a cast,
+     * a null check, a call or new expression, which run Bantam code, or a
+     * field access on an object that may be null (inlining puts accesses on
+     * other objects than 'this' into methods)
+     */
+    public boolean canFail() {
+        switch (opcode) {
+            case DIV: case MOD:
+                Operand divisor = operands.get(1);
+                return !(divisor instanceof Constant && ((Constant) divisor).getInt() != 0);
+            case GETFIELD: case PUTFIELD:
+                return !isNonNull(operands.get(0));
+            case CAST: case NULLCHECK: case CALL: case SUPERCALL: case DIRECTCALL: case NEW:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return whether an operand of the instruction is known not to be null:
+     * 'this', or a temp defined by a new expression earlier in the block of
+     * the instruction
+     */
+    private boolean isNonNull(Operand operand) {
+        if (operand instanceof Temp && ((Temp) operand).isThis()) {
+            return true;
+        }
+        if (block == null) {
+            return false;
+        }
+        for (Instr instr : block.getInstrs()) {
+            if (instr == this) {
+                return false;
+            }
+            if (instr.dest == operand) {
+                return instr.opcode == Opcode.NEW;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the instruction does anything besides defining its
+     * temp: changing a field, calling a method, creating an object or
+     * transferring control
+     */
+    public boolean hasSideEffects() {
+        switch (opcode) {
+            case PUTFIELD: case CALL: case SUPERCALL: case DIRECTCALL: case NEW:
+                return true;
+            default:
+                return opcode.isTerminator();
+        }
+    }
+
+    /**
+     * @return whether the instruction can be deleted if its temp is not used
+     */
+    public boolean isRemovable() {
+        return !hasSideEffects() && !canFail();
+    }
+
+    /**
+     * @return the instruction as listings show it
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        if (dest != null) {
+            text.append(dest).append(" = ");
+        }
+        text.append(opcode);
+        if (className != null) {
+            text.append(' ').append(className);
+            if (member != null) {
+                text.append('.').append(member);
+            }
+        }
+        for (int i = 0; i < operands.size(); i++) {
+            text.append(i == 0 && className == null ? " " : ", ");
+            if (sources != null) {
+                text.append('[').append(sources.get(i)).append(": ")
+                        .append(operands.get(i)).append(']');
+            }
+            else {
+                text.append(operands.get(i));
+            }
+        }
+        if (targets != null) {
+            for (int i = 0; i < targets.length; i++) {
+                text.append(i == 0 && operands.isEmpty() ? " " : ", ").append(targets[i]);
+            }
+        }
+        return text.toString();
+    }
+}
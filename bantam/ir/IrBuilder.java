@@ -0,0 +1,909 @@
+/*
+ * File: IrBuilder.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import bantam.ast.*;
+import bantam.util.ClassTreeNode;
+import bantam.visitor.Visitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This visitor lowers the methods and field initializers of a type-checked
+ * program to the IR: each method becomes an IrMethod whose control-flow
+ * graph of basic blocks holds three-address instructions.
+ * <p/>
+ * Every local variable and formal gets a temp of its own; the temps of
+ * locals are assigned wherever the variables are, so the IR is not in SSA
+ * form.  Fields are read and written with GETFIELD and PUTFIELD on 'this'.
+ * Conditions of ifs and loops jump straight to their targets, && and ||
+ * evaluate their right operand only if they need it, and a value computed
+ * for a local variable is computed into its temp.  Blocks that control
+ * cannot reach (the code after a return or break) are removed and the
+ * others are put in reverse postorder.
+ * <p/>
+ * A visit of an expression returns the operand holding its value, or null
+ * for a void dispatch; a visit of a statement returns null.
+ */
+public class IrBuilder extends Visitor
+{
+    /** the program being built */
+    private IrProgram program;
+
+    /** the class whose members are being lowered */
+    private ClassTreeNode currentClass;
+
+    /** the method being built */
+    private IrMethod method;
+
+    /** the block instructions are added to */
+    private Block current;
+
+    /** the temps of the local variables in scope, innermost scope first */
+    private final Deque<Map<String, Temp>> scopes = new ArrayDeque<>();
+
+    /** the blocks following the enclosing loops, innermost first */
+    private final Deque<Block> breakTargets = new ArrayDeque<>();
+
+    /**
+     * lowers all the classes of a program, superclasses first
+     *
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     * @return the program in IR
+     */
+    public IrProgram build(ClassTreeNode root) {
+        program = new IrProgram(root);
+        Deque<ClassTreeNode> work = new ArrayDeque<>();
+        work.push(root);
+        while (!work.isEmpty()) {
+            ClassTreeNode node = work.pop();
+            if (!node.isBuiltIn()) {
+                buildClass(node);
+            }
+            List<ClassTreeNode> children = new ArrayList<>();
+            for (Iterator<ClassTreeNode> it = node.getChildrenList(); it.hasNext(); ) {
+                children.add(it.next());
+            }
+            for (int i = children.size() - 1; i >= 0; i--) {
+                work.push(children.get(i));
+            }
+        }
+        return program;
+    }
+
+    /**
+     * lowers the field initializers and the methods of a class
+     *
+     * @param node the class
+     */
+    private void buildClass(ClassTreeNode node) {
+        currentClass = node;
+        method = null;
+        for (ASTNode member : node.getASTNode().getMemberList()) {
+            if (member instanceof Field && ((Field) member).getInit() != null) {
+                Field field = (Field) member;
+                if (method == null) {
+                    begin(new IrMethod(node.getName(), IrMethod.INITIALIZER, "void"));
+                }
+                Operand value = value(field.getInit());
+                emit(new Instr(Opcode.PUTFIELD, null, node.getName(), field.getName(),
+                        field.getLineNum(), method.getThis(), value));
+            }
+        }
+        if (method != null) {
+            end(node.getASTNode().getLineNum());
+        }
+        for (ASTNode member : node.getASTNode().getMemberList()) {
+            if (member instanceof Method) {
+                member.accept(this);
+            }
+        }
+    }
+
+    /**
+     * starts building a method: its entry block is the current block
+     *
+     * @param irMethod the method
+     */
+    private void begin(IrMethod irMethod) {
+        method = irMethod;
+        scopes.clear();
+        scopes.push(new HashMap<>());
+        breakTargets.clear();
+        current = method.newBlock();
+    }
+
+    /**
+     * finishes the method being built: returns at the end of the current
+     * block, removes the blocks that cannot be reached, orders the blocks
+     * and adds the method to the program
+     *
+     * @param lineNum the line of the end of the method
+     */
+    private void end(int lineNum) {
+        if (current.getTerminator() == null) {
+            emit(new Instr(Opcode.RETURN, null, lineNum));
+        }
+        method.removeUnreachableBlocks();
+        method.orderBlocks();
+        program.add(method);
+    }
+
+    /**
+     * Visit a method node
+     *
+     * @param node the method node
+     * @return result of the visit
+     */
+    public Object visit(Method node) {
+        begin(new IrMethod(currentClass.getName(), node.getName(), node.getReturnType()));
+        for (ASTNode formal : node.getFormalList()) {
+            String name = ((Formal) formal).getName();
+            scopes.peek().put(name, method.addFormal(name, ((Formal) formal).getType()));
+        }
+        node.getStmtList().accept(this);
+        end(node.getLineNum());
+        return null;
+    }
+
+    /**
+     * appends an instruction to the current block
+     *
+     * @param instr the instruction
+     */
+    private void emit(Instr instr) {
+        current.add(instr);
+    }
+
+    /**
+     * ends the current block with a jump
+     *
+     * @param target the block jumped to
+     * @param lineNum the source line
+     */
+    private void jump(Block target, int lineNum) {
+        emit(Instr.jump(target, lineNum));
+    }
+
+    /**
+     * @param type the Bantam type of an intermediate value
+     * @return a new temp for it
+     */
+    private Temp temp(String type) {
+        return method.newTemp(null, type);
+    }
+
+    /**
+     * returns the temp of a local variable in scope
+     *
+     * @param name the name of the variable
+     * @return its temp, or null if there is no such local
+     */
+    private Temp lookupLocal(String name) {
+        for (Map<String, Temp> scope : scopes) {
+            Temp local = scope.get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * returns the class whose field a reference ('this', 'super' or none)
+     * names
+     *
+     * @param refName the name of the reference, or null
+     * @return the class the field is looked up in
+     */
+    private String fieldOwner(String refName) {
+        return "super".equals(refName) ?
+                currentClass.getParent().getName() : currentClass.getName();
+    }
+
+    /**
+     * lowers a statement in a scope of its own
+     *
+     * @param stmt the statement
+     */
+    private void scoped(Stmt stmt) {
+        scopes.push(new HashMap<>());
+        stmt.accept(this);
+        scopes.pop();
+    }
+
+    /**
+     * lowers an expression
+     *
+     * @param expr the expression
+     * @return the operand holding its value, or null for a void dispatch
+     */
+    private Operand value(Expr expr) {
+        return (Operand) expr.accept(this);
+    }
+
+    /**
+     * lowers expressions evaluated from left to right.  An operand that is
+     * the temp of a local is copied if a later expression may assign a
+     * local, which could be that one.
+     *
+     * @param exprs the expressions
+     * @return the operands holding their values
+     */
+    private List<Operand> values(List<Expr> exprs) {
+        List<Operand> operands = new ArrayList<>();
+        for (int i = 0; i < exprs.size(); i++) {
+            Expr expr = exprs.get(i);
+            Operand operand = value(expr);
+            if (operand instanceof Temp && ((Temp) operand).getName() != null
+                    && assignsVariable(exprs.subList(i + 1, exprs.size()))) {
+                Temp copy = temp(operand.getType());
+                emit(new Instr(Opcode.MOVE, copy, expr.getLineNum(), operand));
+                operand = copy;
+            }
+            operands.add(operand);
+        }
+        return operands;
+    }
+
+    /**
+     * @param exprs some expressions
+     * @return whether any of them contains an assignment, increment or
+     * decrement
+     */
+    private static boolean assignsVariable(List<Expr> exprs) {
+        boolean[] found = new boolean[1];
+        Visitor finder = new Visitor() {
+            public Object visit(AssignExpr node) {
+                found[0] = true;
+                return null;
+            }
+
+            public Object visit(UnaryIncrExpr node) {
+                found[0] = true;
+                return null;
+            }
+
+            public Object visit(UnaryDecrExpr node) {
+                found[0] = true;
+                return null;
+            }
+        };
+        for (Expr expr : exprs) {
+            expr.accept(finder);
+        }
+        return found[0];
+    }
+
+    /**
+     * stores a value in the temp of a local variable: the instruction that
+     * has just computed the value into an intermediate temp computes it into
+     * the variable instead, or else the value is moved
+     *
+     * @param local the temp of the variable
+     * @param value the value
+     * @param lineNum the source line
+     */
+    private void assignLocal(Temp local, Operand value, int lineNum) {
+        List<Instr> instrs = current.getInstrs();
+        if (value instanceof Temp && ((Temp) value).getName() == null && !instrs.isEmpty()) {
+            Instr last = instrs.get(instrs.size() - 1);
+            if (last.getDest() == value) {
+                last.setDest(local);
+                return;
+            }
+        }
+        emit(new Instr(Opcode.MOVE, local, lineNum, value));
+    }
+
+    /**
+     * lowers an expression whose value is not used
+     *
+     * @param expr the expression
+     */
+    private void effect(Expr expr) {
+        if (expr instanceof UnaryIncrExpr || expr instanceof UnaryDecrExpr) {
+            increment((UnaryExpr) expr, true);
+        }
+        else {
+            value(expr);
+        }
+    }
+
+    /**
+     * lowers a condition to jumps: the right operand of && and || is only
+     * evaluated if the left one does not decide
+     *
+     * @param expr the boolean expression
+     * @param ifTrue the block control goes to if it is true
+     * @param ifFalse the block control goes to if it is false
+     */
+    private void branch(Expr expr, Block ifTrue, Block ifFalse) {
+        if (expr instanceof BinaryLogicAndExpr) {
+            Block right = method.newBlock();
+            branch(((BinaryExpr) expr).getLeftExpr(), right, ifFalse);
+            current = right;
+            branch(((BinaryExpr) expr).getRightExpr(), ifTrue, ifFalse);
+        }
+        else if (expr instanceof BinaryLogicOrExpr) {
+            Block right = method.newBlock();
+            branch(((BinaryExpr) expr).getLeftExpr(), ifTrue, right);
+            current = right;
+            branch(((BinaryExpr) expr).getRightExpr(), ifTrue, ifFalse);
+        }
+        else if (expr instanceof UnaryNotExpr) {
+            branch(((UnaryNotExpr) expr).getExpr(), ifFalse, ifTrue);
+        }
+        else if (expr instanceof ConstBooleanExpr) {
+            boolean value = ((ConstBooleanExpr) expr).getConstant().equals("true");
+            jump(value ? ifTrue : ifFalse, expr.getLineNum());
+        }
+        else {
+            emit(Instr.branch(value(expr), ifTrue, ifFalse, expr.getLineNum()));
+        }
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        // the initializer cannot see the variable it initializes
+        Operand value = value(node.getInit());
+        Temp local = method.newTemp(node.getName(), node.getType());
+        assignLocal(local, value, node.getLineNum());
+        scopes.peek().put(node.getName(), local);
+        return null;
+    }
+
+    /**
+     * Visit an expression statement node
+     *
+     * @param node the expression statement node
+     * @return result of the visit
+     */
+    public Object visit(ExprStmt node) {
+        effect(node.getExpr());
+        return null;
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return result of the visit
+     */
+    public Object visit(IfStmt node) {
+        Block thenBlock = method.newBlock();
+        Block elseBlock = node.getElseStmt() == null ? null : method.newBlock();
+        Block join = method.newBlock();
+        branch(node.getPredExpr(), thenBlock, elseBlock == null ? join : elseBlock);
+        current = thenBlock;
+        scoped(node.getThenStmt());
+        jump(join, node.getLineNum());
+        if (elseBlock != null) {
+            current = elseBlock;
+            scoped(node.getElseStmt());
+            jump(join, node.getLineNum());
+        }
+        current = join;
+        return null;
+    }
+
+    /**
+     * Visit a while statement node
+     *
+     * @param node the while statement node
+     * @return result of the visit
+     */
+    public Object visit(WhileStmt node) {
+        Block head = method.newBlock();
+        Block body = method.newBlock();
+        Block exit = method.newBlock();
+        jump(head, node.getLineNum());
+        current = head;
+        branch(node.getPredExpr(), body, exit);
+        current = body;
+        breakTargets.push(exit);
+        scoped(node.getBodyStmt());
+        breakTargets.pop();
+        jump(head, node.getLineNum());
+        current = exit;
+        return null;
+    }
+
+    /**
+     * Visit a for statement node
+     *
+     * @param node the for statement node
+     * @return result of the visit
+     */
+    public Object visit(ForStmt node) {
+        if (node.getInitExpr() != null) {
+            effect(node.getInitExpr());
+        }
+        Block head = method.newBlock();
+        Block body = method.newBlock();
+        Block update = node.getUpdateExpr() == null ? head : method.newBlock();
+        Block exit = method.newBlock();
+        jump(head, node.getLineNum());
+        current = head;
+        if (node.getPredExpr() != null) {
+            branch(node.getPredExpr(), body, exit);
+        }
+        else {
+            jump(body, node.getLineNum());
+        }
+        current = body;
+        breakTargets.push(exit);
+        scoped(node.getBodyStmt());
+        breakTargets.pop();
+        jump(update, node.getLineNum());
+        if (update != head) {
+            current = update;
+            effect(node.getUpdateExpr());
+            jump(head, node.getLineNum());
+        }
+        current = exit;
+        return null;
+    }
+
+    /**
+     * Visit a break statement node: the code after it goes to a block
+     * that cannot be reached
+     *
+     * @param node the break statement node
+     * @return result of the visit
+     */
+    public Object visit(BreakStmt node) {
+        jump(breakTargets.peek(), node.getLineNum());
+        current = method.newBlock();
+        return null;
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return result of the visit
+     */
+    public Object visit(BlockStmt node) {
+        scopes.push(new HashMap<>());
+        node.getStmtList().accept(this);
+        scopes.pop();
+        return null;
+    }
+
+    /**
+     * Visit a return statement node: the code after it goes to a block
+     * that cannot be reached
+     *
+     * @param node the return statement node
+     * @return result of the visit
+     */
+    public Object visit(ReturnStmt node) {
+        if (node.getExpr() == null) {
+            emit(new Instr(Opcode.RETURN, null, node.getLineNum()));
+        }
+        else {
+            emit(new Instr(Opcode.RETURN, null, node.getLineNum(), value(node.getExpr())));
+        }
+        current = method.newBlock();
+        return null;
+    }
+
+    /**
+     * Visit a dispatch expression node
+     *
+     * @param node the dispatch expression node
+     * @return the temp holding the result, or null for a void method
+     */
+    public Object visit(DispatchExpr node) {
+        Expr ref = node.getRefExpr();
+        boolean onSuper = ref instanceof VarExpr && ((VarExpr) ref).getRef() == null
+                && ((VarExpr) ref).getName().equals("super");
+        List<Expr> exprs = new ArrayList<>();
+        if (ref != null && !onSuper) {
+            exprs.add(ref);
+        }
+        for (ASTNode actual : node.getActualList()) {
+            exprs.add((Expr) actual);
+        }
+        List<Operand> operands = values(exprs);
+        String className;
+        if (ref == null || onSuper) {
+            operands.add(0, method.getThis());
+            className = onSuper ? currentClass.getParent().getName() : currentClass.getName();
+        }
+        else {
+            className = ref.getExprType();
+        }
+        Temp result = node.getExprType().equals("void") ? null : temp(node.getExprType());
+        emit(new Instr(onSuper ? Opcode.SUPERCALL : Opcode.CALL, result, className,
+                node.getMethodName(), node.getLineNum(), operands.toArray(new Operand[0])));
+        return result;
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return the temp holding the object
+     */
+    public Object visit(NewExpr node) {
+        Temp result = temp(node.getType());
+        emit(new Instr(Opcode.NEW, result, node.getType(), null, node.getLineNum()));
+        return result;
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return the temp holding the result
+     */
+    public Object visit(InstanceofExpr node) {
+        Operand value = value(node.getExpr());
+        Temp result = temp("boolean");
+        emit(new Instr(Opcode.INSTANCEOF, result, node.getType(), null, node.getLineNum(),
+                value));
+        return result;
+    }
+
+    /**
+     * Visit a cast expression node: an upcast needs no check
+     *
+     * @param node the cast expression node
+     * @return the operand holding the value
+     */
+    public Object visit(CastExpr node) {
+        Operand value = value(node.getExpr());
+        if (node.getUpCast()) {
+            return value;
+        }
+        Temp result = temp(node.getType());
+        emit(new Instr(Opcode.CAST, result, node.getType(), null, node.getLineNum(), value));
+        return result;
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return the operand holding the value assigned
+     */
+    public Object visit(AssignExpr node) {
+        Operand value = value(node.getExpr());
+        Temp local = node.getRefName() == null ? lookupLocal(node.getName()) : null;
+        if (local != null) {
+            assignLocal(local, value, node.getLineNum());
+            return local;
+        }
+        emit(new Instr(Opcode.PUTFIELD, null, fieldOwner(node.getRefName()), node.getName(),
+                node.getLineNum(), method.getThis(), value));
+        return value;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return the operand holding the value of the variable
+     */
+    public Object visit(VarExpr node) {
+        String name = node.getName();
+        if (node.getRef() == null) {
+            if (name.equals("null")) {
+                return Constant.NULL;
+            }
+            if (name.equals("this") || name.equals("super")) {
+                return method.getThis();
+            }
+            Temp local = lookupLocal(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        String refName = node.getRef() == null ? null : ((VarExpr) node.getRef()).getName();
+        Temp result = temp(node.getExprType());
+        emit(new Instr(Opcode.GETFIELD, result, fieldOwner(refName), name, node.getLineNum(),
+                method.getThis()));
+        return result;
+    }
+
+    /**
+     * lowers a binary operator whose operands are both evaluated
+     *
+     * @param node the expression
+     * @param opcode the operation
+     * @return the temp holding the result
+     */
+    private Operand binary(BinaryExpr node, Opcode opcode) {
+        List<Expr> exprs = new ArrayList<>();
+        exprs.add(node.getLeftExpr());
+        exprs.add(node.getRightExpr());
+        List<Operand> operands = values(exprs);
+        Temp result = temp(node.getExprType());
+        emit(new Instr(opcode, result, node.getLineNum(), operands.get(0), operands.get(1)));
+        return result;
+    }
+
+    /**
+     * lowers && or || whose value is used: the result is set in a block
+     * of its own for each outcome
+     *
+     * @param node the expression
+     * @return the temp holding the result
+     */
+    private Operand logic(BinaryExpr node) {
+        Temp result = temp("boolean");
+        Block ifTrue = method.newBlock();
+        Block ifFalse = method.newBlock();
+        Block join = method.newBlock();
+        branch(node, ifTrue, ifFalse);
+        current = ifTrue;
+        emit(new Instr(Opcode.MOVE, result, node.getLineNum(), Constant.TRUE));
+        jump(join, node.getLineNum());
+        current = ifFalse;
+        emit(new Instr(Opcode.MOVE, result, node.getLineNum(), Constant.FALSE));
+        jump(join, node.getLineNum());
+        current = join;
+        return result;
+    }
+
+    /**
+     * Visit a binary comparison equals expression node
+     *
+     * @param node the binary comparison equals expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryCompEqExpr node) {
+        return binary(node, Opcode.EQ);
+    }
+
+    /**
+     * Visit a binary comparison not equals expression node
+     *
+     * @param node the binary comparison not equals expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryCompNeExpr node) {
+        return binary(node, Opcode.NE);
+    }
+
+    /**
+     * Visit a binary comparison less than expression node
+     *
+     * @param node the binary comparison less than expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryCompLtExpr node) {
+        return binary(node, Opcode.LT);
+    }
+
+    /**
+     * Visit a binary comparison less than or equal to expression node
+     *
+     * @param node the binary comparison less than or equal to expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryCompLeqExpr node) {
+        return binary(node, Opcode.LE);
+    }
+
+    /**
+     * Visit a binary comparison greater than expression node
+     *
+     * @param node the binary comparison greater than expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryCompGtExpr node) {
+        return binary(node, Opcode.GT);
+    }
+
+    /**
+     * Visit a binary comparison greater than or equal to expression node
+     *
+     * @param node the binary comparison greater than or equal to expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryCompGeqExpr node) {
+        return binary(node, Opcode.GE);
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        return binary(node, Opcode.ADD);
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        return binary(node, Opcode.SUB);
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        return binary(node, Opcode.MUL);
+    }
+
+    /**
+     * Visit a binary arithmetic divide expression node
+     *
+     * @param node the binary arithmetic divide expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryArithDivideExpr node) {
+        return binary(node, Opcode.DIV);
+    }
+
+    /**
+     * Visit a binary arithmetic modulus expression node
+     *
+     * @param node the binary arithmetic modulus expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryArithModulusExpr node) {
+        return binary(node, Opcode.MOD);
+    }
+
+    /**
+     * Visit a binary logical AND expression node
+     *
+     * @param node the binary logical AND expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryLogicAndExpr node) {
+        return logic(node);
+    }
+
+    /**
+     * Visit a binary logical OR expression node
+     *
+     * @param node the binary logical OR expression node
+     * @return the temp holding the result
+     */
+    public Object visit(BinaryLogicOrExpr node) {
+        return logic(node);
+    }
+
+    /**
+     * Visit a unary negation expression node
+     *
+     * @param node the unary negation expression node
+     * @return the temp holding the result
+     */
+    public Object visit(UnaryNegExpr node) {
+        Operand operand = value(node.getExpr());
+        Temp result = temp("int");
+        emit(new Instr(Opcode.NEG, result, node.getLineNum(), operand));
+        return result;
+    }
+
+    /**
+     * Visit a unary NOT expression node
+     *
+     * @param node the unary NOT expression node
+     * @return the temp holding the result
+     */
+    public Object visit(UnaryNotExpr node) {
+        Operand operand = value(node.getExpr());
+        Temp result = temp("boolean");
+        emit(new Instr(Opcode.NOT, result, node.getLineNum(), operand));
+        return result;
+    }
+
+    /**
+     * lowers an increment or decrement of a local or field
+     *
+     * @param node the UnaryIncrExpr or UnaryDecrExpr
+     * @param discarded whether its value is not used
+     * @return the operand holding its value
+     */
+    private Operand increment(UnaryExpr node, boolean discarded) {
+        VarExpr variable = (VarExpr) node.getExpr();
+        Opcode opcode = node instanceof UnaryIncrExpr ? Opcode.ADD : Opcode.SUB;
+        boolean postfix = node instanceof UnaryIncrExpr ?
+                ((UnaryIncrExpr) node).isPostfix() : ((UnaryDecrExpr) node).isPostfix();
+        int line = node.getLineNum();
+        Temp local = variable.getRef() == null ? lookupLocal(variable.getName()) : null;
+        if (local != null) {
+            Operand old = local;
+            if (postfix && !discarded) {
+                old = temp("int");
+                emit(new Instr(Opcode.MOVE, (Temp) old, line, local));
+            }
+            emit(new Instr(opcode, local, line, local, Constant.ofInt(1)));
+            return postfix ? old : local;
+        }
+        String refName = variable.getRef() == null ? null
+                : ((VarExpr) variable.getRef()).getName();
+        String owner = fieldOwner(refName);
+        Temp old = temp("int");
+        emit(new Instr(Opcode.GETFIELD, old, owner, variable.getName(), line, method.getThis()));
+        Temp updated = temp("int");
+        emit(new Instr(opcode, updated, line, old, Constant.ofInt(1)));
+        emit(new Instr(Opcode.PUTFIELD, null, owner, variable.getName(), line,
+                method.getThis(), updated));
+        return postfix ? old : updated;
+    }
+
+    /**
+     * Visit a unary increment expression node
+     *
+     * @param node the unary increment expression node
+     * @return the operand holding its value
+     */
+    public Object visit(UnaryIncrExpr node) {
+        return increment(node, false);
+    }
+
+    /**
+     * Visit a unary decrement expression node
+     *
+     * @param node the unary decrement expression node
+     * @return the operand holding its value
+     */
+    public Object visit(UnaryDecrExpr node) {
+        return increment(node, false);
+    }
+
+    /**
+     * Visit a int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return the constant
+     */
+    public Object visit(ConstIntExpr node) {
+        return Constant.ofInt(node.getIntConstant());
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return the constant
+     */
+    public Object visit(ConstBooleanExpr node) {
+        return Constant.ofBoolean(node.getConstant().equals("true"));
+    }
+
+    /**
+     * Visit a string constant expression node
+     *
+     * @param node the string constant expression node
+     * @return the constant
+     */
+    public Object visit(ConstStringExpr node) {
+        return Constant.ofString(node.getStringConstant());
+    }
+}
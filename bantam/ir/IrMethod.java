@@ -0,0 +1,349 @@
+/*
+ * File: IrMethod.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A method lowered to the IR: the control-flow graph of its basic blocks,
+ * the first of which is the entry, and the temps holding 'this' and its
+ * formals when it is called.  The field initializers of a class are lowered
+ * to a void method named INITIALIZER with no formals.
+ */
+public final class IrMethod
+{
+    /** the name of the method running the field initializers of a class */
+    public static final String INITIALIZER = "<init>";
+
+    /** the class declaring the method */
+    private final String className;
+
+    /** the name of the method */
+    private final String name;
+
+    /** the Bantam type of the result, or "void" */
+    private final String returnType;
+
+    /** the temp holding 'this' */
+    private final Temp thisTemp;
+
+    /** the temps holding the formals */
+    private final List<Temp> formals = new ArrayList<>();
+
+    /** the blocks, the entry first */
+    private final List<Block> blocks = new ArrayList<>();
+
+    /** the number of temps and blocks created so far */
+    private int numTemps;
+    private int numBlocks;
+
+    /** whether the method is in SSA form */
+    private boolean ssa;
+
+    /**
+     * creates a method without formals or blocks
+     *
+     * @param className the class declaring the method
+     * @param name the name of the method
+     * @param returnType the Bantam type of the result, or "void"
+     */
+    public IrMethod(String className, String name, String returnType) {
+        this.className = className;
+        this.name = name;
+        this.returnType = returnType;
+        this.thisTemp = newTemp("this", className);
+    }
+
+    /**
+     * @return the class declaring the method
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return the name of the method
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the Bantam type of the result, or "void"
+     */
+    public String getReturnType() {
+        return returnType;
+    }
+
+    /**
+     * @return whether the method runs the field initializers of its class
+     */
+    public boolean isInitializer() {
+        return name.equals(INITIALIZER);
+    }
+
+    /**
+     * @return the temp holding 'this'
+     */
+    public Temp getThis() {
+        return thisTemp;
+    }
+
+    /**
+     * adds a formal
+     *
+     * @param formalName the name of the formal
+     * @param type its Bantam type
+     * @return the temp holding it
+     */
+    public Temp addFormal(String formalName, String type) {
+        Temp formal = newTemp(formalName, type);
+        formals.add(formal);
+        return formal;
+    }
+
+    /**
+     * @return the temps holding the formals
+     */
+    public List<Temp> getFormals() {
+        return Collections.unmodifiableList(formals);
+    }
+
+    /**
+     * creates a temp
+     *
+     * @param tempName the name of the variable it holds, or null
+     * @param type the Bantam type of its value
+     * @return the temp
+     */
+    public Temp newTemp(String tempName, String type) {
+        return new Temp(numTemps++, tempName, type);
+    }
+
+    /**
+     * @return the number of temps created so far, which is more than the
+     * number of every temp
+     */
+    public int getNumTemps() {
+        return numTemps;
+    }
+
+    /**
+     * creates an empty block at the end of the method
+     *
+     * @return the block
+     */
+    public Block newBlock() {
+        Block block = new Block(numBlocks++);
+        blocks.add(block);
+        return block;
+    }
+
+    /**
+     * @return the number of blocks created so far, which is more than the
+     * number of every block
+     */
+    public int getNumBlockIds() {
+        return numBlocks;
+    }
+
+    /**
+     * @return the entry block
+     */
+    public Block getEntry() {
+        return blocks.get(0);
+    }
+
+    /**
+     * @return the blocks, the entry first; they cannot be changed through
+     * the list
+     */
+    public List<Block> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    /**
+     * @return the number of instructions of all the blocks
+     */
+    public int getNumInstrs() {
+        int count = 0;
+        for (Block block : blocks) {
+            count += block.getInstrs().size();
+        }
+        return count;
+    }
+
+    /**
+     * @return whether the method is in SSA form: every temp is defined
+     * once, by an instruction dominating its uses, or is 'this' or a
+     * formal and never assigned
+     */
+    public boolean isSsa() {
+        return ssa;
+    }
+
+    /**
+     * Set whether the method is in SSA form
+     *
+     * @param ssa true once it is
+     */
+    public void setSsa(boolean ssa) {
+        this.ssa = ssa;
+    }
+
+    /**
+     * replaces the uses of temps by other operands in all the instructions;
+     * a replacement that is itself replaced is followed to the end
+     *
+     * @param replacements the operand replacing each temp
+     */
+    public void replaceUses(Map<Temp, Operand> replacements) {
+        if (replacements.isEmpty()) {
+            return;
+        }
+        for (Block block : blocks) {
+            for (Instr instr : block.getInstrs()) {
+                for (int i = 0; i < instr.getNumOperands(); i++) {
+                    Operand operand = instr.getOperand(i);
+                    Operand replacement = operand;
+                    while (replacements.containsKey(replacement)) {
+                        replacement = replacements.get(replacement);
+                    }
+                    if (replacement != operand) {
+                        instr.setOperand(i, replacement);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * records the predecessors of every block from the terminators
+     */
+    public void computePredecessors() {
+        for (Block block : blocks) {
+            block.clearPredecessors();
+        }
+        for (Block block : blocks) {
+            for (Block successor : block.getSuccessors()) {
+                successor.addPredecessor(block);
+            }
+        }
+    }
+
+    /**
+     * removes the blocks that control cannot reach from the entry, and the
+     * operands of PHIs coming from them, and recomputes the predecessors
+     *
+     * @return the number of blocks removed
+     */
+    public int removeUnreachableBlocks() {
+        Set<Block> reached = new HashSet<>();
+        Deque<Block> work = new ArrayDeque<>();
+        reached.add(getEntry());
+        work.push(getEntry());
+        while (!work.isEmpty()) {
+            for (Block successor : work.pop().getSuccessors()) {
+                if (reached.add(successor)) {
+                    work.push(successor);
+                }
+            }
+        }
+        int before = blocks.size();
+        List<Block> removed = new ArrayList<>();
+        for (Block block : blocks) {
+            if (!reached.contains(block)) {
+                removed.add(block);
+            }
+        }
+        blocks.removeAll(removed);
+        for (Block block : blocks) {
+            for (Instr phi : block.getPhis()) {
+                for (Block source : removed) {
+                    phi.removeIncoming(source);
+                }
+            }
+        }
+        computePredecessors();
+        return before - blocks.size();
+    }
+
+    /**
+     * @return the blocks reachable from the entry in reverse postorder of a
+     * depth-first search, so that every block but the target of a back
+     * edge comes after all its predecessors
+     */
+    public List<Block> reversePostorder() {
+        List<Block> postorder = new ArrayList<>();
+        Set<Block> visited = new HashSet<>();
+        Deque<Block> path = new ArrayDeque<>();
+        Deque<Integer> nextSuccessor = new ArrayDeque<>();
+        visited.add(getEntry());
+        path.push(getEntry());
+        nextSuccessor.push(0);
+        while (!path.isEmpty()) {
+            Block block = path.peek();
+            int index = nextSuccessor.pop();
+            List<Block> successors = block.getSuccessors();
+            if (index < successors.size()) {
+                nextSuccessor.push(index + 1);
+                Block successor = successors.get(index);
+                if (visited.add(successor)) {
+                    path.push(successor);
+                    nextSuccessor.push(0);
+                }
+            }
+            else {
+                postorder.add(path.pop());
+            }
+        }
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+    /**
+     * puts the reachable blocks in reverse postorder (see
+     * reversePostorder()), followed by the others
+     */
+    public void orderBlocks() {
+        List<Block> ordered = reversePostorder();
+        Set<Block> reached = new HashSet<>(ordered);
+        for (Block block : blocks) {
+            if (!reached.contains(block)) {
+                ordered.add(block);
+            }
+        }
+        blocks.clear();
+        blocks.addAll(ordered);
+    }
+
+    /**
+     * removes a block that no other block jumps to any more
+     *
+     * @param block the block
+     */
+    public void removeBlock(Block block) {
+        blocks.remove(block);
+    }
+
+    /**
+     * @return the class and the name of the method
+     */
+    @Override
+    public String toString() {
+        return className + "." + name;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * File: IrPass.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+/**
+ * A pass transforming a program in IR in place, such as the construction
+ * of SSA form or an optimization.  Passes that work on one method at a
+ * time extend MethodPass.
+ */
+public interface IrPass
+{
+    /**
+     * @return the short name of the pass, for reports
+     */
+    String getName();
+
+    /**
+     * transforms a program
+     *
+     * @param program the program
+     */
+    void run(IrProgram program);
+}
@@ -0,0 +1,125 @@
+/*
+ * File: IrPrinter.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import bantam.ast.ASTNode;
+import bantam.ast.ClassList;
+import bantam.ast.Program;
+import bantam.opt.ConstantFolder;
+import bantam.opt.ReachabilityAnalyzer;
+import bantam.opt.Optimizer;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Writes readable listings of the IR, one instruction per line, for
+ * debugging the IrBuilder and the passes working on the IR.  A method is
+ * listed as its signature followed by its blocks, each labeled with its
+ * predecessors.
+ */
+public final class IrPrinter
+{
+    private IrPrinter() {
+    }
+
+    /**
+     * returns the listing of a method
+     *
+     * @param method the method
+     * @return the listing
+     */
+    public static String print(IrMethod method) {
+        StringBuilder listing = new StringBuilder();
+        listing.append("method ").append(method).append('(').append(method.getThis());
+        for (Temp formal : method.getFormals()) {
+            listing.append(", ").append(formal).append(' ').append(formal.getType());
+        }
+        listing.append(") : ").append(method.getReturnType()).append('\n');
+        for (Block block : method.getBlocks()) {
+            listing.append(block).append(':');
+            if (!block.getPredecessors().isEmpty()) {
+                listing.append(String.format("%" + Math.max(1, 24 - block.toString().length())
+                        + "s; preds", ""));
+                String separator = " ";
+                for (Block predecessor : block.getPredecessors()) {
+                    listing.append(separator).append(predecessor);
+                    separator = ", ";
+                }
+            }
+            listing.append('\n');
+            for (Instr instr : block.getInstrs()) {
+                listing.append("    ").append(instr).append('\n');
+            }
+        }
+        return listing.toString();
+    }
+
+    /**
+     * returns the listing of all the methods of a program, separated by
+     * blank lines
+     *
+     * @param program the program
+     * @return the listing
+     */
+    public static String print(IrProgram program) {
+        StringBuilder listing = new StringBuilder();
+        for (IrMethod method : program.getMethods()) {
+            if (listing.length() > 0) {
+                listing.append('\n');
+            }
+            listing.append(print(method));
+        }
+        return listing.toString();
+    }
+
+    /**
+     * prints the IR of a Bantam Java program.  You need to provide command
+     * line arguments each of which is the pathname of a Bantam Java file,
+     * with "-O" first to print the IR after the Optimizer.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+        boolean optimize = args.length > 0 && args[0].equals("-O");
+
+        try {
+            for (String inFile : optimize ? Arrays.copyOfRange(args, 1, args.length) : args) {
+                for (ASTNode klass : parser.parse(inFile).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            new ConstantFolder().fold(root);
+            new ReachabilityAnalyzer().strip(root);
+            IrProgram program = new IrBuilder().build(root);
+            IrVerifier.check(program);
+            if (optimize) {
+                Optimizer optimizer = new Optimizer();
+                optimizer.setVerify(true);
+                optimizer.optimize(program);
+            }
+            System.out.print(print(program));
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        }
+    }
+}
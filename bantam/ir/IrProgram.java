@@ -0,0 +1,110 @@
+/*
+ * File: IrProgram.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import bantam.util.ClassTreeNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A program lowered to the IR by the IrBuilder: the IrMethods of its
+ * classes, by class and name, and the class hierarchy they belong to.
+ * The methods of the built-in classes are not lowered.
+ */
+public final class IrProgram
+{
+    /** the root of the class hierarchy */
+    private final ClassTreeNode root;
+
+    /** the methods declared by each class, by name, in declaration order */
+    private final Map<String, Map<String, IrMethod>> methods = new LinkedHashMap<>();
+
+    /**
+     * creates a program without methods
+     *
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     */
+    public IrProgram(ClassTreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the root of the class hierarchy
+     */
+    public ClassTreeNode getRoot() {
+        return root;
+    }
+
+    /**
+     * adds a method, replacing the method of its class with the same name
+     *
+     * @param method the method
+     */
+    public void add(IrMethod method) {
+        methods.computeIfAbsent(method.getClassName(), key -> new LinkedHashMap<>())
+                .put(method.getName(), method);
+    }
+
+    /**
+     * returns a method declared by a class
+     *
+     * @param className the class
+     * @param name the name of the method, or IrMethod.INITIALIZER
+     * @return the method, or null if the class does not declare it
+     */
+    public IrMethod getMethod(String className, String name) {
+        Map<String, IrMethod> declared = methods.get(className);
+        return declared == null ? null : declared.get(name);
+    }
+
+    /**
+     * returns the method a call on an object of a class runs
+     *
+     * @param className the class of the object
+     * @param name the name of the method
+     * @return the method the class declares or inherits, or null if it is
+     * a method of a built-in class
+     */
+    public IrMethod lookupMethod(String className, String name) {
+        for (ClassTreeNode node = root.lookupClass(className);
+             node != null && !node.isBuiltIn(); node = node.getParent()) {
+            IrMethod method = getMethod(node.getName(), name);
+            if (method != null) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return all the methods, class by class
+     */
+    public List<IrMethod> getMethods() {
+        List<IrMethod> all = new ArrayList<>();
+        for (Map<String, IrMethod> declared : methods.values()) {
+            all.addAll(declared.values());
+        }
+        return all;
+    }
+
+    /**
+     * @return the number of instructions of all the methods
+     */
+    public int getNumInstrs() {
+        int count = 0;
+        for (IrMethod method : getMethods()) {
+            count += method.getNumInstrs();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * File: IrVerifier.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks that methods in IR are well formed, so that a bug of the IrBuilder
+ * or of a pass shows up where it is made rather than as a wrong result:
+ * <ul>
+ * <li>every block ends with its only terminator, has its PHIs first and
+ * jumps to blocks of the method, and the entry has no predecessors;</li>
+ * <li>the recorded predecessors are those of the terminators, and the
+ * operands of every PHI come from exactly these predecessors;</li>
+ * <li>every instruction has the operands and result its opcode needs,
+ * operands of int and boolean operations have these types, and RETURNs
+ * return a value exactly when the method is not void;</li>
+ * <li>every temp used is 'this', a formal or defined by an instruction;</li>
+ * <li>out of SSA form, every temp used in a reachable block is definitely
+ * assigned there;</li>
+ * <li>in SSA form, every temp is defined once, 'this' and the formals are
+ * never assigned, and the definition of every temp dominates its uses (the
+ * end of the predecessor it comes from, for an operand of a PHI).</li>
+ * </ul>
+ */
+public final class IrVerifier
+{
+    private IrVerifier() {
+    }
+
+    /**
+     * checks a method
+     *
+     * @param method the method
+     * @return the problems found, none if it is well formed
+     */
+    public static List<String> verify(IrMethod method) {
+        List<String> problems = new ArrayList<>();
+        Set<Block> blocks = new HashSet<>(method.getBlocks());
+        Set<Temp> defined = new HashSet<>(method.getFormals());
+        defined.add(method.getThis());
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr.getDest() != null) {
+                    defined.add(instr.getDest());
+                }
+            }
+        }
+        if (method.getBlocks().isEmpty()) {
+            problems.add(method + ": no blocks");
+            return problems;
+        }
+        if (!method.getEntry().getPredecessors().isEmpty()) {
+            problems.add(method + ": the entry block has predecessors");
+        }
+        for (Block block : method.getBlocks()) {
+            String where = method + ": " + block + ": ";
+            checkBlock(block, blocks, where, problems);
+            checkPredecessors(block, method, where, problems);
+            for (Instr instr : block.getInstrs()) {
+                checkInstr(instr, method, defined, where + instr + ": ", problems);
+            }
+        }
+        if (method.isSsa() && problems.isEmpty()) {
+            checkSsa(method, problems);
+        }
+        else if (problems.isEmpty()) {
+            for (Instr instr : new DefiniteAssignment(method).findUnassignedUses()) {
+                problems.add(method + ": " + instr.getBlock() + ": " + instr
+                        + ": uses a temp that may not be assigned");
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * checks that every temp has one definition, which dominates its uses
+     */
+    private static void checkSsa(IrMethod method, List<String> problems) {
+        Map<Temp, Instr> definitions = new HashMap<>();
+        Set<Temp> entryValues = new HashSet<>(method.getFormals());
+        entryValues.add(method.getThis());
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                Temp dest = instr.getDest();
+                if (dest == null) {
+                    continue;
+                }
+                if (entryValues.contains(dest) || definitions.put(dest, instr) != null) {
+                    problems.add(method + ": " + block + ": " + instr + ": " + dest
+                            + " is defined more than once");
+                }
+            }
+        }
+        Dominators dominators = new Dominators(method);
+        for (Block block : method.getBlocks()) {
+            if (!dominators.isReachable(block)) {
+                problems.add(method + ": " + block + ": unreachable block in SSA form");
+                continue;
+            }
+            List<Instr> instrs = block.getInstrs();
+            for (int i = 0; i < instrs.size(); i++) {
+                Instr instr = instrs.get(i);
+                for (int j = 0; j < instr.getNumOperands(); j++) {
+                    Instr definition = definitions.get(instr.getOperand(j));
+                    if (definition == null || !dominators.isReachable(definition.getBlock())) {
+                        continue;
+                    }
+                    Block defBlock = definition.getBlock();
+                    boolean dominated;
+                    if (instr.getOpcode() == Opcode.PHI) {
+                        dominated = dominators.isReachable(instr.getSources().get(j))
+                                && dominators.dominates(defBlock, instr.getSources().get(j));
+                    }
+                    else if (defBlock == block) {
+                        dominated = instrs.indexOf(definition) < i;
+                    }
+                    else {
+                        dominated = dominators.dominates(defBlock, block);
+                    }
+                    if (!dominated) {
+                        problems.add(method + ": " + block + ": " + instr + ": the definition of "
+                                + instr.getOperand(j) + " does not dominate this use");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * checks the instructions of a block are in order and its targets exist
+     */
+    private static void checkBlock(Block block, Set<Block> blocks, String where,
+                                   List<String> problems) {
+        List<Instr> instrs = block.getInstrs();
+        if (block.getTerminator() == null) {
+            problems.add(where + "does not end with a terminator");
+        }
+        boolean phisDone = false;
+        for (int i = 0; i < instrs.size(); i++) {
+            Instr instr = instrs.get(i);
+            if (instr.getBlock() != block) {
+                problems.add(where + instr + ": is recorded in another block");
+            }
+            if (instr.getOpcode().isTerminator() && i < instrs.size() - 1) {
+                problems.add(where + instr + ": terminator in the middle of the block");
+            }
+            if (instr.getOpcode() != Opcode.PHI) {
+                phisDone = true;
+            }
+            else if (phisDone) {
+                problems.add(where + instr + ": PHI after other instructions");
+            }
+            for (Block target : instr.getTargets()) {
+                if (!blocks.contains(target)) {
+                    problems.add(where + instr + ": jumps to " + target
+                            + ", which is not in the method");
+                }
+            }
+        }
+    }
+
+    /**
+     * checks the recorded predecessors of a block and the sources of its PHIs
+     */
+    private static void checkPredecessors(Block block, IrMethod method, String where,
+                                          List<String> problems) {
+        Set<Block> expected = new HashSet<>();
+        for (Block other : method.getBlocks()) {
+            if (other.getSuccessors().contains(block)) {
+                expected.add(other);
+            }
+        }
+        Set<Block> recorded = new HashSet<>(block.getPredecessors());
+        if (!recorded.equals(expected) || recorded.size() != block.getPredecessors().size()) {
+            problems.add(where + "recorded predecessors " + block.getPredecessors()
+                    + " but the predecessors are " + expected);
+        }
+        for (Instr phi : block.getPhis()) {
+            Set<Block> sources = new HashSet<>(phi.getSources());
+            if (!sources.equals(expected) || sources.size() != phi.getSources().size()) {
+                problems.add(where + phi + ": the operands do not come from the predecessors "
+                        + expected);
+            }
+        }
+    }
+
+    /**
+     * checks the operands and the result of an instruction
+     */
+    private static void checkInstr(Instr instr, IrMethod method, Set<Temp> defined,
+                                   String where, List<String> problems) {
+        int numOperands = instr.getNumOperands();
+        boolean hasResult = instr.getDest() != null;
+        for (Operand operand : instr.getOperands()) {
+            if (operand == null) {
+                problems.add(where + "missing operand");
+                return;
+            }
+            if (operand instanceof Temp && !defined.contains(operand)) {
+                problems.add(where + operand + " is never defined");
+            }
+        }
+        switch (instr.getOpcode()) {
+            case ADD: case SUB: case MUL: case DIV: case MOD:
+            case LT: case LE: case GT: case GE:
+                expect(numOperands == 2 && hasResult, where, problems);
+                expectType(instr, 0, "int", where, problems);
+                expectType(instr, 1, "int", where, problems);
+                break;
+            case NEG:
+                expect(numOperands == 1 && hasResult, where, problems);
+                expectType(instr, 0, "int", where, problems);
+                break;
+            case NOT:
+                expect(numOperands == 1 && hasResult, where, problems);
+                expectType(instr, 0, "boolean", where, problems);
+                break;
+            case EQ: case NE:
+                expect(numOperands == 2 && hasResult, where, problems);
+                break;
+            case MOVE: case GETFIELD:
+                expect(numOperands == 1 && hasResult, where, problems);
+                break;
+            case INSTANCEOF: case CAST:
+                expect(numOperands == 1 && hasResult && instr.getClassName() != null,
+                        where, problems);
+                break;
+            case PUTFIELD:
+                expect(numOperands == 2 && !hasResult && instr.getMember() != null,
+                        where, problems);
+                break;
+            case NEW:
+                expect(numOperands == 0 && hasResult && instr.getClassName() != null,
+                        where, problems);
+                break;
+            case CALL: case SUPERCALL: case DIRECTCALL:
+                expect(numOperands >= 1 && instr.getMember() != null, where, problems);
+                break;
+            case NULLCHECK:
+                expect(numOperands == 1 && !hasResult, where, problems);
+                break;
+            case PHI:
+                expect(hasResult, where, problems);
+                break;
+            case JUMP:
+                expect(numOperands == 0 && !hasResult && instr.getTargets().size() == 1,
+                        where, problems);
+                break;
+            case BRANCH:
+                expect(numOperands == 1 && !hasResult && instr.getTargets().size() == 2,
+                        where, problems);
+                expectType(instr, 0, "boolean", where, problems);
+                break;
+            case RETURN:
+                boolean isVoid = method.getReturnType().equals("void");
+                expect(!hasResult && numOperands == (isVoid ? 0 : 1), where, problems);
+                break;
+        }
+    }
+
+    /**
+     * records a problem with the shape of an instruction if a check fails
+     */
+    private static void expect(boolean check, String where, List<String> problems) {
+        if (!check) {
+            problems.add(where + "wrong operands or result for its opcode");
+        }
+    }
+
+    /**
+     * records a problem if an operand does not have the type an operation needs
+     */
+    private static void expectType(Instr instr, int index, String type, String where,
+                                   List<String> problems) {
+        if (index < instr.getNumOperands()
+                && !type.equals(instr.getOperand(index).getType())) {
+            problems.add(where + "operand " + instr.getOperand(index) + " is not "
+                    + (type.equals("int") ? "an " : "a ") + type);
+        }
+    }
+
+    /**
+     * checks all the methods of a program
+     *
+     * @param program the program
+     * @throws IllegalStateException listing the problems if a method is not
+     * well formed
+     */
+    public static void check(IrProgram program) {
+        List<String> problems = new ArrayList<>();
+        for (IrMethod method : program.getMethods()) {
+            problems.addAll(verify(method));
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("invalid IR:\n" + String.join("\n", problems));
+        }
+    }
+}
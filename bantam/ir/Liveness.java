@@ -0,0 +1,87 @@
+/*
+ * File: Liveness.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+/**
+ * The temps live at the start and the end of the reachable blocks of a
+ * method: a temp is live at a point if some path from there uses it before
+ * assigning it.  The operand of a PHI is used at the end of the
+ * predecessor it comes from, and the temp of a PHI is assigned at the
+ * start of its block, so the analysis works on methods in SSA form as well
+ * as on methods that are not.  Like in every TempDataflow, only the temps
+ * used before they are assigned in some block can be live across blocks,
+ * and only they are in the sets.
+ */
+public final class Liveness extends TempDataflow
+{
+    /**
+     * computes the live temps of a method
+     *
+     * @param method the method
+     */
+    public Liveness(IrMethod method) {
+        super(method, false, false);
+        solve();
+    }
+
+    /**
+     * the uses of a block not preceded by an assignment in it, and its
+     * assignments
+     */
+    protected void initialize(Block block, long[] gen, long[] kill) {
+        for (Instr instr : block.getInstrs()) {
+            if (instr.getOpcode() != Opcode.PHI) {
+                for (int i = 0; i < instr.getNumOperands(); i++) {
+                    Operand operand = instr.getOperand(i);
+                    if (operand instanceof Temp && !contains(kill, (Temp) operand)) {
+                        add(gen, (Temp) operand);
+                    }
+                }
+            }
+            if (instr.getDest() != null) {
+                add(kill, instr.getDest());
+            }
+        }
+    }
+
+    /**
+     * the operands of the PHIs of the successors coming from the block
+     */
+    protected void join(Block block, long[] value) {
+        for (Block successor : block.getSuccessors()) {
+            for (Instr phi : successor.getInstrs()) {
+                if (phi.getOpcode() != Opcode.PHI) {
+                    break;
+                }
+                Operand operand = phi.getIncoming(block);
+                if (operand instanceof Temp) {
+                    add(value, (Temp) operand);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param block a reachable block of the method
+     * @param temp a temp of the method
+     * @return whether the temp is live at the start of the block
+     */
+    public boolean isLiveIn(Block block, Temp temp) {
+        return isIn(block, temp);
+    }
+
+    /**
+     * @param block a reachable block of the method
+     * @param temp a temp of the method
+     * @return whether the temp is live at the end of the block
+     */
+    public boolean isLiveOut(Block block, Temp temp) {
+        return isOut(block, temp);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * File: Loops.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The natural loops of a method: an edge from a block to a block dominating
+ * it is a back edge, and the loop of a header is made of the header and the
+ * blocks that reach the source of one of its back edges without going
+ * through the header.  The loops of the while and for statements of Bantam
+ * are natural, since the IrBuilder lowers them with their condition in the
+ * header.  Loops with different headers are either disjoint or nested.
+ */
+public final class Loops
+{
+    /**
+     * A natural loop
+     */
+    public static final class Loop
+    {
+        /** the block every iteration starts at */
+        private final Block header;
+
+        /** the blocks of the loop, the header first */
+        private final Set<Block> blocks = new LinkedHashSet<>();
+
+        /** the blocks jumping back to the header */
+        private final List<Block> latches = new ArrayList<>();
+
+        /** the innermost loop containing this one, or null */
+        private Loop parent;
+
+        /**
+         * @param header the block every iteration starts at
+         */
+        private Loop(Block header) {
+            this.header = header;
+            blocks.add(header);
+        }
+
+        /**
+         * @return the block every iteration starts at
+         */
+        public Block getHeader() {
+            return header;
+        }
+
+        /**
+         * @return the blocks of the loop, the header first
+         */
+        public Set<Block> getBlocks() {
+            return Collections.unmodifiableSet(blocks);
+        }
+
+        /**
+         * @param block a block
+         * @return whether it is in the loop
+         */
+        public boolean contains(Block block) {
+            return blocks.contains(block);
+        }
+
+        /**
+         * @return the blocks jumping back to the header
+         */
+        public List<Block> getLatches() {
+            return Collections.unmodifiableList(latches);
+        }
+
+        /**
+         * @return the innermost loop containing this one, or null
+         */
+        public Loop getParent() {
+            return parent;
+        }
+
+        /**
+         * @return the only predecessor of the header outside the loop, if it
+         * jumps to nothing but the header, or null
+         */
+        public Block getPreheader() {
+            Block preheader = null;
+            for (Block predecessor : header.getPredecessors()) {
+                if (!contains(predecessor)) {
+                    if (preheader != null) {
+                        return null;
+                    }
+                    preheader = predecessor;
+                }
+            }
+            if (preheader == null || preheader.getSuccessors().size() != 1) {
+                return null;
+            }
+            return preheader;
+        }
+
+        /**
+         * @return the header, which names the loop in listings
+         */
+        @Override
+        public String toString() {
+            return "loop " + header;
+        }
+    }
+
+    /** the loops, the inner ones before the loops containing them */
+    private final List<Loop> loops = new ArrayList<>();
+
+    /**
+     * finds the loops of a method
+     *
+     * @param method the method, whose predecessors must be up to date
+     * @param dominators its dominators
+     */
+    public Loops(IrMethod method, Dominators dominators) {
+        Map<Block, Loop> byHeader = new LinkedHashMap<>();
+        for (Block block : dominators.getOrder()) {
+            for (Block successor : block.getSuccessors()) {
+                if (dominators.dominates(successor, block)) {
+                    Loop loop = byHeader.computeIfAbsent(successor, Loop::new);
+                    loop.latches.add(block);
+                    collect(loop, block);
+                }
+            }
+        }
+        loops.addAll(byHeader.values());
+        loops.sort(Comparator.comparingInt(loop -> loop.blocks.size()));
+        for (int i = 0; i < loops.size(); i++) {
+            Loop inner = loops.get(i);
+            for (int j = i + 1; j < loops.size() && inner.parent == null; j++) {
+                if (loops.get(j).contains(inner.header)) {
+                    inner.parent = loops.get(j);
+                }
+            }
+        }
+    }
+
+    /**
+     * adds to a loop the blocks reaching one of its latches backwards
+     * without going through the header
+     */
+    private static void collect(Loop loop, Block latch) {
+        Deque<Block> work = new ArrayDeque<>();
+        if (loop.blocks.add(latch)) {
+            work.push(latch);
+        }
+        while (!work.isEmpty()) {
+            for (Block predecessor : work.pop().getPredecessors()) {
+                if (loop.blocks.add(predecessor)) {
+                    work.push(predecessor);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the loops, the inner ones before the loops containing them
+     */
+    public List<Loop> getLoops() {
+        return Collections.unmodifiableList(loops);
+    }
+
+    /**
+     * gives every loop of a method a preheader (see Loop.getPreheader()) by
+     * adding a block in front of the header where needed; in SSA form, the
+     * operands of the PHIs of the header coming from outside the loop are
+     * merged by PHIs in the new block
+     *
+     * @param method the method
+     * @return whether any block was added
+     */
+    public static boolean insertPreheaders(IrMethod method) {
+        method.computePredecessors();
+        Loops found = new Loops(method, new Dominators(method));
+        boolean added = false;
+        for (Loop loop : found.loops) {
+            if (loop.getPreheader() != null) {
+                continue;
+            }
+            Block header = loop.header;
+            List<Block> outside = new ArrayList<>();
+            for (Block predecessor : header.getPredecessors()) {
+                if (!loop.contains(predecessor)) {
+                    outside.add(predecessor);
+                }
+            }
+            Block preheader = method.newBlock();
+            int line = header.getInstrs().get(0).getLineNum();
+            for (Instr phi : header.getPhis()) {
+                Operand value = phi.getIncoming(outside.get(0));
+                for (Block source : outside) {
+                    if (!phi.getIncoming(source).equals(value)) {
+                        Instr merge = Instr.phi(method.newTemp(phi.getDest().getName(),
+                                phi.getDest().getType()), line);
+                        for (Block other : outside) {
+                            merge.addIncoming(other, phi.getIncoming(other));
+                        }
+                        preheader.add(merge);
+                        value = merge.getDest();
+                        break;
+                    }
+                }
+                for (Block source : outside) {
+                    phi.removeIncoming(source);
+                }
+                phi.addIncoming(preheader, value);
+            }
+            preheader.add(Instr.jump(header, line));
+            for (Block source : outside) {
+                Instr terminator = source.getTerminator();
+                for (int i = 0; i < terminator.getTargets().size(); i++) {
+                    if (terminator.getTargets().get(i) == header) {
+                        terminator.setTarget(i, preheader);
+                    }
+                }
+            }
+            added = true;
+        }
+        if (added) {
+            method.computePredecessors();
+        }
+        return added;
+    }
+}
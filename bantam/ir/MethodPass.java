@@ -0,0 +1,33 @@
+/*
+ * File: MethodPass.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+/**
+ * A pass that transforms each method of a program on its own.
+ */
+public abstract class MethodPass implements IrPass
+{
+    /**
+     * transforms every method of a program
+     *
+     * @param program the program
+     */
+    public void run(IrProgram program) {
+        for (IrMethod method : program.getMethods()) {
+            run(method);
+        }
+    }
+
+    /**
+     * transforms a method
+     *
+     * @param method the method
+     */
+    public abstract void run(IrMethod method);
+}
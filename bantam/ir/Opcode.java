@@ -0,0 +1,116 @@
+/*
+ * File: Opcode.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+/**
+ * The operations of the three-address instructions of the IR (see Instr).
+ * In the descriptions d is the temp an instruction defines, a and b are its
+ * operands and C is its class name.
+ */
+public enum Opcode
+{
+    /** d = a */
+    MOVE("move"),
+
+    /** d = a + b (likewise SUB, MUL, DIV and MOD; DIV and MOD fail on a zero b) */
+    ADD("add"),
+    SUB("sub"),
+    MUL("mul"),
+    DIV("div"),
+    MOD("mod"),
+    /** d = -a */
+    NEG("neg"),
+    /** d = !a */
+    NOT("not"),
+
+    /** d = a &lt; b (likewise LE, GT and GE, on ints) */
+    LT("lt"),
+    LE("le"),
+    GT("gt"),
+    GE("ge"),
+    /** d = a == b (likewise NE): the same int or boolean, or the same object */
+    EQ("eq"),
+    NE("ne"),
+
+    /** d = the field C.f of the object a */
+    GETFIELD("getfield"),
+    /** the field C.f of the object a = b */
+    PUTFIELD("putfield"),
+    /** d = a new object of class C, whose field initializers have run */
+    NEW("new"),
+    /** d = a is not null and an instance of C */
+    INSTANCEOF("instanceof"),
+    /** d = a, which must be null or an instance of C */
+    CAST("cast"),
+    /** d = a.m(b, ...), m being looked up in the class of a (the static type of a is C) */
+    CALL("call"),
+    /** d = a.m(b, ...), m being the method of class C (a call on super) */
+    SUPERCALL("supercall"),
+    /** d = a.m(b, ...), m being the method of class C, which a must not be null for */
+    DIRECTCALL("directcall"),
+    /** fail as a call would if a is null */
+    NULLCHECK("nullcheck"),
+    /** d = the operand coming from the predecessor control came from (SSA form) */
+    PHI("phi"),
+
+    /** go to the target */
+    JUMP("jump"),
+    /** go to the first target if a is true and to the second one otherwise */
+    BRANCH("branch"),
+    /** return a, or nothing from a void method */
+    RETURN("return");
+
+    /** the name of the operation in listings */
+    private final String text;
+
+    /**
+     * @param text the name of the operation in listings
+     */
+    Opcode(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return whether the instruction ends a block
+     */
+    public boolean isTerminator() {
+        return this == JUMP || this == BRANCH || this == RETURN;
+    }
+
+    /**
+     * @return whether the result depends only on the operands (and the
+     * class name), so that two instructions with the same operands compute
+     * the same value
+     */
+    public boolean isPure() {
+        switch (this) {
+            case MOVE: case ADD: case SUB: case MUL: case DIV: case MOD: case NEG:
+            case NOT: case LT: case LE: case GT: case GE: case EQ: case NE:
+            case INSTANCEOF:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return whether the operation compares two ints or two values
+     */
+    public boolean isComparison() {
+        return this == LT || this == LE || this == GT || this == GE || this == EQ || this == NE;
+    }
+
+    /**
+     * @return the name of the operation in listings
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * File: Operand.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+/**
+ * An operand of an instruction of the IR: a Temp or a Constant.
+ */
+public interface Operand
+{
+    /**
+     * @return the Bantam type of the value ("int", "boolean", a class name,
+     * or "null" for the null constant)
+     */
+    String getType();
+}
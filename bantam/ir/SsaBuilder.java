@@ -0,0 +1,226 @@
+/*
+ * File: SsaBuilder.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Puts methods into SSA form with the algorithm of Cytron et al.: a PHI
+ * for a variable goes at the start of every block of the iterated
+ * dominance frontier of the blocks assigning it where the variable is
+ * live (pruned SSA, with the Liveness of the method), and then a walk of
+ * the dominator tree gives every assignment a fresh temp and every use the
+ * temp of the assignment reaching it.
+ * <p/>
+ * The variables are the temps the IrBuilder assigns more than once, and
+ * 'this' and the formals if they are assigned; the other temps already
+ * have one definition dominating their uses and are left as they are.
+ * 'this' and the formals keep their temp for the value they have on entry.
+ * A variable that can be read before any assignment on some path (which
+ * only happens on paths where the value is not used) reads the default
+ * value of its type there.
+ */
+public class SsaBuilder implements IrPass
+{
+    /**
+     * @return "ssa"
+     */
+    public String getName() {
+        return "ssa";
+    }
+
+    /**
+     * puts every method of a program into SSA form
+     *
+     * @param program the program
+     */
+    public void run(IrProgram program) {
+        for (IrMethod method : program.getMethods()) {
+            if (!method.isSsa()) {
+                build(method);
+            }
+        }
+    }
+
+    /**
+     * puts a method into SSA form
+     *
+     * @param method the method, which is not in SSA form yet
+     */
+    public void build(IrMethod method) {
+        method.removeUnreachableBlocks();
+        Dominators dominators = new Dominators(method);
+
+        Set<Temp> entryValues = new HashSet<>(method.getFormals());
+        entryValues.add(method.getThis());
+        Map<Temp, Set<Block>> assigningBlocks = new LinkedHashMap<>();
+        Map<Temp, Integer> numAssignments = new HashMap<>();
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                Temp dest = instr.getDest();
+                if (dest != null) {
+                    assigningBlocks.computeIfAbsent(dest, temp -> new HashSet<>()).add(block);
+                    numAssignments.merge(dest, 1, Integer::sum);
+                }
+            }
+        }
+        Set<Temp> variables = new HashSet<>();
+        for (Temp temp : assigningBlocks.keySet()) {
+            if (numAssignments.get(temp) > 1 || entryValues.contains(temp)) {
+                variables.add(temp);
+            }
+        }
+
+        Map<Instr, Temp> phiVariables = placePhis(method, dominators, new Liveness(method),
+                variables, assigningBlocks);
+        rename(method, dominators, variables, entryValues, phiVariables);
+        method.setSsa(true);
+    }
+
+    /**
+     * puts a PHI for each variable at the start of the blocks of the iterated
+     * dominance frontier of its assignments where it is live
+     *
+     * @return the variable of each PHI placed
+     */
+    private Map<Instr, Temp> placePhis(IrMethod method, Dominators dominators,
+                                       Liveness liveness, Set<Temp> variables,
+                                       Map<Temp, Set<Block>> assigningBlocks) {
+        Map<Instr, Temp> phiVariables = new HashMap<>();
+        for (Map.Entry<Temp, Set<Block>> entry : assigningBlocks.entrySet()) {
+            Temp variable = entry.getKey();
+            if (!variables.contains(variable)) {
+                continue;
+            }
+            Set<Block> hasPhi = new HashSet<>();
+            Deque<Block> work = new ArrayDeque<>(entry.getValue());
+            Set<Block> queued = new HashSet<>(entry.getValue());
+            while (!work.isEmpty()) {
+                for (Block frontier : dominators.getFrontier(work.pop())) {
+                    if (liveness.isLiveIn(frontier, variable) && hasPhi.add(frontier)) {
+                        Instr phi = Instr.phi(variable, frontier.getInstrs().get(0).getLineNum());
+                        frontier.add(0, phi);
+                        phiVariables.put(phi, variable);
+                        if (queued.add(frontier)) {
+                            work.push(frontier);
+                        }
+                    }
+                }
+            }
+        }
+        return phiVariables;
+    }
+
+    /**
+     * renames the variables, walking the dominator tree without recursion:
+     * each assignment gets a fresh temp, which is pushed on the stack of
+     * its variable until the walk leaves the subtree of the block
+     */
+    private void rename(IrMethod method, Dominators dominators, Set<Temp> variables,
+                        Set<Temp> entryValues, Map<Instr, Temp> phiVariables) {
+        Map<Temp, Deque<Temp>> stacks = new HashMap<>();
+        for (Temp variable : variables) {
+            Deque<Temp> stack = new ArrayDeque<>();
+            if (entryValues.contains(variable)) {
+                stack.push(variable);
+            }
+            stacks.put(variable, stack);
+        }
+
+        Deque<Block> blocks = new ArrayDeque<>();
+        Deque<List<Temp>> pushed = new ArrayDeque<>();
+        Deque<Integer> nextChild = new ArrayDeque<>();
+        blocks.push(method.getEntry());
+        pushed.push(renameBlock(method, method.getEntry(), variables, stacks, phiVariables));
+        nextChild.push(0);
+        while (!blocks.isEmpty()) {
+            Block block = blocks.peek();
+            int index = nextChild.pop();
+            List<Block> children = dominators.getChildren(block);
+            if (index < children.size()) {
+                nextChild.push(index + 1);
+                Block child = children.get(index);
+                blocks.push(child);
+                pushed.push(renameBlock(method, child, variables, stacks, phiVariables));
+                nextChild.push(0);
+            }
+            else {
+                blocks.pop();
+                for (Temp variable : pushed.pop()) {
+                    stacks.get(variable).pop();
+                }
+            }
+        }
+    }
+
+    /**
+     * renames the uses and assignments of the variables in a block and the
+     * operands of the PHIs of its successors coming from it
+     *
+     * @return the variables whose stacks got a temp pushed, once per push
+     */
+    private List<Temp> renameBlock(IrMethod method, Block block, Set<Temp> variables,
+                                   Map<Temp, Deque<Temp>> stacks,
+                                   Map<Instr, Temp> phiVariables) {
+        List<Temp> pushed = new ArrayList<>();
+        for (Instr instr : block.getInstrs()) {
+            if (instr.getOpcode() != Opcode.PHI) {
+                for (int i = 0; i < instr.getNumOperands(); i++) {
+                    Operand operand = instr.getOperand(i);
+                    if (variables.contains(operand)) {
+                        instr.setOperand(i, current(stacks, (Temp) operand));
+                    }
+                }
+            }
+            Temp dest = instr.getDest();
+            if (dest != null && variables.contains(dest)) {
+                Temp renamed = method.newTemp(dest.getName(), dest.getType());
+                instr.setDest(renamed);
+                stacks.get(dest).push(renamed);
+                pushed.add(dest);
+            }
+        }
+        for (Block successor : block.getSuccessors()) {
+            for (Instr phi : successor.getPhis()) {
+                Temp variable = phiVariables.get(phi);
+                if (variable != null) {
+                    phi.addIncoming(block, current(stacks, variable));
+                }
+            }
+        }
+        return pushed;
+    }
+
+    /**
+     * @return the temp of the assignment of a variable reaching the current
+     * point of the walk, or the default value of its type if there is none
+     */
+    private static Operand current(Map<Temp, Deque<Temp>> stacks, Temp variable) {
+        Temp temp = stacks.get(variable).peek();
+        if (temp != null) {
+            return temp;
+        }
+        switch (variable.getType()) {
+            case "int":
+                return Constant.ofInt(0);
+            case "boolean":
+                return Constant.FALSE;
+            default:
+                return Constant.NULL;
+        }
+    }
+}
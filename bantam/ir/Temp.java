@@ -0,0 +1,78 @@
+/*
+ * File: Temp.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+/**
+ * A virtual register of an IrMethod.  'this', the formals and the locals
+ * of the method are temps named after the variable, and the intermediate
+ * values of expressions are unnamed temps.  Outside SSA form a temp of a
+ * variable is assigned wherever the variable is; temps are created by
+ * IrMethod.newTemp() and identified by their number.
+ */
+public final class Temp implements Operand
+{
+    /** the number of the temp in its method */
+    private final int id;
+
+    /** the name of the variable, or null for an intermediate value */
+    private final String name;
+
+    /** the Bantam type of the value */
+    private final String type;
+
+    /**
+     * creates a temp
+     * @param id the number of the temp in its method
+     * @param name the name of the variable, or null
+     * @param type the Bantam type of the value
+     */
+    Temp(int id, String name, String type) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * @return the number of the temp in its method
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the name of the variable, or null for an intermediate value
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the Bantam type of the value
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return whether the temp holds 'this' of its method, which is never
+     * null (no variable can be named this, and 'this' is never assigned)
+     */
+    public boolean isThis() {
+        return "this".equals(name);
+    }
+
+    /**
+     * @return the temp as listings show it: the name of the variable and
+     * the number, or t and the number
+     */
+    @Override
+    public String toString() {
+        return name == null ? "t" + id : name + "." + id;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * File: TempDataflow.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.ir;
+
+import java.util.Arrays;
+
+/**
+ * A dataflow analysis whose facts are sets of temps.  Only the temps that
+ * can carry a value from one block to another are numbered and held in the
+ * sets (the global names of Briggs et al.): the temps used in a block
+ * before any assignment in it, and the operands of PHIs.  The other temps
+ * are only used after an assignment in their own block, which is what
+ * most of the intermediate values of the IrBuilder are, so they are in no
+ * set and the sets stay small on large methods.
+ */
+public abstract class TempDataflow extends Dataflow
+{
+    /** the number of each temp in the sets by id, or -1 if it is in none */
+    private final int[] numbers;
+
+    /** the number of temps numbered */
+    private int numGlobals;
+
+    /**
+     * prepares an analysis of the temps of a method
+     *
+     * @param method the method
+     * @param forward whether facts flow from the entry along the edges
+     * @param intersect whether the sets flowing into a block are
+     *                  intersected, which makes the analysis a must analysis
+     */
+    protected TempDataflow(IrMethod method, boolean forward, boolean intersect) {
+        super(method, forward, intersect);
+        numbers = new int[method.getNumTemps()];
+        Arrays.fill(numbers, -1);
+        boolean[] assigned = new boolean[numbers.length];
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                boolean phi = instr.getOpcode() == Opcode.PHI;
+                for (int i = 0; i < instr.getNumOperands(); i++) {
+                    Operand operand = instr.getOperand(i);
+                    if (operand instanceof Temp) {
+                        int id = ((Temp) operand).getId();
+                        if ((phi || !assigned[id]) && numbers[id] < 0) {
+                            numbers[id] = numGlobals++;
+                        }
+                    }
+                }
+                if (instr.getDest() != null) {
+                    assigned[instr.getDest().getId()] = true;
+                }
+            }
+            for (Instr instr : block.getInstrs()) {
+                if (instr.getDest() != null) {
+                    assigned[instr.getDest().getId()] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * computes the sets of all the reachable blocks; a subclass calls it
+     * once, when it is ready to initialize the blocks
+     */
+    protected final void solve() {
+        solve(numGlobals);
+    }
+
+    /**
+     * adds a temp to a set, if it is numbered
+     *
+     * @param set the set
+     * @param temp the temp
+     */
+    protected final void add(long[] set, Temp temp) {
+        int number = numbers[temp.getId()];
+        if (number >= 0) {
+            add(set, number);
+        }
+    }
+
+    /**
+     * @param set a set
+     * @param temp a temp of the method
+     * @return whether the set holds the temp, which it never does if the
+     * temp is not numbered
+     */
+    protected final boolean contains(long[] set, Temp temp) {
+        int number = numbers[temp.getId()];
+        return number >= 0 && contains(set, number);
+    }
+
+    /**
+     * @param temp a temp of the method
+     * @return whether the temp can be in the sets: whether it is used
+     * before it is assigned in some block, or by a PHI
+     */
+    public boolean isGlobal(Temp temp) {
+        return numbers[temp.getId()] >= 0;
+    }
+
+    /**
+     * @param block a reachable block of the method
+     * @param temp a temp of the method
+     * @return whether the temp is in the set at the start of the block
+     */
+    public boolean isIn(Block block, Temp temp) {
+        return contains(getIn(block), temp);
+    }
+
+    /**
+     * @param block a reachable block of the method
+     * @param temp a temp of the method
+     * @return whether the temp is in the set at the end of the block
+     */
+    public boolean isOut(Block block, Temp temp) {
+        return contains(getOut(block), temp);
+    }
+}
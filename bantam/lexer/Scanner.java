@@ -9,6 +9,7 @@
 
 package bantam.lexer;
 
+import bantam.util.CancellationToken;
 import bantam.util.CompilationException;
 import bantam.util.Error;
 import bantam.util.ErrorHandler;
@@ -32,10 +33,16 @@ public class Scanner
     private char currentChar;
     private String tokenContent;
     private boolean inString;
+    /** lets another thread stop a scan that is no longer needed (may be null) */
+    private CancellationToken cancellationToken;
+    /** offset in the source of the first char of tokenContent */
+    private int tokenStart;
+    /** if true, comments are returned as COMMENT tokens instead of skipped */
+    private boolean reportComments;
 
 
     // hashmap for special symbols and their corresponding tokens
-    private final HashMap<String,Token.Kind> kindHashMap = new HashMap<>() {{
+    private static final HashMap<String,Token.Kind> kindHashMap = new HashMap<>() {{
         put("{", Token.Kind.LCURLY);
         put("}", Token.Kind.RCURLY);
         put("(", Token.Kind.LPAREN);
@@ -74,13 +81,63 @@ public class Scanner
      * @param handler the ErrorHandler that collects all the errors found
      */
     public Scanner(Reader reader, ErrorHandler handler) {
+        this(reader, handler, 1, 0);
+    }
+
+    /**
+     * creates a new scanner for a part of a source, e.g. a class member
+     * that is parsed again, so that the tokens get the line numbers and
+     * offsets they have in the whole source
+     * @param reader provides the characters of the part
+     * @param handler the ErrorHandler that collects all the errors found
+     * @param firstLine the line number of the first character of the part
+     * @param firstOffset the offset in the source of its first character
+     */
+    public Scanner(Reader reader, ErrorHandler handler, int firstLine, int firstOffset) {
         errorHandler = handler;
-        sourceFile = new SourceFile(reader);
+        sourceFile = new SourceFile(reader, firstLine, firstOffset);
         tokenContent = "";
         inString = false;
     }
 
 
+    /**
+     * sets the token that is polled before each call to scan() does any work.
+     * If the token is cancelled, scan() throws a CancellationException.
+     * @param cancellationToken the token to poll, or null for no cancelling
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * makes scan() return comments as COMMENT tokens instead of skipping them.
+     * The parser does not want them, but a syntax highlighter does.
+     * @param reportComments whether to return comments
+     */
+    public void setReportComments(boolean reportComments) {
+        this.reportComments = reportComments;
+    }
+
+    /**
+     * returns the offset in the source of currentChar
+     * (the number of chars before it)
+     * @return the offset of currentChar
+     */
+    private int currentOffset() {
+        return currentChar == SourceFile.EOF ?
+                sourceFile.getOffset() :
+                sourceFile.getOffset() - 1;
+    }
+
+    /**
+     * makes currentChar the first char of the next token
+     */
+    private void startToken() {
+        tokenContent = String.valueOf(currentChar);
+        tokenStart = currentOffset();
+    }
+
     /** registers the error in the error handler,
      * wipe the tokenContent, then return the error token
      *
@@ -91,6 +148,7 @@ public class Scanner
     private Token lexErrorToken(String errorMessage){
         errorHandler.register(Error.Kind.LEX_ERROR, errorMessage);
         String spel = tokenContent;
+        int start = tokenStart;
 
         // if current character is whitespace
         // or if current character hits a quotationmark
@@ -104,11 +162,11 @@ public class Scanner
             tokenContent = "";
         }
         else{
-            tokenContent = String.valueOf(currentChar);
+            startToken();
         }
         return new Token(Token.Kind.ERROR,
                 spel,
-                lineNum());
+                lineNum(), start);
     }
 
     /**
@@ -138,6 +196,9 @@ public class Scanner
      * @return the Token containing the characters read
      */
     public Token scan() throws IOException{
+        if (cancellationToken != null) {
+            cancellationToken.throwIfCancelled();
+        }
             // if it hasn't reached the end of file or tokenContent is an empty string
         while(tokenContent.isEmpty() ||
                     tokenContent.charAt(tokenContent.length() - 1) != SourceFile.EOF )
@@ -163,16 +224,18 @@ public class Scanner
                     // could be pointing to whitespace,
                     // special symbols, or anything
                     String tContentCopy = tokenContent;
+                    int start = tokenStart;
                     if (currentChar == SourceFile.EOL ||
                             currentChar == SourceFile.CR ||
+                            currentChar == '\t' ||
                             currentChar == (' ')){
                         tokenContent = "";
                     }
                     else{
-                        tokenContent = String.valueOf(currentChar);
+                        startToken();
                     }
                     return new Token(Token.Kind.IDENTIFIER,
-                            tContentCopy, lineNum());
+                            tContentCopy, lineNum(), start);
                 }
 
                 // int constant
@@ -186,18 +249,20 @@ public class Scanner
                     try {
                         Integer.parseInt(tokenContent);
                         String tContentCopy = tokenContent;
+                        int start = tokenStart;
 
                         if (currentChar == SourceFile.EOL ||
                                 currentChar == SourceFile.CR ||
+                                currentChar == '\t' ||
                                 currentChar == (' ')){
                             tokenContent = "";
                         }
                         else{
-                            tokenContent = String.valueOf(currentChar);
+                            startToken();
                         }
 
                         return new Token(Token.Kind.INTCONST,
-                                tContentCopy, lineNum());
+                                tContentCopy, lineNum(), start);
                     } catch (NumberFormatException e){
                         String falseIntErrMessage = "Integer too large";
                         return lexErrorToken(falseIntErrMessage);
@@ -223,7 +288,7 @@ public class Scanner
                             String tContentCopy = tokenContent;
                             tokenContent = "";
                             return new Token(kindHashMap.get(tContentCopy),
-                                    tContentCopy, lineNum());
+                                    tContentCopy, lineNum(), tokenStart);
                         }
                         else if (tokenContent.equals("|")
                                 || tokenContent.equals("&")){
@@ -253,9 +318,9 @@ public class Scanner
 
                             Token token = currentChar == '+' ?
                                     new Token(Token.Kind.UNARYINCR, "++",
-                                            lineNum()) :
+                                            lineNum(), tokenStart) :
                                     new Token(Token.Kind.UNARYDECR, "--",
-                                            lineNum());
+                                            lineNum(), tokenStart);
                             tokenContent="";
                             return token;
                         }
@@ -270,6 +335,10 @@ public class Scanner
                             // once currentChar hits end of line, return comment token
                             String prevStr1 = tokenContent;
                             tokenContent = "";
+                            if (reportComments) {
+                                return new Token(Token.Kind.COMMENT, prevStr1,
+                                        lineNum(), tokenStart);
+                            }
                             continue;
                         }
                         // block comment starting with /* and ending with */
@@ -285,8 +354,12 @@ public class Scanner
                                 }
                             }
                             // once currentChar hits end of line, return comment token
-                            String prevStr1 = tokenContent;
+                            String prevStr1 = tokenContent + currentChar;
                             tokenContent = "";
+                            if (reportComments) {
+                                return new Token(Token.Kind.COMMENT, prevStr1,
+                                        lineNum(), tokenStart);
+                            }
                             continue;
                         }
                         // binary logic
@@ -294,7 +367,7 @@ public class Scanner
                         if (currentChar == prevStr.charAt(0)){
                             String tokenSpel = currentChar == '&' ? "&&" : "||";
                             Token token = new Token(Token.Kind.BINARYLOGIC, tokenSpel,
-                                            lineNum());
+                                            lineNum(), tokenStart);
                             tokenContent="";
                             return token;
                         }
@@ -313,12 +386,13 @@ public class Scanner
                             Token token =
                                     new Token(Token.Kind.COMPARE,
                                             prevStr+"=",
-                                            lineNum());
+                                            lineNum(), tokenStart);
                             tokenContent = "";
                             return token;
                         }
                     }
-                    tokenContent = String.valueOf(currentChar);
+                    int start = tokenStart;
+                    startToken();
 
 
                     // check if a string is following
@@ -330,7 +404,7 @@ public class Scanner
                     Token.Kind tokenKind = kindHashMap.get(String.valueOf(prevStr.charAt(0)));
                     return new Token(tokenKind,
                             prevStr,
-                            lineNum());
+                            lineNum(), start);
                 }
                 // string
                 else if (tokenContent.length() == 1 && tokenContent.equals( "\"")){
@@ -347,7 +421,7 @@ public class Scanner
                         tokenContent = "";
                         inString = false;
                         return new Token(Token.Kind.STRCONST,strCopy,
-                                lineNum());
+                                lineNum(), tokenStart);
                     }
 
                     while (currentChar != '"'){
@@ -411,7 +485,7 @@ public class Scanner
                     // exiting string
                     inString = false;
                     return new Token(Token.Kind.STRCONST,strCopy,
-                            lineNum());
+                            lineNum(), tokenStart);
                 }
                 // when encounters a special symbol
                 // also handling empty string
@@ -419,7 +493,7 @@ public class Scanner
                 || currentChar == '"' || currentChar == '&' || currentChar == '|')
                 {
 
-                    tokenContent = String.valueOf(currentChar);
+                    startToken();
 
                     // if currentChar hit a ", set inString to true
                     // so it won't skip whitespaces
@@ -436,6 +510,9 @@ public class Scanner
                 && (Character.isAlphabetic(currentChar)
                 || Character.isDigit(currentChar)
                 || currentChar == '_')){
+                    if (tokenContent.isEmpty()) {
+                        tokenStart = currentOffset();
+                    }
                     tokenContent += currentChar;
                 }
 
@@ -443,7 +520,7 @@ public class Scanner
                 // either currentChar or tokenContent could be unsupported
                 else if (currentChar != SourceFile.EOF){
                     if (tokenContent.isEmpty()){
-                        tokenContent = String.valueOf(currentChar);
+                        startToken();
                         continue;
                     }
                     return lexErrorToken("Exception: illegal character");
@@ -458,7 +535,7 @@ public class Scanner
                     // out of the loop
                     tokenContent+=currentChar;
                     return new Token(Token.Kind.ERROR,tContentCopy,
-                            lineNum());
+                            lineNum(), tokenStart);
                 // if tokenContent.isEmpty() and EOF just break out of it
                 }else{
                     break;
@@ -468,7 +545,7 @@ public class Scanner
             // calls will return a token of type EOF
             // with a spelling of "" (empty string)
             return new Token(Token.Kind.EOF,"",
-                    lineNum());
+                    lineNum(), sourceFile.getOffset());
 
 
     }
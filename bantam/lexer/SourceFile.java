@@ -33,6 +33,7 @@ class SourceFile
     private int currentLineNumber; // for bantam error messages
     private int prevChar;          // the previous character read
     private String filename;       // the file currently being scanned.
+    private int offset;            // number of chars read so far
 
     /**
      * creates a new SourceFile object for the file with the given name
@@ -57,8 +58,21 @@ class SourceFile
      * @param in the Reader that provides the characters to be processes
      */
     SourceFile(Reader in) {
+        this(in, 1, 0);
+    }
+
+    /**
+     * creates a new SourceFile object for a Reader providing a part of a
+     * source, e.g. a single class member that is parsed again
+     *
+     * @param in          the Reader that provides the characters of the part
+     * @param firstLine   the line number of the first character of the part
+     * @param firstOffset the offset in the source of its first character
+     */
+    SourceFile(Reader in, int firstLine, int firstOffset) {
         sourceReader = in;
-        currentLineNumber = 1;
+        currentLineNumber = firstLine;
+        offset = firstOffset;
         prevChar = -1;
     }
 
@@ -68,6 +82,14 @@ class SourceFile
 
     String getFilename() { return filename; }
 
+    /**
+     * @return the number of characters read so far (EOF not included),
+     * i.e. the offset in the source of the next character
+     */
+    int getOffset() {
+        return offset;
+    }
+
     /**
      * Finds and returns the next character in the source file.
      * The current line number is incremented if the end of a line is reached
@@ -80,7 +102,10 @@ class SourceFile
         if (c == -1) {
             c = EOF;
         }
-        else if (c == CR || (c == EOL && prevChar != CR)) {
+        else {
+            offset++;
+        }
+        if (c == CR || (c == EOL && prevChar != CR)) {
             currentLineNumber++;
         }
         prevChar = c;
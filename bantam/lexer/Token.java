@@ -29,6 +29,8 @@
      public String spelling;
      /** the line number where the token was found in the source code */
      public int position;
+     /** the offset in the source of the first character of the token */
+     public int offset;
 
      public String getSpelling() {
          return spelling;
@@ -42,8 +44,20 @@
       * @param position the line number in the source file containing the token
       */
      Token(Kind kind, String spelling, int position) {
+         this(kind, spelling, position, -1);
+     }
+
+     /**
+      * constructor
+      * @param kind the Kind of token to be created
+      * @param spelling the characters making up the token
+      * @param position the line number in the source file containing the token
+      * @param offset the offset in the source of the first character of the token
+      */
+     Token(Kind kind, String spelling, int position, int offset) {
          this.spelling = spelling;
          this.position = position;
+         this.offset = offset;
 
          // patch the kind field in the cases of boolean constants and keywords,
          // which are not of kind IDENTIFIER
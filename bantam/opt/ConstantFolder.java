@@ -0,0 +1,923 @@
+/*
+ * File: ConstantFolder.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ast.*;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+import bantam.visitor.Visitor;
+
+import java.io.IOException;
+
+/**
+ * This visitor simplifies the expressions and statements of a program that
+ * has passed semantic analysis, in place, before it runs:
+ * <ul>
+ * <li>operators whose operands are constants are replaced by their value,
+ * with the wrap-around int arithmetic of Bantam (a division or a modulus
+ * by zero is left for the program to report);</li>
+ * <li>algebraic identities are simplified: x + 0, x - 0, x * 1, x / 1,
+ * x * 0, x % 1, --x, !!b, !(a &lt; b), b &amp;&amp; true, b || false,
+ * b == true and the like;</li>
+ * <li>if statements with a constant condition are replaced by the branch
+ * taken, and while and for loops whose condition is false are removed.</li>
+ * </ul>
+ * An operand is only dropped (as in x * 0) if evaluating it can neither
+ * fail nor have an effect.  Every node the folder creates gets the type of
+ * the node it replaces, so the folded tree is as checked as the original
+ * and any backend can run it.
+ * <p/>
+ * A visit of an expression returns the expression replacing it, and a
+ * visit of a statement the statement replacing it, or null if it is
+ * removed.
+ */
+public class ConstantFolder extends Visitor
+{
+    /** the number of nodes eliminated so far */
+    private int eliminated;
+
+    /**
+     * folds the fields and methods of all the classes of a program
+     *
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     * @return the number of AST nodes eliminated
+     */
+    public int fold(ClassTreeNode root) {
+        int before = eliminated;
+        for (ClassTreeNode node : root.getClassMap().values()) {
+            if (!node.isBuiltIn()) {
+                node.getASTNode().accept(this);
+            }
+        }
+        return eliminated - before;
+    }
+
+    /**
+     * @return the number of AST nodes eliminated by all the folds so far
+     */
+    public int getEliminated() {
+        return eliminated;
+    }
+
+    /**
+     * @param expr an expression, or null
+     * @return the folded expression, or null
+     */
+    private Expr fold(Expr expr) {
+        return expr == null ? null : (Expr) expr.accept(this);
+    }
+
+    /**
+     * @param stmt a statement
+     * @return the folded statement, or null if it is removed
+     */
+    private Stmt fold(Stmt stmt) {
+        return (Stmt) stmt.accept(this);
+    }
+
+    /**
+     * counts the nodes a replacement eliminates
+     *
+     * @param node the node replaced, whose subtrees are already folded
+     * @param replacement what replaces it, or null if it is removed
+     * @return the replacement
+     */
+    private <T extends ASTNode> T replace(ASTNode node, T replacement) {
+        eliminated += size(node) - size(replacement);
+        return replacement;
+    }
+
+    /**
+     * returns the number of nodes of a subtree
+     *
+     * @param node the root of the subtree, or null
+     * @return its number of nodes
+     */
+    static int size(ASTNode node) {
+        if (node == null) {
+            return 0;
+        }
+        int size = 1;
+        if (node instanceof ListNode) {
+            for (ASTNode element : (ListNode) node) {
+                size += size(element);
+            }
+        }
+        else if (node instanceof BinaryExpr) {
+            size += size(((BinaryExpr) node).getLeftExpr())
+                    + size(((BinaryExpr) node).getRightExpr());
+        }
+        else if (node instanceof UnaryExpr) {
+            size += size(((UnaryExpr) node).getExpr());
+        }
+        else if (node instanceof DispatchExpr) {
+            size += size(((DispatchExpr) node).getRefExpr())
+                    + size(((DispatchExpr) node).getActualList());
+        }
+        else if (node instanceof AssignExpr) {
+            size += size(((AssignExpr) node).getExpr());
+        }
+        else if (node instanceof CastExpr) {
+            size += size(((CastExpr) node).getExpr());
+        }
+        else if (node instanceof InstanceofExpr) {
+            size += size(((InstanceofExpr) node).getExpr());
+        }
+        else if (node instanceof VarExpr) {
+            size += size(((VarExpr) node).getRef());
+        }
+        else if (node instanceof DeclStmt) {
+            size += size(((DeclStmt) node).getInit());
+        }
+        else if (node instanceof ExprStmt) {
+            size += size(((ExprStmt) node).getExpr());
+        }
+        else if (node instanceof ReturnStmt) {
+            size += size(((ReturnStmt) node).getExpr());
+        }
+        else if (node instanceof BlockStmt) {
+            size += size(((BlockStmt) node).getStmtList());
+        }
+        else if (node instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) node;
+            size += size(ifStmt.getPredExpr()) + size(ifStmt.getThenStmt())
+                    + size(ifStmt.getElseStmt());
+        }
+        else if (node instanceof WhileStmt) {
+            size += size(((WhileStmt) node).getPredExpr())
+                    + size(((WhileStmt) node).getBodyStmt());
+        }
+        else if (node instanceof ForStmt) {
+            ForStmt forStmt = (ForStmt) node;
+            size += size(forStmt.getInitExpr()) + size(forStmt.getPredExpr())
+                    + size(forStmt.getUpdateExpr()) + size(forStmt.getBodyStmt());
+        }
+        return size;
+    }
+
+    /**
+     * @param expr an expression
+     * @return its value if it is an int constant, or null
+     */
+    private static Integer intConstant(Expr expr) {
+        return expr instanceof ConstIntExpr ? ((ConstIntExpr) expr).getIntConstant() : null;
+    }
+
+    /**
+     * @param expr an expression
+     * @return its value if it is a boolean constant, or null
+     */
+    private static Boolean booleanConstant(Expr expr) {
+        return expr instanceof ConstBooleanExpr ?
+                ((ConstBooleanExpr) expr).getConstant().equals("true") : null;
+    }
+
+    /**
+     * creates an int constant
+     *
+     * @param lineNum the line of the node it replaces
+     * @param value the value
+     * @return the constant
+     */
+    private static Expr intNode(int lineNum, int value) {
+        Expr constant = new ConstIntExpr(lineNum, Integer.toString(value));
+        constant.setExprType("int");
+        return constant;
+    }
+
+    /**
+     * creates a boolean constant
+     *
+     * @param lineNum the line of the node it replaces
+     * @param value the value
+     * @return the constant
+     */
+    private static Expr booleanNode(int lineNum, boolean value) {
+        Expr constant = new ConstBooleanExpr(lineNum, Boolean.toString(value));
+        constant.setExprType("boolean");
+        return constant;
+    }
+
+    /**
+     * creates the negation of a boolean expression
+     *
+     * @param lineNum the line of the node it replaces
+     * @param expr the expression
+     * @return !expr
+     */
+    private static Expr notNode(int lineNum, Expr expr) {
+        Expr not = new UnaryNotExpr(lineNum, expr);
+        not.setExprType("boolean");
+        return not;
+    }
+
+    /**
+     * returns whether evaluating an expression can neither fail nor have
+     * an effect, so that it can be dropped
+     *
+     * @param expr the expression
+     * @return true if it can be dropped
+     */
+    static boolean isPure(Expr expr) {
+        if (expr instanceof ConstExpr || expr instanceof VarExpr) {
+            return true;
+        }
+        if (expr instanceof UnaryNegExpr || expr instanceof UnaryNotExpr) {
+            return isPure(((UnaryExpr) expr).getExpr());
+        }
+        if (expr instanceof BinaryArithDivideExpr || expr instanceof BinaryArithModulusExpr) {
+            return false;
+        }
+        if (expr instanceof BinaryExpr) {
+            return isPure(((BinaryExpr) expr).getLeftExpr())
+                    && isPure(((BinaryExpr) expr).getRightExpr());
+        }
+        return false;
+    }
+
+    /**
+     * returns a statement that can be the branch of an if statement or the
+     * body of a loop: an empty block for a removed statement, and a
+     * declaration in a block of its own, so it stays in its scope
+     *
+     * @param stmt the statement, or null
+     * @param lineNum the line of the statement it is part of
+     * @return the statement
+     */
+    private Stmt branch(Stmt stmt, int lineNum) {
+        if (stmt == null) {
+            eliminated -= 2;
+            return new BlockStmt(lineNum, new StmtList(lineNum));
+        }
+        if (stmt instanceof DeclStmt) {
+            eliminated -= 2;
+            StmtList list = new StmtList(stmt.getLineNum());
+            list.addElement(stmt);
+            return new BlockStmt(stmt.getLineNum(), list);
+        }
+        return stmt;
+    }
+
+    /**
+     * Visit a field node
+     *
+     * @param node the field node
+     * @return result of the visit
+     */
+    public Object visit(Field node) {
+        node.setInit(fold(node.getInit()));
+        return null;
+    }
+
+    /**
+     * Visit a method node
+     *
+     * @param node the method node
+     * @return result of the visit
+     */
+    public Object visit(Method node) {
+        node.getStmtList().accept(this);
+        return null;
+    }
+
+    /**
+     * Visit a list node of statements: removed statements are taken out
+     * of the list
+     *
+     * @param node the statement list node
+     * @return the list
+     */
+    public Object visit(StmtList node) {
+        for (int i = 0; i < node.getSize(); i++) {
+            Stmt folded = fold((Stmt) node.get(i));
+            if (folded == null) {
+                node.remove(i--);
+            }
+            else {
+                node.set(i, folded);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return the statement
+     */
+    public Object visit(DeclStmt node) {
+        node.setInit(fold(node.getInit()));
+        return node;
+    }
+
+    /**
+     * Visit an expression statement node
+     *
+     * @param node the expression statement node
+     * @return the statement
+     */
+    public Object visit(ExprStmt node) {
+        node.setExpr(fold(node.getExpr()));
+        return node;
+    }
+
+    /**
+     * Visit an if statement node: a constant condition leaves the branch
+     * taken, or nothing
+     *
+     * @param node the if statement node
+     * @return the statement replacing it, or null
+     */
+    public Object visit(IfStmt node) {
+        node.setPredExpr(fold(node.getPredExpr()));
+        Stmt thenStmt = fold(node.getThenStmt());
+        Stmt elseStmt = node.getElseStmt() == null ? null : fold(node.getElseStmt());
+        Boolean condition = booleanConstant(node.getPredExpr());
+        if (condition != null) {
+            // the size of the removed branches is counted before they are dropped
+            node.setThenStmt(thenStmt == null ? new BlockStmt(node.getLineNum(),
+                    new StmtList(node.getLineNum())) : thenStmt);
+            node.setElseStmt(elseStmt);
+            Stmt taken = condition ? thenStmt : elseStmt;
+            return replace(node, taken == null ? null : branch(taken, node.getLineNum()));
+        }
+        node.setThenStmt(branch(thenStmt, node.getLineNum()));
+        node.setElseStmt(elseStmt);
+        return node;
+    }
+
+    /**
+     * Visit a while statement node: a loop whose condition is false is
+     * removed
+     *
+     * @param node the while statement node
+     * @return the statement, or null
+     */
+    public Object visit(WhileStmt node) {
+        node.setPredExpr(fold(node.getPredExpr()));
+        node.setBodyStmt(branch(fold(node.getBodyStmt()), node.getLineNum()));
+        if (Boolean.FALSE.equals(booleanConstant(node.getPredExpr()))) {
+            return replace(node, null);
+        }
+        return node;
+    }
+
+    /**
+     * Visit a for statement node: a loop whose condition is false is
+     * replaced by its initialization, if any
+     *
+     * @param node the for statement node
+     * @return the statement replacing it, or null
+     */
+    public Object visit(ForStmt node) {
+        node.setInitExpr(fold(node.getInitExpr()));
+        node.setPredExpr(fold(node.getPredExpr()));
+        node.setUpdateExpr(fold(node.getUpdateExpr()));
+        node.setBodyStmt(branch(fold(node.getBodyStmt()), node.getLineNum()));
+        if (Boolean.FALSE.equals(booleanConstant(node.getPredExpr()))) {
+            return replace(node, node.getInitExpr() == null ? null
+                    : new ExprStmt(node.getLineNum(), node.getInitExpr()));
+        }
+        return node;
+    }
+
+    /**
+     * Visit a break statement node
+     *
+     * @param node the break statement node
+     * @return the statement
+     */
+    public Object visit(BreakStmt node) {
+        return node;
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return the statement
+     */
+    public Object visit(BlockStmt node) {
+        node.getStmtList().accept(this);
+        return node;
+    }
+
+    /**
+     * Visit a return statement node
+     *
+     * @param node the return statement node
+     * @return the statement
+     */
+    public Object visit(ReturnStmt node) {
+        node.setExpr(fold(node.getExpr()));
+        return node;
+    }
+
+    /**
+     * Visit a dispatch expression node
+     *
+     * @param node the dispatch expression node
+     * @return the expression
+     */
+    public Object visit(DispatchExpr node) {
+        node.setRefExpr(fold(node.getRefExpr()));
+        ExprList actuals = node.getActualList();
+        for (int i = 0; i < actuals.getSize(); i++) {
+            actuals.set(i, fold((Expr) actuals.get(i)));
+        }
+        return node;
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return the expression
+     */
+    public Object visit(NewExpr node) {
+        return node;
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return the expression
+     */
+    public Object visit(InstanceofExpr node) {
+        node.setExpr(fold(node.getExpr()));
+        return node;
+    }
+
+    /**
+     * Visit a cast expression node
+     *
+     * @param node the cast expression node
+     * @return the expression
+     */
+    public Object visit(CastExpr node) {
+        node.setExpr(fold(node.getExpr()));
+        return node;
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return the expression
+     */
+    public Object visit(AssignExpr node) {
+        node.setExpr(fold(node.getExpr()));
+        return node;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return the expression
+     */
+    public Object visit(VarExpr node) {
+        return node;
+    }
+
+    /**
+     * folds the operands of a binary expression
+     *
+     * @param node the binary expression
+     */
+    private void foldOperands(BinaryExpr node) {
+        node.setLeftExpr(fold(node.getLeftExpr()));
+        node.setRightExpr(fold(node.getRightExpr()));
+    }
+
+    /**
+     * folds == or !=
+     *
+     * @param node the comparison
+     * @param equal true for ==, false for !=
+     * @return the expression replacing it
+     */
+    private Expr equality(BinaryExpr node, boolean equal) {
+        foldOperands(node);
+        Expr left = node.getLeftExpr();
+        Expr right = node.getRightExpr();
+        Integer leftInt = intConstant(left);
+        Integer rightInt = intConstant(right);
+        if (leftInt != null && rightInt != null) {
+            return replace(node, booleanNode(node.getLineNum(),
+                    leftInt.equals(rightInt) == equal));
+        }
+        Boolean leftBoolean = booleanConstant(left);
+        Boolean rightBoolean = booleanConstant(right);
+        if (leftBoolean != null && rightBoolean != null) {
+            return replace(node, booleanNode(node.getLineNum(),
+                    leftBoolean.equals(rightBoolean) == equal));
+        }
+        // b == true, b != false and the like
+        Expr other = rightBoolean != null ? left : leftBoolean != null ? right : null;
+        Boolean constant = rightBoolean != null ? rightBoolean : leftBoolean;
+        if (other != null) {
+            return replace(node, constant == equal ? other : notNode(node.getLineNum(), other));
+        }
+        return node;
+    }
+
+    /**
+     * folds a comparison of two ints other than == and !=
+     *
+     * @param node the comparison
+     * @return the expression replacing it
+     */
+    private Expr comparison(BinaryExpr node) {
+        foldOperands(node);
+        Integer left = intConstant(node.getLeftExpr());
+        Integer right = intConstant(node.getRightExpr());
+        if (left == null || right == null) {
+            return node;
+        }
+        boolean value;
+        if (node instanceof BinaryCompLtExpr) {
+            value = left < right;
+        }
+        else if (node instanceof BinaryCompLeqExpr) {
+            value = left <= right;
+        }
+        else if (node instanceof BinaryCompGtExpr) {
+            value = left > right;
+        }
+        else {
+            value = left >= right;
+        }
+        return replace(node, booleanNode(node.getLineNum(), value));
+    }
+
+    /**
+     * Visit a binary comparison equals expression node
+     *
+     * @param node the binary comparison equals expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryCompEqExpr node) {
+        return equality(node, true);
+    }
+
+    /**
+     * Visit a binary comparison not equals expression node
+     *
+     * @param node the binary comparison not equals expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryCompNeExpr node) {
+        return equality(node, false);
+    }
+
+    /**
+     * Visit a binary comparison less than expression node
+     *
+     * @param node the binary comparison less than expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryCompLtExpr node) {
+        return comparison(node);
+    }
+
+    /**
+     * Visit a binary comparison less than or equal to expression node
+     *
+     * @param node the binary comparison less than or equal to expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryCompLeqExpr node) {
+        return comparison(node);
+    }
+
+    /**
+     * Visit a binary comparison greater than expression node
+     *
+     * @param node the binary comparison greater than expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryCompGtExpr node) {
+        return comparison(node);
+    }
+
+    /**
+     * Visit a binary comparison greater than or equal to expression node
+     *
+     * @param node the binary comparison greater than or equal to expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryCompGeqExpr node) {
+        return comparison(node);
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        foldOperands(node);
+        Integer left = intConstant(node.getLeftExpr());
+        Integer right = intConstant(node.getRightExpr());
+        if (left != null && right != null) {
+            return replace(node, intNode(node.getLineNum(), left + right));
+        }
+        if (right != null && right == 0) {
+            return replace(node, node.getLeftExpr());
+        }
+        if (left != null && left == 0) {
+            return replace(node, node.getRightExpr());
+        }
+        return node;
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        foldOperands(node);
+        Integer left = intConstant(node.getLeftExpr());
+        Integer right = intConstant(node.getRightExpr());
+        if (left != null && right != null) {
+            return replace(node, intNode(node.getLineNum(), left - right));
+        }
+        if (right != null && right == 0) {
+            return replace(node, node.getLeftExpr());
+        }
+        return node;
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        foldOperands(node);
+        Expr leftExpr = node.getLeftExpr();
+        Expr rightExpr = node.getRightExpr();
+        Integer left = intConstant(leftExpr);
+        Integer right = intConstant(rightExpr);
+        if (left != null && right != null) {
+            return replace(node, intNode(node.getLineNum(), left * right));
+        }
+        if (right != null && right == 1) {
+            return replace(node, leftExpr);
+        }
+        if (left != null && left == 1) {
+            return replace(node, rightExpr);
+        }
+        if (right != null && right == 0 && isPure(leftExpr)
+                || left != null && left == 0 && isPure(rightExpr)) {
+            return replace(node, intNode(node.getLineNum(), 0));
+        }
+        return node;
+    }
+
+    /**
+     * Visit a binary arithmetic divide expression node
+     *
+     * @param node the binary arithmetic divide expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryArithDivideExpr node) {
+        foldOperands(node);
+        Integer left = intConstant(node.getLeftExpr());
+        Integer right = intConstant(node.getRightExpr());
+        if (left != null && right != null && right != 0) {
+            return replace(node, intNode(node.getLineNum(), left / right));
+        }
+        if (right != null && right == 1) {
+            return replace(node, node.getLeftExpr());
+        }
+        return node;
+    }
+
+    /**
+     * Visit a binary arithmetic modulus expression node
+     *
+     * @param node the binary arithmetic modulus expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryArithModulusExpr node) {
+        foldOperands(node);
+        Integer left = intConstant(node.getLeftExpr());
+        Integer right = intConstant(node.getRightExpr());
+        if (left != null && right != null && right != 0) {
+            return replace(node, intNode(node.getLineNum(), left % right));
+        }
+        if (right != null && (right == 1 || right == -1) && isPure(node.getLeftExpr())) {
+            return replace(node, intNode(node.getLineNum(), 0));
+        }
+        return node;
+    }
+
+    /**
+     * Visit a binary logical AND expression node
+     *
+     * @param node the binary logical AND expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryLogicAndExpr node) {
+        foldOperands(node);
+        Boolean left = booleanConstant(node.getLeftExpr());
+        Boolean right = booleanConstant(node.getRightExpr());
+        if (left != null) {
+            // the right operand is not evaluated after false
+            return replace(node, left ? node.getRightExpr() : node.getLeftExpr());
+        }
+        if (right != null && right) {
+            return replace(node, node.getLeftExpr());
+        }
+        if (right != null && isPure(node.getLeftExpr())) {
+            return replace(node, node.getRightExpr());
+        }
+        return node;
+    }
+
+    /**
+     * Visit a binary logical OR expression node
+     *
+     * @param node the binary logical OR expression node
+     * @return the expression replacing it
+     */
+    public Object visit(BinaryLogicOrExpr node) {
+        foldOperands(node);
+        Boolean left = booleanConstant(node.getLeftExpr());
+        Boolean right = booleanConstant(node.getRightExpr());
+        if (left != null) {
+            // the right operand is not evaluated after true
+            return replace(node, left ? node.getLeftExpr() : node.getRightExpr());
+        }
+        if (right != null && !right) {
+            return replace(node, node.getLeftExpr());
+        }
+        if (right != null && isPure(node.getLeftExpr())) {
+            return replace(node, node.getRightExpr());
+        }
+        return node;
+    }
+
+    /**
+     * Visit a unary negation expression node
+     *
+     * @param node the unary negation expression node
+     * @return the expression replacing it
+     */
+    public Object visit(UnaryNegExpr node) {
+        node.setExpr(fold(node.getExpr()));
+        Expr operand = node.getExpr();
+        Integer value = intConstant(operand);
+        if (value != null) {
+            return replace(node, intNode(node.getLineNum(), -value));
+        }
+        if (operand instanceof UnaryNegExpr) {
+            return replace(node, ((UnaryNegExpr) operand).getExpr());
+        }
+        return node;
+    }
+
+    /**
+     * Visit a unary NOT expression node: the negation of a comparison of
+     * ints is the opposite comparison
+     *
+     * @param node the unary NOT expression node
+     * @return the expression replacing it
+     */
+    public Object visit(UnaryNotExpr node) {
+        node.setExpr(fold(node.getExpr()));
+        Expr operand = node.getExpr();
+        Boolean value = booleanConstant(operand);
+        if (value != null) {
+            return replace(node, booleanNode(node.getLineNum(), !value));
+        }
+        if (operand instanceof UnaryNotExpr) {
+            return replace(node, ((UnaryNotExpr) operand).getExpr());
+        }
+        if (operand instanceof BinaryCompExpr) {
+            BinaryExpr comparison = (BinaryExpr) operand;
+            Expr left = comparison.getLeftExpr();
+            Expr right = comparison.getRightExpr();
+            int line = comparison.getLineNum();
+            Expr opposite;
+            if (comparison instanceof BinaryCompEqExpr) {
+                opposite = new BinaryCompNeExpr(line, left, right);
+            }
+            else if (comparison instanceof BinaryCompNeExpr) {
+                opposite = new BinaryCompEqExpr(line, left, right);
+            }
+            else if (comparison instanceof BinaryCompLtExpr) {
+                opposite = new BinaryCompGeqExpr(line, left, right);
+            }
+            else if (comparison instanceof BinaryCompLeqExpr) {
+                opposite = new BinaryCompGtExpr(line, left, right);
+            }
+            else if (comparison instanceof BinaryCompGtExpr) {
+                opposite = new BinaryCompLeqExpr(line, left, right);
+            }
+            else {
+                opposite = new BinaryCompLtExpr(line, left, right);
+            }
+            opposite.setExprType("boolean");
+            return replace(node, opposite);
+        }
+        return node;
+    }
+
+    /**
+     * Visit a unary increment expression node
+     *
+     * @param node the unary increment expression node
+     * @return the expression
+     */
+    public Object visit(UnaryIncrExpr node) {
+        return node;
+    }
+
+    /**
+     * Visit a unary decrement expression node
+     *
+     * @param node the unary decrement expression node
+     * @return the expression
+     */
+    public Object visit(UnaryDecrExpr node) {
+        return node;
+    }
+
+    /**
+     * Visit a int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return the expression
+     */
+    public Object visit(ConstIntExpr node) {
+        return node;
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return the expression
+     */
+    public Object visit(ConstBooleanExpr node) {
+        return node;
+    }
+
+    /**
+     * Visit a string constant expression node
+     *
+     * @param node the string constant expression node
+     * @return the expression
+     */
+    public Object visit(ConstStringExpr node) {
+        return node;
+    }
+
+    /**
+     * folds the program made of the given files and prints the number of
+     * nodes eliminated.  You need to provide command line arguments each
+     * of which is the pathname of a Bantam Java file.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+
+        try {
+            for (String inFile : args) {
+                for (ASTNode klass : parser.parse(inFile).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            System.out.println(new ConstantFolder().fold(root) + " nodes eliminated");
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        }
+    }
+}
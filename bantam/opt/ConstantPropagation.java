@@ -0,0 +1,347 @@
+/*
+ * File: ConstantPropagation.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ir.Block;
+import bantam.ir.Constant;
+import bantam.ir.Instr;
+import bantam.ir.IrMethod;
+import bantam.ir.MethodPass;
+import bantam.ir.Opcode;
+import bantam.ir.Operand;
+import bantam.ir.Temp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse conditional constant propagation (Wegman and Zadeck) on methods in
+ * SSA form.  Every temp starts unknown (TOP) and is only lowered, to a
+ * constant or to BOTTOM (not a constant), while the CFG edges are only
+ * marked executable once a branch can take them, so that a value coming
+ * from a path that cannot run does not spoil a PHI.  Afterwards
+ * <ul>
+ * <li>the uses of the temps known to be constant get the constant and
+ * their pure definitions are removed;</li>
+ * <li>branches on a known condition become jumps, and the blocks that
+ * cannot run are removed.</li>
+ * </ul>
+ */
+public class ConstantPropagation extends MethodPass
+{
+    /** the lattice value of a temp that is not a constant */
+    private static final Object BOTTOM = new Object();
+
+    /** the lattice value of each temp, missing while it is TOP */
+    private Map<Temp, Object> values;
+
+    /** the executable edges, as the targets of each block */
+    private Map<Block, Set<Block>> executableEdges;
+
+    /** the blocks with an executable edge into them, and the entry */
+    private Set<Block> executableBlocks;
+
+    /** the instructions using each temp */
+    private Map<Temp, List<Instr>> uses;
+
+    /** the edges (source and target) that became executable */
+    private Deque<Block[]> flowWork;
+
+    /** the instructions whose operands were lowered */
+    private Deque<Instr> ssaWork;
+
+    /**
+     * @return "sccp"
+     */
+    public String getName() {
+        return "sccp";
+    }
+
+    /**
+     * propagates the constants of a method and removes what they make dead
+     *
+     * @param method the method, in SSA form
+     */
+    public void run(IrMethod method) {
+        if (!method.isSsa()) {
+            throw new IllegalStateException(method + " is not in SSA form");
+        }
+        values = new HashMap<>();
+        executableEdges = new HashMap<>();
+        executableBlocks = new HashSet<>();
+        uses = new HashMap<>();
+        flowWork = new ArrayDeque<>();
+        ssaWork = new ArrayDeque<>();
+
+        values.put(method.getThis(), BOTTOM);
+        for (Temp formal : method.getFormals()) {
+            values.put(formal, BOTTOM);
+        }
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                for (Operand operand : instr.getOperands()) {
+                    if (operand instanceof Temp) {
+                        uses.computeIfAbsent((Temp) operand, temp -> new ArrayList<>()).add(instr);
+                    }
+                }
+            }
+        }
+
+        visitBlock(method.getEntry());
+        while (!flowWork.isEmpty() || !ssaWork.isEmpty()) {
+            if (!flowWork.isEmpty()) {
+                Block[] edge = flowWork.pop();
+                boolean first = !executableBlocks.contains(edge[1]);
+                if (executableEdges.computeIfAbsent(edge[0], block -> new HashSet<>())
+                        .add(edge[1])) {
+                    if (first) {
+                        visitBlock(edge[1]);
+                    }
+                    else {
+                        for (Instr phi : edge[1].getPhis()) {
+                            visit(phi);
+                        }
+                    }
+                }
+            }
+            else {
+                Instr instr = ssaWork.pop();
+                if (instr.getBlock() != null && executableBlocks.contains(instr.getBlock())) {
+                    visit(instr);
+                }
+            }
+        }
+        rewrite(method);
+        values = null;
+        executableEdges = null;
+        executableBlocks = null;
+        uses = null;
+    }
+
+    /**
+     * evaluates the instructions of a block the first time it can run
+     */
+    private void visitBlock(Block block) {
+        executableBlocks.add(block);
+        for (Instr instr : block.getInstrs()) {
+            visit(instr);
+        }
+    }
+
+    /**
+     * evaluates an instruction of a block that can run: lowers the value of
+     * its temp or marks the edges its terminator can take
+     */
+    private void visit(Instr instr) {
+        switch (instr.getOpcode()) {
+            case JUMP:
+                flowWork.add(new Block[]{instr.getBlock(), instr.getTargets().get(0)});
+                return;
+            case BRANCH:
+                Object condition = valueOf(instr.getOperand(0));
+                if (condition == null) {
+                    return;
+                }
+                List<Block> targets = instr.getTargets();
+                if (condition == BOTTOM) {
+                    flowWork.add(new Block[]{instr.getBlock(), targets.get(0)});
+                    flowWork.add(new Block[]{instr.getBlock(), targets.get(1)});
+                }
+                else {
+                    Block taken = targets.get(((Constant) condition).getBoolean() ? 0 : 1);
+                    flowWork.add(new Block[]{instr.getBlock(), taken});
+                }
+                return;
+            case RETURN:
+                return;
+            case PHI:
+                Object phiValue = null;
+                for (Block source : instr.getSources()) {
+                    Set<Block> targetsOfSource = executableEdges.get(source);
+                    if (targetsOfSource != null && targetsOfSource.contains(instr.getBlock())) {
+                        phiValue = meet(phiValue, valueOf(instr.getIncoming(source)));
+                    }
+                }
+                lower(instr.getDest(), phiValue);
+                return;
+            default:
+                if (instr.getDest() != null) {
+                    lower(instr.getDest(), evaluate(instr));
+                }
+        }
+    }
+
+    /**
+     * @return the lattice value of the result of an instruction that is not
+     * a PHI or a terminator
+     */
+    private Object evaluate(Instr instr) {
+        if (!instr.getOpcode().isPure()) {
+            return BOTTOM;
+        }
+        List<Constant> constants = new ArrayList<>();
+        boolean unknown = false;
+        for (Operand operand : instr.getOperands()) {
+            Object value = valueOf(operand);
+            if (value == BOTTOM) {
+                return BOTTOM;
+            }
+            if (value == null) {
+                unknown = true;
+            }
+            else {
+                constants.add((Constant) value);
+            }
+        }
+        if (unknown) {
+            return null;
+        }
+        Constant result = fold(instr.getOpcode(), constants);
+        return result == null ? BOTTOM : result;
+    }
+
+    /**
+     * lowers the value of a temp to its meet with a value, and revisits the
+     * uses of the temp if it changed
+     */
+    private void lower(Temp temp, Object value) {
+        Object old = values.get(temp);
+        Object lowered = meet(old, value);
+        if (lowered != old && !(lowered != null && lowered.equals(old))) {
+            values.put(temp, lowered);
+            ssaWork.addAll(uses.getOrDefault(temp, List.of()));
+        }
+    }
+
+    /**
+     * @return the lattice value of an operand: itself if it is a constant,
+     * or that of the temp
+     */
+    private Object valueOf(Operand operand) {
+        return operand instanceof Constant ? operand : values.get(operand);
+    }
+
+    /**
+     * @return the meet of two lattice values, null being TOP
+     */
+    private static Object meet(Object a, Object b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.equals(b) ? a : BOTTOM;
+    }
+
+    /**
+     * replaces the temps found constant and the branches whose condition is
+     * known, and removes the blocks that cannot run
+     */
+    private void rewrite(IrMethod method) {
+        Map<Temp, Operand> replacements = new HashMap<>();
+        for (Block block : method.getBlocks()) {
+            if (!executableBlocks.contains(block)) {
+                continue;
+            }
+            for (Instr instr : new ArrayList<>(block.getInstrs())) {
+                Temp dest = instr.getDest();
+                Object value = dest == null ? null : values.get(dest);
+                if (value instanceof Constant && (instr.getOpcode().isPure()
+                        || instr.getOpcode() == Opcode.PHI)) {
+                    replacements.put(dest, (Constant) value);
+                    block.remove(instr);
+                }
+            }
+            Instr terminator = block.getTerminator();
+            if (terminator.getOpcode() == Opcode.BRANCH) {
+                Set<Block> taken = executableEdges.getOrDefault(block, Set.of());
+                List<Block> targets = terminator.getTargets();
+                for (int i = 0; i < 2; i++) {
+                    Block target = targets.get(i);
+                    Block other = targets.get(1 - i);
+                    if (taken.contains(target) && !taken.contains(other)) {
+                        for (Instr phi : other.getPhis()) {
+                            phi.removeIncoming(block);
+                        }
+                        block.set(block.getInstrs().size() - 1,
+                                Instr.jump(target, terminator.getLineNum()));
+                        break;
+                    }
+                }
+            }
+        }
+        method.replaceUses(replacements);
+        method.removeUnreachableBlocks();
+    }
+
+    /**
+     * computes the result of a pure operation on constants as Bantam would,
+     * with wrap-around int arithmetic
+     *
+     * @param opcode a pure opcode
+     * @param operands its operands
+     * @return the result, or null if it is not known at compile time (a
+     * division by zero, which fails when it runs, or a comparison of
+     * strings, which compares objects)
+     */
+    public static Constant fold(Opcode opcode, List<Constant> operands) {
+        Constant a = operands.get(0);
+        Constant b = operands.size() > 1 ? operands.get(1) : null;
+        switch (opcode) {
+            case MOVE:
+                return a;
+            case ADD:
+                return Constant.ofInt(a.getInt() + b.getInt());
+            case SUB:
+                return Constant.ofInt(a.getInt() - b.getInt());
+            case MUL:
+                return Constant.ofInt(a.getInt() * b.getInt());
+            case DIV:
+                return b.getInt() == 0 ? null : Constant.ofInt(a.getInt() / b.getInt());
+            case MOD:
+                return b.getInt() == 0 ? null : Constant.ofInt(a.getInt() % b.getInt());
+            case NEG:
+                return Constant.ofInt(-a.getInt());
+            case NOT:
+                return Constant.ofBoolean(!a.getBoolean());
+            case LT:
+                return Constant.ofBoolean(a.getInt() < b.getInt());
+            case LE:
+                return Constant.ofBoolean(a.getInt() <= b.getInt());
+            case GT:
+                return Constant.ofBoolean(a.getInt() > b.getInt());
+            case GE:
+                return Constant.ofBoolean(a.getInt() >= b.getInt());
+            case EQ: case NE:
+                if (!isComparable(a) || !isComparable(b)) {
+                    return null;
+                }
+                return Constant.ofBoolean(a.equals(b) == (opcode == Opcode.EQ));
+            case INSTANCEOF:
+                return a == Constant.NULL ? Constant.FALSE : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return whether == on a constant compares values: an int, a boolean or
+     * null
+     */
+    private static boolean isComparable(Constant constant) {
+        return !constant.getType().equals("String");
+    }
+}
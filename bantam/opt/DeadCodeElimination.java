@@ -0,0 +1,226 @@
+/*
+ * File: DeadCodeElimination.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ir.Block;
+import bantam.ir.Constant;
+import bantam.ir.Instr;
+import bantam.ir.IrMethod;
+import bantam.ir.MethodPass;
+import bantam.ir.Opcode;
+import bantam.ir.Operand;
+import bantam.ir.Temp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes the instructions whose results are never needed and the blocks
+ * that cannot run, and then simplifies the CFG:
+ * <ul>
+ * <li>an instruction is live if it cannot be removed (see
+ * Instr.isRemovable()) or defines a temp a live instruction uses, and the
+ * others are removed, dead cycles of PHIs included;</li>
+ * <li>a branch on a constant, or to the same block either way, becomes a
+ * jump;</li>
+ * <li>a block that is the only successor of its only predecessor is merged
+ * into it;</li>
+ * <li>a block holding nothing but a jump is bypassed, if the block it jumps
+ * to has no PHIs.</li>
+ * </ul>
+ * It works on methods in SSA form or not.
+ */
+public class DeadCodeElimination extends MethodPass
+{
+    /**
+     * @return "dce"
+     */
+    public String getName() {
+        return "dce";
+    }
+
+    /**
+     * removes the dead code of a method and simplifies its CFG
+     *
+     * @param method the method
+     */
+    public void run(IrMethod method) {
+        method.removeUnreachableBlocks();
+        removeDeadInstrs(method);
+        boolean changed = true;
+        while (changed) {
+            changed = simplifyBranches(method);
+            changed |= mergeBlocks(method);
+            changed |= bypassEmptyBlocks(method);
+            if (changed) {
+                method.removeUnreachableBlocks();
+            }
+        }
+        method.orderBlocks();
+    }
+
+    /**
+     * removes the instructions that are not live
+     */
+    private void removeDeadInstrs(IrMethod method) {
+        Map<Temp, List<Instr>> definitions = new HashMap<>();
+        Set<Instr> live = new HashSet<>();
+        Deque<Instr> work = new ArrayDeque<>();
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr.getDest() != null) {
+                    definitions.computeIfAbsent(instr.getDest(), temp -> new ArrayList<>())
+                            .add(instr);
+                }
+                if (!instr.isRemovable() && live.add(instr)) {
+                    work.push(instr);
+                }
+            }
+        }
+        while (!work.isEmpty()) {
+            for (Operand operand : work.pop().getOperands()) {
+                for (Instr definition : definitions.getOrDefault(operand, List.of())) {
+                    if (live.add(definition)) {
+                        work.push(definition);
+                    }
+                }
+            }
+        }
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : new ArrayList<>(block.getInstrs())) {
+                if (!live.contains(instr)) {
+                    block.remove(instr);
+                }
+            }
+        }
+    }
+
+    /**
+     * turns the branches on a constant or to one block into jumps
+     *
+     * @return whether any branch changed
+     */
+    private boolean simplifyBranches(IrMethod method) {
+        boolean changed = false;
+        for (Block block : method.getBlocks()) {
+            Instr terminator = block.getTerminator();
+            if (terminator.getOpcode() != Opcode.BRANCH) {
+                continue;
+            }
+            List<Block> targets = terminator.getTargets();
+            Operand condition = terminator.getOperand(0);
+            Block target;
+            if (targets.get(0) == targets.get(1)) {
+                target = targets.get(0);
+            }
+            else if (condition instanceof Constant) {
+                target = targets.get(((Constant) condition).getBoolean() ? 0 : 1);
+                for (Instr phi : targets.get(targets.get(0) == target ? 1 : 0).getPhis()) {
+                    phi.removeIncoming(block);
+                }
+            }
+            else {
+                continue;
+            }
+            block.set(block.getInstrs().size() - 1, Instr.jump(target, terminator.getLineNum()));
+            changed = true;
+        }
+        if (changed) {
+            method.computePredecessors();
+        }
+        return changed;
+    }
+
+    /**
+     * merges every block jumping to a block with no other predecessor with
+     * that block
+     *
+     * @return whether any blocks were merged
+     */
+    private boolean mergeBlocks(IrMethod method) {
+        boolean changed = false;
+        Map<Temp, Operand> replacements = new HashMap<>();
+        for (Block block : new ArrayList<>(method.getBlocks())) {
+            if (!method.getBlocks().contains(block)) {
+                continue;
+            }
+            while (true) {
+                Instr terminator = block.getTerminator();
+                if (terminator.getOpcode() != Opcode.JUMP) {
+                    break;
+                }
+                Block next = terminator.getTargets().get(0);
+                if (next == block || next == method.getEntry()
+                        || next.getPredecessors().size() != 1) {
+                    break;
+                }
+                block.remove(terminator);
+                for (Instr instr : new ArrayList<>(next.getInstrs())) {
+                    next.remove(instr);
+                    if (instr.getOpcode() == Opcode.PHI) {
+                        replacements.put(instr.getDest(), instr.getIncoming(block));
+                    }
+                    else {
+                        block.add(instr);
+                    }
+                }
+                for (Block successor : block.getSuccessors()) {
+                    for (Instr phi : successor.getPhis()) {
+                        phi.replaceSource(next, block);
+                    }
+                }
+                method.removeBlock(next);
+                method.computePredecessors();
+                changed = true;
+            }
+        }
+        method.replaceUses(replacements);
+        return changed;
+    }
+
+    /**
+     * makes the predecessors of every block holding only a jump go where it
+     * jumps, if that block has no PHIs
+     *
+     * @return whether any block was bypassed
+     */
+    private boolean bypassEmptyBlocks(IrMethod method) {
+        boolean changed = false;
+        for (Block block : method.getBlocks()) {
+            Instr terminator = block.getTerminator();
+            if (block == method.getEntry() || block.getInstrs().size() != 1
+                    || terminator.getOpcode() != Opcode.JUMP) {
+                continue;
+            }
+            Block target = terminator.getTargets().get(0);
+            if (target == block || !target.getPhis().isEmpty()) {
+                continue;
+            }
+            for (Block predecessor : block.getPredecessors()) {
+                Instr jump = predecessor.getTerminator();
+                for (int i = 0; i < jump.getTargets().size(); i++) {
+                    if (jump.getTargets().get(i) == block) {
+                        jump.setTarget(i, target);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        if (changed) {
+            method.computePredecessors();
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * File: Devirtualization.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ir.Block;
+import bantam.ir.Instr;
+import bantam.ir.IrMethod;
+import bantam.ir.IrPass;
+import bantam.ir.IrProgram;
+import bantam.ir.Opcode;
+import bantam.ir.Operand;
+import bantam.ir.Temp;
+import bantam.util.ClassTreeNode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the calls that can only run one method of the program into
+ * DIRECTCALLs of that method, by class hierarchy analysis: the object a
+ * method is called on is null or an instance of the static type C of the
+ * call (casts check it, and instanceof does not change types), so a call
+ * of m runs the method m that C inherits or declares unless a subclass of
+ * C overrides it.  A call on an object created by a NEW of the method runs
+ * the method of the class of the NEW.  Calls of methods of built-in classes
+ * are left alone.  DIRECTCALLs still fail on null, and the Inliner can
+ * inline them.
+ */
+public class Devirtualization implements IrPass
+{
+    /** whether a subclass overrides each method, by class and name */
+    private final Map<String, Boolean> overridden = new HashMap<>();
+
+    /** the number of calls devirtualized by the last run */
+    private int devirtualized;
+
+    /**
+     * @return "devirt"
+     */
+    public String getName() {
+        return "devirt";
+    }
+
+    /**
+     * @return the number of calls the last run turned into DIRECTCALLs
+     */
+    public int getDevirtualized() {
+        return devirtualized;
+    }
+
+    /**
+     * devirtualizes the calls of a program
+     *
+     * @param program the program
+     */
+    public void run(IrProgram program) {
+        overridden.clear();
+        devirtualized = 0;
+        for (IrMethod method : program.getMethods()) {
+            Map<Temp, String> exactClasses = new HashMap<>();
+            for (Block block : method.getBlocks()) {
+                for (Instr instr : block.getInstrs()) {
+                    if (instr.getOpcode() == Opcode.NEW && method.isSsa()) {
+                        exactClasses.put(instr.getDest(), instr.getClassName());
+                    }
+                }
+            }
+            for (Block block : method.getBlocks()) {
+                List<Instr> instrs = block.getInstrs();
+                for (int i = 0; i < instrs.size(); i++) {
+                    Instr instr = instrs.get(i);
+                    if (instr.getOpcode() != Opcode.CALL) {
+                        continue;
+                    }
+                    IrMethod target = targetOf(program, instr,
+                            exactClasses.get(instr.getOperand(0)));
+                    if (target != null) {
+                        block.set(i, new Instr(Opcode.DIRECTCALL, instr.getDest(),
+                                target.getClassName(), instr.getMember(), instr.getLineNum(),
+                                instr.getOperands().toArray(new Operand[0])));
+                        devirtualized++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param exactClass the class of the object the method is called on, if
+     *                   it is known, or null
+     * @return the only method of the program a call can run, or null if it
+     * can run several or a built-in method
+     */
+    private IrMethod targetOf(IrProgram program, Instr call, String exactClass) {
+        ClassTreeNode node = program.getRoot().lookupClass(call.getClassName());
+        if (node == null || node.isBuiltIn()) {
+            return null;
+        }
+        if (exactClass != null) {
+            return program.lookupMethod(exactClass, call.getMember());
+        }
+        IrMethod target = program.lookupMethod(node.getName(), call.getMember());
+        if (target == null || isOverridden(program, node, call.getMember())) {
+            return null;
+        }
+        return target;
+    }
+
+    /**
+     * @return whether a subclass of a class declares a method
+     */
+    private boolean isOverridden(IrProgram program, ClassTreeNode node, String name) {
+        String key = node.getName() + "." + name;
+        Boolean known = overridden.get(key);
+        if (known != null) {
+            return known;
+        }
+        boolean result = false;
+        for (Iterator<ClassTreeNode> children = node.getChildrenList(); children.hasNext(); ) {
+            ClassTreeNode child = children.next();
+            if (program.getMethod(child.getName(), name) != null
+                    || isOverridden(program, child, name)) {
+                result = true;
+                break;
+            }
+        }
+        overridden.put(key, result);
+        return result;
+    }
+}
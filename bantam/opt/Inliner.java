@@ -0,0 +1,266 @@
+/*
+ * File: Inliner.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ir.Block;
+import bantam.ir.Constant;
+import bantam.ir.Instr;
+import bantam.ir.IrMethod;
+import bantam.ir.IrPass;
+import bantam.ir.IrProgram;
+import bantam.ir.Opcode;
+import bantam.ir.Operand;
+import bantam.ir.Temp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the direct calls (DIRECTCALLs and SUPERCALLs) of small leaf
+ * methods, such as getters and setters, by a copy of their body.  A method
+ * is inlined if it calls no method and has at most MAX_SIZE instructions,
+ * and the caller does not grow beyond MAX_CALLER_SIZE instructions.  The
+ * block of the call is split after it: the copy starts where the call was
+ * and its RETURNs jump to the rest of the block, where a PHI merges the
+ * values returned if there are several.  A DIRECTCALL on an object that
+ * may be null is replaced by a NULLCHECK first, so that it still fails as
+ * the call would.  Inlining is repeated, so that a method that becomes a
+ * small leaf by inlining is inlined in turn.  The methods must be in SSA
+ * form.
+ */
+public class Inliner implements IrPass
+{
+    /** the largest method inlined, in instructions */
+    public static final int MAX_SIZE = 12;
+
+    /** the size beyond which no more methods are inlined into a method */
+    public static final int MAX_CALLER_SIZE = 800;
+
+    /** how many times inlining runs over the whole program */
+    private static final int ROUNDS = 2;
+
+    /** the number of calls inlined by the last run */
+    private int inlined;
+
+    /**
+     * @return "inline"
+     */
+    public String getName() {
+        return "inline";
+    }
+
+    /**
+     * @return the number of calls the last run inlined
+     */
+    public int getInlined() {
+        return inlined;
+    }
+
+    /**
+     * inlines the calls of small leaf methods in a program
+     *
+     * @param program the program, in SSA form
+     */
+    public void run(IrProgram program) {
+        inlined = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (IrMethod method : program.getMethods()) {
+                if (!method.isSsa()) {
+                    throw new IllegalStateException(method + " is not in SSA form");
+                }
+                Instr call = findCall(program, method);
+                while (call != null) {
+                    inline(method, call, program.lookupMethod(call.getClassName(),
+                            call.getMember()));
+                    inlined++;
+                    call = findCall(program, method);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a call of a method to inline in a method, or null if there is
+     * none or the method is too large
+     */
+    private Instr findCall(IrProgram program, IrMethod method) {
+        if (method.getNumInstrs() > MAX_CALLER_SIZE) {
+            return null;
+        }
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                Opcode opcode = instr.getOpcode();
+                if (opcode != Opcode.DIRECTCALL && opcode != Opcode.SUPERCALL) {
+                    continue;
+                }
+                IrMethod callee = program.lookupMethod(instr.getClassName(), instr.getMember());
+                if (callee != null && callee != method && isSmallLeaf(callee)) {
+                    return instr;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether a method is small enough to inline and calls no method
+     */
+    private static boolean isSmallLeaf(IrMethod method) {
+        if (!method.isSsa() || method.getNumInstrs() > MAX_SIZE) {
+            return false;
+        }
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                switch (instr.getOpcode()) {
+                    case CALL: case SUPERCALL: case DIRECTCALL:
+                        return false;
+                    default:
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * replaces a call by a copy of the method it calls
+     */
+    private void inline(IrMethod method, Instr call, IrMethod callee) {
+        Block block = call.getBlock();
+        int line = call.getLineNum();
+
+        // split the block after the call
+        Block rest = method.newBlock();
+        List<Instr> instrs = block.getInstrs();
+        for (Instr instr : List.copyOf(instrs.subList(instrs.indexOf(call) + 1, instrs.size()))) {
+            block.remove(instr);
+            rest.add(instr);
+        }
+        for (Block successor : rest.getSuccessors()) {
+            for (Instr phi : successor.getPhis()) {
+                phi.replaceSource(block, rest);
+            }
+        }
+        block.remove(call);
+
+        Operand receiver = call.getOperand(0);
+        if (call.getOpcode() == Opcode.DIRECTCALL && mayBeNull(method, receiver)) {
+            block.add(new Instr(Opcode.NULLCHECK, null, line, receiver));
+        }
+
+        // copy the callee, 'this' and its formals being the operands of the call
+        Map<Temp, Operand> values = new HashMap<>();
+        values.put(callee.getThis(), receiver);
+        for (int i = 0; i < callee.getFormals().size(); i++) {
+            values.put(callee.getFormals().get(i), call.getOperand(i + 1));
+        }
+        Map<Block, Block> copies = new HashMap<>();
+        for (Block original : callee.getBlocks()) {
+            copies.put(original, method.newBlock());
+        }
+        List<Block> returnBlocks = new ArrayList<>();
+        List<Operand> returned = new ArrayList<>();
+        for (Block original : callee.getBlocks()) {
+            Block copy = copies.get(original);
+            for (Instr instr : original.getInstrs()) {
+                copy.add(copy(instr, method, values, copies, rest, returnBlocks, returned));
+            }
+        }
+        block.add(Instr.jump(copies.get(callee.getEntry()), line));
+
+        // the result of the call is the value returned
+        if (call.getDest() != null && !returned.isEmpty()) {
+            if (returned.size() == 1) {
+                method.replaceUses(Map.of(call.getDest(), returned.get(0)));
+            }
+            else {
+                Instr phi = Instr.phi(call.getDest(), line);
+                for (int i = 0; i < returned.size(); i++) {
+                    phi.addIncoming(returnBlocks.get(i), returned.get(i));
+                }
+                rest.add(0, phi);
+            }
+        }
+        method.computePredecessors();
+        method.removeUnreachableBlocks();
+    }
+
+    /**
+     * @return a copy of an instruction of a method being inlined, with the
+     * temps of the caller, RETURNs becoming jumps to the rest of the block
+     * of the call
+     */
+    private static Instr copy(Instr instr, IrMethod method, Map<Temp, Operand> values,
+                              Map<Block, Block> copies, Block rest, List<Block> returnBlocks,
+                              List<Operand> returned) {
+        int line = instr.getLineNum();
+        switch (instr.getOpcode()) {
+            case JUMP:
+                return Instr.jump(copies.get(instr.getTargets().get(0)), line);
+            case BRANCH:
+                return Instr.branch(value(instr.getOperand(0), method, values),
+                        copies.get(instr.getTargets().get(0)),
+                        copies.get(instr.getTargets().get(1)), line);
+            case RETURN:
+                if (instr.getNumOperands() > 0) {
+                    returnBlocks.add(copies.get(instr.getBlock()));
+                    returned.add(value(instr.getOperand(0), method, values));
+                }
+                return Instr.jump(rest, line);
+            case PHI:
+                Instr phi = Instr.phi((Temp) value(instr.getDest(), method, values), line);
+                for (Block source : instr.getSources()) {
+                    phi.addIncoming(copies.get(source),
+                            value(instr.getIncoming(source), method, values));
+                }
+                return phi;
+            default:
+                Operand[] operands = new Operand[instr.getNumOperands()];
+                for (int i = 0; i < operands.length; i++) {
+                    operands[i] = value(instr.getOperand(i), method, values);
+                }
+                Temp dest = instr.getDest() == null ? null
+                        : (Temp) value(instr.getDest(), method, values);
+                return new Instr(instr.getOpcode(), dest, instr.getClassName(),
+                        instr.getMember(), line, operands);
+        }
+    }
+
+    /**
+     * @return the operand of the caller standing for an operand of the
+     * method being inlined: a constant, an operand of the call, or a fresh
+     * temp
+     */
+    private static Operand value(Operand operand, IrMethod method, Map<Temp, Operand> values) {
+        if (operand instanceof Constant) {
+            return operand;
+        }
+        Temp temp = (Temp) operand;
+        return values.computeIfAbsent(temp, t -> method.newTemp(t.getName(), t.getType()));
+    }
+
+    /**
+     * @return whether an operand can be null: it is not 'this' or the result
+     * of a NEW
+     */
+    private static boolean mayBeNull(IrMethod method, Operand operand) {
+        if (operand == method.getThis()) {
+            return false;
+        }
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr.getDest() == operand) {
+                    return instr.getOpcode() != Opcode.NEW;
+                }
+            }
+        }
+        return !(operand instanceof Constant) || operand == Constant.NULL;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * File: LoopInvariantCodeMotion.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ir.Block;
+import bantam.ir.Dominators;
+import bantam.ir.Instr;
+import bantam.ir.IrMethod;
+import bantam.ir.IrProgram;
+import bantam.ir.Loops;
+import bantam.ir.Loops.Loop;
+import bantam.ir.MethodPass;
+import bantam.ir.Opcode;
+import bantam.ir.Operand;
+import bantam.ir.Temp;
+import bantam.util.ClassTreeNode;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves the computations whose value does not change while a loop runs to
+ * the preheader of the loop, so that they run once instead of on every
+ * iteration.  An instruction of a loop is invariant if its operands are
+ * constants or defined outside the loop or by invariant instructions, and
+ * it is
+ * <ul>
+ * <li>a pure operation that cannot fail, which can run even if the loop
+ * would not have run it;</li>
+ * <li>a read of a field of 'this' (or of a new object) that no
+ * instruction of the loop writes, in a loop calling no method that could
+ * write it (a method of a class of the program, or an initializer run by
+ * new);</li>
+ * <li>or a call of String.length(), or any other instruction that can fail,
+ * such as a read of such a field of an object that may be null, if it is at
+ * the start of the header, where it runs whenever the loop is entered and
+ * before anything the loop does.</li>
+ * </ul>
+ * The loops are handled innermost first, so that an invariant of nested
+ * loops moves out of all of them.  The methods must be in SSA form.
+ */
+public class LoopInvariantCodeMotion extends MethodPass
+{
+    /** the classes of the program being optimized */
+    private Map<String, ClassTreeNode> classMap;
+
+    /**
+     * @return "licm"
+     */
+    public String getName() {
+        return "licm";
+    }
+
+    /**
+     * moves the loop invariants of all the methods of a program
+     *
+     * @param program the program, in SSA form
+     */
+    @Override
+    public void run(IrProgram program) {
+        classMap = program.getRoot().getClassMap();
+        super.run(program);
+        classMap = null;
+    }
+
+    /**
+     * moves the loop invariants of a method
+     *
+     * @param method the method, in SSA form
+     */
+    public void run(IrMethod method) {
+        if (!method.isSsa()) {
+            throw new IllegalStateException(method + " is not in SSA form");
+        }
+        Loops.insertPreheaders(method);
+        Dominators dominators = new Dominators(method);
+        List<Block> preorder = dominators.preorder();
+        Map<Temp, Block> definingBlocks = new HashMap<>();
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr.getDest() != null) {
+                    definingBlocks.put(instr.getDest(), block);
+                }
+            }
+        }
+        for (Loop loop : new Loops(method, dominators).getLoops()) {
+            hoist(loop, preorder, definingBlocks);
+        }
+    }
+
+    /**
+     * moves the invariants of a loop to its preheader
+     */
+    private void hoist(Loop loop, List<Block> preorder, Map<Temp, Block> definingBlocks) {
+        Block preheader = loop.getPreheader();
+        Set<String> writtenFields = new HashSet<>();
+        boolean callsProgram = false;
+        for (Block block : loop.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr.getOpcode() == Opcode.PUTFIELD) {
+                    writtenFields.add(instr.getMember());
+                }
+                else if (mayRunProgram(instr)) {
+                    callsProgram = true;
+                }
+            }
+        }
+        for (Block block : preorder) {
+            if (!loop.contains(block)) {
+                continue;
+            }
+            boolean atStart = block == loop.getHeader();
+            for (Instr instr : List.copyOf(block.getInstrs())) {
+                Opcode opcode = instr.getOpcode();
+                if (opcode == Opcode.PHI) {
+                    continue;
+                }
+                boolean movable;
+                if (!isInvariant(instr, loop, definingBlocks)) {
+                    movable = false;
+                }
+                else if (opcode == Opcode.GETFIELD
+                        && (callsProgram || writtenFields.contains(instr.getMember()))) {
+                    movable = false;
+                }
+                else if (instr.isRemovable()) {
+                    movable = opcode.isPure() || opcode == Opcode.GETFIELD;
+                }
+                else {
+                    movable = atStart && (!instr.hasSideEffects() || isLength(instr));
+                }
+                if (movable) {
+                    block.remove(instr);
+                    preheader.add(preheader.getInstrs().size() - 1, instr);
+                    definingBlocks.put(instr.getDest(), preheader);
+                }
+                else if (instr.hasSideEffects() || instr.canFail()) {
+                    atStart = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the operands of an instruction are constants or
+     * defined outside a loop
+     */
+    private static boolean isInvariant(Instr instr, Loop loop, Map<Temp, Block> definingBlocks) {
+        if (instr.getDest() == null) {
+            return false;
+        }
+        for (Operand operand : instr.getOperands()) {
+            Block definingBlock = definingBlocks.get(operand);
+            if (definingBlock != null && loop.contains(definingBlock)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether an instruction is a call of String.length(), which only
+     * fails on null
+     */
+    private static boolean isLength(Instr instr) {
+        return instr.getOpcode() == Opcode.CALL && instr.getClassName().equals("String")
+                && instr.getMember().equals("length");
+    }
+
+    /**
+     * @return whether an instruction can run Bantam code of the program,
+     * which could write any field: a call of a method of a class that is
+     * not built in or that the program can extend, or a new object of a
+     * class of the program
+     */
+    private boolean mayRunProgram(Instr instr) {
+        switch (instr.getOpcode()) {
+            case CALL: case SUPERCALL: case DIRECTCALL: case NEW:
+                ClassTreeNode node = classMap.get(instr.getClassName());
+                return node == null || !node.isBuiltIn()
+                        || instr.getOpcode() == Opcode.CALL && node.isExtendable();
+            default:
+                return false;
+        }
+    }
+}
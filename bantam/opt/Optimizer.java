@@ -0,0 +1,185 @@
+/*
+ * File: Optimizer.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ast.ASTNode;
+import bantam.ast.ClassList;
+import bantam.ast.Program;
+import bantam.interp.BantamRuntimeException;
+import bantam.interp.IrEngine;
+import bantam.ir.IrBuilder;
+import bantam.ir.IrPass;
+import bantam.ir.IrProgram;
+import bantam.ir.IrVerifier;
+import bantam.ir.SsaBuilder;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the passes optimizing a program in IR one after the other and
+ * reports the number of instructions of the program before and after each
+ * of them, and its run time.  The passes are the construction of SSA form and
+ * devirtualization, a first round of sparse conditional constant
+ * propagation, global value numbering and dead code elimination that
+ * shrinks the methods before small ones are inlined, then constant
+ * propagation and value numbering again, loop invariant code motion and
+ * strength reduction, value numbering for the invariants moved next to
+ * equal computations, and dead code elimination.
+ */
+public class Optimizer
+{
+    /** the passes, in the order they run */
+    private final List<IrPass> passes = new ArrayList<>();
+
+    /**
+     * a line per pass run: its name, the instructions before and after and
+     * its run time
+     */
+    private final List<String> report = new ArrayList<>();
+
+    /** whether to verify the IR after each pass */
+    private boolean verify;
+
+    /**
+     * creates an optimizer running the standard passes
+     */
+    public Optimizer() {
+        passes.add(new SsaBuilder());
+        passes.add(new Devirtualization());
+        passes.add(new ConstantPropagation());
+        passes.add(new ValueNumbering());
+        passes.add(new DeadCodeElimination());
+        passes.add(new Inliner());
+        passes.add(new ConstantPropagation());
+        passes.add(new ValueNumbering());
+        passes.add(new LoopInvariantCodeMotion());
+        passes.add(new StrengthReduction());
+        passes.add(new ValueNumbering());
+        passes.add(new DeadCodeElimination());
+    }
+
+    /**
+     * Set whether to check the IR with the IrVerifier after each pass
+     *
+     * @param verify true to check it
+     */
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    /**
+     * optimizes a program in place
+     *
+     * @param program the program, built by the IrBuilder
+     * @throws IllegalStateException if verifying and a pass produced
+     * invalid IR
+     */
+    public void optimize(IrProgram program) {
+        for (IrPass pass : passes) {
+            int before = program.getNumInstrs();
+            long start = System.nanoTime();
+            pass.run(program);
+            long time = System.nanoTime() - start;
+            int after = program.getNumInstrs();
+            report.add(String.format("%-6s %7d -> %7d instructions %8.2f ms",
+                    pass.getName(), before, after, time / 1e6));
+            if (verify) {
+                IrVerifier.check(program);
+            }
+        }
+    }
+
+    /**
+     * @return a line per pass run so far: its name, the number of
+     * instructions of the program before and after it and its run time
+     */
+    public List<String> getReport() {
+        return Collections.unmodifiableList(report);
+    }
+
+    /**
+     * optimizes a Bantam Java program, printing the report, and runs it
+     * before and after with its output discarded, printing the number of
+     * instructions each run executes and its time.  You need to provide command line
+     * arguments each of which is the pathname of a Bantam Java file; the
+     * standard input is given to both runs.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+
+        try {
+            for (String inFile : args) {
+                for (ASTNode klass : parser.parse(inFile).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            new ConstantFolder().fold(root);
+            new ReachabilityAnalyzer().strip(root);
+            IrProgram original = new IrBuilder().build(root);
+            IrProgram optimized = new IrBuilder().build(root);
+            Optimizer optimizer = new Optimizer();
+            optimizer.setVerify(true);
+            optimizer.optimize(optimized);
+            for (String line : optimizer.getReport()) {
+                System.out.println(line);
+            }
+
+            byte[] input = System.in.readAllBytes();
+            long start = System.nanoTime();
+            long before = countInstructions(original, input);
+            long middle = System.nanoTime();
+            long after = countInstructions(optimized, input);
+            long end = System.nanoTime();
+            System.out.printf("executed %d instructions in %d ms before, %d in %d ms after"
+                            + " (%.1f%% fewer)%n", before, (middle - start) / 1000000, after,
+                    (end - middle) / 1000000,
+                    before == 0 ? 0.0 : 100.0 * (before - after) / before);
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        }
+    }
+
+    /**
+     * runs a program on the IrEngine with its output discarded
+     *
+     * @return the number of instructions it executed, up to the error that
+     * stopped it, if any
+     */
+    private static long countInstructions(IrProgram program, byte[] input) {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        IrEngine engine = new IrEngine(program, new ByteArrayInputStream(input), discard,
+                discard);
+        try {
+            engine.run();
+        } catch (BantamRuntimeException ex) {
+            System.out.println("the program stopped with an error: " + ex.getMessage());
+        }
+        return engine.getInstructionCount();
+    }
+}
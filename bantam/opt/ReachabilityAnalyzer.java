@@ -0,0 +1,569 @@
+/*
+ * File: ReachabilityAnalyzer.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ast.*;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+import bantam.visitor.Visitor;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * This visitor finds the classes, methods and fields of a checked program
+ * that it can use when it runs, starting from Main.main(), and strips the
+ * others from the program before it is lowered, compiled or interpreted.
+ * The call graph is built by rapid type analysis: only the classes the
+ * reachable code creates with new (and Main) have instances, so a call of
+ * m on an object of static type C can only run the method m of those of
+ * them that are C or its subclasses, and it runs when one of them is
+ * created later on.  The method m that C itself declares or inherits is
+ * kept too, as the backends resolve the call to it.  Creating an object
+ * runs the field initializers of its class and its superclasses, so they
+ * are reachable code.
+ * <p/>
+ * A class is kept if it is built in, has instances, declares a reachable
+ * method, is the type of something in reachable code, or is a superclass
+ * of a class kept.  A field is kept if reachable code of its class or a
+ * subclass names it (it may be a local of the same name), or if it has
+ * instances and an initializer that can fail or have an effect.
+ */
+public class ReachabilityAnalyzer extends Visitor
+{
+    /**
+     * a piece of reachable code: a method, or the initializer of a field
+     */
+    private static final class Code
+    {
+        /** the class the code is in */
+        private final ClassTreeNode owner;
+
+        /** the method or field */
+        private final Member member;
+
+        /** the name of the method, as Class.method, or null for a field */
+        private final String method;
+
+        /**
+         * @param owner the class the code is in
+         * @param member the method or field
+         * @param method the name of the method, or null for a field
+         */
+        private Code(ClassTreeNode owner, Member member, String method) {
+            this.owner = owner;
+            this.member = member;
+            this.method = method;
+        }
+    }
+
+    /** the classes of the program */
+    private Map<String, ClassTreeNode> classMap;
+
+    /** the reachable code that is still to be visited */
+    private final Deque<Code> worklist = new ArrayDeque<>();
+
+    /** the classes of the program that have instances */
+    private final Set<String> instantiated = new LinkedHashSet<>();
+
+    /** the reachable methods, as Class.method */
+    private final Set<String> reachableMethods = new LinkedHashSet<>();
+
+    /** the classes named as types by the reachable code */
+    private final Set<String> usedTypes = new LinkedHashSet<>();
+
+    /** the names of variables used by the reachable code of each class */
+    private final Map<String, Set<String>> usedNames = new HashMap<>();
+
+    /** the methods making each call seen, by static class and method name */
+    private final Map<List<String>, Set<String>> dispatches = new HashMap<>();
+
+    /** the methods each reachable method may call */
+    private final Map<String, Set<String>> callGraph = new HashMap<>();
+
+    /** the class of the code being visited */
+    private ClassTreeNode currentClass;
+
+    /** the method being visited, as Class.method, or null for a field */
+    private String currentMethod;
+
+    /** the report of the last strip */
+    private final List<String> report = new ArrayList<>();
+
+    /**
+     * strips the classes, methods and fields a program cannot use from it
+     *
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     * @return the number of classes, methods and fields removed
+     */
+    public int strip(ClassTreeNode root) {
+        analyze(root);
+        Set<String> kept = keptClasses();
+        List<String> removed = new ArrayList<>();
+        int classes = 0;
+        int methods = 0;
+        int fields = 0;
+        int keptMethods = 0;
+        int keptFields = 0;
+        for (ClassTreeNode node : new TreeMap<>(classMap).values()) {
+            if (node.isBuiltIn()) {
+                continue;
+            }
+            classes++;
+            MemberList members = node.getASTNode().getMemberList();
+            if (!kept.contains(node.getName())) {
+                for (ASTNode member : members) {
+                    if (member instanceof Method) {
+                        methods++;
+                    }
+                    else {
+                        fields++;
+                    }
+                }
+                classMap.remove(node.getName());
+                node.getParent().removeChild(node);
+                removed.add("class " + node.getName());
+                continue;
+            }
+            for (int i = 0; i < members.getSize(); i++) {
+                ASTNode member = members.get(i);
+                boolean reachable;
+                String removal;
+                if (member instanceof Method) {
+                    methods++;
+                    String key = key(node, ((Method) member).getName());
+                    reachable = reachableMethods.contains(key);
+                    keptMethods += reachable ? 1 : 0;
+                    removal = "method " + key;
+                }
+                else {
+                    fields++;
+                    reachable = isUsed(node, (Field) member);
+                    keptFields += reachable ? 1 : 0;
+                    removal = "field " + key(node, ((Field) member).getName());
+                }
+                if (!reachable) {
+                    removed.add(removal);
+                    members.remove(i--);
+                }
+            }
+        }
+        int edges = 0;
+        for (Set<String> callees : callGraph.values()) {
+            edges += callees.size();
+        }
+
+        report.clear();
+        report.add("classes  " + kept.size() + " of " + classes + " reachable");
+        report.add("methods  " + keptMethods + " of " + methods + " reachable");
+        report.add("fields   " + keptFields + " of " + fields + " reachable");
+        report.add("calls    " + edges + " edges in the call graph, "
+                + instantiated.size() + " classes instantiated");
+        for (String member : removed) {
+            report.add("removed " + member);
+        }
+        return removed.size();
+    }
+
+    /**
+     * @return the lines of the report of the last strip: the numbers of
+     * classes, methods and fields kept and the members removed
+     */
+    public List<String> getReport() {
+        return report;
+    }
+
+    /**
+     * finds the reachable code of a program
+     *
+     * @param root the root of the class hierarchy of the program
+     */
+    private void analyze(ClassTreeNode root) {
+        classMap = root.getClassMap();
+        worklist.clear();
+        instantiated.clear();
+        reachableMethods.clear();
+        usedTypes.clear();
+        usedNames.clear();
+        dispatches.clear();
+        callGraph.clear();
+
+        ClassTreeNode main = classMap.get("Main");
+        instantiate(main);
+        reach(main, "main");
+        while (!worklist.isEmpty()) {
+            Code code = worklist.poll();
+            currentClass = code.owner;
+            currentMethod = code.method;
+            code.member.accept(this);
+        }
+        currentClass = null;
+        currentMethod = null;
+    }
+
+    /**
+     * @return the user classes to keep: the ones used and their superclasses
+     */
+    private Set<String> keptClasses() {
+        Set<String> used = new LinkedHashSet<>(instantiated);
+        used.addAll(usedTypes);
+        for (String method : reachableMethods) {
+            used.add(method.substring(0, method.indexOf('.')));
+        }
+        Set<String> kept = new LinkedHashSet<>();
+        for (String name : used) {
+            for (ClassTreeNode node = classMap.get(name);
+                 node != null && !node.isBuiltIn(); node = node.getParent()) {
+                kept.add(node.getName());
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return whether a field of a class is kept: it is named by reachable
+     * code of the class or a subclass, or it has an initializer that is run
+     * and cannot be dropped
+     */
+    private boolean isUsed(ClassTreeNode node, Field field) {
+        boolean run = false;
+        for (String name : instantiated) {
+            if (isSubclass(classMap.get(name), node)) {
+                run = true;
+                break;
+            }
+        }
+        if (run && field.getInit() != null && !ConstantFolder.isPure(field.getInit())) {
+            return true;
+        }
+        for (Map.Entry<String, Set<String>> entry : usedNames.entrySet()) {
+            if (entry.getValue().contains(field.getName())
+                    && isSubclass(classMap.get(entry.getKey()), node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * records that a class has instances: its field initializers and those
+     * of its superclasses run, and so do its methods of the calls seen
+     *
+     * @param node the class
+     */
+    private void instantiate(ClassTreeNode node) {
+        if (node == null || node.isBuiltIn() || !instantiated.add(node.getName())) {
+            return;
+        }
+        for (ClassTreeNode owner = node; !owner.isBuiltIn(); owner = owner.getParent()) {
+            for (ASTNode member : owner.getASTNode().getMemberList()) {
+                if (member instanceof Field && ((Field) member).getInit() != null) {
+                    worklist.add(new Code(owner, (Member) member, null));
+                }
+            }
+        }
+        for (Map.Entry<List<String>, Set<String>> entry : dispatches.entrySet()) {
+            ClassTreeNode staticClass = classMap.get(entry.getKey().get(0));
+            if (isSubclass(node, staticClass)) {
+                for (String caller : entry.getValue()) {
+                    call(caller, declaringClass(node, entry.getKey().get(1)),
+                            entry.getKey().get(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * records a call of a method on an object of a static class: it runs
+     * the method of each class with instances that is the class or a
+     * subclass of it
+     *
+     * @param staticClass the static class of the object
+     * @param name the name of the method
+     */
+    private void dispatch(ClassTreeNode staticClass, String name) {
+        if (staticClass == null) {
+            return;
+        }
+        call(currentMethod, declaringClass(staticClass, name), name);
+        List<String> key = List.of(staticClass.getName(), name);
+        Set<String> callers = dispatches.get(key);
+        if (callers == null) {
+            callers = new LinkedHashSet<>();
+            dispatches.put(key, callers);
+        }
+        if (!callers.add(currentMethod)) {
+            return;
+        }
+        for (String className : List.copyOf(instantiated)) {
+            ClassTreeNode node = classMap.get(className);
+            if (isSubclass(node, staticClass)) {
+                call(currentMethod, declaringClass(node, name), name);
+            }
+        }
+    }
+
+    /**
+     * adds an edge to the call graph and makes the method called reachable
+     *
+     * @param caller the calling method, as Class.method, or null for a
+     *               field initializer
+     * @param owner the class declaring the method called, or null
+     * @param name the name of the method called
+     */
+    private void call(String caller, ClassTreeNode owner, String name) {
+        if (owner == null || owner.isBuiltIn()) {
+            return;
+        }
+        if (caller != null) {
+            callGraph.computeIfAbsent(caller, c -> new LinkedHashSet<>())
+                    .add(key(owner, name));
+        }
+        reach(owner, name);
+    }
+
+    /**
+     * makes a method declared by a class reachable
+     *
+     * @param owner the class declaring it
+     * @param name the name of the method
+     */
+    private void reach(ClassTreeNode owner, String name) {
+        String key = key(owner, name);
+        if (!reachableMethods.add(key)) {
+            return;
+        }
+        for (ASTNode member : owner.getASTNode().getMemberList()) {
+            if (member instanceof Method && ((Method) member).getName().equals(name)) {
+                worklist.add(new Code(owner, (Member) member, key));
+            }
+        }
+    }
+
+    /**
+     * @return the class declaring the method a class has by a name (its
+     * own or inherited), or null if there is none
+     */
+    private static ClassTreeNode declaringClass(ClassTreeNode node, String name) {
+        for (; node != null; node = node.getParent()) {
+            for (ASTNode member : node.getASTNode().getMemberList()) {
+                if (member instanceof Method && ((Method) member).getName().equals(name)) {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether a class is another one or one of its subclasses
+     */
+    private static boolean isSubclass(ClassTreeNode node, ClassTreeNode ancestor) {
+        for (; node != null; node = node.getParent()) {
+            if (node == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the name of a member of a class, as Class.member
+     */
+    private static String key(ClassTreeNode owner, String name) {
+        return owner.getName() + "." + name;
+    }
+
+    /**
+     * records that the reachable code names a type
+     *
+     * @param type the type, or null
+     */
+    private void useType(String type) {
+        if (type != null && classMap.containsKey(type)) {
+            usedTypes.add(type);
+        }
+    }
+
+    /**
+     * records that the reachable code of the current class names a
+     * variable, which may be a field
+     *
+     * @param name the name of the variable
+     */
+    private void useName(String name) {
+        usedNames.computeIfAbsent(currentClass.getName(), c -> new LinkedHashSet<>())
+                .add(name);
+    }
+
+    /**
+     * Visit a field node: its type and initializer are used
+     *
+     * @param node the field node
+     * @return null
+     */
+    public Object visit(Field node) {
+        useType(node.getType());
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a method node: its return type and the types of its formals
+     * are used
+     *
+     * @param node the method node
+     * @return null
+     */
+    public Object visit(Method node) {
+        useType(node.getReturnType());
+        for (ASTNode formal : node.getFormalList()) {
+            useType(((Formal) formal).getType());
+        }
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a declaration statement node: the type of the variable is used
+     *
+     * @param node the declaration statement node
+     * @return null
+     */
+    public Object visit(DeclStmt node) {
+        useType(node.getType());
+        useType(node.getInit().getExprType());
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a dispatch expression node: the methods it can call become
+     * reachable
+     *
+     * @param node the dispatch expression node
+     * @return null
+     */
+    public Object visit(DispatchExpr node) {
+        super.visit(node);
+        Expr ref = node.getRefExpr();
+        String name = node.getMethodName();
+        if (ref == null) {
+            dispatch(currentClass, name);
+        }
+        else if (ref instanceof VarExpr && ((VarExpr) ref).getRef() == null
+                && ((VarExpr) ref).getName().equals("super")) {
+            call(currentMethod, declaringClass(currentClass.getParent(), name), name);
+        }
+        else {
+            useType(ref.getExprType());
+            dispatch(classMap.get(ref.getExprType()), name);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a new expression node: the class has instances
+     *
+     * @param node the new expression node
+     * @return null
+     */
+    public Object visit(NewExpr node) {
+        useType(node.getType());
+        instantiate(classMap.get(node.getType()));
+        return null;
+    }
+
+    /**
+     * Visit an instanceof expression node: its type is used
+     *
+     * @param node the instanceof expression node
+     * @return null
+     */
+    public Object visit(InstanceofExpr node) {
+        useType(node.getType());
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a cast expression node: its type is used
+     *
+     * @param node the cast expression node
+     * @return null
+     */
+    public Object visit(CastExpr node) {
+        useType(node.getType());
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an assignment expression node: the variable is used
+     *
+     * @param node the assignment expression node
+     * @return null
+     */
+    public Object visit(AssignExpr node) {
+        useName(node.getName());
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a variable expression node: the variable is used
+     *
+     * @param node the variable expression node
+     * @return null
+     */
+    public Object visit(VarExpr node) {
+        useName(node.getName());
+        return super.visit(node);
+    }
+
+    /**
+     * strips the program made of the given files and prints the report.
+     * You need to provide command line arguments each of which is the
+     * pathname of a Bantam Java file.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+
+        try {
+            for (String inFile : args) {
+                for (ASTNode klass : parser.parse(inFile).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            new ConstantFolder().fold(root);
+            ReachabilityAnalyzer reachability = new ReachabilityAnalyzer();
+            reachability.strip(root);
+            for (String line : reachability.getReport()) {
+                System.out.println(line);
+            }
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        }
+    }
+}
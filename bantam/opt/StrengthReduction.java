@@ -0,0 +1,222 @@
+/*
+ * File: StrengthReduction.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ir.Block;
+import bantam.ir.Constant;
+import bantam.ir.Dominators;
+import bantam.ir.Instr;
+import bantam.ir.IrMethod;
+import bantam.ir.Loops;
+import bantam.ir.Loops.Loop;
+import bantam.ir.MethodPass;
+import bantam.ir.Opcode;
+import bantam.ir.Operand;
+import bantam.ir.Temp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the multiplications of an induction variable of a loop by an
+ * invariant with an induction variable of their own, updated by an
+ * addition where the original one is.  An induction variable is a PHI of
+ * the header whose operands coming back from the loop are all the same
+ * temp i', computed in the loop as i + c, c + i or i - c from the PHI i and
+ * an invariant c, which is how the IrBuilder lowers i++, ++i, i--, --i and
+ * i = i + c.  For i * k, k invariant, the new variable j starts at
+ * init * k and j' = j + c * k (or j - c * k) is computed right after i', so
+ * that j is i * k in the whole loop, with the wrap-around arithmetic of
+ * Bantam too; i' * k, as in a loop doing --i first, becomes j'.  Products
+ * of constants are folded and the others are computed in the preheader.
+ * The methods must be in SSA form.
+ */
+public class StrengthReduction extends MethodPass
+{
+    /**
+     * @return "sr"
+     */
+    public String getName() {
+        return "sr";
+    }
+
+    /**
+     * reduces the multiplications of induction variables of a method
+     *
+     * @param method the method, in SSA form
+     */
+    public void run(IrMethod method) {
+        if (!method.isSsa()) {
+            throw new IllegalStateException(method + " is not in SSA form");
+        }
+        Loops.insertPreheaders(method);
+        Dominators dominators = new Dominators(method);
+        Map<Temp, Instr> definitions = new HashMap<>();
+        for (Block block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr.getDest() != null) {
+                    definitions.put(instr.getDest(), instr);
+                }
+            }
+        }
+        for (Loop loop : new Loops(method, dominators).getLoops()) {
+            reduce(method, loop, definitions);
+        }
+    }
+
+    /**
+     * reduces the multiplications of the induction variables of a loop
+     */
+    private void reduce(IrMethod method, Loop loop, Map<Temp, Instr> definitions) {
+        Map<Temp, Instr> updates = new HashMap<>();
+        for (Instr phi : loop.getHeader().getPhis()) {
+            Instr update = updateOf(phi, loop, definitions);
+            if (update != null) {
+                updates.put(phi.getDest(), update);
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+        Map<Operand, Temp> variablesOfUpdates = new HashMap<>();
+        for (Map.Entry<Temp, Instr> entry : updates.entrySet()) {
+            variablesOfUpdates.put(entry.getValue().getDest(), entry.getKey());
+        }
+        Map<List<Operand>, Temp[]> reduced = new HashMap<>();
+        Map<Temp, Operand> replacements = new HashMap<>();
+        for (Block block : loop.getBlocks()) {
+            for (Instr instr : List.copyOf(block.getInstrs())) {
+                if (instr.getOpcode() != Opcode.MUL) {
+                    continue;
+                }
+                for (int i = 0; i < 2; i++) {
+                    Operand operand = instr.getOperand(i);
+                    Operand factor = instr.getOperand(1 - i);
+                    boolean isUpdate = variablesOfUpdates.containsKey(operand);
+                    Temp variable = isUpdate ? variablesOfUpdates.get(operand)
+                            : updates.containsKey(operand) ? (Temp) operand : null;
+                    if (variable == null || !isInvariant(factor, loop, definitions)) {
+                        continue;
+                    }
+                    List<Operand> key = List.of(variable, factor);
+                    Temp[] products = reduced.get(key);
+                    if (products == null) {
+                        products = newVariable(method, loop, variable, factor,
+                                updates.get(variable), definitions);
+                        reduced.put(key, products);
+                    }
+                    replacements.put(instr.getDest(), products[isUpdate ? 1 : 0]);
+                    block.remove(instr);
+                    break;
+                }
+            }
+        }
+        method.replaceUses(replacements);
+    }
+
+    /**
+     * @return the instruction computing the value an induction variable has
+     * in the next iteration, or null if the PHI is not an induction variable
+     */
+    private static Instr updateOf(Instr phi, Loop loop, Map<Temp, Instr> definitions) {
+        if (!phi.getDest().getType().equals("int")) {
+            return null;
+        }
+        Operand next = null;
+        for (Block source : phi.getSources()) {
+            if (!loop.contains(source)) {
+                continue;
+            }
+            Operand operand = phi.getIncoming(source);
+            if (next != null && !next.equals(operand)) {
+                return null;
+            }
+            next = operand;
+        }
+        Instr update = definitions.get(next);
+        if (update == null || !loop.contains(update.getBlock())) {
+            return null;
+        }
+        Operand a = update.getOperand(0);
+        Operand b = update.getNumOperands() > 1 ? update.getOperand(1) : null;
+        Temp variable = phi.getDest();
+        switch (update.getOpcode()) {
+            case ADD:
+                if (a == variable && isInvariant(b, loop, definitions)
+                        || b == variable && isInvariant(a, loop, definitions)) {
+                    return update;
+                }
+                return null;
+            case SUB:
+                return a == variable && isInvariant(b, loop, definitions) ? update : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * creates the induction variable holding variable * factor in a loop
+     *
+     * @return the temps of its PHI and of its value in the next iteration
+     */
+    private static Temp[] newVariable(IrMethod method, Loop loop, Temp variable, Operand factor,
+                                    Instr update, Map<Temp, Instr> definitions) {
+        Block preheader = loop.getPreheader();
+        Instr phi = definitions.get(variable);
+        int line = phi.getLineNum();
+        Operand step = update.getOperand(update.getOperand(0) == variable ? 1 : 0);
+
+        Operand start = multiply(preheader, phi.getIncoming(preheader), factor, line,
+                method, definitions);
+        Operand increment = multiply(preheader, step, factor, line, method, definitions);
+
+        Temp product = method.newTemp(null, "int");
+        Temp nextProduct = method.newTemp(null, "int");
+        Instr productPhi = Instr.phi(product, line);
+        for (Block source : new ArrayList<>(phi.getSources())) {
+            productPhi.addIncoming(source, loop.contains(source) ? nextProduct : start);
+        }
+        loop.getHeader().add(0, productPhi);
+        definitions.put(product, productPhi);
+
+        Block block = update.getBlock();
+        Instr add = new Instr(update.getOpcode(), nextProduct, update.getLineNum(), product,
+                increment);
+        block.add(block.getInstrs().indexOf(update) + 1, add);
+        definitions.put(nextProduct, add);
+        return new Temp[]{product, nextProduct};
+    }
+
+    /**
+     * @return the product of two invariants: a constant if both are, or the
+     * temp of a multiplication added at the end of the preheader
+     */
+    private static Operand multiply(Block preheader, Operand a, Operand b, int line,
+                                    IrMethod method, Map<Temp, Instr> definitions) {
+        if (a instanceof Constant && b instanceof Constant) {
+            return Constant.ofInt(((Constant) a).getInt() * ((Constant) b).getInt());
+        }
+        Temp product = method.newTemp(null, "int");
+        Instr mul = new Instr(Opcode.MUL, product, line, a, b);
+        preheader.add(preheader.getInstrs().size() - 1, mul);
+        definitions.put(product, mul);
+        return product;
+    }
+
+    /**
+     * @return whether an operand is a constant or a temp defined outside a
+     * loop
+     */
+    private static boolean isInvariant(Operand operand, Loop loop, Map<Temp, Instr> definitions) {
+        Instr definition = definitions.get(operand);
+        return definition == null || !loop.contains(definition.getBlock());
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * File: ValueNumbering.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.opt;
+
+import bantam.ir.Block;
+import bantam.ir.Constant;
+import bantam.ir.Dominators;
+import bantam.ir.Instr;
+import bantam.ir.IrMethod;
+import bantam.ir.MethodPass;
+import bantam.ir.Opcode;
+import bantam.ir.Operand;
+import bantam.ir.Temp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global value numbering of methods in SSA form, by a walk of the dominator
+ * tree with a scoped hash table (Briggs, Cooper and Simpson): a pure
+ * instruction computing the same operation on the same operands as one
+ * dominating it is removed and its temp replaced by the earlier one.  On
+ * the way it
+ * <ul>
+ * <li>propagates copies, replacing the temp of a MOVE by its operand;</li>
+ * <li>removes PHIs whose operands are all the same (or the PHI itself);</li>
+ * <li>folds pure operations on constants (see ConstantPropagation.fold())
+ * and simplifies x + 0, x - 0, x - x, x * 1, x * 0, x / 1 and x == x;</li>
+ * <li>replaces a read of a field by the value last read from it or
+ * written to it earlier in the same block, if no call or new object in
+ * between could have changed it.</li>
+ * </ul>
+ * The operands of commutative operations are put in a fixed order first, so
+ * that a + b and b + a get the same number.
+ */
+public class ValueNumbering extends MethodPass
+{
+    /** the operand replacing each temp removed so far */
+    private Map<Temp, Operand> replacements;
+
+    /** the temp holding the value of each operation available in the walk */
+    private Map<List<Object>, Temp> available;
+
+    /**
+     * @return "gvn"
+     */
+    public String getName() {
+        return "gvn";
+    }
+
+    /**
+     * removes the redundant computations of a method
+     *
+     * @param method the method, in SSA form
+     */
+    public void run(IrMethod method) {
+        if (!method.isSsa()) {
+            throw new IllegalStateException(method + " is not in SSA form");
+        }
+        replacements = new HashMap<>();
+        available = new HashMap<>();
+        Dominators dominators = new Dominators(method);
+
+        Deque<Block> blocks = new ArrayDeque<>();
+        Deque<List<List<Object>>> added = new ArrayDeque<>();
+        Deque<Integer> nextChild = new ArrayDeque<>();
+        blocks.push(method.getEntry());
+        added.push(number(method.getEntry()));
+        nextChild.push(0);
+        while (!blocks.isEmpty()) {
+            Block block = blocks.peek();
+            int index = nextChild.pop();
+            List<Block> children = dominators.getChildren(block);
+            if (index < children.size()) {
+                nextChild.push(index + 1);
+                Block child = children.get(index);
+                blocks.push(child);
+                added.push(number(child));
+                nextChild.push(0);
+            }
+            else {
+                blocks.pop();
+                for (List<Object> key : added.pop()) {
+                    available.remove(key);
+                }
+            }
+        }
+        method.replaceUses(replacements);
+        replacements = null;
+        available = null;
+    }
+
+    /**
+     * numbers the instructions of a block, removing the redundant ones
+     *
+     * @return the keys of the operations it made available
+     */
+    private List<List<Object>> number(Block block) {
+        List<List<Object>> added = new ArrayList<>();
+        Map<List<Object>, Operand> fields = new HashMap<>();
+        for (Instr instr : new ArrayList<>(block.getInstrs())) {
+            for (int i = 0; i < instr.getNumOperands(); i++) {
+                instr.setOperand(i, resolve(instr.getOperand(i)));
+            }
+            Temp dest = instr.getDest();
+            Opcode opcode = instr.getOpcode();
+            if (numberField(block, instr, fields)) {
+                continue;
+            }
+            if (opcode == Opcode.PHI) {
+                Operand same = sameOperand(instr);
+                if (same != null) {
+                    replace(block, instr, same);
+                }
+                continue;
+            }
+            if (dest == null || !opcode.isPure()) {
+                continue;
+            }
+            Operand simplified = simplify(instr);
+            if (simplified != null) {
+                replace(block, instr, simplified);
+                continue;
+            }
+            List<Object> key = keyOf(instr);
+            Temp earlier = available.get(key);
+            if (earlier != null) {
+                replace(block, instr, earlier);
+            }
+            else {
+                available.put(key, dest);
+                added.add(key);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * keeps track of the values of the fields in a block: removes a read of
+     * a field whose value is known, and forgets the values a write or a call
+     * can change
+     *
+     * @param fields the known value of each field, by class, name and object
+     * @return whether the instruction was a read of a known field
+     */
+    private boolean numberField(Block block, Instr instr, Map<List<Object>, Operand> fields) {
+        switch (instr.getOpcode()) {
+            case GETFIELD:
+                List<Object> field = List.of(instr.getClassName(), instr.getMember(),
+                        instr.getOperand(0));
+                Operand known = fields.get(field);
+                if (known != null) {
+                    replace(block, instr, known);
+                    return true;
+                }
+                fields.put(field, instr.getDest());
+                return false;
+            case PUTFIELD:
+                fields.keySet().removeIf(key -> key.get(1).equals(instr.getMember()));
+                fields.put(List.of(instr.getClassName(), instr.getMember(), instr.getOperand(0)),
+                        instr.getOperand(1));
+                return false;
+            case CALL: case SUPERCALL: case DIRECTCALL: case NEW:
+                fields.clear();
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * removes an instruction whose temp has the value of an operand
+     */
+    private void replace(Block block, Instr instr, Operand operand) {
+        replacements.put(instr.getDest(), operand);
+        block.remove(instr);
+    }
+
+    /**
+     * @return the operand replacing an operand, following replacements of
+     * replacements
+     */
+    private Operand resolve(Operand operand) {
+        while (replacements.containsKey(operand)) {
+            operand = replacements.get(operand);
+        }
+        return operand;
+    }
+
+    /**
+     * @return the operand all the operands of a PHI are, apart from the PHI
+     * itself, or null if they differ
+     */
+    private Operand sameOperand(Instr phi) {
+        Operand same = null;
+        for (Operand operand : phi.getOperands()) {
+            operand = resolve(operand);
+            if (operand.equals(phi.getDest()) || operand.equals(same)) {
+                continue;
+            }
+            if (same != null) {
+                return null;
+            }
+            same = operand;
+        }
+        return same;
+    }
+
+    /**
+     * @return the operand a pure instruction is known to compute, or null
+     */
+    private static Operand simplify(Instr instr) {
+        Opcode opcode = instr.getOpcode();
+        if (opcode == Opcode.MOVE) {
+            return instr.getOperand(0);
+        }
+        List<Constant> constants = new ArrayList<>();
+        for (Operand operand : instr.getOperands()) {
+            if (operand instanceof Constant) {
+                constants.add((Constant) operand);
+            }
+        }
+        if (constants.size() == instr.getNumOperands()) {
+            return ConstantPropagation.fold(opcode, constants);
+        }
+        if (instr.getNumOperands() != 2) {
+            return null;
+        }
+        Operand a = instr.getOperand(0);
+        Operand b = instr.getOperand(1);
+        switch (opcode) {
+            case ADD:
+                return isInt(b, 0) ? a : isInt(a, 0) ? b : null;
+            case SUB:
+                return isInt(b, 0) ? a : a.equals(b) ? Constant.ofInt(0) : null;
+            case MUL:
+                if (isInt(a, 0) || isInt(b, 0)) {
+                    return Constant.ofInt(0);
+                }
+                return isInt(b, 1) ? a : isInt(a, 1) ? b : null;
+            case DIV:
+                return isInt(b, 1) ? a : null;
+            case EQ:
+                return a.equals(b) ? Constant.TRUE : null;
+            case NE:
+                return a.equals(b) ? Constant.FALSE : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return whether an operand is a given int constant
+     */
+    private static boolean isInt(Operand operand, int value) {
+        return operand instanceof Constant && operand.getType().equals("int")
+                && ((Constant) operand).getInt() == value;
+    }
+
+    /**
+     * @return the key of the operation of a pure instruction: its opcode,
+     * class name and operands, ordered if it is commutative
+     */
+    private static List<Object> keyOf(Instr instr) {
+        Opcode opcode = instr.getOpcode();
+        Operand[] operands = instr.getOperands().toArray(new Operand[0]);
+        boolean commutative = opcode == Opcode.ADD || opcode == Opcode.MUL
+                || opcode == Opcode.EQ || opcode == Opcode.NE;
+        if (commutative && operands[0].toString().compareTo(operands[1].toString()) > 0) {
+            Operand first = operands[0];
+            operands[0] = operands[1];
+            operands[1] = first;
+        }
+        List<Object> key = new ArrayList<>();
+        key.add(opcode);
+        key.add(instr.getClassName());
+        key.addAll(Arrays.asList(operands));
+        return key;
+    }
+}
@@ -15,6 +15,7 @@ package bantam.parser;
 import bantam.ast.*;
 import bantam.lexer.Scanner;
 import bantam.lexer.Token;
+import bantam.util.CancellationToken;
 import bantam.util.CompilationException;
 import bantam.util.Error;
 import bantam.util.ErrorHandler;
@@ -22,6 +23,10 @@ import bantam.treedrawer.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import static bantam.lexer.Token.Kind.*;
@@ -34,6 +39,8 @@ public class Parser
     private String fileName; // stores the filename
     private Token currentToken; // the lookahead token
     private ErrorHandler errorHandler; // collects & organizes the error messages
+    private CancellationToken cancellationToken; // polled while parsing (may be null)
+    private int blockEnd; // the offset just past the "}" of the last block parsed
 
     // (proj 10 java-syntax) cast expression should have one of these following it once
     // it is scanned
@@ -51,6 +58,18 @@ public class Parser
         this.errorHandler = errorHandler;
     }
 
+    /**
+     * constructor for a parser whose work can be abandoned from another thread,
+     * e.g. by the IDE when the text being checked has been edited again.
+     * @param errorHandler collects the error messages
+     * @param cancellationToken polled by the parser and its scanner; when it is
+     *                          cancelled parse() throws a CancellationException
+     */
+    public Parser(ErrorHandler errorHandler, CancellationToken cancellationToken) {
+        this.errorHandler = errorHandler;
+        this.cancellationToken = cancellationToken;
+    }
+
 
     /** helper function. Registers Parse error on
      * error handler and throws compilation exception
@@ -106,11 +125,321 @@ public class Parser
      */
     public Program parse(String filename) throws IOException {
         scanner = new Scanner(filename, errorHandler);
+        scanner.setCancellationToken(cancellationToken);
+        fileName = filename;
+        currentToken = scanner.scan();
+        return parseProgram();
+    }
+
+    /**
+     * parse the characters provided by the given Reader (e.g. the unsaved
+     * contents of an editor tab) and return the root node of the AST
+     * @param reader provides the Bantam Java source code
+     * @param filename the name to record in the Class_ nodes and errors
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    public Program parse(Reader reader, String filename) throws IOException {
+        scanner = new Scanner(reader, errorHandler);
+        scanner.setCancellationToken(cancellationToken);
         fileName = filename;
         currentToken = scanner.scan();
         return parseProgram();
     }
 
+    /**
+     * parses the text of a file again after an edit, reusing the AST of the
+     * text before the edit.  Only the smallest member whose span holds the
+     * edit is parsed again.  If the new text of that span is not exactly one
+     * member (e.g. the edit added a member or opened a comment), or the edit
+     * is outside every member, its whole class is parsed again, and if that
+     * fails too, the whole text.  The wider parses still reuse the old node
+     * of every member or class whose text they find unchanged.
+     * @param previous the AST of the text before the edit, from parse() or
+     *                 reparse()
+     * @param text the text after the edit
+     * @param filename the name to record in the Class_ nodes and errors
+     * @param position the offset of the edit
+     * @param removed the text the edit removed
+     * @param inserted the text the edit inserted
+     * @return the AST of the new text.  Its unchanged members and classes are
+     * the nodes of the previous AST, moved to their new lines and offsets, so
+     * the previous AST should no longer be used.
+     */
+    public Program reparse(Program previous, String text, String filename, int position,
+                           String removed, String inserted) throws IOException {
+        fileName = filename;
+        int editEnd = position + removed.length();
+        int delta = inserted.length() - removed.length();
+        int lineDelta = countLines(inserted) - countLines(removed);
+        // "\r\n" is one line break, so a "\r" in or next to the edit makes
+        // lineDelta unreliable
+        boolean carriageReturn = removed.indexOf('\r') >= 0 || inserted.indexOf('\r') >= 0
+                || (position > 0 && text.charAt(position - 1) == '\r');
+
+        ClassList classes = previous.getClassList();
+        for (int i = 0; i < classes.getSize() && !carriageReturn; i++) {
+            Class_ klass = (Class_) classes.get(i);
+            if (!contains(klass, position, editEnd)) {
+                continue;
+            }
+            Class_ newClass = reparseMember(klass, text, position, editEnd, delta,
+                    lineDelta);
+            if (newClass == null) {
+                newClass = (Class_) reparseFragment(text, klass.getStartOffset(),
+                        klass.getEndOffset() + delta, klass.getLineNum(), true);
+                if (newClass != null) {
+                    reuse(klass.getMemberList(), newClass.getMemberList(), position,
+                            editEnd, delta, lineDelta);
+                }
+            }
+            if (newClass == null) {
+                break;
+            }
+            // the program and its class list are on the line of the first class
+            int lineNum = (i == 0 ? newClass : classes.get(0)).getLineNum();
+            ClassList newClasses = new ClassList(lineNum);
+            for (int j = 0; j < classes.getSize(); j++) {
+                if (j > i) {
+                    shift(classes.get(j), delta, lineDelta);
+                }
+                newClasses.addElement(j == i ? newClass : classes.get(j));
+            }
+            return new Program(lineNum, newClasses);
+        }
+
+        Program program = parse(new StringReader(text), filename);
+        if (!carriageReturn) {
+            reuse(classes, program.getClassList(), position, editEnd, delta, lineDelta);
+        }
+        return program;
+    }
+
+    /**
+     * parses again the member of a class whose span holds an edit
+     * @return a new Class_ with the new member and the other members of the
+     * old class, or null if no member holds the edit or its new text is not
+     * exactly one member
+     */
+    private Class_ reparseMember(Class_ klass, String text, int position, int editEnd,
+                                 int delta, int lineDelta) throws IOException {
+        MemberList members = klass.getMemberList();
+        for (int i = 0; i < members.getSize(); i++) {
+            ASTNode member = members.get(i);
+            if (!contains(member, position, editEnd)) {
+                continue;
+            }
+            ASTNode newMember = reparseFragment(text, member.getStartOffset(),
+                    member.getEndOffset() + delta, member.getLineNum(), false);
+            if (newMember == null) {
+                return null;
+            }
+            MemberList newMembers = new MemberList(members.getLineNum());
+            for (int j = 0; j < members.getSize(); j++) {
+                if (j > i) {
+                    shift(members.get(j), delta, lineDelta);
+                }
+                newMembers.addElement(j == i ? newMember : members.get(j));
+            }
+            Class_ newClass = new Class_(klass.getLineNum(), klass.getFilename(),
+                    klass.getName(), klass.getParent(), newMembers);
+            newClass.setSpan(klass.getStartOffset(), klass.getEndOffset() + delta);
+            return newClass;
+        }
+        return null;
+    }
+
+    /**
+     * parses a part of the text as one class or member
+     * @param start the offset of the part
+     * @param end the offset just past the part
+     * @param lineNum the line number of its first character
+     * @param isClass whether to parse a class rather than a member
+     * @return the node, or null if the part is not exactly one class or
+     * member (no errors are registered for it)
+     */
+    private ASTNode reparseFragment(String text, int start, int end, int lineNum,
+                                    boolean isClass) throws IOException {
+        ErrorHandler handler = errorHandler;
+        errorHandler = new ErrorHandler();
+        try {
+            scanner = new Scanner(new StringReader(text.substring(start, end)),
+                    errorHandler, lineNum, start);
+            scanner.setCancellationToken(cancellationToken);
+            currentToken = scanner.scan();
+            ASTNode node = isClass ? parseClass() : parseMember();
+            if (currentToken.kind != EOF || errorHandler.errorsFound()
+                    || node.getEndOffset() != end) {
+                return null;
+            }
+            return node;
+        } catch (CompilationException e) {
+            return null;
+        } finally {
+            errorHandler = handler;
+        }
+    }
+
+    /**
+     * puts the old node of each class or member into a newly parsed list in
+     * place of the new node, when its text was not touched by the edit.  The
+     * text outside the edit did not change, so a node with the same span
+     * (moved by delta after the edit) has the same text and the same subtree.
+     */
+    private static void reuse(ListNode oldList, ListNode newList, int position,
+                              int editEnd, int delta, int lineDelta) {
+        Map<Integer, ASTNode> oldNodes = new HashMap<>();
+        for (ASTNode node : oldList) {
+            if (node.getEndOffset() <= position) {
+                oldNodes.put(node.getStartOffset(), node);
+            }
+            else if (node.getStartOffset() >= editEnd) {
+                oldNodes.put(node.getStartOffset() + delta, node);
+            }
+        }
+        for (int i = 0; i < newList.getSize(); i++) {
+            ASTNode node = newList.get(i);
+            ASTNode old = oldNodes.get(node.getStartOffset());
+            if (old == null || old.getClass() != node.getClass()) {
+                continue;
+            }
+            boolean after = old.getStartOffset() >= editEnd;
+            if (old.getEndOffset() + (after ? delta : 0) == node.getEndOffset()) {
+                if (after) {
+                    shift(old, delta, lineDelta);
+                }
+                newList.set(i, old);
+            }
+        }
+    }
+
+    /**
+     * @return whether the span of a node holds the part of the old text an
+     * edit replaced
+     */
+    private static boolean contains(ASTNode node, int position, int editEnd) {
+        return node.getStartOffset() >= 0 && node.getStartOffset() <= position
+                && editEnd <= node.getEndOffset();
+    }
+
+    /**
+     * @return the number of line breaks in a string without "\r"
+     */
+    private static int countLines(String string) {
+        int lines = 0;
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * moves a class or member that follows an edit: its span (and those of
+     * the members of a class) by delta chars, and its subtree by lineDelta
+     * lines
+     */
+    private static void shift(ASTNode node, int delta, int lineDelta) {
+        node.setSpan(node.getStartOffset() + delta, node.getEndOffset() + delta);
+        if (node instanceof Class_) {
+            for (ASTNode member : ((Class_) node).getMemberList()) {
+                member.setSpan(member.getStartOffset() + delta,
+                        member.getEndOffset() + delta);
+            }
+        }
+        if (lineDelta != 0) {
+            shiftLines(node, lineDelta);
+        }
+    }
+
+    /**
+     * adds lineDelta to the line number of every node of a subtree
+     * @param node the root of the subtree, or null
+     */
+    private static void shiftLines(ASTNode node, int lineDelta) {
+        if (node == null) {
+            return;
+        }
+        node.setLineNum(node.getLineNum() + lineDelta);
+        if (node instanceof ListNode) {
+            for (ASTNode element : (ListNode) node) {
+                shiftLines(element, lineDelta);
+            }
+        }
+        else if (node instanceof Class_) {
+            shiftLines(((Class_) node).getMemberList(), lineDelta);
+        }
+        else if (node instanceof Field) {
+            shiftLines(((Field) node).getInit(), lineDelta);
+        }
+        else if (node instanceof Method) {
+            shiftLines(((Method) node).getFormalList(), lineDelta);
+            shiftLines(((Method) node).getStmtList(), lineDelta);
+        }
+        else if (node instanceof BinaryExpr) {
+            shiftLines(((BinaryExpr) node).getLeftExpr(), lineDelta);
+            shiftLines(((BinaryExpr) node).getRightExpr(), lineDelta);
+        }
+        else if (node instanceof UnaryExpr) {
+            shiftLines(((UnaryExpr) node).getExpr(), lineDelta);
+        }
+        else if (node instanceof DispatchExpr) {
+            shiftLines(((DispatchExpr) node).getRefExpr(), lineDelta);
+            shiftLines(((DispatchExpr) node).getActualList(), lineDelta);
+        }
+        else if (node instanceof AssignExpr) {
+            shiftLines(((AssignExpr) node).getExpr(), lineDelta);
+        }
+        else if (node instanceof CastExpr) {
+            shiftLines(((CastExpr) node).getExpr(), lineDelta);
+        }
+        else if (node instanceof InstanceofExpr) {
+            shiftLines(((InstanceofExpr) node).getExpr(), lineDelta);
+        }
+        else if (node instanceof VarExpr) {
+            shiftLines(((VarExpr) node).getRef(), lineDelta);
+        }
+        else if (node instanceof DeclStmt) {
+            shiftLines(((DeclStmt) node).getInit(), lineDelta);
+        }
+        else if (node instanceof ExprStmt) {
+            shiftLines(((ExprStmt) node).getExpr(), lineDelta);
+        }
+        else if (node instanceof ReturnStmt) {
+            shiftLines(((ReturnStmt) node).getExpr(), lineDelta);
+        }
+        else if (node instanceof BlockStmt) {
+            shiftLines(((BlockStmt) node).getStmtList(), lineDelta);
+        }
+        else if (node instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) node;
+            shiftLines(ifStmt.getPredExpr(), lineDelta);
+            shiftLines(ifStmt.getThenStmt(), lineDelta);
+            shiftLines(ifStmt.getElseStmt(), lineDelta);
+        }
+        else if (node instanceof WhileStmt) {
+            shiftLines(((WhileStmt) node).getPredExpr(), lineDelta);
+            shiftLines(((WhileStmt) node).getBodyStmt(), lineDelta);
+        }
+        else if (node instanceof ForStmt) {
+            ForStmt forStmt = (ForStmt) node;
+            shiftLines(forStmt.getInitExpr(), lineDelta);
+            shiftLines(forStmt.getPredExpr(), lineDelta);
+            shiftLines(forStmt.getUpdateExpr(), lineDelta);
+            shiftLines(forStmt.getBodyStmt(), lineDelta);
+        }
+    }
+
+    /**
+     * helper function. Stops the parse if the cancellation token
+     * has been cancelled.
+     */
+    private void checkCancelled() {
+        if (cancellationToken != null) {
+            cancellationToken.throwIfCancelled();
+        }
+    }
+
     // <Program> ::= <Class> | <Class> <Program>
     private Program parseProgram() throws IOException {
         int position = currentToken.position;
@@ -131,6 +460,7 @@ public class Parser
     // <MemberList> ::= EMPTY | <Member> <MemberList>
     private Class_ parseClass() throws IOException {
         int position = currentToken.position;
+        int start = currentToken.offset;
         if(currentToken.kind != Token.Kind.CLASS){
             handleErr("Exception: expecting a \"class\" keyword" + currentToken.spelling
                 + " at line " + position);
@@ -157,8 +487,12 @@ public class Parser
 
             memberList.addElement(currentMember);
         }
+        int end = currentToken.offset + 1;
         currentToken = scanner.scan();
-        return new Class_(position, fileName, identifier, parentIdentifier, memberList);
+        Class_ klass = new Class_(position, fileName, identifier, parentIdentifier,
+                memberList);
+        klass.setSpan(start, end);
+        return klass;
 
     }
 
@@ -169,7 +503,9 @@ public class Parser
     // <Field> ::= <Type> <Identifier> <InitialValue> ;
     // <InitialValue> ::= EMPTY | = <Expression>
     private Member parseMember() throws IOException {
+        checkCancelled();
         int position = currentToken.position;
+        int start = currentToken.offset;
         // either way, starts with Type and Identifier
         String typeName = parseType();
         String funcOrVarName = parseIdentifier();
@@ -187,8 +523,10 @@ public class Parser
             // parseBlock should only return BlockStmt
             BlockStmt blockStmt = (BlockStmt) parseBlock();
             // return this method
-            return new Method(position,typeName,
+            Method method = new Method(position,typeName,
                     funcOrVarName,formalList, blockStmt.getStmtList());
+            method.setSpan(start, blockEnd);
+            return method;
         }
 
         // case 2: field
@@ -196,6 +534,7 @@ public class Parser
             currentToken = scanner.scan();
             expr = parseExpression();
         }
+        int end = currentToken.offset + 1;
         if (currentToken.spelling.equals(";")) {
             // field without initialization
             currentToken = scanner.scan();
@@ -204,7 +543,9 @@ public class Parser
             handleErr("Illegal field declaration :" +
                     "expecting a \";\""+ " at line " + position);
         }
-        return new Field(position,typeName,funcOrVarName,expr);
+        Field field = new Field(position,typeName,funcOrVarName,expr);
+        field.setSpan(start, end);
+        return field;
 
 
     }
@@ -215,6 +556,7 @@ public class Parser
     // <Stmt> ::= <WhileStmt> | <ReturnStmt> | <BreakStmt> | <VarDeclaration>
     //             | <ExpressionStmt> | <ForStmt> | <BlockStmt> | <IfStmt>
     private Stmt parseStatement() throws IOException {
+            checkCancelled();
             Stmt stmt;
 
             switch (currentToken.kind) {
@@ -409,7 +751,6 @@ public class Parser
     // <Body> ::= EMPTY | <Stmt> <Body>
     private Stmt parseBlock() throws IOException {
         int position = currentToken.position;
-        System.out.println();
         // moving on from token {
         currentToken = scanner.scan();
         StmtList stmtList = new StmtList(position);
@@ -420,6 +761,7 @@ public class Parser
             Stmt stmt = parseStatement();
             stmtList.addElement(stmt);
         }
+        blockEnd = currentToken.offset + 1;
         currentToken = scanner.scan();
         return new BlockStmt(position,stmtList);
     }
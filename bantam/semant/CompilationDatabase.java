@@ -0,0 +1,641 @@
+/*
+ * File: CompilationDatabase.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.semant;
+
+import bantam.ast.ASTNode;
+import bantam.ast.ClassList;
+import bantam.ast.Class_;
+import bantam.ast.Field;
+import bantam.ast.Formal;
+import bantam.ast.Member;
+import bantam.ast.Method;
+import bantam.ast.Program;
+import bantam.parser.Parser;
+import bantam.util.CancellationToken;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+import bantam.util.QueryDatabase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Checks a Bantam program made of several files incrementally, for the
+ * IDE.  The text of each file is an input of a QueryDatabase, and the
+ * checks are queries on it:
+ * <ul>
+ * <li>parse: the AST and parse errors of a file;</li>
+ * <li>classes: the file declaring each class;</li>
+ * <li>signature: the header and member declarations of a class, without
+ * the bodies;</li>
+ * <li>hierarchy: the class hierarchy and member tables, built from the
+ * signatures only, which answers lookups and the subtype relation;</li>
+ * <li>declarations: the errors of the hierarchy, member tables and main
+ * method;</li>
+ * <li>member: the text of a field or method, by class and member name;</li>
+ * <li>memberErrors: the type errors of a member, relative to its first
+ * line, from the hierarchy and the member only.</li>
+ * </ul>
+ * Editing a method body changes the parse of its file, which only parses
+ * that method again, but not the signature of its class nor the text of the
+ * other members, so only that method is type checked again.  Inserting lines before a member moves its
+ * errors without checking it again.  A change of a signature rebuilds the
+ * hierarchy and checks every member again.
+ */
+public class CompilationDatabase
+{
+    /** the names of the built-in classes, which user classes cannot replace */
+    private static final Set<String> BUILT_IN_CLASSES = Set.of("Object", "String",
+            "TextIO", "Sys");
+
+    /** the queries and inputs */
+    private final QueryDatabase db = new QueryDatabase();
+
+    /** polled by the parser and type checker (may be null) */
+    private CancellationToken cancellationToken;
+
+    /**
+     * the last parse of each file, which the next parse of the file edits.
+     * Its AST belongs to the parse query once reparsed from.
+     */
+    private final Map<String, Parsed> lastParses = new HashMap<>();
+
+    /** the parse of a file */
+    private static class Parsed
+    {
+        /** the AST, or null if there were errors */
+        final Program program;
+        final List<Error> errors;
+        /** the text */
+        final String source;
+        /** the lines of the text */
+        final String[] lines;
+
+        Parsed(Program program, List<Error> errors, String source) {
+            this.program = program;
+            this.errors = errors;
+            this.source = source;
+            this.lines = source.split("\n", -1);
+        }
+    }
+
+    /** the declarations of a class; two are equal if their text is */
+    private static class Signature
+    {
+        final String text;
+        final Class_ node;
+
+        Signature(String text, Class_ node) {
+            this.text = text;
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && text.equals(((Signature) o).text);
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode();
+        }
+    }
+
+    /**
+     * identifies a member: its class, which declaration of the class holds
+     * it (0 unless the class is declared more than once), its kind and name,
+     * and how many members of the same kind and name come before it in that
+     * declaration
+     */
+    private static class MemberKey
+    {
+        final String className;
+        final int declaration;
+        final boolean isMethod;
+        final String name;
+        final int occurrence;
+
+        MemberKey(String className, int declaration, boolean isMethod, String name,
+                  int occurrence) {
+            this.className = className;
+            this.declaration = declaration;
+            this.isMethod = isMethod;
+            this.name = name;
+            this.occurrence = occurrence;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey other = (MemberKey) o;
+            return className.equals(other.className) && declaration == other.declaration
+                    && isMethod == other.isMethod && name.equals(other.name)
+                    && occurrence == other.occurrence;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(className, declaration, isMethod, name, occurrence);
+        }
+    }
+
+    /** a member and its text; two are equal if their text is */
+    private static class MemberSource
+    {
+        final String text;
+        final Member node;
+
+        MemberSource(String text, Member node) {
+            this.text = text;
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MemberSource && text.equals(((MemberSource) o).text);
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode();
+        }
+    }
+
+    /**
+     * creates an empty database
+     */
+    public CompilationDatabase() {
+        db.define("parse", (QueryDatabase.Query<String, Parsed>)
+                (queries, fileName) -> parse(fileName));
+        db.define("classes", (QueryDatabase.Query<Object, Map<String, String>>)
+                (queries, key) -> classes());
+        db.define("signature", (QueryDatabase.Query<String, Signature>)
+                (queries, className) -> signature(className));
+        db.define("hierarchy", (QueryDatabase.Query<Object, ClassTreeNode>)
+                (queries, key) -> hierarchy());
+        db.define("declarations", (QueryDatabase.Query<Object, List<Error>>)
+                (queries, key) -> declarations());
+        db.define("fileClasses", (QueryDatabase.Query<String, Map<String, List<Class_>>>)
+                (queries, fileName) -> fileClasses(fileName));
+        db.define("checkedClasses", (QueryDatabase.Query<Object, List<String>>)
+                (queries, key) -> checkedClasses());
+        db.define("classNodes", (QueryDatabase.Query<String, List<Class_>>)
+                (queries, className) -> classNodes(className));
+        db.define("memberNodes", (QueryDatabase.Query<String, Map<MemberKey, Member>>)
+                (queries, className) -> memberNodes(className));
+        db.define("members", (QueryDatabase.Query<String, List<MemberKey>>)
+                (queries, className) -> new ArrayList<>(this.<Map<MemberKey, Member>>get(
+                        "memberNodes", className).keySet()));
+        db.define("member", (QueryDatabase.Query<MemberKey, MemberSource>)
+                (queries, key) -> member(key));
+        db.define("memberLine", (QueryDatabase.Query<MemberKey, Integer>)
+                (queries, key) -> memberLine(key));
+        db.define("memberErrors", (QueryDatabase.Query<MemberKey, List<Error>>)
+                (queries, key) -> memberErrors(key));
+        db.define("errors", (QueryDatabase.Query<Object, List<Error>>)
+                (queries, key) -> errors());
+        db.set("files", null, List.of());
+    }
+
+    /**
+     * Sets the token polled by the parser and type checker.  Once it is
+     * cancelled, the methods asking for errors throw a CancellationException;
+     * what was computed before is kept.
+     *
+     * @param cancellationToken the token to poll, or null for no cancelling
+     */
+    public synchronized void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * sets the files of the program and their text
+     *
+     * @param sources the text of each file, by file name
+     */
+    public synchronized void setSources(Map<String, String> sources) {
+        List<String> files = db.get("files", null);
+        for (String fileName : files) {
+            if (!sources.containsKey(fileName)) {
+                db.remove("source", fileName);
+                lastParses.remove(fileName);
+            }
+        }
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            db.set("source", entry.getKey(), entry.getValue());
+        }
+        db.set("files", null, List.copyOf(sources.keySet()));
+    }
+
+    /**
+     * @param fileName the name of one of the files
+     * @return the errors found while parsing it
+     */
+    public synchronized List<Error> getParseErrors(String fileName) {
+        return this.<Parsed>get("parse", fileName).errors;
+    }
+
+    /**
+     * @return the semantic errors of the program, which is empty if one of
+     * its files does not parse
+     */
+    public synchronized List<Error> getSemanticErrors() {
+        List<Error> errors = get("errors", null);
+        for (String fileName : this.<List<String>>get("files", null)) {
+            if (this.<Parsed>get("parse", fileName).program == null) {
+                return errors;
+            }
+        }
+        // everything still in use has been asked for
+        db.sweep();
+        return errors;
+    }
+
+    /**
+     * @return the number of times each query has been computed so far, by name
+     */
+    public synchronized Map<String, Integer> getComputeCounts() {
+        return db.getComputeCounts();
+    }
+
+    /**
+     * gets the value of a query or input (for readability of the queries)
+     */
+    private <V> V get(String name, Object key) {
+        return db.get(name, key);
+    }
+
+    /**
+     * parses a file.  If its last parse had no errors, only the part of the
+     * text between the longest common prefix and suffix of the old and new
+     * text is treated as edited, and the parser reparses the member or class
+     * holding it.
+     */
+    private Parsed parse(String fileName) {
+        String source = get("source", fileName);
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler, cancellationToken);
+        Parsed last = lastParses.get(fileName);
+        Program program = null;
+        try {
+            if (last != null && last.program != null) {
+                String old = last.source;
+                int prefix = 0;
+                int limit = Math.min(old.length(), source.length());
+                while (prefix < limit && old.charAt(prefix) == source.charAt(prefix)) {
+                    prefix++;
+                }
+                int suffix = 0;
+                while (suffix < limit - prefix && old.charAt(old.length() - 1 - suffix)
+                        == source.charAt(source.length() - 1 - suffix)) {
+                    suffix++;
+                }
+                program = parser.reparse(last.program, source, fileName, prefix,
+                        old.substring(prefix, old.length() - suffix),
+                        source.substring(prefix, source.length() - suffix));
+            }
+            else {
+                program = parser.parse(new StringReader(source), fileName);
+            }
+        } catch (CompilationException e) {
+            // the errors are in the error handler
+        } catch (IOException e) {
+            // a StringReader does not throw
+        }
+        if (errorHandler.errorsFound()) {
+            program = null;
+        }
+        Parsed parsed = new Parsed(program, new ArrayList<>(errorHandler.getErrorList()),
+                source);
+        lastParses.put(fileName, parsed);
+        return parsed;
+    }
+
+    /**
+     * @return the file declaring each class, in the order of the files.  A
+     * class declared twice is taken from its first declaration, as in the
+     * class map.
+     */
+    private Map<String, String> classes() {
+        Map<String, String> classes = new LinkedHashMap<>();
+        for (String fileName : this.<List<String>>get("files", null)) {
+            Program program = this.<Parsed>get("parse", fileName).program;
+            if (program == null) {
+                continue;
+            }
+            for (ASTNode node : program.getClassList()) {
+                String name = ((Class_) node).getName();
+                if (!BUILT_IN_CLASSES.contains(name)
+                        && !SemanticAnalyzer.reservedIdentifiers.contains(name)) {
+                    classes.putIfAbsent(name, fileName);
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * @return the declarations of the classes of a file by name, in order
+     */
+    private Map<String, List<Class_>> fileClasses(String fileName) {
+        Map<String, List<Class_>> classes = new LinkedHashMap<>();
+        for (ASTNode node : this.<Parsed>get("parse", fileName).program.getClassList()) {
+            classes.computeIfAbsent(((Class_) node).getName(), name -> new ArrayList<>())
+                    .add((Class_) node);
+        }
+        return classes;
+    }
+
+    /**
+     * @return the names of the classes whose members are type checked, in
+     * the order of the files.  As in a full analysis, these include the
+     * classes declared twice or named after a built-in class, whose members
+     * are checked in the class the class map holds for the name.
+     */
+    private List<String> checkedClasses() {
+        Set<String> classes = new LinkedHashSet<>();
+        for (String fileName : this.<List<String>>get("files", null)) {
+            for (String name : this.<Map<String, List<Class_>>>get("fileClasses",
+                    fileName).keySet()) {
+                if (!SemanticAnalyzer.reservedIdentifiers.contains(name)) {
+                    classes.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(classes);
+    }
+
+    /**
+     * @return every declaration of a class in the last parses, in the order
+     * of the files
+     */
+    private List<Class_> classNodes(String className) {
+        List<Class_> nodes = new ArrayList<>();
+        for (String fileName : this.<List<String>>get("files", null)) {
+            nodes.addAll(this.<Map<String, List<Class_>>>get("fileClasses", fileName)
+                    .getOrDefault(className, List.of()));
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the node of the first declaration of a class in the last
+     * parse of its file
+     */
+    private Class_ findClass(String className) {
+        String fileName = this.<Map<String, String>>get("classes", null).get(className);
+        return this.<Map<String, List<Class_>>>get("fileClasses", fileName).get(className)
+                .get(0);
+    }
+
+    /**
+     * @return the declarations of a class: its file, name, superclass and
+     * the types and names of its members
+     */
+    private Signature signature(String className) {
+        Class_ node = findClass(className);
+        StringBuilder text = new StringBuilder();
+        text.append(node.getFilename()).append(' ').append(className).append(" extends ")
+                .append(node.getParent()).append('\n');
+        for (ASTNode member : node.getMemberList()) {
+            if (member instanceof Field) {
+                text.append(((Field) member).getType()).append(' ')
+                        .append(((Field) member).getName()).append(";\n");
+            }
+            else {
+                Method method = (Method) member;
+                text.append(method.getReturnType()).append(' ')
+                        .append(method.getName()).append('(');
+                for (ASTNode formal : method.getFormalList()) {
+                    text.append(((Formal) formal).getType()).append(' ')
+                            .append(((Formal) formal).getName()).append(',');
+                }
+                text.append(");\n");
+            }
+        }
+        return new Signature(text.toString(), node);
+    }
+
+    /**
+     * @return the root of a class hierarchy built from the signatures of the
+     * classes, so that it is only rebuilt when one of them changes
+     */
+    private ClassTreeNode hierarchy() {
+        ClassList classList = new ClassList(0);
+        for (String className : this.<Map<String, String>>get("classes", null).keySet()) {
+            classList.addElement(this.<Signature>get("signature", className).node);
+        }
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(new ErrorHandler());
+        analyzer.setCancellationToken(cancellationToken);
+        // stay on the caller's thread, e.g. one of the IDE's bounded pool
+        analyzer.setExecutor(Runnable::run);
+        return analyzer.analyzeDeclarations(new Program(0, classList));
+    }
+
+    /**
+     * @return the errors of steps 1-4 of the semantic analysis on the last
+     * parse of every file.  These steps do not look into the member bodies,
+     * so running them after every edit is cheap.
+     */
+    private List<Error> declarations() {
+        ClassList classList = new ClassList(0);
+        for (String fileName : this.<List<String>>get("files", null)) {
+            for (ASTNode node : this.<Parsed>get("parse", fileName).program.getClassList()) {
+                classList.addElement(node);
+            }
+        }
+        ErrorHandler errorHandler = new ErrorHandler();
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        analyzer.setCancellationToken(cancellationToken);
+        analyzer.setExecutor(Runnable::run);
+        analyzer.analyzeDeclarations(new Program(0, classList));
+        return new ArrayList<>(errorHandler.getErrorList());
+    }
+
+    /**
+     * @return the members of every declaration of a class by key, in order
+     */
+    private Map<MemberKey, Member> memberNodes(String className) {
+        Map<MemberKey, Member> members = new LinkedHashMap<>();
+        List<Class_> declarations = get("classNodes", className);
+        for (int declaration = 0; declaration < declarations.size(); declaration++) {
+            Map<String, Integer> occurrences = new HashMap<>();
+            for (ASTNode member : declarations.get(declaration).getMemberList()) {
+                boolean isMethod = member instanceof Method;
+                String name = isMethod ? ((Method) member).getName()
+                        : ((Field) member).getName();
+                int occurrence = occurrences.merge((isMethod ? "(" : "") + name, 1,
+                        Integer::sum) - 1;
+                members.put(new MemberKey(className, declaration, isMethod, name,
+                        occurrence), (Member) member);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * @return the declaration of a class that holds a member
+     */
+    private Class_ findDeclaration(MemberKey key) {
+        return this.<List<Class_>>get("classNodes", key.className).get(key.declaration);
+    }
+
+    /**
+     * @return the node of a member in the last parse of its file
+     */
+    private Member findMember(MemberKey key) {
+        return this.<Map<MemberKey, Member>>get("memberNodes", key.className).get(key);
+    }
+
+    /**
+     * @return the first line of a member.  The parser moves the nodes it
+     * reuses in place, so the member nodes of a class can stay the same while
+     * their lines change: the line is read again after each parse of the file.
+     */
+    private int memberLine(MemberKey key) {
+        get("parse", findDeclaration(key).getFilename());
+        return findMember(key).getLineNum();
+    }
+
+    /**
+     * @return a member and the text of the lines from its first line to the
+     * first line of the member (or class) after it, which hold all of its
+     * text whatever its layout
+     */
+    private MemberSource member(MemberKey key) {
+        Class_ declaration = findDeclaration(key);
+        Parsed parsed = get("parse", declaration.getFilename());
+        Member member = findMember(key);
+        int end = nextLine(declaration.getMemberList(), member);
+        if (end < 0) {
+            end = nextLine(parsed.program.getClassList(), declaration);
+        }
+        if (end < 0) {
+            end = parsed.lines.length;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int line = member.getLineNum(); line <= end && line <= parsed.lines.length;
+             line++) {
+            text.append(parsed.lines[line - 1]).append('\n');
+        }
+        return new MemberSource(text.toString(), member);
+    }
+
+    /**
+     * @return the first line of the node after the given one, or -1 if it
+     * is the last
+     */
+    private static int nextLine(Iterable<? extends ASTNode> nodes, ASTNode node) {
+        boolean found = false;
+        for (ASTNode next : nodes) {
+            if (found) {
+                return next.getLineNum();
+            }
+            found = next == node;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the type errors of a member, with line numbers counted from
+     * its first line
+     */
+    private List<Error> memberErrors(MemberKey key) {
+        Member member = this.<MemberSource>get("member", key).node;
+        ClassTreeNode root = get("hierarchy", null);
+        ErrorHandler errorHandler = new ErrorHandler();
+        new TypeCheckerVisitor(errorHandler, root, cancellationToken)
+                .checkMember(key.className, member);
+        List<Error> errors = new ArrayList<>();
+        for (Error error : errorHandler.getErrorList()) {
+            errors.add(new Error(error.getKind(), error.getFilename(),
+                    error.getLineNum() - member.getLineNum(), error.getMessage()));
+        }
+        return errors;
+    }
+
+    /**
+     * @return all the semantic errors, sorted as the ErrorHandler sorts them
+     */
+    private List<Error> errors() {
+        for (String fileName : this.<List<String>>get("files", null)) {
+            if (this.<Parsed>get("parse", fileName).program == null) {
+                return List.of();
+            }
+        }
+        ErrorHandler errorHandler = new ErrorHandler();
+        for (Error error : this.<List<Error>>get("declarations", null)) {
+            errorHandler.register(error.getKind(), error.getFilename(),
+                    error.getLineNum(), error.getMessage());
+        }
+        for (String className : this.<List<String>>get("checkedClasses", null)) {
+            for (MemberKey key : this.<List<MemberKey>>get("members", className)) {
+                int line = this.<Integer>get("memberLine", key);
+                for (Error error : this.<List<Error>>get("memberErrors", key)) {
+                    errorHandler.register(error.getKind(), error.getFilename(),
+                            line + error.getLineNum(), error.getMessage());
+                }
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(errorHandler.getErrorList()));
+    }
+
+    /**
+     * checks the Bantam Java files given as command line arguments and
+     * prints the errors.  With -report as the first argument, it also prints
+     * how many times each query was computed.
+     *
+     * @param args -report (optional) and the pathnames of the files of the
+     *             program
+     */
+    public static void main(String[] args) throws IOException {
+        boolean report = args.length > 0 && args[0].equals("-report");
+        List<String> inFiles = Arrays.asList(report
+                ? Arrays.copyOfRange(args, 1, args.length) : args);
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String inFile : inFiles) {
+            sources.put(inFile, Files.readString(Path.of(inFile)));
+        }
+        CompilationDatabase database = new CompilationDatabase();
+        database.setSources(sources);
+        List<Error> errors = new ArrayList<>();
+        for (String inFile : inFiles) {
+            errors.addAll(database.getParseErrors(inFile));
+        }
+        errors.addAll(database.getSemanticErrors());
+        if (errors.isEmpty()) {
+            System.out.println("  Checking was successful.");
+        }
+        else {
+            System.out.println("  There were errors:");
+            for (Error error : errors) {
+                System.out.println("\t" + error.toString());
+            }
+        }
+        if (report) {
+            System.out.println("  " + database.getComputeCounts());
+        }
+    }
+}
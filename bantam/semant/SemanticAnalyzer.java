@@ -36,6 +36,7 @@ import bantam.util.Error;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 import static bantam.lexer.Token.Kind.EOF;
 
@@ -88,6 +89,45 @@ public class SemanticAnalyzer
      */
     private final int MAX_NUM_FIELDS = 1500;
 
+    /**
+     * Lets another thread abandon the analysis (may be null)
+     */
+    private CancellationToken cancellationToken;
+
+    /**
+     * Runs the steps and passes of the analysis (null for the common
+     * fork/join pool)
+     */
+    private Executor executor;
+
+    /**
+     * Extra passes, such as lint checks, run by analyze() after its own steps
+     * (or next to them, depending on what they read)
+     */
+    private final Map<String, AnalysisPass> extraPasses = new LinkedHashMap<>();
+
+    /**
+     * The names of the results each extra pass reads
+     */
+    private final Map<String, List<String>> extraPassReads = new HashMap<>();
+
+    /**
+     * The pass manager used by the last call of analyze() (null before)
+     */
+    private PassManager passManager;
+
+    /**
+     * Names of the results of the steps of analyze(), for the passes added
+     * with addPass() to read.  The results are the Program, the root of the
+     * class hierarchy with only the built-in classes, the class map (a
+     * Map from class names to ClassTreeNodes), the same class map once the
+     * member tables are built, a Boolean telling whether there is a main
+     * method, and the root of the class hierarchy once the program has been
+     * type checked.
+     */
+    public static final String PROGRAM = "program", BUILTINS = "builtins",
+            CLASS_MAP = "classMap", MEMBERS = "members", MAIN = "main", TYPES = "types";
+
     /**
      * SemanticAnalyzer constructor
      *
@@ -99,6 +139,55 @@ public class SemanticAnalyzer
 
     public ErrorHandler getErrorHandler() { return errorHandler; }
 
+    /**
+     * Sets the token polled between the analysis steps and by the type
+     * checker.  Once it is cancelled, analyze() throws a CancellationException.
+     *
+     * @param cancellationToken the token to poll, or null for no cancelling
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Sets the executor running the steps of the analysis and the added
+     * passes, e.g. Runnable::run to keep the analysis on the calling thread
+     * when it already runs on a bounded pool.
+     *
+     * @param executor the executor, or null for the common fork/join pool
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Adds a pass, such as a lint check, for analyze() to run.  The pass
+     * starts as soon as the results it reads are ready, on the executor of
+     * the analyzer, so that it adds no time to the analysis when a core is
+     * free.
+     * It may register errors but must not change the AST or the class
+     * hierarchy.  Since the type checker enters scopes in the fields table of
+     * each class, a pass reading the member tables should read TYPES rather
+     * than MEMBERS.
+     *
+     * @param name  the name of the pass, which later passes can read
+     * @param reads the names of the results it reads: PROGRAM, BUILTINS,
+     *              CLASS_MAP, MEMBERS, MAIN, TYPES or passes added before it
+     * @param pass  the pass
+     */
+    public void addPass(String name, List<String> reads, AnalysisPass pass) {
+        extraPasses.put(name, pass);
+        extraPassReads.put(name, reads);
+    }
+
+    /**
+     * @return a line per pass run by the last call of analyze(), with its
+     * run time, and the wall-clock time of the analysis
+     */
+    public List<String> getPassReport() {
+        return passManager == null ? List.of() : passManager.getReport();
+    }
+
     /**
      * Analyze the AST, checking for semantic errors and annotating the tree
      * Also builds an auxiliary class hierarchy tree
@@ -113,29 +202,78 @@ public class SemanticAnalyzer
      *     checks that members are declared properly
      * 4 - checks that the Main class and main method are declared properly
      * 5 - type checks everything
-     * All errors are registered with the ErrorHandler.
+     * The steps are run by a PassManager, along with the passes added with
+     * addPass(), so step 4, which only reads the AST, runs next to steps 2, 3
+     * and 5.  All errors are registered with the ErrorHandler.
      * STEPS 1-3 HAVE BEEN COMPLETED FOR YOU. YOU MUST COMPLETE STEPS 4 AND 5.
      * See the lab manual for more details on these steps.
      */
     public ClassTreeNode analyze(Program program) {
+        runSteps(program, true);
+
+        // if errors were found, throw an exception, indicating failure
+        if (errorHandler.errorsFound()) {
+            throw new CompilationException(errorHandler);
+        }
+
+        return root;
+    }
+
+    /**
+     * Runs steps 1-4 of analyze(): builds the class hierarchy and the member
+     * tables of each class and checks for the main method, but does not
+     * type check the members or run the passes added with addPass().  This
+     * is what type checking a single member with
+     * TypeCheckerVisitor.checkMember() needs.
+     *
+     * @param program root of the AST
+     * @return root of the class hierarchy tree.  The errors found, if any,
+     * are registered with the ErrorHandler; no exception is thrown for them.
+     */
+    public ClassTreeNode analyzeDeclarations(Program program) {
+        runSteps(program, false);
+        return root;
+    }
+
+    /**
+     * runs the steps of the analysis with a new PassManager
+     *
+     * @param program   root of the AST
+     * @param typeCheck whether to run step 5 and the added passes
+     */
+    private void runSteps(Program program, boolean typeCheck) {
         this.program = program;
         this.classMap.clear();
 
+        passManager = executor == null ? new PassManager() : new PassManager(executor);
+        passManager.setCancellationToken(cancellationToken);
+        passManager.add(PROGRAM, List.of(), (manager, errors) -> program);
+
         // step 1:  add built-in classes to classMap
-        addBuiltins();
+        passManager.add(BUILTINS, List.of(), (manager, errors) -> {
+            addBuiltins();
+            return root;
+        });
 
         //step 2:  add user-defined classes to classMap and build the
         // inheritance tree of ClassTreeNodes
-        buildInheritanceTree();
+        passManager.add(CLASS_MAP, List.of(PROGRAM, BUILTINS), (manager, errors) -> {
+            buildInheritanceTree(errors);
+            return classMap;
+        });
 
         //step 3: build the field and method symbol tables for each ClassTreeNode
         //        Just add the class's fields & methods and not the
         //        inherited ones since the SymbolTable's lookup method checks
         //        the superclasses for you.
-        buildFieldAndMethodTables();
+        passManager.add(MEMBERS, List.of(CLASS_MAP), (manager, errors) -> {
+            buildFieldAndMethodTables(errors);
+            return classMap;
+        });
 
         //step 4: check whether there is a Main class with a main method.
-        checkForMainClassWithMainMethod();
+        passManager.add(MAIN, List.of(PROGRAM, BUILTINS), (manager, errors) ->
+                checkForMainClassWithMainMethod(errors));
 
         //step 5:  do type-checking for all expressions.  In addition to checking
         // types, this method also checks for:
@@ -145,14 +283,17 @@ public class SemanticAnalyzer
         //         3. calling a non-existent method
         //         4. method calls with the wrong number of arguments
         //         5. use of a non-existent variable
-        doTypeChecking();
-
-        // if errors were found, throw an exception, indicating failure
-        if (errorHandler.errorsFound()) {
-            throw new CompilationException(errorHandler);
+        if (typeCheck) {
+            passManager.add(TYPES, List.of(MEMBERS), (manager, errors) -> {
+                doTypeChecking(errors);
+                return root;
+            });
+
+            for (String name : extraPasses.keySet()) {
+                passManager.add(name, extraPassReads.get(name), extraPasses.get(name));
+            }
         }
-
-        return root;
+        passManager.run(errorHandler);
     }
 
     /**
@@ -163,10 +304,11 @@ public class SemanticAnalyzer
      *  3. calling a non-existent method
      *  4. method calls with the wrong number of arguments
      *  5. use of an undeclared variable
-     * Any errors are registered with the ErrorHandler.
+     * Any errors are registered with the given ErrorHandler.
      */
-    private void doTypeChecking() {
-        TypeCheckerVisitor visitor = new TypeCheckerVisitor(errorHandler, root);
+    private void doTypeChecking(ErrorHandler errors) {
+        TypeCheckerVisitor visitor = new TypeCheckerVisitor(errors, root,
+                cancellationToken);
         visitor.visit(program);
     }
 
@@ -174,20 +316,22 @@ public class SemanticAnalyzer
      * checks that the program contains a Main class with a
      * main method that has void return type and no parameters.
      * If not, an error is registered with the ErrorHandler.
+     * @return whether there is such a method
      */
-    private void checkForMainClassWithMainMethod() {
+    private Boolean checkForMainClassWithMainMethod(ErrorHandler errors) {
         MainMethodFinder finder = new MainMethodFinder();
-        if (!finder.hasMain(program)){
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
+        boolean hasMain = finder.hasMain(program);
+        if (!hasMain){
+            errors.register(Error.Kind.SEMANT_ERROR,
                     root.getASTNode().getFilename(),
                     program.getLineNum(),
                     "No main() method that returns void " +
                             "is in a Main class.");
         }
-
+        return hasMain;
     }
 
-    private void buildFieldAndMethodTables() {
+    private void buildFieldAndMethodTables(ErrorHandler errors) {
         /* NOTE:  To be elegant, this method should have
                   been implemented as a visitor,
                   such as part of the ClassMapBuilderVisitor.
@@ -205,10 +349,10 @@ public class SemanticAnalyzer
             MemberList list = treeNode.getASTNode().getMemberList();
             for (ASTNode member : list) {
                 if (member instanceof Field) {
-                    addMemberToFieldTable(treeNode, member);
+                    addMemberToFieldTable(treeNode, member, errors);
                 }
                 else { // if(member instanceof Method)
-                    addMemberToMethodTable(treeNode, member);
+                    addMemberToMethodTable(treeNode, member, errors);
                 }
             }
         }
@@ -219,17 +363,18 @@ public class SemanticAnalyzer
      * @param treeNode The ClassTreeNode whose variable SymbolTable is being added to
      * @param member the method ASTNode that is being added to the table
      */
-    private void addMemberToFieldTable(ClassTreeNode treeNode, ASTNode member) {
+    private void addMemberToFieldTable(ClassTreeNode treeNode, ASTNode member,
+                                       ErrorHandler errors) {
         SymbolTable fields = treeNode.getVarSymbolTable();
         if (SemanticAnalyzer.reservedIdentifiers.contains(((Field) member).getName())) {
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
+            errors.register(Error.Kind.SEMANT_ERROR,
                     treeNode.getASTNode().getFilename(),
                     member.getLineNum(), "Class " + treeNode.getName() + " "
                             + "has a field " + "named: " + ((Field) member).getName()
                             + ", which is illegal.");
         }
         else if (fields.peek(((Field) member).getName()) != null) {
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
+            errors.register(Error.Kind.SEMANT_ERROR,
                     treeNode.getASTNode().getFilename(), member.getLineNum(),
                     "Class " + treeNode.getName()
                             + " has two fields of the same name: "
@@ -245,17 +390,18 @@ public class SemanticAnalyzer
      * @param treeNode The ClassTreeNode whose SymbolTable is being added to
      * @param member the method ASTNode that is being added to the table
      */
-    private void addMemberToMethodTable(ClassTreeNode treeNode, ASTNode member) {
+    private void addMemberToMethodTable(ClassTreeNode treeNode, ASTNode member,
+                                        ErrorHandler errors) {
         SymbolTable methods = treeNode.getMethodSymbolTable();
         if (SemanticAnalyzer.reservedIdentifiers.contains(((Method) member).getName())) {
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
+            errors.register(Error.Kind.SEMANT_ERROR,
                     treeNode.getASTNode().getFilename(),
                     member.getLineNum(), "Class " + treeNode.getName() + " "
                             + "has a method named: "
                             + ((Method) member).getName() + ", which is illegal.");
         }
         else if (methods.peek(((Method) member).getName()) != null) {
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
+            errors.register(Error.Kind.SEMANT_ERROR,
                     treeNode.getASTNode().getFilename(), member.getLineNum(),
                     "Class " + treeNode.getName()
                             + " has two methods of the same name: "
@@ -266,10 +412,10 @@ public class SemanticAnalyzer
         }
     }
 
-    private void buildInheritanceTree() {
+    private void buildInheritanceTree(ErrorHandler errors) {
         // step 1: add all user-defined classes to classMap
         ClassMapBuilderVisitor visitor = new ClassMapBuilderVisitor(classMap,
-                errorHandler);
+                errors);
         visitor.visit(program);
 
         // step 2: fix parent pointers in all ClassTreeNodes in classMap
@@ -280,7 +426,7 @@ public class SemanticAnalyzer
             }
             ClassTreeNode parentNode = classMap.get(astNode.getParent());
             if (parentNode == null) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, astNode.getFilename(),
+                errors.register(Error.Kind.SEMANT_ERROR, astNode.getFilename(),
                         astNode.getLineNum(), "Superclass " + astNode.getParent() + " " +
                                 "of class " + astNode.getName() + " does not exist.");
                 treeNode.setParent(classMap.get("Object")); //to allow checking to
@@ -288,7 +434,7 @@ public class SemanticAnalyzer
             }
             else if (astNode.getParent().equals("Sys") || astNode.getParent().equals(
                     "String") || astNode.getParent().equals("TextIO")) {
-                errorHandler.register(Error.Kind.SEMANT_ERROR, astNode.getFilename(),
+                errors.register(Error.Kind.SEMANT_ERROR, astNode.getFilename(),
                         astNode.getLineNum(), "Superclass " + astNode.getParent() + " " +
                                 "of class " + astNode.getName() + " is not allowed to " +
                                 "have subclasses (it is final).");
@@ -306,7 +452,7 @@ public class SemanticAnalyzer
             HashSet<ClassTreeNode> marked = new HashSet<>();
             while (treeNode != null) {
                 if (marked.contains(treeNode)) {
-                    errorHandler.register(Error.Kind.SEMANT_ERROR,
+                    errors.register(Error.Kind.SEMANT_ERROR,
                             treeNode.getASTNode().getFilename(),
                             treeNode.getASTNode().getLineNum(),
                             "Class " + treeNode.getName() + " is part of a cycle " + " " +
@@ -401,8 +547,9 @@ public class SemanticAnalyzer
      * Parser that it relies on).  You need to provide command line arguments
      * each of which is the pathname of a Bantam Java file.  Those files will
      * be analyzed by the SemanticAnalyzer. The results will be printed to
-     * System.out.
-     * @param args the pathnames of files to be analyzed
+     * System.out.  With -report as the first argument, the passes that ran
+     * are printed too when checking succeeds.
+     * @param args -report (optional) and the pathnames of files to be analyzed
      */
     public static void main(String[] args) throws IOException {
         ErrorHandler errorHandler = new ErrorHandler();
@@ -411,9 +558,10 @@ public class SemanticAnalyzer
 
         Program program;
         ClassList fullClassList = new ClassList(0);
+        boolean report = args.length > 0 && args[0].equals("-report");
 
         try {
-            for (String inFile : args) {
+            for (String inFile : report ? Arrays.copyOfRange(args, 1, args.length) : args) {
                 Program progDummy = parser.parse(inFile);
                 for (ASTNode klass : progDummy.getClassList()) {
                     fullClassList.addElement(klass);
@@ -423,6 +571,11 @@ public class SemanticAnalyzer
 
             analyzer.analyze(program);
             System.out.println("  Checking was successful.");
+            if (report) {
+                for (String line : analyzer.getPassReport()) {
+                    System.out.println("  " + line);
+                }
+            }
 
         } catch (CompilationException ex) {
             System.out.println(ex.getMessage());
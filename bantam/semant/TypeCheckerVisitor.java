@@ -7,6 +7,7 @@
 package bantam.semant;
 
 import bantam.ast.*;
+import bantam.util.CancellationToken;
 import bantam.util.ClassTreeNode;
 import bantam.util.Error;
 import bantam.util.ErrorHandler;
@@ -49,13 +50,37 @@ public class TypeCheckerVisitor extends Visitor
     /** the level of the current class fields that gets updated
      * every time the program enters a new class_ */
     private int currentClassFieldLevel;
+    /** polled before each method and block is checked (may be null) */
+    private final CancellationToken cancellationToken;
 
     public TypeCheckerVisitor(ErrorHandler errorHandler, ClassTreeNode root) {
+        this(errorHandler, root, null);
+    }
+
+    /**
+     * creates a type checker that stops with a CancellationException
+     * once the given token is cancelled
+     * @param errorHandler the ErrorHandler that records the errors
+     * @param root the ClassTreeNode of the Object class
+     * @param cancellationToken the token to poll, or null for no cancelling
+     */
+    public TypeCheckerVisitor(ErrorHandler errorHandler, ClassTreeNode root,
+                              CancellationToken cancellationToken) {
         this.errorHandler = errorHandler;
         this.currentClass = root; // the Object class
         this.currentMethod = null;
         this.currentSymbolTable = null;
         this.currentNestedLoops = new Stack<>();
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * stops the type checking if the cancellation token has been cancelled
+     */
+    private void checkCancelled() {
+        if (cancellationToken != null) {
+            cancellationToken.throwIfCancelled();
+        }
     }
 
     /*
@@ -140,6 +165,32 @@ public class TypeCheckerVisitor extends Visitor
         return null;
     }
 
+    /**
+     * type checks one member of a class on its own, as visit(Class_) would
+     * check it.  The class hierarchy (and the member tables) must have been
+     * built for a program declaring the class with the same members, as by
+     * SemanticAnalyzer.analyzeDeclarations().  The member node itself may
+     * come from a later parse of the class.
+     *
+     * @param className the name of the class declaring the member
+     * @param member the field or method node
+     */
+    public void checkMember(String className, Member member) {
+        currentClass = currentClass.lookupClass(className);
+        currentSymbolTable = currentClass.getVarSymbolTable();
+        currentClassFieldLevel = currentSymbolTable.getCurrScopeLevel();
+        try {
+            member.accept(this);
+        } finally {
+            // leave the fields table as it was if the check was cancelled
+            while (currentSymbolTable.getCurrScopeLevel() > currentClassFieldLevel) {
+                currentSymbolTable.exitScope();
+            }
+            currentNestedLoops.clear();
+            currentMethod = null;
+        }
+    }
+
     /**
      * Visit a field node
      *
@@ -174,6 +225,7 @@ public class TypeCheckerVisitor extends Visitor
      * @return result of the visit
      */
     public Object visit(Method node) {
+        checkCancelled();
         // is the return type a legitimate type
         if (!typeHasBeenDeclared(node.getReturnType()) && !node.getReturnType().equals(
                 "void")) {
@@ -382,6 +434,7 @@ public class TypeCheckerVisitor extends Visitor
      * @return result of the visit
      */
     public Object visit(BlockStmt node) {
+        checkCancelled();
         currentSymbolTable.enterScope();
         node.getStmtList().accept(this);
         currentSymbolTable.exitScope();
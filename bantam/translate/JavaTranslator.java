@@ -0,0 +1,1222 @@
+/*
+ * File: JavaTranslator.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.translate;
+
+import bantam.ast.*;
+import bantam.codegen.jvm.runtime.BantamRuntime;
+import bantam.interp.ClassLayout;
+import bantam.opt.ConstantFolder;
+import bantam.opt.ReachabilityAnalyzer;
+import bantam.parser.Parser;
+import bantam.semant.SemanticAnalyzer;
+import bantam.util.ClassTreeNode;
+import bantam.util.CompilationException;
+import bantam.util.Error;
+import bantam.util.ErrorHandler;
+import bantam.visitor.Visitor;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This visitor translates a type-checked Bantam Java program to Java
+ * source, one compilation unit per class, which javac compiles to the same
+ * classes as the JvmBackend generates: a Bantam class becomes a public
+ * class in the package BantamRuntime.PACKAGE, int, boolean, String and
+ * Object are those of Java, and the built-in classes TextIO and Sys and
+ * the Bantam meaning of some String and Object methods, of / and % and of
+ * downcasts come from bantam.codegen.jvm.runtime.  Main also gets a static
+ * main() method, so the translation runs as a Java program.
+ * <p/>
+ * Every declaration, statement and expression is written on its line in
+ * the Bantam source (see SourceWriter), so the line numbers in the
+ * messages of javac and in stack traces are those of the Bantam program.
+ * <p/>
+ * Java rejects some code that Bantam accepts: statements that cannot be
+ * reached, a method that can end without returning a value, and
+ * expression statements such as "x + 1;".  The translator follows the
+ * rules of the Java Language Specification (14.22) to drop the statements
+ * that cannot be reached and to add the implicit "return 0;" of a method
+ * that can end, and passes the other expressions to
+ * BantamRuntime.discard().
+ * <p/>
+ * A visit of a statement writes it and returns whether it can complete
+ * normally (Boolean); a visit of an expression writes it and returns null.
+ */
+public class JavaTranslator extends Visitor
+{
+    /** the Java keywords and reserved identifiers */
+    private static final Set<String> KEYWORDS = Set.of(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char",
+            "class", "const", "continue", "default", "do", "double", "else", "enum",
+            "extends", "final", "finally", "float", "for", "goto", "if", "implements",
+            "import", "instanceof", "int", "interface", "long", "native", "new",
+            "package", "private", "protected", "public", "return", "short", "static",
+            "strictfp", "super", "switch", "synchronized", "this", "throw", "throws",
+            "transient", "try", "void", "volatile", "while", "true", "false", "null",
+            "var", "yield", "record", "sealed", "permits", "_");
+
+    /** the precedence levels of Java expressions, loosest first */
+    private static final int ASSIGNMENT = 1;
+    private static final int OR = 2;
+    private static final int AND = 3;
+    private static final int EQUALITY = 4;
+    private static final int RELATIONAL = 5;
+    private static final int ADDITIVE = 6;
+    private static final int MULTIPLICATIVE = 7;
+    private static final int UNARY = 8;
+    private static final int POSTFIX = 9;
+    private static final int PRIMARY = 10;
+
+    /** the classes of the program, by name */
+    private final Hashtable<String, ClassTreeNode> classMap;
+
+    /** the class being translated and where its source goes */
+    private ClassTreeNode currentClass;
+    private SourceWriter out;
+
+    /** whether each enclosing loop has a reachable break, innermost first */
+    private final Deque<boolean[]> loops = new ArrayDeque<>();
+
+    /**
+     * creates a translator for a program
+     *
+     * @param root the root of the class hierarchy returned by
+     *             SemanticAnalyzer.analyze() for the program
+     */
+    public JavaTranslator(ClassTreeNode root) {
+        ClassLayout.buildAll(root);
+        this.classMap = root.getClassMap();
+    }
+
+    /**
+     * translates every class of the program
+     *
+     * @return the Java source of each class, by Bantam class name
+     * @throws UnsupportedOperationException if the program cannot be
+     * written in Java (see translate(ClassTreeNode))
+     */
+    public Map<String, String> translate() {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (ClassTreeNode node : classMap.values()) {
+            if (!node.isBuiltIn()) {
+                sources.put(node.getName(), translate(node));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * translates a class to a Java compilation unit
+     *
+     * @param node the class
+     * @return the Java source
+     * @throws UnsupportedOperationException if the class cannot be written
+     * in Java: an overriding method whose formals or result have other
+     * types than those of the method it overrides, which the semantic
+     * analyzer does not reject, or a class named like a runtime class
+     */
+    public String translate(ClassTreeNode node) {
+        Class_ ast = node.getASTNode();
+        if (node.getName().equals("BantamBase") || node.getName().equals("BantamRuntime")) {
+            throw new UnsupportedOperationException("the class " + node.getName()
+                    + " has the name of a runtime class");
+        }
+        currentClass = node;
+        out = new SourceWriter();
+        int classLine = ast.getLineNum();
+        out.start("package " + BantamRuntime.PACKAGE + ";");
+        out.line(classLine >= 5 ? 3 : 2);
+        out.start("import bantam.codegen.jvm.runtime.*;");
+        out.line(classLine);
+        String parent = node.getParent().getName();
+        out.start("public class " + className(node.getName()) + " extends "
+                + (parent.equals("Object") ? "BantamBase" : className(parent)));
+        out.open();
+        ast.getMemberList().accept(this);
+        if (node.getName().equals("Main")) {
+            out.newLine();
+            out.start("public static void main(String[] args)");
+            out.open();
+            out.newLine();
+            out.start("BantamRuntime.launch(Main.class);");
+            out.close();
+        }
+        out.close();
+        return out.finish();
+    }
+
+    /**
+     * @return the Java identifier of a Bantam variable, field or method:
+     * a '$' is appended to Java keywords and to BantamRuntime, which a
+     * variable of that name would hide
+     */
+    private static String name(String name) {
+        return KEYWORDS.contains(name) || name.equals("BantamRuntime") ? name + "$" : name;
+    }
+
+    /**
+     * @return the Java name of a Bantam class
+     */
+    private static String className(String type) {
+        return KEYWORDS.contains(type) ? type + "$" : type;
+    }
+
+    /**
+     * @return the Java type of a Bantam type
+     */
+    private static String javaType(String type) {
+        return type.equals("int") || type.equals("boolean") || type.equals("void")
+                ? type : className(type);
+    }
+
+    /**
+     * @return whether values of the first type can be assigned to the second
+     */
+    private boolean isSubtype(String type, String superType) {
+        if (type.equals("null") || superType.equals("Object")) {
+            return true;
+        }
+        for (ClassTreeNode node = classMap.get(type); node != null; node = node.getParent()) {
+            if (node.getName().equals(superType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether Java allows comparing or testing values of the first
+     * type against the second: one must be a subtype of the other
+     */
+    private boolean related(String type, String other) {
+        return isSubtype(type, other) || isSubtype(other, type);
+    }
+
+    /**
+     * finds the declaration of a method in a class or its superclasses
+     *
+     * @param start the class
+     * @param name the name of the method
+     * @param owner where the declaration is stored: owner[0] is set to the
+     *              class declaring the method
+     * @return the declaration, or null
+     */
+    private static Method findMethod(ClassTreeNode start, String name, ClassTreeNode[] owner) {
+        for (ClassTreeNode node = start; node != null; node = node.getParent()) {
+            for (ASTNode member : node.getASTNode().getMemberList()) {
+                if (member instanceof Method && ((Method) member).getName().equals(name)) {
+                    owner[0] = node;
+                    return (Method) member;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether two methods have the same formal and result types
+     */
+    private static boolean sameTypes(Method method, Method other) {
+        if (!method.getReturnType().equals(other.getReturnType())
+                || method.getFormalList().getSize() != other.getFormalList().getSize()) {
+            return false;
+        }
+        for (int i = 0; i < method.getFormalList().getSize(); i++) {
+            if (!((Formal) method.getFormalList().get(i)).getType().equals(
+                    ((Formal) other.getFormalList().get(i)).getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visit a field node
+     *
+     * @param node the field node
+     * @return result of the visit
+     */
+    public Object visit(Field node) {
+        out.line(node.getLineNum());
+        out.start("public " + javaType(node.getType()) + " " + name(node.getName()));
+        if (node.getInit() != null) {
+            out.write(" = ");
+            expression(node.getInit());
+        }
+        out.write(";");
+        return null;
+    }
+
+    /**
+     * Visit a method node: the method checks for a stop request on entry
+     *
+     * @param node the method node
+     * @return result of the visit
+     */
+    public Object visit(Method node) {
+        ClassTreeNode[] owner = new ClassTreeNode[1];
+        Method overridden = findMethod(currentClass.getParent(), node.getName(), owner);
+        if (overridden != null && !sameTypes(overridden, node)) {
+            throw new UnsupportedOperationException(currentClass.getName() + "."
+                    + node.getName() + " overrides " + owner[0].getName() + "."
+                    + node.getName() + " with other types");
+        }
+        out.line(node.getLineNum());
+        StringBuilder header = new StringBuilder(overridden != null ? "@Override " : "");
+        header.append("public ").append(javaType(node.getReturnType())).append(" ")
+                .append(name(BantamRuntime.methodName(node.getName()))).append("(");
+        for (ASTNode formal : node.getFormalList()) {
+            if (header.charAt(header.length() - 1) != '(') {
+                header.append(", ");
+            }
+            header.append(javaType(((Formal) formal).getType())).append(" ")
+                    .append(name(((Formal) formal).getName()));
+        }
+        out.start(header.append(")").toString());
+        out.open();
+        out.start("BantamRuntime.poll();");
+        if (statements(node.getStmtList()) && !node.getReturnType().equals("void")) {
+            String type = node.getReturnType();
+            out.start("return " + (type.equals("int") ? "0" : type.equals("boolean")
+                    ? "false" : "null") + ";");
+        }
+        out.close();
+        return null;
+    }
+
+    /**
+     * writes a list of statements, up to the first one that cannot
+     * complete normally: Java rejects the statements after it
+     *
+     * @param list the statements
+     * @return whether the list can complete normally
+     */
+    private boolean statements(StmtList list) {
+        for (ASTNode stmt : list) {
+            if (!(Boolean) stmt.accept(this)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * writes the body of an if or a loop as a block, opened by the caller
+     *
+     * @param stmt the body
+     * @return whether it can complete normally
+     */
+    private boolean body(Stmt stmt) {
+        boolean completes = stmt instanceof BlockStmt
+                ? statements(((BlockStmt) stmt).getStmtList()) : (Boolean) stmt.accept(this);
+        out.close();
+        return completes;
+    }
+
+    /**
+     * writes an expression of a statement or a declaration; its lines
+     * after the first one are continuation lines
+     *
+     * @param expr the expression
+     */
+    private void expression(Expr expr) {
+        out.indent(2);
+        expr.accept(this);
+        out.indent(-2);
+    }
+
+    /**
+     * writes an expression used as a statement: Java only allows
+     * assignments, increments, method calls and object creations
+     *
+     * @param expr the expression
+     */
+    private void statementExpression(Expr expr) {
+        if (expr instanceof AssignExpr || expr instanceof UnaryIncrExpr
+                || expr instanceof UnaryDecrExpr || expr instanceof DispatchExpr
+                || expr instanceof NewExpr && !((NewExpr) expr).getType().equals("String")) {
+            expression(expr);
+        }
+        else {
+            out.write("BantamRuntime.discard(");
+            expression(expr);
+            out.write(")");
+        }
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        out.line(node.getLineNum());
+        out.start(javaType(node.getType()) + " " + name(node.getName()) + " = ");
+        expression(node.getInit());
+        out.write(";");
+        return true;
+    }
+
+    /**
+     * Visit an expression statement node
+     *
+     * @param node the expression statement node
+     * @return result of the visit
+     */
+    public Object visit(ExprStmt node) {
+        out.line(node.getLineNum());
+        out.start("");
+        statementExpression(node.getExpr());
+        out.write(";");
+        return true;
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return result of the visit
+     */
+    public Object visit(IfStmt node) {
+        out.line(node.getLineNum());
+        out.start("if (");
+        expression(node.getPredExpr());
+        out.write(")");
+        out.open();
+        boolean thenCompletes = body(node.getThenStmt());
+        if (node.getElseStmt() == null) {
+            return true;
+        }
+        out.lineAfterCloses(node.getElseStmt().getLineNum());
+        out.start("else");
+        if (node.getElseStmt() instanceof IfStmt) {
+            return (Boolean) node.getElseStmt().accept(this) || thenCompletes;
+        }
+        out.open();
+        return body(node.getElseStmt()) || thenCompletes;
+    }
+
+    /**
+     * Visit a while statement node: the body checks for a stop request.
+     * A loop whose condition is the constant false is dropped, as Java
+     * rejects its body.
+     *
+     * @param node the while statement node
+     * @return result of the visit
+     */
+    public Object visit(WhileStmt node) {
+        if (Boolean.FALSE.equals(constant(node.getPredExpr()))) {
+            return true;
+        }
+        out.line(node.getLineNum());
+        out.start("while (");
+        expression(node.getPredExpr());
+        out.write(")");
+        return loop(node.getPredExpr(), node.getBodyStmt());
+    }
+
+    /**
+     * Visit a for statement node: the body checks for a stop request.  A
+     * loop whose condition is the constant false is reduced to its
+     * initialization, as Java rejects its body.
+     *
+     * @param node the for statement node
+     * @return result of the visit
+     */
+    public Object visit(ForStmt node) {
+        out.line(node.getLineNum());
+        if (node.getPredExpr() != null && Boolean.FALSE.equals(constant(node.getPredExpr()))) {
+            if (node.getInitExpr() != null) {
+                out.start("");
+                statementExpression(node.getInitExpr());
+                out.write(";");
+            }
+            return true;
+        }
+        out.start("for (");
+        if (node.getInitExpr() != null) {
+            statementExpression(node.getInitExpr());
+        }
+        out.write(";");
+        if (node.getPredExpr() != null) {
+            out.write(" ");
+            expression(node.getPredExpr());
+        }
+        out.write(";");
+        if (node.getUpdateExpr() != null) {
+            out.write(" ");
+            statementExpression(node.getUpdateExpr());
+        }
+        out.write(")");
+        return loop(node.getPredExpr(), node.getBodyStmt());
+    }
+
+    /**
+     * writes the body of a loop whose header has been written
+     *
+     * @param pred the condition of the loop, or null if it has none
+     * @param bodyStmt the body
+     * @return whether the loop can complete normally: if its condition is
+     * not the constant true, or if a break in its body can be reached
+     */
+    private boolean loop(Expr pred, Stmt bodyStmt) {
+        out.open();
+        out.start("BantamRuntime.poll();");
+        boolean[] breaks = new boolean[1];
+        loops.push(breaks);
+        body(bodyStmt);
+        loops.pop();
+        return pred != null && !Boolean.TRUE.equals(constant(pred)) || breaks[0];
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return result of the visit
+     */
+    public Object visit(BlockStmt node) {
+        out.line(node.getLineNum());
+        out.start("{");
+        out.indent(1);
+        boolean completes = statements(node.getStmtList());
+        out.close();
+        return completes;
+    }
+
+    /**
+     * Visit a break statement node
+     *
+     * @param node the break statement node
+     * @return result of the visit
+     */
+    public Object visit(BreakStmt node) {
+        out.line(node.getLineNum());
+        out.start("break;");
+        loops.peek()[0] = true;
+        return false;
+    }
+
+    /**
+     * Visit a return statement node
+     *
+     * @param node the return statement node
+     * @return result of the visit
+     */
+    public Object visit(ReturnStmt node) {
+        out.line(node.getLineNum());
+        if (node.getExpr() == null) {
+            out.start("return;");
+        }
+        else {
+            out.start("return ");
+            expression(node.getExpr());
+            out.write(";");
+        }
+        return false;
+    }
+
+    /**
+     * returns the value of an expression if Java considers it a constant
+     * expression (JLS 15.29): literals combined by operators.  The / and %
+     * of a translation are only operators when they divide by a literal
+     * other than 0, and comparisons of Strings are left out.
+     *
+     * @param expr the expression
+     * @return an Integer, a Boolean or a String, or null if the expression
+     * is not constant
+     */
+    private static Object constant(Expr expr) {
+        if (expr instanceof ConstIntExpr) {
+            return ((ConstIntExpr) expr).getIntConstant();
+        }
+        if (expr instanceof ConstBooleanExpr) {
+            return ((ConstBooleanExpr) expr).getConstant().equals("true");
+        }
+        if (expr instanceof ConstStringExpr) {
+            return ((ConstStringExpr) expr).getStringConstant();
+        }
+        if (expr instanceof UnaryNegExpr) {
+            Object value = constant(((UnaryNegExpr) expr).getExpr());
+            return value instanceof Integer ? -(Integer) value : null;
+        }
+        if (expr instanceof UnaryNotExpr) {
+            Object value = constant(((UnaryNotExpr) expr).getExpr());
+            return value instanceof Boolean ? !(Boolean) value : null;
+        }
+        if (!(expr instanceof BinaryExpr)) {
+            return null;
+        }
+        Object left = constant(((BinaryExpr) expr).getLeftExpr());
+        Object right = constant(((BinaryExpr) expr).getRightExpr());
+        if (left instanceof Boolean && right instanceof Boolean) {
+            boolean a = (Boolean) left;
+            boolean b = (Boolean) right;
+            if (expr instanceof BinaryLogicAndExpr) {
+                return a && b;
+            }
+            if (expr instanceof BinaryLogicOrExpr) {
+                return a || b;
+            }
+            if (expr instanceof BinaryCompEqExpr) {
+                return a == b;
+            }
+            return expr instanceof BinaryCompNeExpr ? a != b : null;
+        }
+        if (!(left instanceof Integer && right instanceof Integer)) {
+            return null;
+        }
+        int a = (Integer) left;
+        int b = (Integer) right;
+        if (expr instanceof BinaryArithDivideExpr || expr instanceof BinaryArithModulusExpr) {
+            if (!isPlainDivision((BinaryExpr) expr)) {
+                return null;
+            }
+            return expr instanceof BinaryArithDivideExpr ? a / b : a % b;
+        }
+        if (expr instanceof BinaryArithPlusExpr) {
+            return a + b;
+        }
+        if (expr instanceof BinaryArithMinusExpr) {
+            return a - b;
+        }
+        if (expr instanceof BinaryArithTimesExpr) {
+            return a * b;
+        }
+        if (expr instanceof BinaryCompEqExpr) {
+            return a == b;
+        }
+        if (expr instanceof BinaryCompNeExpr) {
+            return a != b;
+        }
+        if (expr instanceof BinaryCompLtExpr) {
+            return a < b;
+        }
+        if (expr instanceof BinaryCompLeqExpr) {
+            return a <= b;
+        }
+        if (expr instanceof BinaryCompGtExpr) {
+            return a > b;
+        }
+        return expr instanceof BinaryCompGeqExpr ? a >= b : null;
+    }
+
+    /**
+     * @return whether a / or % is written as the Java operator: it divides
+     * by a literal other than 0; the others call BantamRuntime for the
+     * error message
+     */
+    private static boolean isPlainDivision(BinaryExpr node) {
+        Expr right = node.getRightExpr();
+        return right instanceof ConstIntExpr && ((ConstIntExpr) right).getIntConstant() != 0;
+    }
+
+    /**
+     * @return whether an expression is a negative int constant, which the
+     * ConstantFolder leaves for -c and is written with its minus sign
+     */
+    private static boolean isNegative(Expr expr) {
+        return expr instanceof ConstIntExpr && ((ConstIntExpr) expr).getIntConstant() < 0;
+    }
+
+    /**
+     * @return the precedence level of the translation of an expression
+     */
+    private static int precedence(Expr expr) {
+        if (expr instanceof AssignExpr) {
+            return ASSIGNMENT;
+        }
+        if (expr instanceof BinaryLogicOrExpr) {
+            return OR;
+        }
+        if (expr instanceof BinaryLogicAndExpr) {
+            return AND;
+        }
+        if (expr instanceof BinaryCompEqExpr || expr instanceof BinaryCompNeExpr) {
+            return EQUALITY;
+        }
+        if (expr instanceof BinaryCompExpr || expr instanceof InstanceofExpr) {
+            return RELATIONAL;
+        }
+        if (expr instanceof BinaryArithPlusExpr || expr instanceof BinaryArithMinusExpr) {
+            return ADDITIVE;
+        }
+        if (expr instanceof BinaryArithTimesExpr) {
+            return MULTIPLICATIVE;
+        }
+        if (expr instanceof BinaryArithDivideExpr || expr instanceof BinaryArithModulusExpr) {
+            return isPlainDivision((BinaryExpr) expr) ? MULTIPLICATIVE : PRIMARY;
+        }
+        if (expr instanceof UnaryIncrExpr) {
+            return ((UnaryIncrExpr) expr).isPostfix() ? POSTFIX : UNARY;
+        }
+        if (expr instanceof UnaryDecrExpr) {
+            return ((UnaryDecrExpr) expr).isPostfix() ? POSTFIX : UNARY;
+        }
+        if (expr instanceof UnaryExpr || expr instanceof CastExpr || isNegative(expr)) {
+            return UNARY;
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * writes an operand, in parentheses if its precedence is lower than
+     * the given one
+     *
+     * @param expr the operand
+     * @param level the lowest precedence it can have without parentheses
+     */
+    private void operand(Expr expr, int level) {
+        if (precedence(expr) < level) {
+            out.write("(");
+            expr.accept(this);
+            out.write(")");
+        }
+        else {
+            expr.accept(this);
+        }
+    }
+
+    /**
+     * writes an operand compared with a value of another type, cast to
+     * Object if Java would reject the comparison: Java only compares
+     * references of related classes
+     *
+     * @param expr the operand
+     * @param otherType the type it is compared with
+     * @param level the lowest precedence it can have without parentheses
+     */
+    private void comparedOperand(Expr expr, String otherType, int level) {
+        String type = expr.getExprType();
+        if (!type.equals("int") && !type.equals("boolean") && !related(type, otherType)) {
+            out.write("(Object) ");
+            operand(expr, POSTFIX);
+        }
+        else {
+            operand(expr, level);
+        }
+    }
+
+    /**
+     * writes a binary operation
+     *
+     * @param node the operation
+     * @param operator the Java operator
+     */
+    private void binary(BinaryExpr node, String operator) {
+        out.line(node.getLineNum());
+        int level = precedence(node);
+        if (node instanceof BinaryCompEqExpr || node instanceof BinaryCompNeExpr) {
+            comparedOperand(node.getLeftExpr(), node.getRightExpr().getExprType(), level);
+        }
+        else {
+            operand(node.getLeftExpr(), level);
+        }
+        out.write(" " + operator + " ");
+        operand(node.getRightExpr(), level + 1);
+    }
+
+    /**
+     * writes a / or %
+     *
+     * @param node the operation
+     * @param operator "/" or "%"
+     */
+    private void division(BinaryExpr node, String operator) {
+        if (isPlainDivision(node)) {
+            binary(node, operator);
+            return;
+        }
+        out.line(node.getLineNum());
+        out.write("BantamRuntime." + (operator.equals("/") ? "divide(" : "modulus("));
+        node.getLeftExpr().accept(this);
+        out.write(", ");
+        node.getRightExpr().accept(this);
+        out.write(")");
+    }
+
+    /**
+     * writes the target of an assignment or an increment
+     *
+     * @param refName "this", "super" or null
+     * @param name the name of the variable
+     * @param isField whether the variable is a field
+     */
+    private void variable(String refName, String name, boolean isField) {
+        if (isField) {
+            out.write("super".equals(refName) ? "super." : "this.");
+        }
+        out.write(name(name));
+    }
+
+    /**
+     * Visit a dispatch expression node.  The methods of String and Object
+     * are those of java.lang.String and java.lang.Object, or calls of
+     * BantamRuntime when their Bantam meaning is another one.
+     *
+     * @param node the dispatch expression node
+     * @return result of the visit
+     */
+    public Object visit(DispatchExpr node) {
+        out.line(node.getLineNum());
+        Expr ref = node.getRefExpr();
+        String name = node.getMethodName();
+        boolean isSuper = ref instanceof VarExpr && ((VarExpr) ref).getRef() == null
+                && ((VarExpr) ref).getName().equals("super");
+        ClassTreeNode staticClass = ref == null ? currentClass
+                : isSuper ? currentClass.getParent() : classMap.get(ref.getExprType());
+        ClassTreeNode[] declaring = new ClassTreeNode[1];
+        findMethod(staticClass, name, declaring);
+        String owner = declaring[0].getName();
+        String staticType = staticClass.getName();
+        boolean helper = owner.equals("String") && (name.equals("substring")
+                || name.equals("concat")) || !isSuper && name.equals("clone")
+                && owner.equals("Object") && ref != null
+                && (staticType.equals("Object") || staticType.equals("String"));
+        if (helper) {
+            out.write("BantamRuntime." + name + "(");
+            ref.accept(this);
+            if (node.getActualList().getSize() > 0) {
+                out.write(", ");
+            }
+        }
+        else {
+            if (ref != null) {
+                operand(ref, PRIMARY);
+                out.write(".");
+            }
+            out.write(name(BantamRuntime.methodName(name)) + "(");
+        }
+        boolean first = true;
+        for (ASTNode actual : node.getActualList()) {
+            if (!first) {
+                out.write(", ");
+            }
+            first = false;
+            ((Expr) actual).accept(this);
+        }
+        out.write(")");
+        return null;
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return result of the visit
+     */
+    public Object visit(NewExpr node) {
+        out.line(node.getLineNum());
+        switch (node.getType()) {
+            case "String":
+                out.write("\"\"");
+                break;
+            case "Object":
+                out.write("new BantamBase()");
+                break;
+            default:
+                out.write("new " + className(node.getType()) + "()");
+        }
+        return null;
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return result of the visit
+     */
+    public Object visit(InstanceofExpr node) {
+        out.line(node.getLineNum());
+        comparedOperand(node.getExpr(), node.getType(), RELATIONAL);
+        out.write(" instanceof " + javaType(node.getType()));
+        return null;
+    }
+
+    /**
+     * Visit a cast expression node: a downcast is checked by BantamRuntime,
+     * for its error message
+     *
+     * @param node the cast expression node
+     * @return result of the visit
+     */
+    public Object visit(CastExpr node) {
+        out.line(node.getLineNum());
+        String type = javaType(node.getType());
+        out.write("(" + type + ") ");
+        if (node.getUpCast()) {
+            operand(node.getExpr(), POSTFIX);
+        }
+        else {
+            out.write("BantamRuntime.cast(");
+            node.getExpr().accept(this);
+            out.write(", " + type + ".class)");
+        }
+        return null;
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(AssignExpr node) {
+        out.line(node.getLineNum());
+        variable(node.getRefName(), node.getName(), node.isFieldSlot());
+        out.write(" = ");
+        operand(node.getExpr(), ASSIGNMENT);
+        return null;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return result of the visit
+     */
+    public Object visit(VarExpr node) {
+        out.line(node.getLineNum());
+        if (node.getRef() == null && (node.getName().equals("null")
+                || node.getName().equals("this") || node.getName().equals("super"))) {
+            out.write(node.getName());
+        }
+        else {
+            variable(node.getRef() == null ? null : ((VarExpr) node.getRef()).getName(),
+                    node.getName(), node.isFieldSlot());
+        }
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison equals expression node
+     *
+     * @param node the binary comparison equals expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompEqExpr node) {
+        binary(node, "==");
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison not equals expression node
+     *
+     * @param node the binary comparison not equals expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompNeExpr node) {
+        binary(node, "!=");
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison less than expression node
+     *
+     * @param node the binary comparison less than expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompLtExpr node) {
+        binary(node, "<");
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison less than or equal to expression node
+     *
+     * @param node the binary comparison less than or equal to expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompLeqExpr node) {
+        binary(node, "<=");
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison greater than expression node
+     *
+     * @param node the binary comparison greater than expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompGtExpr node) {
+        binary(node, ">");
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison greater than or equal to expression node
+     *
+     * @param node the binary comparison greater than or equal to expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompGeqExpr node) {
+        binary(node, ">=");
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        binary(node, "+");
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        binary(node, "-");
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        binary(node, "*");
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic divide expression node
+     *
+     * @param node the binary arithmetic divide expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithDivideExpr node) {
+        division(node, "/");
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic modulus expression node
+     *
+     * @param node the binary arithmetic modulus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithModulusExpr node) {
+        division(node, "%");
+        return null;
+    }
+
+    /**
+     * Visit a binary logical AND expression node
+     *
+     * @param node the binary logical AND expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryLogicAndExpr node) {
+        binary(node, "&&");
+        return null;
+    }
+
+    /**
+     * Visit a binary logical OR expression node
+     *
+     * @param node the binary logical OR expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryLogicOrExpr node) {
+        binary(node, "||");
+        return null;
+    }
+
+    /**
+     * Visit a unary negation expression node: "- -x" is written "-(-x)",
+     * as "--x" would be a decrement
+     *
+     * @param node the unary negation expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryNegExpr node) {
+        out.line(node.getLineNum());
+        out.write("-");
+        Expr operand = node.getExpr();
+        boolean startsWithMinus = operand instanceof UnaryNegExpr || isNegative(operand)
+                || operand instanceof UnaryDecrExpr && !((UnaryDecrExpr) operand).isPostfix();
+        operand(operand, startsWithMinus ? PRIMARY : UNARY);
+        return null;
+    }
+
+    /**
+     * Visit a unary NOT expression node
+     *
+     * @param node the unary NOT expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryNotExpr node) {
+        out.line(node.getLineNum());
+        out.write("!");
+        operand(node.getExpr(), UNARY);
+        return null;
+    }
+
+    /**
+     * writes ++ or --
+     *
+     * @param node the increment or decrement
+     * @param operator "++" or "--"
+     * @param postfix whether the operator follows the variable
+     */
+    private void increment(UnaryExpr node, String operator, boolean postfix) {
+        out.line(node.getLineNum());
+        VarExpr target = (VarExpr) node.getExpr();
+        if (!postfix) {
+            out.write(operator);
+        }
+        variable(target.getRef() == null ? null : ((VarExpr) target.getRef()).getName(),
+                target.getName(), target.isFieldSlot());
+        if (postfix) {
+            out.write(operator);
+        }
+    }
+
+    /**
+     * Visit a unary increment expression node
+     *
+     * @param node the unary increment expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryIncrExpr node) {
+        increment(node, "++", node.isPostfix());
+        return null;
+    }
+
+    /**
+     * Visit a unary decrement expression node
+     *
+     * @param node the unary decrement expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryDecrExpr node) {
+        increment(node, "--", node.isPostfix());
+        return null;
+    }
+
+    /**
+     * Visit a int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstIntExpr node) {
+        out.line(node.getLineNum());
+        out.write(Integer.toString(node.getIntConstant()));
+        return null;
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstBooleanExpr node) {
+        out.line(node.getLineNum());
+        out.write(node.getConstant());
+        return null;
+    }
+
+    /**
+     * Visit a string constant expression node: the characters that cannot
+     * appear in a Java string literal as they are get escapes, octal ones
+     * for control characters (a \\u escape would be decoded before the
+     * literal is read)
+     *
+     * @param node the string constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstStringExpr node) {
+        out.line(node.getLineNum());
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : node.getStringConstant().toCharArray()) {
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                case '\f':
+                    literal.append("\\f");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                default:
+                    if (c < ' ' || c == 0x7F) {
+                        literal.append(String.format("\\%03o", (int) c));
+                    }
+                    else {
+                        literal.append(c);
+                    }
+            }
+        }
+        out.write(literal.append('"').toString());
+        return null;
+    }
+
+    /**
+     * prints the Java translation of a Bantam Java program.  You need to
+     * provide command line arguments each of which is the pathname of a
+     * Bantam Java file.
+     * @param args the pathnames of the files of the program
+     */
+    public static void main(String[] args) throws IOException {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Parser parser = new Parser(errorHandler);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        ClassList fullClassList = new ClassList(0);
+
+        try {
+            for (String arg : args) {
+                for (ASTNode klass : parser.parse(arg).getClassList()) {
+                    fullClassList.addElement(klass);
+                }
+            }
+            ClassTreeNode root = analyzer.analyze(new Program(0, fullClassList));
+            new ConstantFolder().fold(root);
+            new ReachabilityAnalyzer().strip(root);
+            for (Map.Entry<String, String> entry : new JavaTranslator(root).translate().entrySet()) {
+                System.out.println("// " + entry.getKey() + ".java");
+                System.out.print(entry.getValue());
+            }
+        } catch (CompilationException ex) {
+            System.out.println("  There were errors:");
+            for (Error error : errorHandler.getErrorList()) {
+                System.out.println("\t" + error.toString());
+            }
+        } catch (UnsupportedOperationException ex) {
+            System.err.println("Cannot translate to Java: " + ex.getMessage());
+        }
+    }
+}
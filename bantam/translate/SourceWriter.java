@@ -0,0 +1,192 @@
+/*
+ * File: SourceWriter.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.translate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes Java source whose lines are those of the Bantam source it is
+ * translated from: the text of a node goes to the line of the node, or
+ * further right on the current line if the text before it already reaches
+ * that line.
+ * <p/>
+ * The AST does not know where a block ends, so closing braces are held
+ * back until the next text is written: they get lines of their own if the
+ * Bantam source leaves empty lines before that text, and share a line
+ * with it otherwise.
+ */
+final class SourceWriter
+{
+    /** the spaces of one level of indentation */
+    private static final String INDENT = "    ";
+
+    private final StringBuilder text = new StringBuilder();
+
+    /** the current line, counted from 1 */
+    private int line = 1;
+
+    /** whether something has been written on the current line */
+    private boolean lineStarted;
+
+    /** the level of indentation of new lines */
+    private int indent;
+
+    /** the levels of indentation of the closing braces held back, innermost first */
+    private final List<Integer> closes = new ArrayList<>();
+
+    /**
+     * @return the current line
+     */
+    int getLine() {
+        return line;
+    }
+
+    /**
+     * changes the indentation of the lines started from now on
+     * @param levels the number of levels added, or removed if negative
+     */
+    void indent(int levels) {
+        indent += levels;
+    }
+
+    /**
+     * moves to a line, if it is after the current one.  The closing braces
+     * held back end the current line if there is no empty line for them.
+     * @param target the line
+     */
+    void line(int target) {
+        moveTo(target, false);
+    }
+
+    /**
+     * moves to a line, if it is after the current one.  The closing braces
+     * held back start the line if there is no empty line for them, as in
+     * "} else {".
+     * @param target the line
+     */
+    void lineAfterCloses(int target) {
+        moveTo(target, true);
+    }
+
+    /**
+     * moves to the next line, giving each closing brace held back a line
+     * of its own
+     */
+    void newLine() {
+        moveTo(line + closes.size() + 1, false);
+    }
+
+    /**
+     * moves to a line
+     * @param target the line
+     * @param closesFirst where the closing braces that do not get a line
+     *                    of their own go: the start of the target line if
+     *                    true, the end of the current line if false
+     */
+    private void moveTo(int target, boolean closesFirst) {
+        if (target <= line) {
+            return;
+        }
+        int ownLines = Math.min(closes.size(), target - line - 1);
+        int shared = closes.size() - ownLines;
+        if (!closesFirst) {
+            for (int i = 0; i < shared; i++) {
+                writeClose(closes.get(i));
+            }
+        }
+        for (int i = closesFirst ? 0 : shared; i < (closesFirst ? ownLines : closes.size()); i++) {
+            breakLine();
+            writeClose(closes.get(i));
+        }
+        List<Integer> remaining = closesFirst
+                ? new ArrayList<>(closes.subList(ownLines, closes.size())) : new ArrayList<>();
+        closes.clear();
+        while (line < target) {
+            breakLine();
+        }
+        closes.addAll(remaining);
+    }
+
+    private void breakLine() {
+        text.append('\n');
+        line++;
+        lineStarted = false;
+    }
+
+    private void writeClose(int level) {
+        startText(level);
+        text.append('}');
+    }
+
+    /**
+     * writes the indentation if the current line is empty, or a space if
+     * it does not end with one
+     * @param level the level of indentation
+     */
+    private void startText(int level) {
+        if (!lineStarted) {
+            text.append(INDENT.repeat(Math.max(level, 0)));
+            lineStarted = true;
+        }
+        else if (text.charAt(text.length() - 1) != ' ') {
+            text.append(' ');
+        }
+    }
+
+    /**
+     * writes the start of a statement or a declaration on the current line,
+     * after the closing braces held back
+     * @param start the text
+     */
+    void start(String start) {
+        for (int level : closes) {
+            writeClose(level);
+        }
+        closes.clear();
+        startText(indent);
+        text.append(start);
+    }
+
+    /**
+     * writes text after the text already on the line
+     * @param more the text
+     */
+    void write(String more) {
+        if (!lineStarted) {
+            startText(indent);
+        }
+        text.append(more);
+    }
+
+    /**
+     * writes " {" and indents the lines started until close() is called
+     */
+    void open() {
+        write(" {");
+        indent++;
+    }
+
+    /**
+     * ends the block opened last; its closing brace is held back
+     */
+    void close() {
+        indent--;
+        closes.add(indent);
+    }
+
+    /**
+     * writes the closing braces held back, which ends the source
+     * @return the source
+     */
+    String finish() {
+        newLine();
+        return text.toString();
+    }
+}
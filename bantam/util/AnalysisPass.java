@@ -0,0 +1,30 @@
+/*
+ * File: AnalysisPass.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.util;
+
+/**
+ * A step of the compiler run by a PassManager, such as building the class
+ * map, type checking or a lint check.  The pass reads the results of the
+ * passes it was registered as depending on and produces one result of its
+ * own, which later passes can read in turn.
+ */
+public interface AnalysisPass
+{
+    /**
+     * runs the pass.  It may run on any thread of the manager's pool and at
+     * the same time as every pass it does not depend on (directly or not), so
+     * it must not change anything those passes read.
+     *
+     * @param manager      the manager running the pass, whose getResult() gives
+     *                     the results of the passes this one depends on
+     * @param errorHandler the handler to register the errors of this pass with
+     * @return the result of the pass (may be null)
+     */
+    Object run(PassManager manager, ErrorHandler errorHandler);
+}
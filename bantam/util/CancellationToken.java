@@ -0,0 +1,51 @@
+/*
+ * File: CancellationToken.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.util;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * A flag shared between the thread that started a compiler phase and the
+ * thread running it.  The Scanner, Parser and TypeCheckerVisitor poll the
+ * token while they work and give up with a CancellationException as soon
+ * as it has been cancelled, so that a check of text the user has already
+ * changed does not keep burning CPU.
+ */
+public class CancellationToken {
+
+    /** set (from any thread) when the work should stop */
+    private volatile boolean cancelled = false;
+
+    /**
+     * asks the phases using this token to stop
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if cancel() has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * throws a CancellationException if this token has been cancelled.
+     * Called by the compiler phases at convenient points (every token,
+     * every class member, every method body...).
+     *
+     * @throws CancellationException if the token has been cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Compilation cancelled");
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * File: PassManager.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a set of AnalysisPasses, each registered with the names of the
+ * passes whose results it reads.  A pass starts on the manager's executor
+ * (by default the common fork/join pool) as soon as those passes have
+ * finished, so passes that do not depend on each other run at the same time
+ * when there are free cores.
+ * <p>
+ * Results are kept: run() only runs the passes that have no result yet, and
+ * invalidate() drops a result along with the results of every pass reading
+ * it.  Each pass registers its errors with a handler of its own, and these
+ * are copied to the caller's handler in the order the passes were added, so
+ * the errors do not depend on how the passes were scheduled.
+ */
+public class PassManager
+{
+    /** stands for a null result in the result map */
+    private static final Object NO_RESULT = new Object();
+
+    /** a registered pass and the passes it reads */
+    private static class Node
+    {
+        final String name;
+        final List<String> reads;
+        final AnalysisPass pass;
+
+        Node(String name, List<String> reads, AnalysisPass pass) {
+            this.name = name;
+            this.reads = reads;
+            this.pass = pass;
+        }
+    }
+
+    /** runs the passes */
+    private final Executor executor;
+
+    /** the passes by name, in the order they were added */
+    private final Map<String, Node> passes = new LinkedHashMap<>();
+
+    /** the result of each pass that has finished and not been invalidated */
+    private final Map<String, Object> results = new ConcurrentHashMap<>();
+
+    /** the run time of each pass that has finished, in nanoseconds */
+    private final Map<String, Long> times = new ConcurrentHashMap<>();
+
+    /** the wall-clock time of the last call of run(), in nanoseconds */
+    private long wallTime;
+
+    /** polled before each pass starts (may be null) */
+    private CancellationToken cancellationToken;
+
+    /**
+     * creates a manager running its passes on the common fork/join pool
+     */
+    public PassManager() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * creates a manager running its passes with the given executor.  With
+     * Runnable::run, every pass runs on the thread calling run(), one after
+     * the other.
+     *
+     * @param executor the executor
+     */
+    public PassManager(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the token polled before each pass starts.  Once it is cancelled,
+     * run() throws a CancellationException.
+     *
+     * @param cancellationToken the token to poll, or null for no cancelling
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * registers a pass.  Since the passes it reads must have been added
+     * before it, the passes cannot depend on each other in a cycle.
+     *
+     * @param name  the name of the pass, which is also the name of its result
+     * @param reads the names of the passes whose results it reads
+     * @param pass  the pass
+     * @throws IllegalArgumentException if a pass of that name was already
+     * added, or one of the passes it reads was not
+     */
+    public void add(String name, List<String> reads, AnalysisPass pass) {
+        if (passes.containsKey(name)) {
+            throw new IllegalArgumentException("There is already a pass named " + name);
+        }
+        for (String read : reads) {
+            if (!passes.containsKey(read)) {
+                throw new IllegalArgumentException("Pass " + name + " reads " + read
+                        + ", which has not been added");
+            }
+        }
+        passes.put(name, new Node(name, List.copyOf(reads), pass));
+    }
+
+    /**
+     * runs every pass that has no result yet, waiting until they have all
+     * finished, and copies their errors to the given handler
+     *
+     * @param errorHandler the handler to register the errors with
+     * @throws RuntimeException the exception thrown by the first pass (in the
+     * order they were added) that failed; the passes depending on it do not run
+     */
+    public void run(ErrorHandler errorHandler) {
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        Map<String, ErrorHandler> handlers = new LinkedHashMap<>();
+        for (Node node : passes.values()) {
+            if (results.containsKey(node.name)) {
+                futures.put(node.name, CompletableFuture.completedFuture(null));
+                continue;
+            }
+            CompletableFuture<?>[] inputs = new CompletableFuture<?>[node.reads.size()];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = futures.get(node.reads.get(i));
+            }
+            ErrorHandler handler = new ErrorHandler();
+            handlers.put(node.name, handler);
+            futures.put(node.name, CompletableFuture.allOf(inputs)
+                    .thenRunAsync(() -> runPass(node, handler), executor));
+        }
+
+        RuntimeException failure = null;
+        for (Map.Entry<String, ErrorHandler> entry : handlers.entrySet()) {
+            try {
+                futures.get(entry.getKey()).join();
+            } catch (CompletionException ex) {
+                if (failure == null) {
+                    failure = unwrap(ex);
+                }
+            }
+            for (Error error : entry.getValue().getErrorList()) {
+                errorHandler.register(error.getKind(), error.getFilename(),
+                        error.getLineNum(), error.getMessage());
+            }
+        }
+        wallTime = System.nanoTime() - start;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * runs a pass on the current thread and stores its result and time
+     */
+    private void runPass(Node node, ErrorHandler handler) {
+        if (cancellationToken != null) {
+            cancellationToken.throwIfCancelled();
+        }
+        long start = System.nanoTime();
+        Object result = node.pass.run(this, handler);
+        times.put(node.name, System.nanoTime() - start);
+        results.put(node.name, result == null ? NO_RESULT : result);
+    }
+
+    /**
+     * @return the exception a pass threw, given the exception wrapping it
+     */
+    private static RuntimeException unwrap(CompletionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof java.lang.Error) {
+            throw (java.lang.Error) cause;
+        }
+        return ex;
+    }
+
+    /**
+     * drops the result of a pass and of every pass reading it (directly or
+     * not), so that the next run() runs them again
+     *
+     * @param name the name of the pass
+     */
+    public void invalidate(String name) {
+        results.remove(name);
+        times.remove(name);
+        for (Node node : passes.values()) {
+            if (node.reads.contains(name) && results.containsKey(node.name)) {
+                invalidate(node.name);
+            }
+        }
+    }
+
+    /**
+     * drops every result
+     */
+    public void invalidateAll() {
+        results.clear();
+        times.clear();
+    }
+
+    /**
+     * @param name the name of a pass
+     * @return true if the pass has a result
+     */
+    public boolean hasResult(String name) {
+        return results.containsKey(name);
+    }
+
+    /**
+     * gets the result of a pass.  A pass may call this for the passes it
+     * reads, which have always finished by the time it starts.
+     *
+     * @param name the name of the pass
+     * @return its result (may be null)
+     * @throws IllegalStateException if the pass has no result
+     */
+    public Object getResult(String name) {
+        Object result = results.get(name);
+        if (result == null) {
+            throw new IllegalStateException("Pass " + name + " has no result");
+        }
+        return result == NO_RESULT ? null : result;
+    }
+
+    /**
+     * @param name the name of a pass
+     * @return how long the pass took when it last ran, in nanoseconds, or -1
+     * if it has no result
+     */
+    public long getTime(String name) {
+        return times.getOrDefault(name, -1L);
+    }
+
+    /**
+     * @return a line per pass with a result, in the order they were added:
+     * its name, the passes it reads and its run time, followed by the
+     * wall-clock time of the last run()
+     */
+    public List<String> getReport() {
+        List<String> report = new ArrayList<>();
+        for (Node node : passes.values()) {
+            Long time = times.get(node.name);
+            if (time != null) {
+                report.add(String.format("%-10s %8.2f ms  reads %s", node.name,
+                        time / 1e6, node.reads.isEmpty() ? "-" : String.join(", ",
+                                node.reads)));
+            }
+        }
+        report.add(String.format("%-10s %8.2f ms", "wall clock", wallTime / 1e6));
+        return Collections.unmodifiableList(report);
+    }
+}
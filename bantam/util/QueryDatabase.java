@@ -0,0 +1,280 @@
+/*
+ * File: QueryDatabase.java
+ * Names: Philipp Bogatyrev, Anton Dimitrov, Baron Wang
+ * Class: CS 361
+ * Project 10
+ * Date: May 3
+ */
+
+package bantam.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A demand-driven database of memoized queries.  Inputs are set from
+ * outside; queries compute their value from inputs and other queries,
+ * and every value a query reads through get() is recorded as one of its
+ * dependencies.
+ * <p>
+ * Each change of an input starts a new revision.  When a query is asked for
+ * again, its memoized value is reused if none of its dependencies changed
+ * since the value was last verified; the dependencies are brought up to date
+ * first, recursively.  When a recomputed value equals the old one, the old
+ * value is kept and counts as unchanged, so the queries depending on it are
+ * not run again ("early cutoff").  A query can thus return an object whose
+ * equals() only compares the part its readers care about.
+ * <p>
+ * The database is not thread-safe.
+ */
+public class QueryDatabase
+{
+    /**
+     * computes the value of a query from the database
+     *
+     * @param <K> the type of the key of the query
+     * @param <V> the type of its value
+     */
+    public interface Query<K, V>
+    {
+        /**
+         * computes the value of the query for a key.  The inputs and other
+         * queries must be read with db.get(), so that they are recorded as
+         * dependencies.
+         *
+         * @param db  the database
+         * @param key the key
+         * @return the value (may be null)
+         */
+        V compute(QueryDatabase db, K key);
+    }
+
+    /** the name of a query or input and a key */
+    private static class Key
+    {
+        final String name;
+        final Object key;
+
+        Key(String name, Object key) {
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && name.equals(((Key) o).name)
+                    && Objects.equals(key, ((Key) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Objects.hashCode(key);
+        }
+    }
+
+    /** the memoized value of an input or query */
+    private static class Memo
+    {
+        Object value;
+        /** the revision in which the value last changed */
+        long changedAt;
+        /** the last revision in which the value was known to be up to date */
+        long verifiedAt;
+        /** what the query read, in order (null for an input) */
+        List<Key> dependencies;
+    }
+
+    /** the queries by name */
+    private final Map<String, Query<?, ?>> queries = new HashMap<>();
+
+    /** the memoized values of the inputs and queries */
+    private final Map<Key, Memo> memos = new HashMap<>();
+
+    /** the dependencies recorded by each query being computed, innermost last */
+    private final Deque<List<Key>> active = new ArrayDeque<>();
+
+    /** the queries being computed, to detect cycles */
+    private final Set<Key> computing = new HashSet<>();
+
+    /** the number of times each query has been computed */
+    private final Map<String, Integer> computeCounts = new TreeMap<>();
+
+    /** the current revision */
+    private long revision = 1;
+
+    /**
+     * defines a query
+     *
+     * @param name  the name of the query
+     * @param query computes its values
+     */
+    public void define(String name, Query<?, ?> query) {
+        queries.put(name, query);
+    }
+
+    /**
+     * sets an input.  Setting it to a value equal to its current one does
+     * not start a new revision.
+     *
+     * @param name  the name of the input
+     * @param key   the key of the input (may be null)
+     * @param value the value (may be null)
+     */
+    public void set(String name, Object key, Object value) {
+        Key k = new Key(name, key);
+        Memo memo = memos.get(k);
+        if (memo != null && Objects.equals(memo.value, value)) {
+            return;
+        }
+        revision++;
+        memo = new Memo();
+        memo.value = value;
+        memo.changedAt = revision;
+        memo.verifiedAt = revision;
+        memos.put(k, memo);
+    }
+
+    /**
+     * removes an input, so that the queries that read it run again
+     *
+     * @param name the name of the input
+     * @param key  the key of the input
+     */
+    public void remove(String name, Object key) {
+        if (memos.remove(new Key(name, key)) != null) {
+            revision++;
+        }
+    }
+
+    /**
+     * gets the value of an input or query, computing it if needed.  When
+     * called by a query, records the value as one of its dependencies.
+     *
+     * @param name the name of the input or query
+     * @param key  the key
+     * @return the value
+     * @throws IllegalArgumentException if there is no such input or query
+     * @throws IllegalStateException if a query depends on itself
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(String name, Object key) {
+        Key k = new Key(name, key);
+        Memo memo = fetch(k);
+        if (!active.isEmpty()) {
+            active.peekLast().add(k);
+        }
+        return (V) memo.value;
+    }
+
+    /**
+     * @return the memo of a key, brought up to date
+     */
+    private Memo fetch(Key k) {
+        Memo memo = memos.get(k);
+        Query<?, ?> query = queries.get(k.name);
+        if (query == null) {
+            if (memo == null) {
+                throw new IllegalArgumentException("There is no input " + k.name
+                        + " for " + k.key);
+            }
+            return memo;
+        }
+        if (memo != null && (memo.verifiedAt == revision || isUpToDate(memo))) {
+            memo.verifiedAt = revision;
+            return memo;
+        }
+        return compute(k, query, memo);
+    }
+
+    /**
+     * @return whether none of the dependencies of a memoized query changed
+     * since it was last verified
+     */
+    private boolean isUpToDate(Memo memo) {
+        for (Key dependency : memo.dependencies) {
+            if (!queries.containsKey(dependency.name)
+                    && !memos.containsKey(dependency)) {
+                return false; // a removed input
+            }
+            if (fetch(dependency).changedAt > memo.verifiedAt) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * runs a query and memoizes its value
+     */
+    @SuppressWarnings("unchecked")
+    private Memo compute(Key k, Query<?, ?> query, Memo old) {
+        if (!computing.add(k)) {
+            throw new IllegalStateException("Query " + k.name + " for " + k.key
+                    + " depends on itself");
+        }
+        List<Key> dependencies = new ArrayList<>();
+        active.addLast(dependencies);
+        Object value;
+        try {
+            value = ((Query<Object, Object>) query).compute(this, k.key);
+        } finally {
+            active.removeLast();
+            computing.remove(k);
+        }
+        computeCounts.merge(k.name, 1, Integer::sum);
+
+        Memo memo = new Memo();
+        memo.dependencies = dependencies;
+        memo.verifiedAt = revision;
+        if (old != null && Objects.equals(old.value, value)) {
+            memo.value = old.value;
+            memo.changedAt = old.changedAt;
+        }
+        else {
+            memo.value = value;
+            memo.changedAt = revision;
+        }
+        memos.put(k, memo);
+        return memo;
+    }
+
+    /**
+     * drops the memoized values of queries not verified in the current
+     * revision.  Called after asking for everything still needed, it frees
+     * the queries of things that no longer exist.
+     */
+    public void sweep() {
+        Iterator<Map.Entry<Key, Memo>> entries = memos.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, Memo> entry = entries.next();
+            if (queries.containsKey(entry.getKey().name)
+                    && entry.getValue().verifiedAt < revision) {
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the current revision, which goes up each time an input changes
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return the number of times each query has been computed so far, by name
+     */
+    public Map<String, Integer> getComputeCounts() {
+        return Collections.unmodifiableMap(computeCounts);
+    }
+}